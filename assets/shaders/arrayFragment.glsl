@@ -0,0 +1,28 @@
+#type fragment
+#version 330 core
+
+in vec4 fColor;
+in vec2 fTexCoords;
+flat in int fSlot;
+flat in float fLayer;
+
+uniform sampler2DArray uTextureArrays[8];
+
+out vec4 color;
+
+void main()
+{
+    vec3 uv = vec3(fTexCoords, fLayer);
+    // sampler arrays may only be indexed with constants in GLSL 3.30
+    switch (fSlot) {
+        case 0: color = fColor * texture(uTextureArrays[0], uv); break;
+        case 1: color = fColor * texture(uTextureArrays[1], uv); break;
+        case 2: color = fColor * texture(uTextureArrays[2], uv); break;
+        case 3: color = fColor * texture(uTextureArrays[3], uv); break;
+        case 4: color = fColor * texture(uTextureArrays[4], uv); break;
+        case 5: color = fColor * texture(uTextureArrays[5], uv); break;
+        case 6: color = fColor * texture(uTextureArrays[6], uv); break;
+        case 7: color = fColor * texture(uTextureArrays[7], uv); break;
+        default: color = fColor;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+#type vertex
+#version 330 core
+// corner of the unit quad, shared by every sprite
+layout (location=0) in vec2 aCorner;
+// per sprite
+layout (location=1) in vec2 aPosition;
+layout (location=2) in vec2 aScale;
+layout (location=3) in float aRotation;
+layout (location=4) in vec4 aUvRect;
+// 0 without texture, otherwise 1 + slot + 16 * layer
+layout (location=5) in float aTexId;
+layout (location=6) in vec4 aColor;
+uniform mat4 uProjection;
+uniform mat4 uView;
+
+out vec4 fColor;
+out vec2 fTexCoords;
+flat out int fSlot;
+flat out float fLayer;
+void main()
+{
+    vec2 local = (aCorner - 0.5) * aScale;
+    float angle = radians(aRotation);
+    float c = cos(angle);
+    float s = sin(angle);
+    vec2 world = aPosition + vec2(local.x * c - local.y * s, local.x * s + local.y * c);
+
+    int packed = int(aTexId + 0.5);
+    fSlot = packed == 0 ? -1 : (packed - 1) % 16;
+    fLayer = float((packed - 1) / 16);
+    fColor = aColor;
+    fTexCoords = mix(aUvRect.xy, aUvRect.zw, aCorner);
+    gl_Position = uProjection * uView * vec4(world, 0.0, 1.0);
+}
\ No newline at end of file
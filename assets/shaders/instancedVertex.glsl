@@ -0,0 +1,31 @@
+#type vertex
+#version 330 core
+// corner of the unit quad, shared by every sprite
+layout (location=0) in vec2 aCorner;
+// per sprite
+layout (location=1) in vec2 aPosition;
+layout (location=2) in vec2 aScale;
+layout (location=3) in float aRotation;
+layout (location=4) in vec4 aUvRect;
+layout (location=5) in float aTexId;
+layout (location=6) in vec4 aColor;
+uniform mat4 uProjection;
+uniform mat4 uView;
+
+out vec4 fColor;
+out vec2 fTexCoords;
+out float fTexId;
+void main()
+{
+    vec2 local = (aCorner - 0.5) * aScale;
+    float angle = radians(aRotation);
+    float c = cos(angle);
+    float s = sin(angle);
+    vec2 world = aPosition + vec2(local.x * c - local.y * s, local.x * s + local.y * c);
+
+    fColor = aColor;
+    // the rect holds the texture coordinates of the (0,0) and (1,1) corners
+    fTexCoords = mix(aUvRect.xy, aUvRect.zw, aCorner);
+    fTexId = aTexId;
+    gl_Position = uProjection * uView * vec4(world, 0.0, 1.0);
+}
\ No newline at end of file
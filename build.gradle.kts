@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -11,7 +12,25 @@ val imguiVersion = "1.89.0"
 repositories {
     mavenCentral()
 }
+
+// VectorBatchSAT uses the incubating Vector API, so it has a source set of its own and only its
+// compile adds the module. BatchSAT loads it by name, main never refers to it.
+sourceSets {
+    create("vector") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    }
+}
+tasks.named<JavaCompile>("compileVectorJava") {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+tasks.jar {
+    from(sourceSets["vector"].output)
+}
+
 dependencies {
+    // the vector batch is on every runtime classpath: tests, benchmarks and runHeadless
+    runtimeOnly(sourceSets["vector"].output)
+
     //Gson
     implementation("com.google.code.gson:gson:2.12.1")
 
@@ -46,4 +65,20 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
+
+// benchmarks in src/jmh/java, run with "gradlew jmh"
+jmh {
+    jvmArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+    profilers.add("gc")
+}
+
+// physics benchmark without a window, e.g. gradlew runHeadless --args="snowballs=5000 broadphase=sap"
+tasks.register<JavaExec>("runHeadless") {
+    group = "application"
+    description = "Runs a generated physics scene without rendering and prints step statistics."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("physics.headless.HeadlessSimulation")
+    jvmArgs("--add-modules", "jdk.incubator.vector")
 }
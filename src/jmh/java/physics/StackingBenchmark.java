@@ -0,0 +1,145 @@
+package physics;
+
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * StackingBenchmark drops columns of boxes onto a floor and measures how fast the stacks
+ * come to rest with the original impulse solver, the accumulated impulse solver starting
+ * cold every step (cache disabled) and the same solver warm started from the contact cache.
+ * Run it with
+ *   gradlew jmh
+ * Every invocation runs STEPS steps of a fresh scene, so the score is the time of the whole
+ * run. The aux counters give the step at which the stacks came to rest (all bodies slower
+ * than REST_SPEED for REST_STEPS steps in a row, STEPS if never), the fastest body at the end
+ * and how far the top boxes sank or drifted from their ideal place.
+ * Author(s): Gabriel, Ahmed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class StackingBenchmark {
+    private static final float DT = 1.0f / 60.0f;
+    private static final float GRAVITY = -200.0f;
+    private static final int COLUMNS = 20;
+    private static final int HEIGHT = 10;
+    private static final float BOX = 20.0f;
+    private static final int STEPS = 600;
+    private static final float REST_SPEED = 1.0f;
+    private static final int REST_STEPS = 30;
+
+    public enum Solver { ORIGINAL, COLD, WARM }
+
+    @Param({"ORIGINAL", "COLD", "WARM"})
+    public Solver solver;
+
+    @Param({"4", "6", "8", "11", "16", "21"})
+    public int iterations;
+
+    private PhysicsSystem system;
+    private List<Rigidbody2D> bodies;
+    private List<Rigidbody2D> tops;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        system = new PhysicsSystem(DT, new Vector2f(0, GRAVITY));
+        system.setSleepingEnabled(false);
+        system.setSolverThreads(1);
+        system.setImpulseIterations(iterations);
+        system.setWarmStarting(solver != Solver.ORIGINAL);
+        system.getContactSolver().getCache().setEnabled(solver == Solver.WARM);
+        tops = new ArrayList<>();
+        bodies = createStacks(system, tops);
+    }
+
+    /*
+     * Outcome of the last run of each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RestCounters {
+        public long restAtStep;
+        public double maxSpeed;
+        public double topError;
+    }
+
+    @Benchmark
+    public void settle(RestCounters counters) {
+        int restAt = STEPS;
+        int restingSteps = 0;
+        float maxSpeed = 0.0f;
+        for (int step = 0; step < STEPS; step++) {
+            system.fixedUpdate();
+
+            maxSpeed = 0.0f;
+            for (Rigidbody2D body : bodies) {
+                maxSpeed = Math.max(maxSpeed, body.getLinearVelocity().length());
+            }
+            restingSteps = maxSpeed < REST_SPEED ? restingSteps + 1 : 0;
+            if (restingSteps == REST_STEPS && restAt == STEPS) {
+                restAt = step - REST_STEPS + 1;
+            }
+        }
+
+        // the top box of column c should end up at x = c * 2 * BOX, y = (HEIGHT - 0.5) * BOX
+        float topError = 0.0f;
+        for (int c = 0; c < tops.size(); c++) {
+            Vector2f ideal = new Vector2f(c * 2 * BOX, (HEIGHT - 0.5f) * BOX);
+            topError = Math.max(topError, tops.get(c).getPosition().distance(ideal));
+        }
+        counters.restAtStep = restAt;
+        counters.maxSpeed = maxSpeed;
+        counters.topError = topError;
+    }
+
+    // columns of boxes with small gaps, so every box falls a little before it lands
+    private static List<Rigidbody2D> createStacks(PhysicsSystem system, List<Rigidbody2D> tops) {
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        Rigidbody2D floor = createBox(new Vector2f(COLUMNS * BOX, -50), new Vector2f(COLUMNS * 4 * BOX, 100),
+                Rigidbody2D.BodyType.STATIC);
+        system.addRigidbody(floor);
+        for (int c = 0; c < COLUMNS; c++) {
+            for (int h = 0; h < HEIGHT; h++) {
+                Rigidbody2D box = createBox(new Vector2f(c * 2 * BOX, (h + 0.5f) * BOX + h * 0.5f + 0.5f),
+                        new Vector2f(BOX, BOX), Rigidbody2D.BodyType.DYNAMIC);
+                box.setRestitution(0.0f);
+                system.addRigidbody(box);
+                bodies.add(box);
+                if (h == HEIGHT - 1) tops.add(box);
+            }
+        }
+        return bodies;
+    }
+
+    private static Rigidbody2D createBox(Vector2f position, Vector2f size, Rigidbody2D.BodyType type) {
+        Rigidbody2D rb = new Rigidbody2D();
+        rb.setBodyType(type);
+        rb.setPosition(position);
+        Collider collider = new OBBCollider(size);
+        collider.setRigidbody(rb);
+        rb.setCollider(collider);
+        return rb;
+    }
+}
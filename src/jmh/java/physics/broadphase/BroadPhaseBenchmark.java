@@ -0,0 +1,162 @@
+package physics.broadphase;
+
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * BroadPhaseBenchmark measures the pair search of each broad phase at 1k, 10k and 50k bodies
+ * with JMH. Run it with
+ *   gradlew jmh
+ * Bodies are spread so the density (and so the number of real contacts) stays the same for
+ * every size. With 5% static bodies the scene is a crowd of movers, with 95% it is a level of
+ * platforms with few movers. Brute force only runs up to 10k bodies, above that it would
+ * take minutes per step. The pairs found per step come from the aux counters.
+ * Author(s): Gabriel, Ahmed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BroadPhaseBenchmark {
+
+    /*
+     * Bodies of a generated scene and the broad phase searching them. The dynamic bodies
+     * move slightly before every search, like a simulation step would move them.
+     */
+    @State(Scope.Thread)
+    public abstract static class Scene {
+        @Param({"5", "95"})
+        public int staticPercent;
+
+        List<Rigidbody2D> bodies;
+        BroadPhase broadPhase;
+        final PairList pairs = new PairList();
+        private final Random random = new Random(7);
+
+        abstract int bodyCount();
+
+        abstract BroadPhase createBroadPhase();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            bodies = createScene(bodyCount(), staticPercent);
+            broadPhase = createBroadPhase();
+        }
+
+        // the search of a step takes milliseconds, so setting up every invocation does not
+        // disturb the timing
+        @Setup(Level.Invocation)
+        public void jitter() {
+            for (Rigidbody2D rb : bodies) {
+                if (rb.getBodyType() == Rigidbody2D.BodyType.DYNAMIC) {
+                    Vector2f p = rb.getPosition();
+                    rb.setPosition(new Vector2f(p.x + random.nextFloat() - 0.5f, p.y + random.nextFloat() - 0.5f));
+                }
+            }
+        }
+    }
+
+    public static class LargeScene extends Scene {
+        @Param({"1000", "10000", "50000"})
+        public int bodies;
+
+        @Param({"sweepAndPrune", "uniformGrid", "dynamicTree"})
+        public String broadPhase;
+
+        @Override
+        int bodyCount() {
+            return bodies;
+        }
+
+        @Override
+        BroadPhase createBroadPhase() {
+            switch (broadPhase) {
+                case "sweepAndPrune": return new SweepAndPruneBroadPhase();
+                case "uniformGrid": return new UniformGridBroadPhase();
+                case "dynamicTree": return new DynamicTreeBroadPhase();
+                default: throw new IllegalArgumentException("Unknown broad phase " + broadPhase);
+            }
+        }
+    }
+
+    public static class SmallScene extends Scene {
+        @Param({"1000", "10000"})
+        public int bodies;
+
+        @Override
+        int bodyCount() {
+            return bodies;
+        }
+
+        @Override
+        BroadPhase createBroadPhase() {
+            return new BruteForceBroadPhase();
+        }
+    }
+
+    /*
+     * Pairs found by the last search of each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PairCounters {
+        public long pairs;
+    }
+
+    @Benchmark
+    public void findPairs(LargeScene scene, PairCounters counters) {
+        search(scene, counters);
+    }
+
+    @Benchmark
+    public void bruteForce(SmallScene scene, PairCounters counters) {
+        search(scene, counters);
+    }
+
+    private static void search(Scene scene, PairCounters counters) {
+        scene.pairs.clear();
+        scene.broadPhase.findPairs(scene.bodies, scene.pairs);
+        scene.pairs.sort();
+        counters.pairs = scene.pairs.size();
+    }
+
+    private static List<Rigidbody2D> createScene(int count, int staticPercent) {
+        Random random = new Random(count);
+        float side = (float) Math.sqrt(count) * 40f;
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Rigidbody2D rb = new Rigidbody2D();
+            rb.setBodyType(i % 100 < staticPercent ? Rigidbody2D.BodyType.STATIC : Rigidbody2D.BodyType.DYNAMIC);
+            rb.setPosition(new Vector2f(random.nextFloat() * side, random.nextFloat() * side));
+            Collider collider = random.nextBoolean()
+                    ? new Circle(12.5f)
+                    : new OBBCollider(new Vector2f(25f, 25f));
+            collider.setRigidbody(rb);
+            rb.setCollider(collider);
+            bodies.add(rb);
+        }
+        return bodies;
+    }
+}
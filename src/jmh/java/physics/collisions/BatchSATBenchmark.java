@@ -0,0 +1,116 @@
+package physics.collisions;
+
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import physics.primitives.OBBCollider;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * BatchSATBenchmark measures the box against box test on 10k rotated pairs with JMH: one pair
+ * at a time through CollisionManager, the scalar batch and the vectorized batch. Run it with
+ *   gradlew jmh
+ * Scores are per pair. The batch benchmark includes packing the pairs, testOnly runs the test
+ * alone on pairs packed once. Each benchmark returns how many pairs collide.
+ * Author(s): Gabriel, Ahmed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BatchSATBenchmark {
+    private static final int PAIRS = 10_000;
+
+    @Param({"scalar", "vector"})
+    public String sat;
+
+    private final OBBCollider[] a = new OBBCollider[PAIRS];
+    private final OBBCollider[] b = new OBBCollider[PAIRS];
+    private final CollisionManifold manifold = new CollisionManifold();
+    private final CollisionScratch scratch = new CollisionScratch();
+    private final BoxPairBatch batch = new BoxPairBatch();
+    private final BoxPairBatch packed = new BoxPairBatch();
+    private BatchSAT batchSAT;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(5);
+        for (int i = 0; i < PAIRS; i++) {
+            a[i] = createBox(random);
+            b[i] = createBox(random);
+            packed.add(a[i], b[i]);
+        }
+        if (sat.equals("scalar")) {
+            batchSAT = new ScalarBatchSAT();
+        } else {
+            batchSAT = BatchSAT.create();
+            if (batchSAT instanceof ScalarBatchSAT) {
+                throw new IllegalStateException("The vector batch needs --add-modules jdk.incubator.vector");
+            }
+        }
+    }
+
+    private static OBBCollider createBox(Random random) {
+        Rigidbody2D rb = new Rigidbody2D();
+        rb.setPosition(new Vector2f(random.nextFloat() * 200f, random.nextFloat() * 200f));
+        rb.setRotation(1f + random.nextFloat() * 358f);
+        OBBCollider box = new OBBCollider(new Vector2f(10f + random.nextFloat() * 30f, 10f + random.nextFloat() * 30f));
+        box.setRigidbody(rb);
+        rb.setCollider(box);
+        return box;
+    }
+
+    /*
+     * One pair at a time, it does not depend on the sat parameter.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int single() {
+        int colliding = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            if (CollisionManager.findCollisionFeatures(a[i], b[i], manifold, scratch)) colliding++;
+        }
+        return colliding;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int batch() {
+        batch.clear();
+        for (int i = 0; i < PAIRS; i++) {
+            batch.add(a[i], b[i]);
+        }
+        batchSAT.test(batch);
+        int colliding = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            if (batch.isColliding(i)) colliding++;
+        }
+        return colliding;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int testOnly() {
+        batchSAT.test(packed);
+        int colliding = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            if (packed.isColliding(i)) colliding++;
+        }
+        return colliding;
+    }
+}
@@ -0,0 +1,74 @@
+package physics.headless;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * PhysicsStepBenchmark measures one fixed step of a generated scene with JMH. Run it with
+ *   gradlew jmh
+ * The gc profiler configured in build.gradle.kts reports the allocations per step
+ * (gc.alloc.rate.norm), the contacts and awake bodies per step come from the aux counters.
+ * Every trial starts from a fresh scene that already ran for two seconds, so the numbers
+ * describe a settled game rather than the first frames.
+ * Author(s): Gabriel, Ahmed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PhysicsStepBenchmark {
+    @Param({"1000", "5000"})
+    public int snowballs;
+
+    @Param({"100", "500"})
+    public int platforms;
+
+    @Param({"0.0", "0.2"})
+    public float kinematicSnowballs;
+
+    private HeadlessSimulation simulation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SceneGenerator generator = new SceneGenerator();
+        generator.setSnowballs(snowballs);
+        generator.setPlatforms(platforms);
+        generator.setSnowballMix(0.0f, kinematicSnowballs);
+        simulation = new HeadlessSimulation(generator);
+        for (int i = 0; i < 120; i++) {
+            simulation.step();
+        }
+    }
+
+    /*
+     * Contacts and awake bodies after the last step of each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StepCounters {
+        public long contacts;
+        public long awakeBodies;
+    }
+
+    @Benchmark
+    public void step(StepCounters counters) {
+        simulation.step();
+        counters.contacts = simulation.getSystem().getContactIndex().size();
+        counters.awakeBodies = simulation.getSystem().getAwakeBodyCount();
+    }
+}
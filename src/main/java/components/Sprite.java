@@ -2,8 +2,13 @@ package components;
 
 import org.joml.Vector2f;
 import rendering.Texture;
+import rendering.TextureArray;
+import rendering.TextureAtlas;
 /*
  * Sprite represents a single image extracted from a Texture.
+ * Once its texture is packed into a TextureAtlas the sprite is drawn from the atlas, which
+ * only the render batches see through getRenderTexture and getRenderTexCoords. Everything
+ * else, saving included, keeps working with the source texture and coordinates.
  * Author(s): Mathias
  */
 public class Sprite {
@@ -15,6 +20,13 @@ public class Sprite {
                     new Vector2f(0, 0),
                     new Vector2f(0, 1)
     };
+    // where the sprite is drawn from after its texture was packed into an atlas
+    private transient TextureAtlas atlas;
+    private transient Vector2f[] atlasTexCoords;
+    // texture array and layer holding the texture the sprite is drawn from, for texture array batches
+    private transient TextureArray textureArray;
+    private transient int layer = -1;
+
     /*
      * Default constructor, creates a sprite with no texture assigned.
      */
@@ -26,17 +38,89 @@ public class Sprite {
      */
     public void setTexCoords(Vector2f[] texCoords) {
         this.texCoords = texCoords;
+        this.atlas = null;
+        this.atlasTexCoords = null;
+        clearTextureLayer();
     }
 
     public void setTexture(Texture texture) {
         this.texture = texture;
+        this.atlas = null;
+        this.atlasTexCoords = null;
+        clearTextureLayer();
     }
 
+    /*
+     * @return the texture the sprite was cut from, even when it is drawn from an atlas
+     */
     public Texture getTexture() {
         return texture;
     }
 
+    /*
+     * @return coordinates in the texture the sprite was cut from
+     */
     public Vector2f[] getTexCoords() {
         return texCoords;
     }
+
+    /*
+     * @return the atlas the sprite is drawn from, or its own texture if it is not in one
+     */
+    public Texture getRenderTexture() {
+        return atlas != null ? atlas : texture;
+    }
+
+    /*
+     * @return coordinates in the texture returned by getRenderTexture
+     */
+    public Vector2f[] getRenderTexCoords() {
+        return atlas != null ? atlasTexCoords : texCoords;
+    }
+
+    /*
+     * Draws the sprite from an atlas its texture was copied into, nothing happens otherwise.
+     * @param atlas - atlas holding the sprite's texture
+     * @return true if the sprite is now drawn from the atlas
+     */
+    public boolean setAtlas(TextureAtlas atlas) {
+        if (texture == null || atlas == null || !atlas.contains(texture)) {
+            return false;
+        }
+        if (this.atlas != atlas) {
+            clearTextureLayer();
+        }
+        this.atlas = atlas;
+        this.atlasTexCoords = atlas.remap(texture, texCoords);
+        return true;
+    }
+
+    /*
+     * Records the texture array layer holding the texture returned by getRenderTexture.
+     * @param textureArray - array holding the texture
+     * @param layer - layer of the texture in the array
+     */
+    public void setTextureLayer(TextureArray textureArray, int layer) {
+        this.textureArray = textureArray;
+        this.layer = layer;
+    }
+
+    private void clearTextureLayer() {
+        this.textureArray = null;
+        this.layer = -1;
+    }
+
+    /*
+     * @return texture array holding the sprite's texture, or null if none was assigned
+     */
+    public TextureArray getTextureArray() {
+        return textureArray;
+    }
+
+    /*
+     * @return layer of the sprite's texture in its texture array, or -1
+     */
+    public int getLayer() {
+        return layer;
+    }
 }
@@ -61,10 +61,28 @@ public class SpriteRenderer extends Component {
         return sprite.getTexture();
     }
 
+    public Sprite getSprite() {
+        return sprite;
+    }
+
     public Vector2f[] getTexCoords(){
         return sprite.getTexCoords();
     }
 
+    /*
+     * @return the texture the sprite is drawn from, an atlas once its texture was packed
+     */
+    public Texture getRenderTexture() {
+        return sprite.getRenderTexture();
+    }
+
+    /*
+     * @return coordinates of the sprite in the texture returned by getRenderTexture
+     */
+    public Vector2f[] getRenderTexCoords() {
+        return sprite.getRenderTexCoords();
+    }
+
     public void setSprite(Sprite sprite) {
         this.sprite = sprite;
         this.isDirty = true;
@@ -10,8 +10,10 @@ import imgui.type.ImString;
 import org.example.GameObject;
 import org.joml.Vector2f;
 import org.joml.Vector4f;
+import physics.primitives.CapsuleCollider;
 import physics.primitives.Circle;
 import physics.primitives.OBBCollider;
+import physics.primitives.PolygonCollider;
 import physics.collisions.Rigidbody2D;
 import scenes.Scene;
 import util.AssetPool;
@@ -244,6 +246,8 @@ public class ImGuiHierarchyWindow {
                     if(ImGui.beginMenu("Collider")) {
                         ImGuiCommonFun.menuItem("Square", () -> addOBBCollider(go));
                         ImGuiCommonFun.menuItem("Circle", () -> addCircle(go));
+                        ImGuiCommonFun.menuItem("Slope", () -> addSlope(go));
+                        ImGuiCommonFun.menuItem("Capsule", () -> addCapsule(go));
                         ImGui.endMenu();
                     }
                 }
@@ -350,6 +354,26 @@ public class ImGuiHierarchyWindow {
         go.addComponent(circle);
     }
 
+    /*
+     * Runs when you try to add a slope collider
+     * @param GameObject - The game object the option was chosen for
+     */
+    private void addSlope(GameObject go) {
+        PolygonCollider slope = PolygonCollider.slope(20, 10);
+        slope.setRigidbody(go.getComponent(Rigidbody2D.class));
+        go.addComponent(slope);
+    }
+
+    /*
+     * Runs when you try to add a capsule collider
+     * @param GameObject - The game object the option was chosen for
+     */
+    private void addCapsule(GameObject go) {
+        CapsuleCollider capsule = new CapsuleCollider(5, 5);
+        capsule.setRigidbody(go.getComponent(Rigidbody2D.class));
+        go.addComponent(capsule);
+    }
+
     /*
      * Runs when you try to delete a game object
      * @param GameObject - The game object the option was chosen for
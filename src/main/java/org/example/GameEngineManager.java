@@ -38,6 +38,7 @@ public class GameEngineManager {
         this.window = window;
         imGuiLayer = new ImGuiLayer();
         physicsSystem = new PhysicsSystem(0.048f, new Vector2f(0.0f, -9.82f)); // 60 FPS timestep and gravity
+        physicsSystem.setTimeScale(0.048f * 120); // the game is tuned for two 0.048 s steps per 60 Hz frame
         changeScene("EditorScene", new ArrayList<>()); // load initial scene
         loop(); // start game loop
     }
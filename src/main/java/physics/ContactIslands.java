@@ -0,0 +1,175 @@
+package physics;
+
+import java.util.Arrays;
+
+/*
+ * ContactIslands groups the solid contacts of a step into islands: sets of contacts whose
+ * bodies are connected through other contacts. Islands share no movable body, so they can
+ * be solved independently and in any order. Static bodies never move during solving and
+ * therefore do not join islands, e.g. two stacks standing on the same floor are two islands.
+ * Contacts keep their original order inside an island, which keeps solving deterministic.
+ * Joints are added like contacts, so the bodies they connect always share an island.
+ * Author(s): Gabriel, Ahmed
+ */
+public class ContactIslands {
+    private int[] contactA = new int[64];
+    private int[] contactB = new int[64];
+    private int contactCount = 0;
+
+    // union-find over body indices, -1 marks a static body
+    private int[] parent = new int[0];
+
+    private int[] contactIsland = new int[64];
+    private int[] islandStart = new int[1];
+    private int[] islandCursor = new int[1];
+    private int[] islandContacts = new int[64];
+    private int[] islandOfRoot = new int[0];
+    private int islandCount = 0;
+
+    /*
+     * Removes all contacts while keeping the backing storage.
+     */
+    public void clear() {
+        contactCount = 0;
+        islandCount = 0;
+    }
+
+    /*
+     * Adds a contact between two bodies. Contacts are numbered in the order they are added.
+     * @param a - index of the first body
+     * @param b - index of the second body
+     */
+    public void addContact(int a, int b) {
+        if (contactCount == contactA.length) {
+            contactA = Arrays.copyOf(contactA, contactCount * 2);
+            contactB = Arrays.copyOf(contactB, contactCount * 2);
+        }
+        contactA[contactCount] = a;
+        contactB[contactCount] = b;
+        contactCount++;
+    }
+
+    /*
+     * Builds the islands of the added contacts.
+     * @param bodyCount - number of bodies, all body indices must be below it
+     * @param isStatic - tells for each body index whether the body is static
+     */
+    public void build(int bodyCount, boolean[] isStatic) {
+        if (parent.length < bodyCount) {
+            parent = new int[bodyCount];
+            islandOfRoot = new int[bodyCount];
+        }
+        for (int i = 0; i < bodyCount; i++) {
+            parent[i] = isStatic[i] ? -1 : i;
+        }
+
+        // union the movable bodies of every contact
+        for (int c = 0; c < contactCount; c++) {
+            int a = contactA[c];
+            int b = contactB[c];
+            if (parent[a] >= 0 && parent[b] >= 0) {
+                union(a, b);
+            }
+        }
+
+        // number the islands in the order of their first contact
+        if (contactIsland.length < contactCount) {
+            contactIsland = new int[contactA.length];
+            islandContacts = new int[contactA.length];
+        }
+        Arrays.fill(islandOfRoot, 0, bodyCount, -1);
+        islandCount = 0;
+        for (int c = 0; c < contactCount; c++) {
+            int body = parent[contactA[c]] >= 0 ? contactA[c] : contactB[c];
+            int root = find(body);
+            if (islandOfRoot[root] < 0) {
+                islandOfRoot[root] = islandCount++;
+            }
+            contactIsland[c] = islandOfRoot[root];
+        }
+
+        // stable counting sort of the contacts by island
+        if (islandStart.length < islandCount + 1) {
+            islandStart = new int[Math.max(islandCount + 1, islandStart.length * 2)];
+            islandCursor = new int[islandStart.length];
+        }
+        Arrays.fill(islandStart, 0, islandCount + 1, 0);
+        for (int c = 0; c < contactCount; c++) {
+            islandStart[contactIsland[c] + 1]++;
+        }
+        for (int i = 0; i < islandCount; i++) {
+            islandStart[i + 1] += islandStart[i];
+        }
+        System.arraycopy(islandStart, 0, islandCursor, 0, islandCount);
+        for (int c = 0; c < contactCount; c++) {
+            islandContacts[islandCursor[contactIsland[c]]++] = c;
+        }
+    }
+
+    private int find(int body) {
+        while (parent[body] != body) {
+            parent[body] = parent[parent[body]];  // path halving
+            body = parent[body];
+        }
+        return body;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) return;
+        // the lower index becomes the root, independent of the order of the contacts
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /*
+     * @param body - index of the body
+     * @return island of the body after the last build, or -1 if the body is static or has no contacts
+     */
+    public int getBodyIsland(int body) {
+        if (parent[body] < 0) return -1;
+        return islandOfRoot[find(body)];
+    }
+
+    /*
+     * @return number of contacts added since the last clear
+     */
+    public int getContactCount() {
+        return contactCount;
+    }
+
+    /*
+     * @return number of islands found by the last build
+     */
+    public int getIslandCount() {
+        return islandCount;
+    }
+
+    /*
+     * @param island - index of the island
+     * @return position of the island's first contact in the island contact order
+     */
+    public int getIslandStart(int island) {
+        return islandStart[island];
+    }
+
+    /*
+     * @param island - index of the island
+     * @return position after the island's last contact in the island contact order
+     */
+    public int getIslandEnd(int island) {
+        return islandStart[island + 1];
+    }
+
+    /*
+     * @param position - position in the island contact order
+     * @return index of the contact at that position
+     */
+    public int getContact(int position) {
+        return islandContacts[position];
+    }
+}
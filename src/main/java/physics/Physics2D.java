@@ -3,14 +3,16 @@ package physics;
 import org.example.GameEngineManager;
 import org.example.GameObject;
 import org.joml.Vector2f;
-import physics.collisions.CollisionManifold;
+import physics.broadphase.DynamicAABBTree;
+import physics.collisions.ContactIndex;
 import physics.collisions.Rigidbody2D;
+import physics.primitives.CapsuleCollider;
 import physics.primitives.Circle;
 import physics.primitives.Collider;
 import physics.primitives.OBBCollider;
-import physics.raycast.Raycast;
+import physics.primitives.PolygonCollider;
+import physics.raycast.RaycastBatch;
 import physics.raycast.RaycastManager;
-import physics.raycast.RaycastResult;
 import util.DebugDraw;
 
 import java.util.ArrayList;
@@ -22,6 +24,51 @@ import java.util.List;
  * Author(s): Gabriel
  */
 public class Physics2D {
+    private static final Vector2f DOWN = new Vector2f(0, -1);
+    private static final Vector2f LEFT = new Vector2f(-1, 0);
+    private static final Vector2f RIGHT = new Vector2f(1, 0);
+    // batches reused by the ground and wall checks, which run on the game thread
+    private static final RaycastBatch groundRays = new RaycastBatch();
+    private static final RaycastBatch wallRays = new RaycastBatch();
+    private static final Vector2f rayOrigin = new Vector2f();
+    private static final Vector2f halfSize = new Vector2f();
+    private static final Vector2f colliderMin = new Vector2f();
+    private static final Vector2f colliderMax = new Vector2f();
+
+    static {
+        groundRays.setFilter(Collider::isSolid);
+        wallRays.setFilter(Collider::isSolid);
+        wallRays.setTags("Wall", "Floor");
+    }
+
+    /*
+     * @param rb - the Rigidbody2D to test
+     * @return true if the body is asleep and skipped by the simulation
+     */
+    public static boolean isSleeping(Rigidbody2D rb) {
+        return !rb.isAwake();
+    }
+
+    /*
+     * @return number of dynamic bodies asleep after the last physics step
+     */
+    public static int getSleepingBodyCount() {
+        return GameEngineManager.getPhysicsSystem().getSleepingBodyCount();
+    }
+
+    /*
+     * @return number of dynamic bodies awake after the last physics step
+     */
+    public static int getAwakeBodyCount() {
+        return GameEngineManager.getPhysicsSystem().getAwakeBodyCount();
+    }
+
+    /*
+     * @return number of pairs in the last physics step that skipped the narrow phase because both bodies rest
+     */
+    public static int getSleepingPairCount() {
+        return GameEngineManager.getPhysicsSystem().getSleepingPairCount();
+    }
 
     /*
      * Casts downward rays from the Rigidbody to determine if it is grounded.
@@ -30,60 +77,66 @@ public class Physics2D {
      * @return true if any ray hits terrain within rayLength
      */
     public static boolean isGrounded(Rigidbody2D rb, float rayLength) {
-        Vector2f position = rb.getPosition();
-        Collider collider = rb.getCollider();
-        float halfsizeX = 0, halfsizeY = 0;
-
-        if(collider == null) {
+        groundRays.clear();
+        if (addGroundRays(groundRays, rb, rayLength) < 0) {
             return false;
         }
+        raycast(groundRays);
+        return isGrounded(groundRays, 0, rb);
+    }
 
-        // determine bounds from collider type
-        if (collider instanceof OBBCollider obb) {
-            halfsizeX = obb.getHalfSize().x;
-            halfsizeY = obb.getHalfSize().y;
-        } else if (collider instanceof Circle circle) {
-            halfsizeX = circle.getRadius();
-            halfsizeY = circle.getRadius();
-        } else {
-            throw new IllegalStateException("Unsupported collider type for grounding check");
+    /*
+     * Checks many bodies for ground below them, casting all their rays in one batch,
+     * e.g. for a crowd of AI-controlled characters.
+     * @param bodies - the bodies to test
+     * @param rayLength - maximum length of grounding rays
+     * @param grounded - receives for each body whether it is grounded, at least as long as bodies
+     * @return the grounded array
+     */
+    public static boolean[] isGrounded(List<Rigidbody2D> bodies, float rayLength, boolean[] grounded) {
+        groundRays.clear();
+        int[] firstRay = new int[bodies.size()];
+        for (int i = 0; i < bodies.size(); i++) {
+            firstRay[i] = addGroundRays(groundRays, bodies.get(i), rayLength);
+        }
+        raycast(groundRays);
+        for (int i = 0; i < bodies.size(); i++) {
+            grounded[i] = firstRay[i] >= 0 && isGrounded(groundRays, firstRay[i], bodies.get(i));
         }
+        return grounded;
+    }
 
+    /*
+     * Adds rays pointing down from the left, center and right of a body to a batch.
+     * @return index of the first ray, or -1 if the body has no collider
+     */
+    private static int addGroundRays(RaycastBatch batch, Rigidbody2D rb, float rayLength) {
+        Collider collider = rb.getCollider();
+        if (collider == null) {
+            return -1;
+        }
+        float halfsizeX = getHalfSize(collider, "grounding check").x;
+        Vector2f position = rb.getPosition();
         // origins at left, center, right bottom of collider
-        Vector2f baseOrigin = new Vector2f(position.x, position.y);
-        Vector2f[] rayOrigins = new Vector2f[] {
-                new Vector2f(position.x - halfsizeX, position.y),
-                new Vector2f(position.x,            position.y),
-                new Vector2f(position.x + halfsizeX, position.y)
-        };
-
-        Vector2f rayDir = new Vector2f(0, -1);
-        List<Rigidbody2D> bodies = GameEngineManager.getPhysicsSystem().getRigidbodies();
-
-        for (Vector2f origin : rayOrigins) {
-            Raycast ray = new Raycast(origin, rayDir);
-
-            for (Rigidbody2D other : bodies) {
-                if (other == rb) continue;
-                if (other.getCollider() == null || !other.getCollider().isSolid()) continue;
-                GameObject otherObj = other.getGameObject();
-
-                RaycastResult res;
-                Collider otherCol = other.getCollider();
-                if (otherCol instanceof OBBCollider obb) {
-                    res = RaycastManager.raycastOBB(ray, obb, new RaycastResult());
-                } else if (otherCol instanceof Circle circ) {
-                    res = RaycastManager.raycastCircle(ray, circ, new RaycastResult());
-                } else {
-                    continue;
-                }
+        int first = batch.add(rayOrigin.set(position.x - halfsizeX, position.y), DOWN, rayLength, rb);
+        batch.add(rayOrigin.set(position.x, position.y), DOWN, rayLength, rb);
+        batch.add(rayOrigin.set(position.x + halfsizeX, position.y), DOWN, rayLength, rb);
+        return first;
+    }
 
-                if (res.isHit() && res.getDistance() > 0 && res.getDistance() < rayLength) {
-                    DebugDraw.addLine2D(baseOrigin, res.getPoint());  // visualize ray
-                    // check if hit point is at or just below collider bottom
-                    if (res.getPoint().y >= position.y - halfsizeY - 0.05f) {
-                        return true;
-                    }
+    /*
+     * @return true if one of the three ground rays starting at first hit close below the body
+     */
+    private static boolean isGrounded(RaycastBatch batch, int first, Rigidbody2D rb) {
+        Vector2f position = rb.getPosition();
+        float halfsizeY = getHalfSize(rb.getCollider(), "grounding check").y;
+        for (int i = first; i < first + 3; i++) {
+            if (batch.isHit(i)) {
+                Vector2f point = batch.getResult(i).getPoint();
+                DebugDraw.addLine2D(new Vector2f(position), point);  // visualize ray
+                // check if hit point is at or just below collider bottom
+                if (point.y >= position.y - halfsizeY - 0.05f) {
+                    return true;
                 }
             }
         }
@@ -99,84 +152,100 @@ public class Physics2D {
     public static boolean isTouchingWall(Rigidbody2D rb, float rayLength) {
         Vector2f position = rb.getPosition();
         Collider collider = rb.getCollider();
-        float halfsizeX = 0, halfsizeY = 0;
-
         if(collider == null) {
             return false;
         }
+        Vector2f halfsize = getHalfSize(collider, "wall check");
 
-        // determine bounds from collider type
-        if (collider instanceof OBBCollider obb) {
-            halfsizeX = obb.getHalfSize().x;
-            halfsizeY = obb.getHalfSize().y;
-        } else if (collider instanceof Circle circle) {
-            halfsizeX = circle.getRadius();
-            halfsizeY = circle.getRadius();
-        } else {
-            throw new IllegalStateException("Unsupported collider type for wall check");
+        // origins at top-center, center, bottom-center of collider, each cast left then right
+        wallRays.clear();
+        for (int i = 1; i >= -1; i--) {
+            rayOrigin.set(position.x, position.y + halfsize.y * 0.5f * i);
+            wallRays.add(rayOrigin, LEFT, rayLength, rb);
+            wallRays.add(rayOrigin, RIGHT, rayLength, rb);
         }
+        raycast(wallRays);
 
-        Vector2f baseOrigin = new Vector2f(position.x, position.y);
-        // origins at top-center, center, bottom-center of collider
-        Vector2f[] origins = new Vector2f[] {
-                new Vector2f(position.x, position.y + halfsizeY * 0.5f),
-                new Vector2f(position.x, position.y),
-                new Vector2f(position.x, position.y - halfsizeY * 0.5f)
-        };
-        // left and right directions
-        Vector2f[] dirs = new Vector2f[] { new Vector2f(-1,0), new Vector2f(1,0) };
-
-        List<Rigidbody2D> bodies = GameEngineManager.getPhysicsSystem().getRigidbodies();
-        for (Vector2f origin : origins) {
-            for (Vector2f dir : dirs) {
-                Raycast ray = new Raycast(origin, dir);
-                for (Rigidbody2D other : bodies) {
-                    if (other == rb) continue;
-                    if (other.getCollider() == null || !other.getCollider().isSolid()) continue;
-                    GameObject otherObj = other.getGameObject();
-                    if (!otherObj.getTag().equals("Wall") && !otherObj.getTag().equals("Floor")) continue;
-
-                    RaycastResult res;
-                    Collider otherCol = other.getCollider();
-                    if (otherCol instanceof OBBCollider obb) {
-                        res = RaycastManager.raycastOBB(ray, obb, new RaycastResult());
-                    } else if (otherCol instanceof Circle circ) {
-                        res = RaycastManager.raycastCircle(ray, circ, new RaycastResult());
-                    } else {
-                        continue;
-                    }
-
-                    if (res.isHit() && res.getDistance() > 0 && res.getDistance() < rayLength) {
-                        DebugDraw.addLine2D(baseOrigin, res.getPoint());  // visualize ray
-                        // check horizontal overlap within threshold
-                        if (Math.abs(res.getPoint().x - position.x) <= halfsizeX + 0.05f) {
-                            return true;
-                        }
-                    }
+        for (int i = 0; i < wallRays.size(); i++) {
+            if (wallRays.isHit(i)) {
+                Vector2f point = wallRays.getResult(i).getPoint();
+                DebugDraw.addLine2D(new Vector2f(position), point);  // visualize ray
+                // check horizontal overlap within threshold
+                if (Math.abs(point.x - position.x) <= halfsize.x + 0.05f) {
+                    return true;
                 }
             }
         }
         return false;
     }
 
+    /*
+     * Casts all rays of a batch against the colliders of the physics system,
+     * walking its collider tree once for the whole batch.
+     * @param batch - rays to cast, receives the closest hit of each ray
+     * @return the batch
+     */
+    public static RaycastBatch raycast(RaycastBatch batch) {
+        RaycastManager.raycast(batch, GameEngineManager.getPhysicsSystem().getColliderTree());
+        return batch;
+    }
+
+    /*
+     * @param collider - an OBB, circle, polygon or capsule collider
+     * @param check - name of the check, for the error message
+     * @return half the extent of the collider along each axis
+     */
+    private static Vector2f getHalfSize(Collider collider, String check) {
+        // determine bounds from collider type
+        if (collider instanceof OBBCollider obb) {
+            return obb.getHalfSize();
+        } else if (collider instanceof Circle circle) {
+            return halfSize.set(circle.getRadius(), circle.getRadius());
+        } else if (collider instanceof PolygonCollider || collider instanceof CapsuleCollider) {
+            collider.getBounds(colliderMin, colliderMax);
+            return halfSize.set(colliderMax).sub(colliderMin).mul(0.5f);
+        }
+        throw new IllegalStateException("Unsupported collider type for " + check);
+    }
+
+    /*
+     * Collects all rigidbodies whose collider bounds overlap the given box.
+     * @param min - minimum corner of the box
+     * @param max - maximum corner of the box
+     * @param results - list the overlapping rigidbodies are added to
+     * @return the results list
+     */
+    public static List<Rigidbody2D> queryAABB(Vector2f min, Vector2f max, List<Rigidbody2D> results) {
+        DynamicAABBTree tree = GameEngineManager.getPhysicsSystem().getColliderTree();
+        Vector2f boundsMin = new Vector2f();
+        Vector2f boundsMax = new Vector2f();
+        tree.query(min.x, min.y, max.x, max.y, proxy -> {
+            // the tree stores fat bounds, check the tight ones
+            Collider collider = tree.getCollider(proxy);
+            collider.getBounds(boundsMin, boundsMax);
+            if (boundsMin.x <= max.x && boundsMax.x >= min.x && boundsMin.y <= max.y && boundsMax.y >= min.y) {
+                results.add(collider.getRigidbody());
+            }
+            return true;
+        });
+        return results;
+    }
+
     /*
      * Checks if the target Rigidbody is currently colliding with any objects matching tags.
+     * Only the target's own contacts are looked at, through the contact index.
      * @param target - the Rigidbody2D to test
      * @param withTags - optional tags to filter collisions
      * @return true if a collision with a matching tag is found
      */
     public static boolean isColliding(Rigidbody2D target, String... withTags) {
         boolean solid = target.getCollider() != null && target.getCollider().isSolid();
-        List<CollisionManifold> collisions = solid
-                ? GameEngineManager.getPhysicsSystem().getCollisions()
-                : GameEngineManager.getPhysicsSystem().getGhostCollisions();
+        ContactIndex contacts = GameEngineManager.getPhysicsSystem().getContactIndex();
+        for (int i = 0; i < contacts.getContactCount(target); i++) {
+            // a solid target only looks at solid contacts, like before the index
+            if (contacts.isSolid(target, i) != solid) continue;
 
-        for (CollisionManifold m : collisions) {
-            Rigidbody2D a = m.getA();
-            Rigidbody2D b = m.getB();
-            if (a != target && b != target) continue;
-
-            GameObject other = (a == target) ? b.getGameObject() : a.getGameObject();
+            GameObject other = contacts.getOther(target, i).getGameObject();
             for (String tag : withTags) {
                 if (tag.equals(other.getTag())) {
                     return true;
@@ -186,6 +255,27 @@ public class Physics2D {
         return false;
     }
 
+    /*
+     * Checks if the target Rigidbody is currently colliding with a collider in one of the given layers.
+     * Compares layer bits instead of tag strings.
+     * @param target - the Rigidbody2D to test
+     * @param layers - category bits of the layers to look for
+     * @return true if a collision with a collider in the layers is found
+     */
+    public static boolean isColliding(Rigidbody2D target, int layers) {
+        boolean solid = target.getCollider() != null && target.getCollider().isSolid();
+        ContactIndex contacts = GameEngineManager.getPhysicsSystem().getContactIndex();
+        for (int i = 0; i < contacts.getContactCount(target); i++) {
+            if (contacts.isSolid(target, i) != solid) continue;
+
+            Collider other = contacts.getOther(target, i).getCollider();
+            if ((other.getCategory() & layers) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /*
      * Returns a list of GameObjects colliding with the target, filtered by tags.
      * @param target - the Rigidbody2D whose collisions to query
@@ -195,16 +285,11 @@ public class Physics2D {
      */
     public static List<GameObject> getCollidingObjects(Rigidbody2D target, boolean checkSolid, String... withTags) {
         List<GameObject> results = new ArrayList<>();
-        List<CollisionManifold> collisions = checkSolid
-                ? GameEngineManager.getPhysicsSystem().getCollisions()
-                : GameEngineManager.getPhysicsSystem().getGhostCollisions();
+        ContactIndex contacts = GameEngineManager.getPhysicsSystem().getContactIndex();
+        for (int i = 0; i < contacts.getContactCount(target); i++) {
+            if (contacts.isSolid(target, i) != checkSolid) continue;
 
-        for (CollisionManifold m : collisions) {
-            Rigidbody2D a = m.getA();
-            Rigidbody2D b = m.getB();
-            if (a != target && b != target) continue;
-
-            GameObject other = (a == target) ? b.getGameObject() : a.getGameObject();
+            GameObject other = contacts.getOther(target, i).getGameObject();
             for (String tag : withTags) {
                 if (tag.equals(other.getTag())) {
                     results.add(other);
@@ -214,4 +299,25 @@ public class Physics2D {
         }
         return results;
     }
+
+    /*
+     * Returns a list of GameObjects colliding with the target whose colliders are in one of the given layers.
+     * @param target - the Rigidbody2D whose collisions to query
+     * @param checkSolid - true to use solid collisions, false for ghost collisions
+     * @param layers - category bits of the layers to look for
+     * @return list of matching colliding GameObjects
+     */
+    public static List<GameObject> getCollidingObjects(Rigidbody2D target, boolean checkSolid, int layers) {
+        List<GameObject> results = new ArrayList<>();
+        ContactIndex contacts = GameEngineManager.getPhysicsSystem().getContactIndex();
+        for (int i = 0; i < contacts.getContactCount(target); i++) {
+            if (contacts.isSolid(target, i) != checkSolid) continue;
+
+            Rigidbody2D other = contacts.getOther(target, i);
+            if ((other.getCollider().getCategory() & layers) != 0) {
+                results.add(other.getGameObject());
+            }
+        }
+        return results;
+    }
 }
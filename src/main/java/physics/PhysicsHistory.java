@@ -0,0 +1,77 @@
+package physics;
+
+/*
+ * PhysicsHistory keeps a snapshot of the last few steps of a PhysicsSystem in a ring of
+ * reused PhysicsSnapshots, so gameplay can rewind up to that many steps, e.g. to apply a
+ * late network input where it belongs and re-simulate up to the present.
+ * Author(s): Gabriel, Ahmed
+ */
+public class PhysicsHistory {
+    private final PhysicsSnapshot[] snapshots;
+    // slot the next record writes to
+    private int next = 0;
+    private int size = 0;
+
+    /*
+     * @param capacity - number of steps that can be rewound, at least 1
+     */
+    public PhysicsHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History needs room for at least one step: " + capacity);
+        }
+        snapshots = new PhysicsSnapshot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            snapshots[i] = new PhysicsSnapshot();
+        }
+    }
+
+    /*
+     * Saves the current state of the system, dropping the oldest one when the history is full.
+     * Call it once per step, before or after fixedUpdate but always at the same point.
+     * @param system - the system to save
+     */
+    public void record(PhysicsSystem system) {
+        system.saveSnapshot(snapshots[next]);
+        next = (next + 1) % snapshots.length;
+        size = Math.min(size + 1, snapshots.length);
+    }
+
+    /*
+     * Restores the state recorded the given number of records ago and forgets every newer
+     * one; recording again from there replaces them with the re-simulated steps.
+     * @param system - the system the history was recorded from
+     * @param steps - 0 for the last record, up to getSize() - 1
+     */
+    public void rewind(PhysicsSystem system, int steps) {
+        if (steps < 0 || steps >= size) {
+            throw new IllegalArgumentException("Cannot rewind " + steps + " steps, the history holds " + size);
+        }
+        int slot = Math.floorMod(next - 1 - steps, snapshots.length);
+        system.restoreSnapshot(snapshots[slot]);
+        // the restored record becomes the newest, the next record overwrites the step after it
+        next = (slot + 1) % snapshots.length;
+        size -= steps;
+    }
+
+    /*
+     * @return number of records that can be rewound to
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /*
+     * @return maximum number of records kept
+     */
+    public int getCapacity() {
+        return snapshots.length;
+    }
+
+    /*
+     * Forgets every record, e.g. after bodies were added or removed.
+     */
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,60 @@
+package physics;
+
+import physics.collisions.BodyStore;
+import physics.collisions.ContactCache;
+import physics.collisions.ContactIndex;
+import physics.collisions.Rigidbody2D;
+import physics.joints.Joint;
+
+/*
+ * PhysicsSnapshot holds the state of a PhysicsSystem between two steps: the state of every
+ * body packed into one float array, the warm-starting impulses of the contact cache and
+ * of the joints, the contacts used for contact events and the time accumulator. A snapshot
+ * is reused, saving into it again only allocates when the simulation grew.
+ * Bodies, joints, colliders and forces are not part of it: a snapshot can only be restored
+ * while the system holds the same bodies and joints it was saved with.
+ * Author(s): Gabriel, Ahmed
+ */
+public class PhysicsSnapshot {
+    float[] bodyState = new float[0];
+    Rigidbody2D[] bodies = new Rigidbody2D[0];
+    int bodyCount = 0;
+    float[] jointImpulses = new float[0];
+    Joint[] joints = new Joint[0];
+    int jointCount = 0;
+    final ContactCache contactCache = new ContactCache();
+    final ContactIndex contacts = new ContactIndex();
+    float accumulator;
+    float interpolationAlpha;
+    boolean saved = false;
+
+    void ensureCapacity(int bodyCount) {
+        if (bodies.length < bodyCount) {
+            int capacity = Math.max(bodyCount, bodies.length * 2);
+            bodies = new Rigidbody2D[capacity];
+            bodyState = new float[capacity * BodyStore.STATE_STRIDE];
+        }
+    }
+
+    void ensureJointCapacity(int jointCount) {
+        if (joints.length < jointCount) {
+            int capacity = Math.max(jointCount, joints.length * 2);
+            joints = new Joint[capacity];
+            jointImpulses = new float[capacity * Joint.IMPULSE_STRIDE];
+        }
+    }
+
+    /*
+     * @return number of bodies in the snapshot
+     */
+    public int getBodyCount() {
+        return bodyCount;
+    }
+
+    /*
+     * @return true once a system has been saved into the snapshot
+     */
+    public boolean isSaved() {
+        return saved;
+    }
+}
@@ -1,17 +1,32 @@
 package physics;
 
 import org.joml.Vector2f;
+import physics.broadphase.BroadPhase;
+import physics.broadphase.DynamicAABBTree;
+import physics.broadphase.DynamicTreeBroadPhase;
+import physics.broadphase.PairList;
 import physics.forces.ForceRegistry;
 import physics.forces.Gravity;
+import physics.joints.Joint;
 import physics.primitives.Collider;
+import physics.collisions.BodyStore;
 import physics.collisions.CollisionManifold;
 import physics.collisions.CollisionManager;
+import physics.collisions.CollisionScratch;
+import physics.collisions.ContactCache;
+import physics.collisions.ContactIndex;
+import physics.collisions.ContactSolver;
+import physics.collisions.ContinuousCollision;
 import physics.collisions.Rigidbody2D;
 import physics.collisions.Rigidbody2D.BodyType;
 import util.DTUMath;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static util.DTUMath.cross;
 
@@ -28,10 +43,72 @@ public class PhysicsSystem {
     private List<Rigidbody2D> bodies2;
     private List<CollisionManifold> collisions;
     private List<CollisionManifold> ghostCollisions = new ArrayList<>();
+    // fat bounds margin of the collider tree, in world units
+    private static final float TREE_MARGIN = 5.0f;
+    private final DynamicAABBTree colliderTree = new DynamicAABBTree(TREE_MARGIN);
+    private BroadPhase broadPhase = new DynamicTreeBroadPhase(colliderTree);
+    private final PairList pairs = new PairList();
+    // manifolds are reused every step, they stay valid until the next fixedUpdate
+    private final List<CollisionManifold> manifoldPool = new ArrayList<>();
+    private final CollisionScratch scratch = new CollisionScratch();
+    // packed per-body state, integrated in one pass at the end of each step
+    private final BodyStore bodyStore = new BodyStore();
+    // accumulated impulse solver, used instead of applyImpulse when warm starting is on
+    private final ContactSolver contactSolver = new ContactSolver(bodyStore);
+    private boolean warmStarting = false;
+    // contacts of the step grouped by body, source of the contact events
+    private final ContactIndex contactIndex = new ContactIndex();
+    // sweeps continuous bodies against static colliders after they moved
+    private final ContinuousCollision continuous = new ContinuousCollision(bodyStore);
+
+    // joints solved together with the contacts; the active ones of a step follow the
+    // contacts in the island entries, entry collisions.size() + k is activeJoints[k]
+    private final List<Joint> joints = new ArrayList<>();
+    private Joint[] activeJoints = new Joint[0];
+    private int activeJointCount = 0;
+    private int[] bodyListIndex = new int[0];
+    // sorted body pairs of the joints whose bodies do not collide, see ContactCache.key
+    private long[] jointPairs = new long[0];
+    private int jointPairCount = 0;
+    // passes over the joints correcting positions after each step
+    private static final int JOINT_POSITION_ITERATIONS = 3;
+
+    // solid contacts grouped into independent islands, solved in parallel
+    private final ContactIslands islands = new ContactIslands();
+    private boolean[] staticBodies = new boolean[0];
+    // islands are split into tasks of at least this many contacts
+    private static final int SOLVER_GRAIN = 64;
+    private int solverThreads = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool solverPool;
+
+    private final Vector2f boundsMin = new Vector2f();
+    private final Vector2f boundsMax = new Vector2f();
 
     private float fixedUpdate;
     private int impulseIterations = 6;
 
+    // simulated time not yet consumed by fixed steps
+    private float accumulator = 0.0f;
+    private float timeScale = 1.0f;
+    private int maxSubsteps = 8;
+    private float interpolationAlpha = 1.0f;
+
+    // bodies resting for timeToSleep seconds fall asleep, together with their island
+    private boolean sleepingEnabled = true;
+    private float sleepLinearTolerance = 2.0f;
+    private float sleepAngularTolerance = 2.0f;
+    private float timeToSleep = 0.5f;
+    private float[] islandRestTime = new float[0];
+    private int sleepingBodies = 0;
+    private int awakeBodies = 0;
+    private int sleepingPairs = 0;
+
+    // bodies kept in id order, so a step does not depend on the order they were added in
+    private boolean deterministic = false;
+    // 64-bit FNV-1a over the body state, see getStateHash
+    private static final long HASH_OFFSET = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
     /*
      * Constructs the PhysicsSystem with a fixed timestep and gravity vector.
      * @param fixedUpdateDt - duration of each fixed update in seconds
@@ -48,11 +125,24 @@ public class PhysicsSystem {
     }
 
     /*
-     * Called each frame; drives the fixed-rate physics update.
-     * @param dt - elapsed time since last frame (unused)
+     * Called each frame; adds the frame time to the accumulator and runs as many fixed
+     * steps as fit into it, so simulated time follows wall time whatever the frame rate.
+     * At most maxSubsteps are run per call; time beyond that is dropped instead of
+     * making the next frame even slower. The remainder sets the interpolation alpha.
+     * @param dt - elapsed time since last frame in seconds
      */
     public void update(float dt) {
-        fixedUpdate();  // perform physics step
+        accumulator += Math.max(dt, 0.0f) * timeScale;
+        int steps = 0;
+        while (accumulator >= fixedUpdate && steps < maxSubsteps) {
+            fixedUpdate();  // perform physics step
+            accumulator -= fixedUpdate;
+            steps++;
+        }
+        if (accumulator >= fixedUpdate) {
+            accumulator %= fixedUpdate;  // spiral of death guard: skip the time we could not simulate
+        }
+        interpolationAlpha = accumulator / fixedUpdate;
     }
 
     /*
@@ -60,63 +150,349 @@ public class PhysicsSystem {
      * positional correction, and applies velocity updates to bodies.
      */
     public void fixedUpdate() {
+        // remember where the bodies were, rendering blends towards the new state
+        bodyStore.savePreviousState();
+
         // clear previous frame data
         bodies1.clear();
         bodies2.clear();
         collisions.clear();
         ghostCollisions.clear();
+        islands.clear();
+        contactIndex.beginStep();
 
-        int size = rb.size();
-        // broad-phase N^2 collision detection
-        for (int i = 0; i < size; i++) {
-            for (int j = i + 1; j < size; j++) {
-                Rigidbody2D r1 = rb.get(i);
-                Rigidbody2D r2 = rb.get(j);
-                Collider c1 = r1.getCollider();
-                Collider c2 = r2.getCollider();
-                // skip null or two-statics
-                if (c1 != null && c2 != null && !(r1.getBodyType() == BodyType.STATIC && r2.getBodyType() == BodyType.STATIC)) {
-                    CollisionManifold result = CollisionManager.findCollisionFeatures(c1, c2);
-                    if (result != null && result.isColliding()) {
-                        result.setBodies(r1, r2);
-                        if (c1.isSolid() && c2.isSolid()) {
-                            bodies1.add(r1);
-                            bodies2.add(r2);
-                            collisions.add(result);
-                        } else {
-                            ghostCollisions.add(result);
-                        }
-                    }
+        // keep the collider tree in sync for queries, the tree broad phase does this itself
+        if (!(broadPhase instanceof DynamicTreeBroadPhase treePhase && treePhase.getTree() == colliderTree)) {
+            colliderTree.update(rb);
+        }
+
+        // broad-phase: only candidate pairs with overlapping bounds reach the narrow phase
+        pairs.clear();
+        broadPhase.findPairs(rb, pairs);
+        pairs.sort();  // same order as the N^2 loop, keeps the solver deterministic
+        collectJointPairs();
+        // narrow-phase: manifolds come from a pool and are only consumed when colliding
+        int usedManifolds = 0;
+        sleepingPairs = 0;
+        for (int k = 0; k < pairs.size(); k++) {
+            Rigidbody2D r1 = rb.get(pairs.getA(k));
+            Rigidbody2D r2 = rb.get(pairs.getB(k));
+            // bodies held together by a joint do not collide unless the joint asks for it
+            if (jointPairCount > 0 && isJointPair(r1, r2)) continue;
+            // pairs where neither body can move keep their resting contact without testing it
+            if (isResting(r1) && isResting(r2)) {
+                sleepingPairs++;
+                contactIndex.keepResting(r1, r2);
+                continue;
+            }
+            Collider c1 = r1.getCollider();
+            Collider c2 = r2.getCollider();
+            if (usedManifolds == manifoldPool.size()) {
+                manifoldPool.add(new CollisionManifold());
+            }
+            CollisionManifold result = manifoldPool.get(usedManifolds);
+            if (CollisionManager.findCollisionFeatures(c1, c2, result, scratch)) {
+                usedManifolds++;
+                result.setBodies(r1, r2);
+                contactIndex.add(r1, r2, result, c1.isSolid() && c2.isSolid());
+                if (c1.isSolid() && c2.isSolid()) {
+                    // a moving body touching a sleeping one wakes it up
+                    r1.setAwake(true);
+                    r2.setAwake(true);
+                    bodies1.add(r1);
+                    bodies2.add(r2);
+                    collisions.add(result);
+                    islands.addContact(pairs.getA(k), pairs.getB(k));
+                } else {
+                    ghostCollisions.add(result);
                 }
             }
         }
+        contactIndex.build();
+        // joints wake their bodies before forces are applied and join them into one island
+        collectJoints();
 
         // apply global forces like gravity
         fr.updateForces(fixedUpdate);
+        if (warmStarting) {
+            // contacts are solved on the new velocities, picking up last step's impulses
+            bodyStore.integrateVelocities(fixedUpdate);
+            contactSolver.prepare(collisions, fixedUpdate);
+        }
+        for (int k = 0; k < activeJointCount; k++) {
+            activeJoints[k].prepare(bodyStore, fixedUpdate, warmStarting, !warmStarting);
+        }
+
+        // impulse resolution and positional correction, island by island
+        if (staticBodies.length < rb.size()) {
+            staticBodies = new boolean[Math.max(rb.size(), staticBodies.length * 2)];
+        }
+        for (int i = 0; i < rb.size(); i++) {
+            staticBodies[i] = rb.get(i).getBodyType() == BodyType.STATIC;
+        }
+        islands.build(rb.size(), staticBodies);
+        if (solverThreads > 1 && islands.getIslandCount() > 1 && collisions.size() + activeJointCount > SOLVER_GRAIN) {
+            getSolverPool().invoke(new IslandTask(0, islands.getIslandCount()));
+        } else {
+            solveIslands(0, islands.getIslandCount());
+        }
+
+        // integrate velocities into positions
+        continuous.begin(rb);
+        if (warmStarting) {
+            contactSolver.storeImpulses();
+            bodyStore.integratePositions(fixedUpdate);
+        } else {
+            bodyStore.integrate(fixedUpdate);
+        }
+        // joints pull their moved bodies back together
+        for (int iter = 0; iter < JOINT_POSITION_ITERATIONS; iter++) {
+            for (int k = 0; k < activeJointCount; k++) {
+                activeJoints[k].correctPositions();
+            }
+        }
+        // fast continuous bodies are moved back to where they first hit static geometry
+        continuous.solve(colliderTree, fixedUpdate);
+
+        updateSleep();
+        contactIndex.dispatchEvents();
+    }
+
+    /*
+     * Picks the joints to solve this step and adds them to the islands after the contacts.
+     * Joints with a body outside the simulation, or with no awake dynamic body, are left
+     * out; a joint with one awake body wakes the other.
+     */
+    private void collectJoints() {
+        activeJointCount = 0;
+        if (joints.isEmpty()) return;
+        // islands number bodies by their place in rb, which differs from their store slot
+        if (bodyListIndex.length < bodyStore.size()) {
+            bodyListIndex = new int[Math.max(bodyStore.size(), bodyListIndex.length * 2)];
+        }
+        for (int i = 0; i < rb.size(); i++) {
+            bodyListIndex[bodyStore.indexOf(rb.get(i))] = i;
+        }
+        if (activeJoints.length < joints.size()) {
+            activeJoints = new Joint[Math.max(joints.size(), activeJoints.length * 2)];
+        }
+        for (Joint joint : joints) {
+            Rigidbody2D a = joint.getBodyA();
+            Rigidbody2D b = joint.getBodyB();
+            int slotA = bodyStore.indexOf(a);
+            int slotB = b != null ? bodyStore.indexOf(b) : -1;
+            if (slotA < 0 || (b != null && slotB < 0)) continue;
+            boolean dynamicA = a.getBodyType() == BodyType.DYNAMIC;
+            boolean dynamicB = b != null && b.getBodyType() == BodyType.DYNAMIC;
+            if (!(dynamicA && a.isAwake()) && !(dynamicB && b.isAwake())) continue;
+            if (dynamicA) a.setAwake(true);
+            if (dynamicB) b.setAwake(true);
 
-        // iterative impulse resolution for solid contacts
-        for (int iter = 1; iter < impulseIterations; iter++) {
-            for (int j = 0; j < collisions.size(); j++) {
-                CollisionManifold m = collisions.get(j);
-                for (Vector2f contact : m.getContactPoints()) {
-                    applyImpulse(bodies1.get(j), bodies2.get(j), m);
+            int indexA = bodyListIndex[slotA];
+            islands.addContact(indexA, b != null ? bodyListIndex[slotB] : indexA);
+            activeJoints[activeJointCount++] = joint;
+        }
+    }
+
+    private void collectJointPairs() {
+        jointPairCount = 0;
+        if (joints.isEmpty()) return;
+        if (jointPairs.length < joints.size()) {
+            jointPairs = new long[Math.max(joints.size(), jointPairs.length * 2)];
+        }
+        for (Joint joint : joints) {
+            Rigidbody2D b = joint.getBodyB();
+            if (b == null || joint.isCollideConnected()) continue;
+            if (bodyStore.indexOf(joint.getBodyA()) < 0 || bodyStore.indexOf(b) < 0) continue;
+            jointPairs[jointPairCount++] = jointPairKey(joint.getBodyA(), b);
+        }
+        Arrays.sort(jointPairs, 0, jointPairCount);
+    }
+
+    private boolean isJointPair(Rigidbody2D r1, Rigidbody2D r2) {
+        return Arrays.binarySearch(jointPairs, 0, jointPairCount, jointPairKey(r1, r2)) >= 0;
+    }
+
+    private static long jointPairKey(Rigidbody2D a, Rigidbody2D b) {
+        int idA = a.getBodyId(), idB = b.getBodyId();
+        return ContactCache.key(Math.min(idA, idB), Math.max(idA, idB));
+    }
+
+    private static boolean isResting(Rigidbody2D body) {
+        return body.getBodyType() == BodyType.STATIC || !body.isAwake();
+    }
+
+    private static boolean isKinematic(Rigidbody2D body) {
+        return body.getBodyType() == BodyType.KINEMATIC;
+    }
+
+    /*
+     * Updates how long each body has been resting and puts islands to sleep whose bodies
+     * have all been resting for timeToSleep. Kinematic bodies never sleep, but a moving
+     * one keeps its island awake.
+     */
+    private void updateSleep() {
+        int islandCount = islands.getIslandCount();
+        if (islandRestTime.length < islandCount) {
+            islandRestTime = new float[Math.max(islandCount, islandRestTime.length * 2)];
+        }
+        Arrays.fill(islandRestTime, 0, islandCount, Float.MAX_VALUE);
+        for (int i = 0; i < rb.size(); i++) {
+            Rigidbody2D body = rb.get(i);
+            if (isResting(body)) continue;
+            float rest = body.updateSleepTime(fixedUpdate, sleepLinearTolerance, sleepAngularTolerance);
+            int island = islands.getBodyIsland(i);
+            if (island >= 0) {
+                islandRestTime[island] = Math.min(islandRestTime[island], rest);
+            }
+        }
+
+        sleepingBodies = 0;
+        awakeBodies = 0;
+        for (int i = 0; i < rb.size(); i++) {
+            Rigidbody2D body = rb.get(i);
+            if (body.getBodyType() != BodyType.DYNAMIC) continue;
+            if (body.isAwake() && sleepingEnabled) {
+                int island = islands.getBodyIsland(i);
+                float rest = island >= 0 ? islandRestTime[island] : body.getSleepTime();
+                if (rest >= timeToSleep) {
+                    body.setAwake(false);
                 }
             }
+            if (body.isAwake()) {
+                awakeBodies++;
+            } else {
+                sleepingBodies++;
+            }
         }
+    }
 
-        // positional correction to prevent sinking
-        for (int i = 0; i < collisions.size(); i++) {
-            positionalCorrection(bodies1.get(i), bodies2.get(i), collisions.get(i));
+    /*
+     * Solves the contacts and joints of the islands in [from, to). Each island runs every
+     * impulse iteration and then its positional correction, visiting its contacts in the
+     * order of the collisions list and its joints after them. Islands share no movable body,
+     * so the result is the same as solving all contacts together, whatever islands run at
+     * the same time.
+     * @param from - first island
+     * @param to - island after the last one
+     */
+    private void solveIslands(int from, int to) {
+        int contacts = collisions.size();
+        for (int island = from; island < to; island++) {
+            int start = islands.getIslandStart(island);
+            int end = islands.getIslandEnd(island);
+            if (warmStarting) {
+                for (int k = start; k < end; k++) {
+                    int j = islands.getContact(k);
+                    if (j < contacts) {
+                        contactSolver.warmStart(j);
+                    } else {
+                        activeJoints[j - contacts].warmStart();
+                    }
+                }
+                for (int iter = 1; iter < impulseIterations; iter++) {
+                    for (int k = start; k < end; k++) {
+                        int j = islands.getContact(k);
+                        if (j < contacts) {
+                            contactSolver.solve(j);
+                        } else {
+                            activeJoints[j - contacts].solve();
+                        }
+                    }
+                }
+            } else {
+                // iterative impulse resolution for solid contacts and joints
+                for (int iter = 1; iter < impulseIterations; iter++) {
+                    for (int k = start; k < end; k++) {
+                        int j = islands.getContact(k);
+                        if (j >= contacts) {
+                            activeJoints[j - contacts].solve();
+                            continue;
+                        }
+                        CollisionManifold m = collisions.get(j);
+                        for (int c = 0; c < m.getContactCount(); c++) {
+                            applyImpulse(bodies1.get(j), bodies2.get(j), m);
+                        }
+                    }
+                }
+            }
+
+            // positional correction to prevent sinking; the contact solver already pushes
+            // dynamic bodies apart through its velocity bias and only leaves kinematic ones
+            for (int k = start; k < end; k++) {
+                int i = islands.getContact(k);
+                // joints correct their drift after the bodies moved
+                if (i >= contacts) continue;
+                if (warmStarting && !isKinematic(bodies1.get(i)) && !isKinematic(bodies2.get(i))) continue;
+                positionalCorrection(bodies1.get(i), bodies2.get(i), collisions.get(i));
+            }
         }
+    }
 
-        // integrate velocities into positions
-        for (Rigidbody2D body : rb) {
-            if (body.getBodyType() == BodyType.DYNAMIC) {
-                body.physicsUpdate(fixedUpdate);
+    /*
+     * IslandTask solves a range of islands, splitting it in halves on the solver pool
+     * while the halves still hold more than SOLVER_GRAIN contacts.
+     */
+    private class IslandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        IslandTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int contacts = islands.getIslandEnd(to - 1) - islands.getIslandStart(from);
+            if (to - from == 1 || contacts <= SOLVER_GRAIN) {
+                solveIslands(from, to);
+                return;
             }
+            int mid = (from + to) >>> 1;
+            invokeAll(new IslandTask(from, mid), new IslandTask(mid, to));
+        }
+    }
+
+    private ForkJoinPool getSolverPool() {
+        if (solverPool == null) {
+            solverPool = new ForkJoinPool(solverThreads);
+        }
+        return solverPool;
+    }
+
+    /*
+     * Sets how many threads solve contact islands. With 1 everything is solved on the
+     * calling thread. The result of a step does not depend on this setting.
+     * @param threads - number of solver threads, at least 1
+     */
+    public void setSolverThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Solver needs at least one thread: " + threads);
+        }
+        if (threads == solverThreads) return;
+        solverThreads = threads;
+        if (solverPool != null) {
+            solverPool.shutdown();
+            solverPool = null;
         }
     }
 
+    /*
+     * @return number of threads used to solve contact islands
+     */
+    public int getSolverThreads() {
+        return solverThreads;
+    }
+
+    /*
+     * @return the contact islands of the last step
+     */
+    public ContactIslands getContactIslands() {
+        return islands;
+    }
+
     /*
      * Resolves collision impulses and friction between two bodies.
      * @param r1 - first rigidbody
@@ -175,8 +551,9 @@ public class PhysicsSystem {
 
         if (!vecMPoint1.isEmpty() && j != 0.0f) {
             float friction = (r1.getFriction() + r2.getFriction())*0.5f;
-            r1.addTorque(-friction*r1.getAngularVelocity());
-            r2.addTorque(-friction*r2.getAngularVelocity());
+            // static bodies are shared between islands and never rotate, leave them untouched
+            if (r1.getBodyType() != BodyType.STATIC) r1.addTorque(-friction*r1.getAngularVelocity());
+            if (r2.getBodyType() != BodyType.STATIC) r2.addTorque(-friction*r2.getAngularVelocity());
 //            System.out.println("Impulse: " + impulse + " vecMPoint: " + vecMPoint1.get(0));
             float angularMoment1 = 0.0f;
             float torque1 = 0.0f;
@@ -255,12 +632,192 @@ public class PhysicsSystem {
      * @param body - the Rigidbody2D to add
      */
     public void addRigidbody(Rigidbody2D body) {
-        rb.add(body);
+        bodyStore.add(body);
+        insertRigidbody(body);
+    }
+
+    /*
+     * Adds a Rigidbody under a chosen id. Lockstep games give every body the same id on
+     * every machine, so in deterministic mode the simulation runs in the same order there.
+     * @param body - the Rigidbody2D to add
+     * @param bodyId - unique id of the body, at least 0
+     */
+    public void addRigidbody(Rigidbody2D body, int bodyId) {
+        if (getRigidbody(bodyId) != null) {
+            throw new IllegalArgumentException("Body id " + bodyId + " is already used");
+        }
+        bodyStore.add(body, bodyId);
+        insertRigidbody(body);
+    }
+
+    private void insertRigidbody(Rigidbody2D body) {
+        if (deterministic) {
+            int index = findRigidbody(body.getBodyId());
+            rb.add(index < 0 ? -index - 1 : index, body);
+        } else {
+            rb.add(body);
+        }
+        // insert right away so queries before the next step already see the body
+        Collider collider = body.getCollider();
+        if (collider != null && collider.getRigidbody() != null && colliderTree.getProxy(collider) == DynamicAABBTree.NULL_NODE) {
+            collider.getBounds(boundsMin, boundsMax);
+            colliderTree.createProxy(collider, boundsMin, boundsMax);
+        }
         if (body.getBodyType() == BodyType.DYNAMIC) {
             fr.add(body, gravity);
         }
     }
 
+    /*
+     * @param bodyId - id of the body, see Rigidbody2D.getBodyId
+     * @return the body with this id, or null if it is not in the simulation
+     */
+    public Rigidbody2D getRigidbody(int bodyId) {
+        if (deterministic) {
+            int index = findRigidbody(bodyId);
+            return index >= 0 ? rb.get(index) : null;
+        }
+        for (Rigidbody2D body : rb) {
+            if (body.getBodyId() == bodyId) return body;
+        }
+        return null;
+    }
+
+    // binary search over the bodies sorted by id, as Collections.binarySearch returns it
+    private int findRigidbody(int bodyId) {
+        int low = 0, high = rb.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = rb.get(mid).getBodyId();
+            if (id < bodyId) low = mid + 1;
+            else if (id > bodyId) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    /*
+     * Turns deterministic mode on or off. In deterministic mode the bodies are kept sorted
+     * by id, so broad-phase pairs, islands and solver passes visit them in an order that only
+     * depends on their ids. Two systems given the same bodies under the same ids and the same
+     * inputs then produce bit-identical states, whatever order the bodies were added in.
+     * @param deterministic - true to order the simulation by body id
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+        if (deterministic) {
+            rb.sort(Comparator.comparingInt(Rigidbody2D::getBodyId));
+        }
+    }
+
+    /*
+     * @return true if the simulation is ordered by body id
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /*
+     * Hashes the id, position, rotation, velocities, sleep time and awake flag of every body,
+     * in the order of getRigidbodies (id order in deterministic mode). Equal hashes after the
+     * same step mean two simulations have not drifted apart, e.g. on two machines of a
+     * lockstep game or in a replay.
+     * @return 64-bit hash of the simulation state
+     */
+    public long getStateHash() {
+        long hash = HASH_OFFSET;
+        for (Rigidbody2D body : rb) {
+            hash = mixHash(hash, body.getBodyId());
+            hash = mixHash(hash, Float.floatToIntBits(body.getPosition().x));
+            hash = mixHash(hash, Float.floatToIntBits(body.getPosition().y));
+            hash = mixHash(hash, Float.floatToIntBits(body.getRotation()));
+            hash = mixHash(hash, Float.floatToIntBits(body.getLinearVelocity().x));
+            hash = mixHash(hash, Float.floatToIntBits(body.getLinearVelocity().y));
+            hash = mixHash(hash, Float.floatToIntBits(body.getAngularVelocity()));
+            hash = mixHash(hash, Float.floatToIntBits(body.getSleepTime()));
+            hash = mixHash(hash, body.isAwake() ? 1 : 0);
+        }
+        return hash;
+    }
+
+    private static long mixHash(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xFF;
+            hash *= HASH_PRIME;
+        }
+        return hash;
+    }
+
+    /*
+     * Saves the state of every body, the contact cache, the joint impulses and the contacts of the last step
+     * into a snapshot, in O(bodies) and without allocating once the snapshot is large enough.
+     * Call it between steps.
+     * @param snapshot - receives the state, its old content is replaced
+     */
+    public void saveSnapshot(PhysicsSnapshot snapshot) {
+        int count = bodyStore.size();
+        snapshot.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            snapshot.bodies[i] = bodyStore.getBody(i);
+        }
+        Arrays.fill(snapshot.bodies, count, snapshot.bodies.length, null);
+        snapshot.bodyCount = count;
+        bodyStore.saveState(snapshot.bodyState);
+        snapshot.ensureJointCapacity(joints.size());
+        for (int k = 0; k < joints.size(); k++) {
+            snapshot.joints[k] = joints.get(k);
+            joints.get(k).saveImpulses(snapshot.jointImpulses, k * Joint.IMPULSE_STRIDE);
+        }
+        Arrays.fill(snapshot.joints, joints.size(), snapshot.joints.length, null);
+        snapshot.jointCount = joints.size();
+        snapshot.contactCache.copyFrom(contactSolver.getCache());
+        contactIndex.saveTo(snapshot.contacts);
+        snapshot.accumulator = accumulator;
+        snapshot.interpolationAlpha = interpolationAlpha;
+        snapshot.saved = true;
+    }
+
+    /*
+     * Puts the simulation back into the state saved in a snapshot, in O(bodies) and without
+     * allocating. Stepping on from there gives the same result as it did the first time,
+     * so gameplay can rewind a few steps and re-simulate them with corrected input.
+     * @param snapshot - a snapshot saved from this system
+     * @throws IllegalStateException if bodies or joints were added or removed since the snapshot was saved
+     */
+    public void restoreSnapshot(PhysicsSnapshot snapshot) {
+        if (!snapshot.saved) {
+            throw new IllegalArgumentException("The snapshot was never saved");
+        }
+        int count = bodyStore.size();
+        boolean sameBodies = count == snapshot.bodyCount;
+        for (int i = 0; i < count && sameBodies; i++) {
+            sameBodies = bodyStore.getBody(i) == snapshot.bodies[i];
+        }
+        if (!sameBodies) {
+            throw new IllegalStateException("Bodies were added or removed since the snapshot was saved");
+        }
+        boolean sameJoints = joints.size() == snapshot.jointCount;
+        for (int k = 0; k < joints.size() && sameJoints; k++) {
+            sameJoints = joints.get(k) == snapshot.joints[k];
+        }
+        if (!sameJoints) {
+            throw new IllegalStateException("Joints were added or removed since the snapshot was saved");
+        }
+        bodyStore.restoreState(snapshot.bodyState);
+        for (int k = 0; k < joints.size(); k++) {
+            joints.get(k).restoreImpulses(snapshot.jointImpulses, k * Joint.IMPULSE_STRIDE);
+        }
+        contactSolver.getCache().copyFrom(snapshot.contactCache);
+        contactIndex.restoreFrom(snapshot.contacts);
+        accumulator = snapshot.accumulator;
+        interpolationAlpha = snapshot.interpolationAlpha;
+        // queries and the next step see the restored positions, sleeping bodies included
+        colliderTree.resync(rb);
+        if (broadPhase instanceof DynamicTreeBroadPhase treePhase && treePhase.getTree() != colliderTree) {
+            treePhase.getTree().resync(rb);
+        }
+    }
+
     /*
      * @return list of all rigidbodies in the simulation
      */
@@ -282,12 +839,254 @@ public class PhysicsSystem {
         return ghostCollisions;
     }
 
+    /*
+     * Gives access to the force generators, e.g. to register drag, wind or an explosion for
+     * some bodies. Dynamic bodies are registered with gravity when they are added.
+     * @return the ForceRegistry applied at every step
+     */
+    public ForceRegistry getForceRegistry() {
+        return fr;
+    }
+
+    /*
+     * Adds a joint to the simulation. It is solved while both of its bodies are in the
+     * simulation, adding it twice does nothing.
+     * @param joint - the joint to add
+     */
+    public void addJoint(Joint joint) {
+        if (!joints.contains(joint)) {
+            joints.add(joint);
+        }
+    }
+
+    /*
+     * Removes a joint from the simulation, its bodies move freely again.
+     * @param joint - the joint to remove
+     */
+    public void removeJoint(Joint joint) {
+        joints.remove(joint);
+    }
+
+    /*
+     * @return the joints of the simulation, not to be modified
+     */
+    public List<Joint> getJoints() {
+        return joints;
+    }
+
+    /*
+     * The contact index lists the contacts of the last step per body, solid and ghost ones.
+     * @return the contact index of this system
+     */
+    public ContactIndex getContactIndex() {
+        return contactIndex;
+    }
+
+    /*
+     * @return the sweep of continuous bodies, e.g. to read its impact count
+     */
+    public ContinuousCollision getContinuousCollision() {
+        return continuous;
+    }
+
+    /*
+     * Selects the broad phase used to find candidate pairs for the narrow phase.
+     * @param broadPhase - the BroadPhase implementation to use
+     */
+    public void setBroadPhase(BroadPhase broadPhase) {
+        this.broadPhase = broadPhase;
+    }
+
+    /*
+     * @return the broad phase currently used by this system
+     */
+    public BroadPhase getBroadPhase() {
+        return broadPhase;
+    }
+
+    /*
+     * Switches between the original impulse solver and the accumulated impulse solver,
+     * which keeps the impulses of every contact point in a cache and starts the next
+     * step from them. Warm starting lets stacks come to rest with fewer iterations.
+     * Boxes then touch in clipped contacts, whose feature ids stay the same between steps.
+     * @param warmStarting - true to use the warm-started contact solver
+     */
+    public void setWarmStarting(boolean warmStarting) {
+        if (warmStarting != this.warmStarting) {
+            contactSolver.getCache().clear();
+        }
+        this.warmStarting = warmStarting;
+        scratch.setClippedBoxContacts(warmStarting);
+    }
+
+    /*
+     * @return true if contacts are solved by the warm-started contact solver
+     */
+    public boolean isWarmStarting() {
+        return warmStarting;
+    }
+
+    /*
+     * @return the solver used when warm starting is on, e.g. to reach its contact cache
+     */
+    public ContactSolver getContactSolver() {
+        return contactSolver;
+    }
+
+    /*
+     * Sets the impulse iteration count; the solvers run iterations - 1 velocity passes per step.
+     * @param iterations - number of impulse iterations, at least 2
+     */
+    public void setImpulseIterations(int iterations) {
+        if (iterations < 2) {
+            throw new IllegalArgumentException("At least two impulse iterations are needed: " + iterations);
+        }
+        this.impulseIterations = iterations;
+    }
+
+    /*
+     * @return number of impulse iterations
+     */
+    public int getImpulseIterations() {
+        return impulseIterations;
+    }
+
+    /*
+     * Turns sleeping on or off. Turning it off wakes every body.
+     * @param enabled - true to let resting bodies fall asleep
+     */
+    public void setSleepingEnabled(boolean enabled) {
+        this.sleepingEnabled = enabled;
+        if (!enabled) {
+            for (Rigidbody2D body : rb) {
+                body.setAwake(true);
+            }
+        }
+    }
+
+    /*
+     * @return true if resting bodies fall asleep
+     */
+    public boolean isSleepingEnabled() {
+        return sleepingEnabled;
+    }
+
+    /*
+     * Sets the speeds below which a body counts as resting.
+     * @param linear - linear speed in units per second
+     * @param angular - angular speed in degrees per second
+     */
+    public void setSleepTolerances(float linear, float angular) {
+        this.sleepLinearTolerance = linear;
+        this.sleepAngularTolerance = angular;
+    }
+
+    /*
+     * Sets how long a body and its island must rest before falling asleep.
+     * @param seconds - resting time in simulated seconds
+     */
+    public void setTimeToSleep(float seconds) {
+        this.timeToSleep = seconds;
+    }
+
+    /*
+     * @return number of dynamic bodies asleep after the last step
+     */
+    public int getSleepingBodyCount() {
+        return sleepingBodies;
+    }
+
+    /*
+     * @return number of dynamic bodies awake after the last step
+     */
+    public int getAwakeBodyCount() {
+        return awakeBodies;
+    }
+
+    /*
+     * @return number of broad-phase pairs in the last step that skipped the narrow phase
+     *         because neither body could move
+     */
+    public int getSleepingPairCount() {
+        return sleepingPairs;
+    }
+
+    /*
+     * How far the accumulator is into the next fixed step, from 0 to 1. Rendering uses it
+     * to blend the previous and current body state, see Rigidbody2D.getInterpolatedPosition.
+     * @return the interpolation alpha after the last update
+     */
+    public float getInterpolationAlpha() {
+        return interpolationAlpha;
+    }
+
+    /*
+     * Sets how many fixed steps update may run for one frame.
+     * @param maxSubsteps - maximum number of steps per update, at least 1
+     */
+    public void setMaxSubsteps(int maxSubsteps) {
+        if (maxSubsteps < 1) {
+            throw new IllegalArgumentException("At least one substep is needed: " + maxSubsteps);
+        }
+        this.maxSubsteps = maxSubsteps;
+    }
+
+    /*
+     * @return maximum number of fixed steps per update
+     */
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+
+    /*
+     * Sets how many simulated seconds pass per second of frame time.
+     * @param timeScale - factor applied to the frame time given to update
+     */
+    public void setTimeScale(float timeScale) {
+        this.timeScale = timeScale;
+    }
+
+    /*
+     * @return simulated seconds per second of frame time
+     */
+    public float getTimeScale() {
+        return timeScale;
+    }
+
+    /*
+     * @return duration of one fixed step in seconds
+     */
+    public float getFixedDeltaTime() {
+        return fixedUpdate;
+    }
+
+    /*
+     * @return the packed state of all rigidbodies in the simulation
+     */
+    public BodyStore getBodyStore() {
+        return bodyStore;
+    }
+
+    /*
+     * The collider tree holds the fat bounds of every collider in the simulation and is
+     * updated each step. It is used for region and ray queries, e.g. by Physics2D.
+     * @return the dynamic AABB tree of this system
+     */
+    public DynamicAABBTree getColliderTree() {
+        return colliderTree;
+    }
+
     /*
      * Removes a Rigidbody from the simulation and force registry.
      * @param body - the Rigidbody2D to remove
      */
     public void removeRigidbody(Rigidbody2D body) {
         rb.remove(body);
+        bodyStore.remove(body);
+        fr.remove(body);
+        if (body.getCollider() != null) {
+            colliderTree.destroyProxy(body.getCollider());
+        }
     }
 
     /*
@@ -295,10 +1094,18 @@ public class PhysicsSystem {
      */
     public void reset() {
         rb.clear();
+        bodyStore.clear();
         bodies1.clear();
         bodies2.clear();
         collisions.clear();
         ghostCollisions.clear();
         fr.clearAll();
+        joints.clear();
+        activeJointCount = 0;
+        colliderTree.clear();
+        contactSolver.getCache().clear();
+        contactIndex.clear();
+        accumulator = 0.0f;
+        interpolationAlpha = 1.0f;
     }
 }
@@ -0,0 +1,80 @@
+package physics.broadphase;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Collider;
+
+import java.util.List;
+
+/*
+ * BodyBounds caches the world-space AABB of every body in primitive arrays,
+ * so broad phases can sweep over them without touching the collider objects again.
+ * Bodies without a usable collider get inverted bounds that never overlap anything.
+ * Author(s): Gabriel, Ahmed
+ */
+public class BodyBounds {
+    public float[] minX = new float[0];
+    public float[] minY = new float[0];
+    public float[] maxX = new float[0];
+    public float[] maxY = new float[0];
+    private int size = 0;
+
+    private final Vector2f min = new Vector2f();
+    private final Vector2f max = new Vector2f();
+
+    /*
+     * Recomputes the bounds of all bodies, growing the arrays if needed.
+     * @param bodies - the bodies to compute bounds for
+     */
+    public void update(List<Rigidbody2D> bodies) {
+        size = bodies.size();
+        if (minX.length < size) {
+            int capacity = Math.max(size, minX.length * 2);
+            minX = new float[capacity];
+            minY = new float[capacity];
+            maxX = new float[capacity];
+            maxY = new float[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            Collider collider = bodies.get(i).getCollider();
+            if (collider == null || collider.getRigidbody() == null) {
+                // inverted bounds, rejected by every overlap test
+                minX[i] = Float.MAX_VALUE;
+                minY[i] = Float.MAX_VALUE;
+                maxX[i] = -Float.MAX_VALUE;
+                maxY[i] = -Float.MAX_VALUE;
+                continue;
+            }
+            collider.getBounds(min, max);
+            minX[i] = min.x;
+            minY[i] = min.y;
+            maxX[i] = max.x;
+            maxY[i] = max.y;
+        }
+    }
+
+    /*
+     * @param i - index of the first body
+     * @param j - index of the second body
+     * @return true if the bounds of the two bodies overlap or touch
+     */
+    public boolean overlaps(int i, int j) {
+        return minX[i] <= maxX[j] && minX[j] <= maxX[i]
+                && minY[i] <= maxY[j] && minY[j] <= maxY[i];
+    }
+
+    /*
+     * @param i - index of the body
+     * @return true if the body has a collider and valid bounds
+     */
+    public boolean isValid(int i) {
+        return minX[i] <= maxX[i];
+    }
+
+    /*
+     * @return number of bodies the bounds were last computed for
+     */
+    public int size() {
+        return size;
+    }
+}
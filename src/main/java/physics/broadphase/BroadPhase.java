@@ -0,0 +1,37 @@
+package physics.broadphase;
+
+import physics.collisions.Rigidbody2D;
+import physics.collisions.Rigidbody2D.BodyType;
+import physics.primitives.Collider;
+
+import java.util.List;
+
+/*
+ * BroadPhase finds pairs of bodies whose bounds overlap, so the PhysicsSystem
+ * only runs the narrow phase (CollisionManager) on pairs that can actually touch.
+ * Author(s): Gabriel, Ahmed
+ */
+public interface BroadPhase {
+
+    /*
+     * Collects every pair of bodies whose bounds overlap and that are allowed to collide.
+     * Each pair is reported once, by index into the bodies list.
+     * @param bodies - all rigidbodies in the simulation
+     * @param pairs - output list, cleared by the caller beforehand
+     */
+    void findPairs(List<Rigidbody2D> bodies, PairList pairs);
+
+    /*
+     * Shared pair filter used by every broad phase implementation.
+     * @param a - first rigidbody
+     * @param b - second rigidbody
+     * @return true if both bodies have colliders and at least one of them is not static
+     */
+    static boolean canCollide(Rigidbody2D a, Rigidbody2D b) {
+        Collider c1 = a.getCollider();
+        Collider c2 = b.getCollider();
+        if (c1 == null || c2 == null) return false;
+        if (a.getBodyType() == BodyType.STATIC && b.getBodyType() == BodyType.STATIC) return false;
+        return c1.canCollideWith(c2);
+    }
+}
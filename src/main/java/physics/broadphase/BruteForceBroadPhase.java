@@ -0,0 +1,30 @@
+package physics.broadphase;
+
+import physics.collisions.Rigidbody2D;
+
+import java.util.List;
+
+/*
+ * BruteForceBroadPhase reports every allowed pair of bodies, like the original N^2 loop
+ * in PhysicsSystem. It is kept as a reference for testing the other broad phases.
+ * Author(s): Gabriel, Ahmed
+ */
+public class BruteForceBroadPhase implements BroadPhase {
+
+    /*
+     * Adds all pairs (i, j) with i < j that pass the collision filter.
+     * @param bodies - all rigidbodies in the simulation
+     * @param pairs - output list of candidate pairs
+     */
+    @Override
+    public void findPairs(List<Rigidbody2D> bodies, PairList pairs) {
+        int size = bodies.size();
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (BroadPhase.canCollide(bodies.get(i), bodies.get(j))) {
+                    pairs.add(i, j);
+                }
+            }
+        }
+    }
+}
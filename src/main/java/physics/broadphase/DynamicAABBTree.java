@@ -0,0 +1,711 @@
+package physics.broadphase;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Collider;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * DynamicAABBTree is a balanced bounding volume hierarchy over colliders.
+ * Each leaf (proxy) stores a "fat" AABB: the collider bounds enlarged by a margin.
+ * A proxy is only removed and reinserted when its collider leaves the fat bounds,
+ * so static platforms and slow bodies cost nothing after they are inserted.
+ * Nodes live in primitive arrays and are reused through a free list.
+ * Author(s): Gabriel, Ahmed
+ */
+public class DynamicAABBTree {
+    public static final int NULL_NODE = -1;
+
+    /*
+     * Receives proxies whose fat bounds overlap a query box.
+     */
+    public interface QueryCallback {
+        /*
+         * @param proxyId - id of the overlapping proxy
+         * @return true to continue the query, false to stop it
+         */
+        boolean report(int proxyId);
+    }
+
+    /*
+     * Receives proxies whose fat bounds are crossed by a ray.
+     */
+    public interface RayCallback {
+        /*
+         * @param proxyId - id of the proxy hit by the ray
+         * @param maxDistance - current maximum distance of the ray
+         * @return new maximum distance used to clip the rest of the search, 0 to stop
+         */
+        float report(int proxyId, float maxDistance);
+    }
+
+    /*
+     * Receives proxies whose fat bounds are crossed by one ray of a batch.
+     */
+    public interface BatchRayCallback {
+        /*
+         * @param proxyId - id of the proxy hit by the ray
+         * @param ray - index of the ray in the batch
+         * @param maxDistance - current maximum distance of the ray
+         * @return new maximum distance of the ray, 0 to stop it
+         */
+        float report(int proxyId, int ray, float maxDistance);
+    }
+
+    private final float margin;
+    private int root = NULL_NODE;
+
+    // per-node data is interleaved with a stride of 4, so visiting a node touches one cache line
+    private static final int MIN_X = 0, MIN_Y = 1, MAX_X = 2, MAX_Y = 3;
+    private static final int PARENT = 0, CHILD1 = 1, CHILD2 = 2, HEIGHT = 3;
+
+    private float[] bounds;   // fat bounds
+    private float[] tight;    // collider bounds of leaves
+    private int[] links;      // parent (next free node when unused), children and height (-1 when unused, 0 for leaves)
+    private Collider[] colliders;
+    private int[] userIndex;
+    private int[] stamp;
+    private int nodeCapacity;
+    private int freeList;
+    private int proxyCount = 0;
+
+    private final Map<Collider, Integer> proxies = new IdentityHashMap<>();
+    private int[] bodyProxy = new int[0];  // proxy of each body index after the last update
+    private Rigidbody2D[] syncedBodies = new Rigidbody2D[0];  // body list of the last resync
+    private int syncedCount = 0;
+    private int[] stack = new int[64];
+    private int[] rayLists = new int[64];  // indices of the rays still active at each level of a batch raycast
+    private int updateStamp = 0;
+    private final Vector2f tmpMin = new Vector2f();
+    private final Vector2f tmpMax = new Vector2f();
+
+    /*
+     * Constructs an empty tree with the given fat bounds margin.
+     * @param margin - distance in world units the bounds are enlarged by on each side
+     */
+    public DynamicAABBTree(float margin) {
+        this.margin = margin;
+        allocateStorage(16);
+    }
+
+    /*
+     * Moves the proxies of the awake, non-static bodies. Static and sleeping bodies have not
+     * moved since their proxy was placed, so they are skipped. When bodies were added, removed
+     * or reordered since the last call, or a collider was replaced, the tree is resynced instead.
+     * @param bodies - all rigidbodies in the simulation
+     */
+    public void update(List<Rigidbody2D> bodies) {
+        if (bodies.size() != syncedCount) {
+            resync(bodies);
+            return;
+        }
+        for (int i = 0; i < bodies.size(); i++) {
+            Rigidbody2D body = bodies.get(i);
+            Collider collider = trackedCollider(body);
+            int proxy = bodyProxy[i];
+            if (body != syncedBodies[i] || (proxy == NULL_NODE ? null : colliders[proxy]) != collider) {
+                resync(bodies);
+                return;
+            }
+            if (proxy == NULL_NODE || body.getBodyType() == Rigidbody2D.BodyType.STATIC || !body.isAwake()) continue;
+            collider.getBounds(tmpMin, tmpMax);
+            moveProxy(proxy, tmpMin, tmpMax);
+        }
+    }
+
+    /*
+     * Synchronizes the tree with every one of the given bodies: new colliders get a proxy,
+     * moved colliders are reinserted when they leave their fat bounds, and proxies of colliders
+     * that are no longer in the list are removed. Each proxy's user index is set to its body's
+     * list index. Needed after bodies were moved without waking them, like a snapshot restore.
+     * @param bodies - all rigidbodies in the simulation
+     */
+    public void resync(List<Rigidbody2D> bodies) {
+        updateStamp++;
+        if (bodyProxy.length < bodies.size()) {
+            bodyProxy = new int[Math.max(bodies.size(), bodyProxy.length * 2)];
+            syncedBodies = new Rigidbody2D[bodyProxy.length];
+        }
+        for (int i = 0; i < bodies.size(); i++) {
+            bodyProxy[i] = NULL_NODE;
+            syncedBodies[i] = bodies.get(i);
+            Collider collider = trackedCollider(bodies.get(i));
+            if (collider == null) continue;
+            collider.getBounds(tmpMin, tmpMax);
+            int proxy = getProxy(collider);
+            if (proxy == NULL_NODE) {
+                proxy = createProxy(collider, tmpMin, tmpMax);
+            } else {
+                moveProxy(proxy, tmpMin, tmpMax);
+            }
+            userIndex[proxy] = i;
+            stamp[proxy] = updateStamp;
+            bodyProxy[i] = proxy;
+        }
+
+        Arrays.fill(syncedBodies, bodies.size(), Math.max(bodies.size(), syncedCount), null);
+        syncedCount = bodies.size();
+
+        // drop proxies of colliders that were removed or replaced
+        for (int node = 0; node < nodeCapacity; node++) {
+            if (links[node * 4 + HEIGHT] == 0 && colliders[node] != null && stamp[node] != updateStamp) {
+                destroyProxy(colliders[node]);
+            }
+        }
+    }
+
+    // the collider of a body that belongs in the tree, or null
+    private static Collider trackedCollider(Rigidbody2D body) {
+        Collider collider = body.getCollider();
+        return collider != null && collider.getRigidbody() != null ? collider : null;
+    }
+
+    /*
+     * Creates a proxy for a collider with the given tight bounds.
+     * @param collider - the collider the proxy represents
+     * @param min - minimum corner of the collider bounds
+     * @param max - maximum corner of the collider bounds
+     * @return id of the new proxy
+     */
+    public int createProxy(Collider collider, Vector2f min, Vector2f max) {
+        int proxy = allocateNode();
+        setFatBounds(proxy, min, max);
+        links[proxy * 4 + HEIGHT] = 0;
+        colliders[proxy] = collider;
+        userIndex[proxy] = -1;
+        stamp[proxy] = updateStamp;
+        insertLeaf(proxy);
+        proxies.put(collider, proxy);
+        proxyCount++;
+        return proxy;
+    }
+
+    /*
+     * Removes the proxy of a collider, if it has one.
+     * @param collider - the collider to remove
+     */
+    public void destroyProxy(Collider collider) {
+        Integer proxy = proxies.remove(collider);
+        if (proxy == null) return;
+        removeLeaf(proxy);
+        colliders[proxy] = null;
+        freeNode(proxy);
+        proxyCount--;
+    }
+
+    /*
+     * Updates a proxy after its collider moved. The proxy is only reinserted
+     * when the new bounds are no longer contained in its fat bounds.
+     * @param proxy - id of the proxy
+     * @param min - new minimum corner of the collider bounds
+     * @param max - new maximum corner of the collider bounds
+     * @return true if the proxy was reinserted
+     */
+    public boolean moveProxy(int proxy, Vector2f min, Vector2f max) {
+        setTightBounds(proxy, min, max);
+        if (bounds[proxy * 4 + MIN_X] <= min.x && bounds[proxy * 4 + MIN_Y] <= min.y && max.x <= bounds[proxy * 4 + MAX_X] && max.y <= bounds[proxy * 4 + MAX_Y]) {
+            return false;
+        }
+        removeLeaf(proxy);
+        setFatBounds(proxy, min, max);
+        insertLeaf(proxy);
+        return true;
+    }
+
+    /*
+     * Removes every proxy from the tree.
+     */
+    public void clear() {
+        proxies.clear();
+        Arrays.fill(syncedBodies, null);
+        syncedCount = 0;
+        root = NULL_NODE;
+        proxyCount = 0;
+        allocateStorage(16);
+    }
+
+    /*
+     * Reports all proxies whose fat bounds overlap the given box.
+     * @param qMinX - minimum x of the query box
+     * @param qMinY - minimum y of the query box
+     * @param qMaxX - maximum x of the query box
+     * @param qMaxY - maximum y of the query box
+     * @param callback - receives overlapping proxies
+     */
+    public void query(float qMinX, float qMinY, float qMaxX, float qMaxY, QueryCallback callback) {
+        if (root == NULL_NODE) return;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int o = node * 4;
+            if (bounds[o + MIN_X] > qMaxX || bounds[o + MAX_X] < qMinX || bounds[o + MIN_Y] > qMaxY || bounds[o + MAX_Y] < qMinY) continue;
+            if (links[o + HEIGHT] == 0) {
+                if (!callback.report(node)) return;
+            } else {
+                top = push(top, links[o + CHILD1], links[o + CHILD2]);
+            }
+        }
+    }
+
+    /*
+     * Reports all proxies whose fat bounds overlap the collider bounds of another proxy,
+     * as given to the last createProxy, moveProxy or update.
+     * @param proxy - id of the proxy to query with
+     * @param callback - receives overlapping proxies (including the proxy itself)
+     */
+    public void query(int proxy, QueryCallback callback) {
+        query(tight[proxy * 4 + MIN_X], tight[proxy * 4 + MIN_Y], tight[proxy * 4 + MAX_X], tight[proxy * 4 + MAX_Y], callback);
+    }
+
+    /*
+     * Reports all proxies whose fat bounds are crossed by a ray within maxDistance.
+     * @param origin - start of the ray
+     * @param direction - normalized direction of the ray
+     * @param maxDistance - length of the ray
+     * @param callback - receives candidate proxies and may shorten the ray
+     */
+    public void raycast(Vector2f origin, Vector2f direction, float maxDistance, RayCallback callback) {
+        if (root == NULL_NODE) return;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!rayOverlaps(node, origin.x, origin.y, direction.x, direction.y, maxDistance)) continue;
+            if (links[node * 4 + HEIGHT] == 0) {
+                float value = callback.report(node, maxDistance);
+                if (value == 0.0f) return;
+                if (value > 0.0f) maxDistance = value;
+            } else {
+                top = push(top, links[node * 4 + CHILD1], links[node * 4 + CHILD2]);
+            }
+        }
+    }
+
+    /*
+     * Casts many rays in one walk of the tree. Each node is tested only against the rays
+     * that entered its parent, so rays that start close together share most of the work.
+     * @param originX - x of each ray's start
+     * @param originY - y of each ray's start
+     * @param dirX - x of each ray's normalized direction
+     * @param dirY - y of each ray's normalized direction
+     * @param maxDistance - length of each ray, shortened in place by the callback
+     * @param count - number of rays
+     * @param callback - receives candidate proxies per ray and may shorten or stop that ray
+     */
+    public void raycast(float[] originX, float[] originY, float[] dirX, float[] dirY, float[] maxDistance,
+                        int count, BatchRayCallback callback) {
+        if (root == NULL_NODE || count == 0) return;
+        if (rayLists.length < count) {
+            rayLists = new int[Math.max(count, rayLists.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            rayLists[i] = i;
+        }
+        raycastNode(root, 0, count, originX, originY, dirX, dirY, maxDistance, callback);
+    }
+
+    /*
+     * Keeps the rays of rayLists[start, start + count) that enter the node, stores them right
+     * after that range and descends with them. The recursion is as deep as the tree is high.
+     */
+    private void raycastNode(int node, int start, int count, float[] originX, float[] originY,
+                             float[] dirX, float[] dirY, float[] maxDistance, BatchRayCallback callback) {
+        int end = start + count;
+        if (rayLists.length < end + count) {
+            rayLists = Arrays.copyOf(rayLists, Math.max(end + count, rayLists.length * 2));
+        }
+        int active = 0;
+        for (int i = start; i < end; i++) {
+            int ray = rayLists[i];
+            if (maxDistance[ray] > 0.0f && rayOverlaps(node, originX[ray], originY[ray], dirX[ray], dirY[ray], maxDistance[ray])) {
+                rayLists[end + active++] = ray;
+            }
+        }
+        if (active == 0) return;
+        if (links[node * 4 + HEIGHT] == 0) {
+            for (int i = end; i < end + active; i++) {
+                int ray = rayLists[i];
+                float value = callback.report(node, ray, maxDistance[ray]);
+                if (value >= 0.0f) maxDistance[ray] = value;
+            }
+            return;
+        }
+        raycastNode(links[node * 4 + CHILD1], end, active, originX, originY, dirX, dirY, maxDistance, callback);
+        raycastNode(links[node * 4 + CHILD2], end, active, originX, originY, dirX, dirY, maxDistance, callback);
+    }
+
+    /*
+     * Slab test of a ray against the bounds of a node.
+     * @return true if the ray enters the node bounds between 0 and maxDistance
+     */
+    private boolean rayOverlaps(int node, float ox, float oy, float dx, float dy, float maxDistance) {
+        int o = node * 4;
+        float tMin = 0.0f, tMax = maxDistance;
+        if (dx == 0.0f) {
+            if (ox < bounds[o + MIN_X] || ox > bounds[o + MAX_X]) return false;
+        } else {
+            float inv = 1.0f / dx;
+            float t1 = (bounds[o + MIN_X] - ox) * inv;
+            float t2 = (bounds[o + MAX_X] - ox) * inv;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        if (dy == 0.0f) {
+            if (oy < bounds[o + MIN_Y] || oy > bounds[o + MAX_Y]) return false;
+        } else {
+            float inv = 1.0f / dy;
+            float t1 = (bounds[o + MIN_Y] - oy) * inv;
+            float t2 = (bounds[o + MAX_Y] - oy) * inv;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        return tMin <= tMax;
+    }
+
+    /*
+     * Pushes two children on the traversal stack, growing it if needed.
+     * @return new stack size
+     */
+    private int push(int top, int a, int b) {
+        if (top + 2 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top++] = a;
+        stack[top++] = b;
+        return top;
+    }
+
+    /*
+     * @param collider - the collider to look up
+     * @return id of the collider's proxy, or NULL_NODE if it has none
+     */
+    public int getProxy(Collider collider) {
+        Integer proxy = proxies.get(collider);
+        return proxy == null ? NULL_NODE : proxy;
+    }
+
+    /*
+     * @param index - index of a body in the list passed to the last update
+     * @return the body's proxy, or NULL_NODE if it has no collider
+     */
+    public int getBodyProxy(int index) {
+        return bodyProxy[index];
+    }
+
+    /*
+     * @param proxy - id of the proxy
+     * @return the collider stored in the proxy
+     */
+    public Collider getCollider(int proxy) {
+        return colliders[proxy];
+    }
+
+    /*
+     * @param proxy - id of the proxy
+     * @return index of the proxy's body in the list passed to the last update
+     */
+    public int getUserIndex(int proxy) {
+        return userIndex[proxy];
+    }
+
+    /*
+     * Writes the fat bounds of a proxy into min and max.
+     * @param proxy - id of the proxy
+     * @param min - receives the minimum corner
+     * @param max - receives the maximum corner
+     */
+    public void getFatBounds(int proxy, Vector2f min, Vector2f max) {
+        min.set(bounds[proxy * 4 + MIN_X], bounds[proxy * 4 + MIN_Y]);
+        max.set(bounds[proxy * 4 + MAX_X], bounds[proxy * 4 + MAX_Y]);
+    }
+
+    /*
+     * @return number of proxies in the tree
+     */
+    public int getProxyCount() {
+        return proxyCount;
+    }
+
+    /*
+     * @return height of the tree (0 for a single leaf, -1 when empty)
+     */
+    public int getHeight() {
+        return root == NULL_NODE ? -1 : links[root * 4 + HEIGHT];
+    }
+
+    /*
+     * @return the fat bounds margin in world units
+     */
+    public float getMargin() {
+        return margin;
+    }
+
+    private void setTightBounds(int node, Vector2f min, Vector2f max) {
+        tight[node * 4 + MIN_X] = min.x;
+        tight[node * 4 + MIN_Y] = min.y;
+        tight[node * 4 + MAX_X] = max.x;
+        tight[node * 4 + MAX_Y] = max.y;
+    }
+
+    private void setFatBounds(int node, Vector2f min, Vector2f max) {
+        setTightBounds(node, min, max);
+        bounds[node * 4 + MIN_X] = min.x - margin;
+        bounds[node * 4 + MIN_Y] = min.y - margin;
+        bounds[node * 4 + MAX_X] = max.x + margin;
+        bounds[node * 4 + MAX_Y] = max.y + margin;
+    }
+
+    /*
+     * Inserts a leaf next to the sibling that increases the total perimeter the least,
+     * then refits and rebalances the ancestors.
+     * @param leaf - id of the leaf to insert
+     */
+    private void insertLeaf(int leaf) {
+        if (root == NULL_NODE) {
+            root = leaf;
+            links[root * 4 + PARENT] = NULL_NODE;
+            return;
+        }
+
+        // find the best sibling
+        float lMinX = bounds[leaf * 4 + MIN_X], lMinY = bounds[leaf * 4 + MIN_Y], lMaxX = bounds[leaf * 4 + MAX_X], lMaxY = bounds[leaf * 4 + MAX_Y];
+        int index = root;
+        while (links[index * 4 + HEIGHT] > 0) {
+            int c1 = links[index * 4 + CHILD1];
+            int c2 = links[index * 4 + CHILD2];
+            float area = perimeter(bounds[index * 4 + MIN_X], bounds[index * 4 + MIN_Y], bounds[index * 4 + MAX_X], bounds[index * 4 + MAX_Y]);
+            float combinedArea = unionPerimeter(index, lMinX, lMinY, lMaxX, lMaxY);
+            float cost = 2.0f * combinedArea;
+            float inheritanceCost = 2.0f * (combinedArea - area);
+            float cost1 = descendCost(c1, lMinX, lMinY, lMaxX, lMaxY) + inheritanceCost;
+            float cost2 = descendCost(c2, lMinX, lMinY, lMaxX, lMaxY) + inheritanceCost;
+            if (cost < cost1 && cost < cost2) break;
+            index = cost1 < cost2 ? c1 : c2;
+        }
+        int sibling = index;
+
+        // create a new parent for the sibling and the leaf
+        int oldParent = links[sibling * 4 + PARENT];
+        int newParent = allocateNode();
+        links[newParent * 4 + PARENT] = oldParent;
+        colliders[newParent] = null;
+        links[newParent * 4 + HEIGHT] = links[sibling * 4 + HEIGHT] + 1;
+        bounds[newParent * 4 + MIN_X] = Math.min(lMinX, bounds[sibling * 4 + MIN_X]);
+        bounds[newParent * 4 + MIN_Y] = Math.min(lMinY, bounds[sibling * 4 + MIN_Y]);
+        bounds[newParent * 4 + MAX_X] = Math.max(lMaxX, bounds[sibling * 4 + MAX_X]);
+        bounds[newParent * 4 + MAX_Y] = Math.max(lMaxY, bounds[sibling * 4 + MAX_Y]);
+        if (oldParent != NULL_NODE) {
+            if (links[oldParent * 4 + CHILD1] == sibling) links[oldParent * 4 + CHILD1] = newParent;
+            else links[oldParent * 4 + CHILD2] = newParent;
+        } else {
+            root = newParent;
+        }
+        links[newParent * 4 + CHILD1] = sibling;
+        links[newParent * 4 + CHILD2] = leaf;
+        links[sibling * 4 + PARENT] = newParent;
+        links[leaf * 4 + PARENT] = newParent;
+
+        refit(links[leaf * 4 + PARENT]);
+    }
+
+    /*
+     * Removes a leaf and replaces its parent by its sibling.
+     * @param leaf - id of the leaf to remove
+     */
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL_NODE;
+            return;
+        }
+        int p = links[leaf * 4 + PARENT];
+        int grandParent = links[p * 4 + PARENT];
+        int sibling = links[p * 4 + CHILD1] == leaf ? links[p * 4 + CHILD2] : links[p * 4 + CHILD1];
+        if (grandParent != NULL_NODE) {
+            if (links[grandParent * 4 + CHILD1] == p) links[grandParent * 4 + CHILD1] = sibling;
+            else links[grandParent * 4 + CHILD2] = sibling;
+            links[sibling * 4 + PARENT] = grandParent;
+            freeNode(p);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            links[sibling * 4 + PARENT] = NULL_NODE;
+            freeNode(p);
+        }
+    }
+
+    /*
+     * Walks from a node to the root, rebalancing and recomputing bounds and heights.
+     * @param index - first node to refit
+     */
+    private void refit(int index) {
+        while (index != NULL_NODE) {
+            index = balance(index);
+            int c1 = links[index * 4 + CHILD1];
+            int c2 = links[index * 4 + CHILD2];
+            links[index * 4 + HEIGHT] = 1 + Math.max(links[c1 * 4 + HEIGHT], links[c2 * 4 + HEIGHT]);
+            unionInto(index, c1, c2);
+            index = links[index * 4 + PARENT];
+        }
+    }
+
+    /*
+     * Performs a left or right rotation if node a is imbalanced.
+     * @param a - id of the node to balance
+     * @return id of the node now at a's position
+     */
+    private int balance(int a) {
+        if (links[a * 4 + HEIGHT] < 2) return a;
+        int b = links[a * 4 + CHILD1];
+        int c = links[a * 4 + CHILD2];
+        int balance = links[c * 4 + HEIGHT] - links[b * 4 + HEIGHT];
+
+        // rotate c up
+        if (balance > 1) {
+            int f = links[c * 4 + CHILD1];
+            int g = links[c * 4 + CHILD2];
+            links[c * 4 + CHILD1] = a;
+            links[c * 4 + PARENT] = links[a * 4 + PARENT];
+            links[a * 4 + PARENT] = c;
+            replaceChild(links[c * 4 + PARENT], a, c);
+            if (links[f * 4 + HEIGHT] > links[g * 4 + HEIGHT]) {
+                links[c * 4 + CHILD2] = f;
+                links[a * 4 + CHILD2] = g;
+                links[g * 4 + PARENT] = a;
+                unionInto(a, b, g);
+                unionInto(c, a, f);
+                links[a * 4 + HEIGHT] = 1 + Math.max(links[b * 4 + HEIGHT], links[g * 4 + HEIGHT]);
+                links[c * 4 + HEIGHT] = 1 + Math.max(links[a * 4 + HEIGHT], links[f * 4 + HEIGHT]);
+            } else {
+                links[c * 4 + CHILD2] = g;
+                links[a * 4 + CHILD2] = f;
+                links[f * 4 + PARENT] = a;
+                unionInto(a, b, f);
+                unionInto(c, a, g);
+                links[a * 4 + HEIGHT] = 1 + Math.max(links[b * 4 + HEIGHT], links[f * 4 + HEIGHT]);
+                links[c * 4 + HEIGHT] = 1 + Math.max(links[a * 4 + HEIGHT], links[g * 4 + HEIGHT]);
+            }
+            return c;
+        }
+
+        // rotate b up
+        if (balance < -1) {
+            int d = links[b * 4 + CHILD1];
+            int e = links[b * 4 + CHILD2];
+            links[b * 4 + CHILD1] = a;
+            links[b * 4 + PARENT] = links[a * 4 + PARENT];
+            links[a * 4 + PARENT] = b;
+            replaceChild(links[b * 4 + PARENT], a, b);
+            if (links[d * 4 + HEIGHT] > links[e * 4 + HEIGHT]) {
+                links[b * 4 + CHILD2] = d;
+                links[a * 4 + CHILD1] = e;
+                links[e * 4 + PARENT] = a;
+                unionInto(a, c, e);
+                unionInto(b, a, d);
+                links[a * 4 + HEIGHT] = 1 + Math.max(links[c * 4 + HEIGHT], links[e * 4 + HEIGHT]);
+                links[b * 4 + HEIGHT] = 1 + Math.max(links[a * 4 + HEIGHT], links[d * 4 + HEIGHT]);
+            } else {
+                links[b * 4 + CHILD2] = e;
+                links[a * 4 + CHILD1] = d;
+                links[d * 4 + PARENT] = a;
+                unionInto(a, c, d);
+                unionInto(b, a, e);
+                links[a * 4 + HEIGHT] = 1 + Math.max(links[c * 4 + HEIGHT], links[d * 4 + HEIGHT]);
+                links[b * 4 + HEIGHT] = 1 + Math.max(links[a * 4 + HEIGHT], links[e * 4 + HEIGHT]);
+            }
+            return b;
+        }
+        return a;
+    }
+
+    /*
+     * Points the parent (or the root) that referenced oldChild at newChild.
+     */
+    private void replaceChild(int p, int oldChild, int newChild) {
+        if (p == NULL_NODE) {
+            root = newChild;
+        } else if (links[p * 4 + CHILD1] == oldChild) {
+            links[p * 4 + CHILD1] = newChild;
+        } else {
+            links[p * 4 + CHILD2] = newChild;
+        }
+    }
+
+    private void unionInto(int target, int a, int b) {
+        bounds[target * 4 + MIN_X] = Math.min(bounds[a * 4 + MIN_X], bounds[b * 4 + MIN_X]);
+        bounds[target * 4 + MIN_Y] = Math.min(bounds[a * 4 + MIN_Y], bounds[b * 4 + MIN_Y]);
+        bounds[target * 4 + MAX_X] = Math.max(bounds[a * 4 + MAX_X], bounds[b * 4 + MAX_X]);
+        bounds[target * 4 + MAX_Y] = Math.max(bounds[a * 4 + MAX_Y], bounds[b * 4 + MAX_Y]);
+    }
+
+    private float descendCost(int child, float lMinX, float lMinY, float lMaxX, float lMaxY) {
+        float combined = unionPerimeter(child, lMinX, lMinY, lMaxX, lMaxY);
+        if (links[child * 4 + HEIGHT] == 0) return combined;
+        return combined - perimeter(bounds[child * 4 + MIN_X], bounds[child * 4 + MIN_Y], bounds[child * 4 + MAX_X], bounds[child * 4 + MAX_Y]);
+    }
+
+    private float unionPerimeter(int node, float lMinX, float lMinY, float lMaxX, float lMaxY) {
+        return perimeter(Math.min(bounds[node * 4 + MIN_X], lMinX), Math.min(bounds[node * 4 + MIN_Y], lMinY),
+                Math.max(bounds[node * 4 + MAX_X], lMaxX), Math.max(bounds[node * 4 + MAX_Y], lMaxY));
+    }
+
+    private static float perimeter(float x0, float y0, float x1, float y1) {
+        return 2.0f * ((x1 - x0) + (y1 - y0));
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL_NODE) {
+            growStorage(nodeCapacity * 2);
+        }
+        int node = freeList;
+        freeList = links[node * 4 + PARENT];
+        links[node * 4 + PARENT] = NULL_NODE;
+        links[node * 4 + CHILD1] = NULL_NODE;
+        links[node * 4 + CHILD2] = NULL_NODE;
+        links[node * 4 + HEIGHT] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        links[node * 4 + PARENT] = freeList;
+        links[node * 4 + HEIGHT] = -1;
+        colliders[node] = null;
+        freeList = node;
+    }
+
+    private void allocateStorage(int capacity) {
+        nodeCapacity = 0;
+        bounds = new float[0];
+        tight = new float[0];
+        links = new int[0];
+        colliders = new Collider[0];
+        userIndex = new int[0];
+        stamp = new int[0];
+        freeList = NULL_NODE;
+        growStorage(capacity);
+    }
+
+    /*
+     * Grows the node arrays and links the new nodes into the free list.
+     * @param capacity - new number of nodes
+     */
+    private void growStorage(int capacity) {
+        int old = nodeCapacity;
+        bounds = Arrays.copyOf(bounds, capacity * 4);
+        tight = Arrays.copyOf(tight, capacity * 4);
+        links = Arrays.copyOf(links, capacity * 4);
+        colliders = Arrays.copyOf(colliders, capacity);
+        userIndex = Arrays.copyOf(userIndex, capacity);
+        stamp = Arrays.copyOf(stamp, capacity);
+        for (int i = old; i < capacity; i++) {
+            links[i * 4 + PARENT] = i + 1 < capacity ? i + 1 : freeList;
+            links[i * 4 + HEIGHT] = -1;
+        }
+        freeList = old;
+        nodeCapacity = capacity;
+    }
+}
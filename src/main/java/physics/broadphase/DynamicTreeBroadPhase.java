@@ -0,0 +1,85 @@
+package physics.broadphase;
+
+import physics.collisions.Rigidbody2D;
+
+import java.util.List;
+
+/*
+ * DynamicTreeBroadPhase finds pairs by querying a DynamicAABBTree with the bounds
+ * of every non-static body. Querying with the tight bounds against the fat bounds in the
+ * tree still finds every real overlap, with fewer false candidates than fat against fat.
+ * Static bodies never query, so scenes with many static platforms and few movers only
+ * pay for the movers. The tree is updated in findPairs, which is cheap when it is shared
+ * and was already updated this step.
+ * Author(s): Gabriel, Ahmed
+ */
+public class DynamicTreeBroadPhase implements BroadPhase, DynamicAABBTree.QueryCallback {
+    private final DynamicAABBTree tree;
+
+    // state of the query that is currently running
+    private List<Rigidbody2D> queryBodies;
+    private PairList queryPairs;
+    private int queryIndex;
+
+    /*
+     * Constructs a tree broad phase with its own tree and a margin of 5 units.
+     */
+    public DynamicTreeBroadPhase() {
+        this(new DynamicAABBTree(5.0f));
+    }
+
+    /*
+     * Constructs a tree broad phase on an existing tree.
+     * @param tree - the tree to update and query
+     */
+    public DynamicTreeBroadPhase(DynamicAABBTree tree) {
+        this.tree = tree;
+    }
+
+    /*
+     * Updates the tree and reports pairs whose fat bounds overlap.
+     * @param bodies - all rigidbodies in the simulation
+     * @param pairs - output list of candidate pairs
+     */
+    @Override
+    public void findPairs(List<Rigidbody2D> bodies, PairList pairs) {
+        tree.update(bodies);
+        queryBodies = bodies;
+        queryPairs = pairs;
+        for (int i = 0; i < bodies.size(); i++) {
+            Rigidbody2D body = bodies.get(i);
+            if (body.getBodyType() == Rigidbody2D.BodyType.STATIC) continue;
+            int proxy = tree.getBodyProxy(i);
+            if (proxy == DynamicAABBTree.NULL_NODE) continue;
+            queryIndex = i;
+            tree.query(proxy, this);
+        }
+        queryBodies = null;
+        queryPairs = null;
+    }
+
+    /*
+     * Called by the tree for every proxy overlapping the querying body.
+     * @param proxyId - id of the overlapping proxy
+     * @return always true, all overlaps are needed
+     */
+    @Override
+    public boolean report(int proxyId) {
+        int j = tree.getUserIndex(proxyId);
+        if (j == queryIndex) return true;
+        Rigidbody2D other = queryBodies.get(j);
+        // a pair of two movers that really overlaps is found from both sides, keep the lower index
+        if (other.getBodyType() != Rigidbody2D.BodyType.STATIC && j < queryIndex) return true;
+        if (BroadPhase.canCollide(queryBodies.get(queryIndex), other)) {
+            queryPairs.add(queryIndex, j);
+        }
+        return true;
+    }
+
+    /*
+     * @return the tree this broad phase queries
+     */
+    public DynamicAABBTree getTree() {
+        return tree;
+    }
+}
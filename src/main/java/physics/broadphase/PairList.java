@@ -0,0 +1,68 @@
+package physics.broadphase;
+
+import java.util.Arrays;
+
+/*
+ * PairList stores candidate body pairs produced by a broad phase as packed
+ * (lower index, higher index) longs, so pairs can be sorted and reused without allocating.
+ * Author(s): Gabriel, Ahmed
+ */
+public class PairList {
+    private long[] pairs = new long[64];
+    private int size = 0;
+
+    /*
+     * Adds the pair (a, b). The indices are stored with the lower one first.
+     * @param a - index of the first body
+     * @param b - index of the second body
+     */
+    public void add(int a, int b) {
+        if (a > b) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        if (size == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[size++] = ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    /*
+     * Sorts the pairs by (first index, second index), which is the order
+     * the brute-force N^2 loop visits them in.
+     */
+    public void sort() {
+        Arrays.sort(pairs, 0, size);
+    }
+
+    /*
+     * Removes all pairs while keeping the backing storage.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /*
+     * @return number of pairs currently stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * @param k - index of the pair
+     * @return index of the first (lower) body of pair k
+     */
+    public int getA(int k) {
+        return (int) (pairs[k] >>> 32);
+    }
+
+    /*
+     * @param k - index of the pair
+     * @return index of the second (higher) body of pair k
+     */
+    public int getB(int k) {
+        return (int) pairs[k];
+    }
+}
@@ -0,0 +1,96 @@
+package physics.broadphase;
+
+import physics.collisions.Rigidbody2D;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * SweepAndPruneBroadPhase sorts bodies by the left edge of their bounds and sweeps along x,
+ * only testing bodies whose x-intervals overlap. The sort order is kept between steps,
+ * so an insertion sort is close to linear when bodies move a little each step.
+ * Author(s): Gabriel, Ahmed
+ */
+public class SweepAndPruneBroadPhase implements BroadPhase {
+    private final BodyBounds bounds = new BodyBounds();
+    private int[] order = new int[0];
+    private long[] sortKeys = new long[0];
+    private int orderSize = -1;
+
+    /*
+     * Sorts the bodies along x and reports pairs whose bounds overlap on both axes.
+     * @param bodies - all rigidbodies in the simulation
+     * @param pairs - output list of candidate pairs
+     */
+    @Override
+    public void findPairs(List<Rigidbody2D> bodies, PairList pairs) {
+        bounds.update(bodies);
+        int n = bodies.size();
+        if (n != orderSize) {
+            fullSort(n);
+        } else {
+            insertionSort(n);
+        }
+
+        float[] minX = bounds.minX, minY = bounds.minY, maxX = bounds.maxX, maxY = bounds.maxY;
+        for (int a = 0; a < n; a++) {
+            int i = order[a];
+            float maxXi = maxX[i];
+            for (int b = a + 1; b < n; b++) {
+                int j = order[b];
+                if (minX[j] > maxXi) break;  // sorted by minX, nothing further can overlap
+                if (minY[j] > maxY[i] || maxY[j] < minY[i]) continue;
+                if (BroadPhase.canCollide(bodies.get(i), bodies.get(j))) {
+                    pairs.add(i, j);
+                }
+            }
+        }
+    }
+
+    /*
+     * Rebuilds the sort order from scratch, used when bodies were added or removed.
+     * @param n - number of bodies
+     */
+    private void fullSort(int n) {
+        if (order.length < n) {
+            order = new int[Math.max(n, order.length * 2)];
+            sortKeys = new long[order.length];
+        }
+        for (int i = 0; i < n; i++) {
+            sortKeys[i] = ((long) sortableBits(bounds.minX[i]) << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, n);
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) sortKeys[i];
+        }
+        orderSize = n;
+    }
+
+    /*
+     * Restores the sort order after bodies have moved, using the previous order as a start.
+     * @param n - number of bodies
+     */
+    private void insertionSort(int n) {
+        float[] minX = bounds.minX;
+        for (int a = 1; a < n; a++) {
+            int body = order[a];
+            float key = minX[body];
+            int b = a - 1;
+            while (b >= 0 && minX[order[b]] > key) {
+                order[b + 1] = order[b];
+                b--;
+            }
+            order[b + 1] = body;
+        }
+    }
+
+    /*
+     * Maps a float to an int whose signed ordering matches the float ordering.
+     * @param f - the float to convert
+     * @return int with the same ordering as f
+     */
+    private static int sortableBits(float f) {
+        int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+}
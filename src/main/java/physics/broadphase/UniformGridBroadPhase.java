@@ -0,0 +1,180 @@
+package physics.broadphase;
+
+import physics.collisions.Rigidbody2D;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * UniformGridBroadPhase buckets bodies into square cells of a fixed size and only tests
+ * bodies that share a cell. A pair is reported only from the first cell both bodies
+ * share, so it is never reported twice. Bodies covering more than MAX_CELLS_PER_BODY
+ * cells (e.g. a long floor) are kept out of the grid and tested against every body instead.
+ * Author(s): Gabriel, Ahmed
+ */
+public class UniformGridBroadPhase implements BroadPhase {
+    private static final int MAX_CELLS_PER_BODY = 64;
+
+    private final float cellSize;
+    private final BodyBounds bounds = new BodyBounds();
+
+    // first cell covered by each body
+    private int[] cellMinX = new int[0];
+    private int[] cellMinY = new int[0];
+    private boolean[] oversized = new boolean[0];
+    private int[] oversizedBodies = new int[0];
+
+    // one entry per (body, cell), sorted by cell hash
+    private long[] entryKeys = new long[0];
+    private int[] entryBody = new int[0];
+    private int[] entryCellX = new int[0];
+    private int[] entryCellY = new int[0];
+    private int entryCount;
+
+    /*
+     * Constructs a grid broad phase with the default cell size of 64 units.
+     */
+    public UniformGridBroadPhase() {
+        this(64.0f);
+    }
+
+    /*
+     * Constructs a grid broad phase with the given cell size.
+     * @param cellSize - width and height of a grid cell in world units
+     */
+    public UniformGridBroadPhase(float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /*
+     * Inserts all bodies into the grid and reports pairs that share a cell and overlap.
+     * @param bodies - all rigidbodies in the simulation
+     * @param pairs - output list of candidate pairs
+     */
+    @Override
+    public void findPairs(List<Rigidbody2D> bodies, PairList pairs) {
+        bounds.update(bodies);
+        int n = bodies.size();
+        int oversizedCount = fillCells(n);
+
+        Arrays.sort(entryKeys, 0, entryCount);
+
+        // walk runs of entries with the same hash and test entries of the same cell
+        int start = 0;
+        while (start < entryCount) {
+            int hash = (int) (entryKeys[start] >> 32);
+            int end = start + 1;
+            while (end < entryCount && (int) (entryKeys[end] >> 32) == hash) end++;
+
+            for (int p = start; p < end; p++) {
+                int e1 = (int) entryKeys[p];
+                int i = entryBody[e1];
+                for (int q = p + 1; q < end; q++) {
+                    int e2 = (int) entryKeys[q];
+                    int j = entryBody[e2];
+                    int cx = entryCellX[e1], cy = entryCellY[e1];
+                    if (cx != entryCellX[e2] || cy != entryCellY[e2]) continue;  // hash collision
+                    // only report from the first cell both bodies share
+                    if (cx != Math.max(cellMinX[i], cellMinX[j]) || cy != Math.max(cellMinY[i], cellMinY[j])) continue;
+                    if (bounds.overlaps(i, j) && BroadPhase.canCollide(bodies.get(i), bodies.get(j))) {
+                        pairs.add(i, j);
+                    }
+                }
+            }
+            start = end;
+        }
+
+        // oversized bodies are tested against everything
+        for (int k = 0; k < oversizedCount; k++) {
+            int i = oversizedBodies[k];
+            for (int j = 0; j < n; j++) {
+                if (j == i || (oversized[j] && j < i)) continue;
+                if (bounds.overlaps(i, j) && BroadPhase.canCollide(bodies.get(i), bodies.get(j))) {
+                    pairs.add(i, j);
+                }
+            }
+        }
+    }
+
+    /*
+     * Computes the cells covered by every body and fills the entry arrays.
+     * @param n - number of bodies
+     * @return number of oversized bodies kept out of the grid
+     */
+    private int fillCells(int n) {
+        if (cellMinX.length < n) {
+            int capacity = Math.max(n, cellMinX.length * 2);
+            cellMinX = new int[capacity];
+            cellMinY = new int[capacity];
+            oversized = new boolean[capacity];
+            oversizedBodies = new int[capacity];
+        }
+        entryCount = 0;
+        int oversizedCount = 0;
+        for (int i = 0; i < n; i++) {
+            oversized[i] = false;
+            if (!bounds.isValid(i)) continue;
+            int x0 = cellCoord(bounds.minX[i]), x1 = cellCoord(bounds.maxX[i]);
+            int y0 = cellCoord(bounds.minY[i]), y1 = cellCoord(bounds.maxY[i]);
+            cellMinX[i] = x0;
+            cellMinY[i] = y0;
+            long cells = (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+            if (cells > MAX_CELLS_PER_BODY) {
+                oversized[i] = true;
+                oversizedBodies[oversizedCount++] = i;
+                continue;
+            }
+            ensureEntryCapacity(entryCount + (int) cells);
+            for (int cx = x0; cx <= x1; cx++) {
+                for (int cy = y0; cy <= y1; cy++) {
+                    int e = entryCount++;
+                    entryBody[e] = i;
+                    entryCellX[e] = cx;
+                    entryCellY[e] = cy;
+                    entryKeys[e] = ((long) hashCell(cx, cy) << 32) | e;
+                }
+            }
+        }
+        return oversizedCount;
+    }
+
+    /*
+     * Grows the entry arrays so they can hold at least the given number of entries.
+     * @param capacity - required number of entries
+     */
+    private void ensureEntryCapacity(int capacity) {
+        if (entryKeys.length >= capacity) return;
+        int newCapacity = Math.max(capacity, entryKeys.length * 2);
+        entryKeys = Arrays.copyOf(entryKeys, newCapacity);
+        entryBody = Arrays.copyOf(entryBody, newCapacity);
+        entryCellX = Arrays.copyOf(entryCellX, newCapacity);
+        entryCellY = Arrays.copyOf(entryCellY, newCapacity);
+    }
+
+    /*
+     * @param coord - world coordinate
+     * @return index of the cell containing the coordinate
+     */
+    private int cellCoord(float coord) {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    /*
+     * @param cx - cell x index
+     * @param cy - cell y index
+     * @return hash of the cell coordinates
+     */
+    private static int hashCell(int cx, int cy) {
+        return (cx * 73856093) ^ (cy * 19349663);
+    }
+
+    /*
+     * @return the cell size in world units
+     */
+    public float getCellSize() {
+        return cellSize;
+    }
+}
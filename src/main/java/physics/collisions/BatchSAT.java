@@ -0,0 +1,32 @@
+package physics.collisions;
+
+/*
+ * BatchSAT runs the separating axis test on every pair of a BoxPairBatch. Implementations
+ * must reach the same results as the single pair test in CollisionManager.
+ * Author(s): Gabriel, Ahmed
+ */
+public interface BatchSAT {
+
+    /*
+     * Tests every pair of the batch and stores the results in it.
+     * @param batch - pairs of boxes to test
+     */
+    void test(BoxPairBatch batch);
+
+    /*
+     * Picks the fastest implementation this JVM supports: the Vector API one when the
+     * jdk.incubator.vector module is present (run with --add-modules jdk.incubator.vector),
+     * the scalar one otherwise.
+     * @return a BatchSAT for this JVM
+     */
+    static BatchSAT create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (BatchSAT) Class.forName("physics.collisions.VectorBatchSAT").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall through to the scalar test
+            }
+        }
+        return new ScalarBatchSAT();
+    }
+}
@@ -0,0 +1,454 @@
+package physics.collisions;
+
+import java.util.Arrays;
+
+/*
+ * BodyStore keeps the simulated state of the rigidbodies of a PhysicsSystem in packed
+ * float arrays (structure of arrays). A Rigidbody2D added to the store becomes a handle:
+ * its setters write into the arrays and integration runs as flat, branch-free loops
+ * over them. After integrating, the new state is copied back into the rigidbodies so
+ * getters, serialization and the editor keep seeing current values.
+ * Author(s): Gabriel, Ahmed
+ */
+public class BodyStore {
+    private static final float LINEAR_DAMPING = 0.05f;
+    private static final float ANGULAR_DAMPING = 0.05f;
+    // floats per body written by saveState
+    public static final int STATE_STRIDE = 14;
+
+    float[] posX = new float[0], posY = new float[0];
+    float[] velX = new float[0], velY = new float[0];
+    float[] forceX = new float[0], forceY = new float[0];
+    float[] rotation = new float[0];
+    float[] angularVelocity = new float[0];
+    float[] torque = new float[0];
+    float[] invMass = new float[0];
+    float[] invInertia = new float[0];
+    // state at the start of the last step, used to interpolate between steps
+    float[] prevPosX = new float[0], prevPosY = new float[0];
+    float[] prevRotation = new float[0];
+    // 1 for bodies that are integrated (dynamic with mass), 0 otherwise
+    float[] linearActive = new float[0];
+    // 1 for integrated bodies that may also rotate, 0 otherwise
+    float[] angularActive = new float[0];
+
+    private Rigidbody2D[] bodies = new Rigidbody2D[0];
+    private int size = 0;
+    private int nextBodyId = 0;
+
+    /*
+     * Adds a rigidbody to the store and turns it into a handle of its slot.
+     * A body stored elsewhere is moved here; adding a body twice does nothing.
+     * @param body - the Rigidbody2D to add
+     */
+    public void add(Rigidbody2D body) {
+        add(body, nextBodyId);
+    }
+
+    /*
+     * Adds a rigidbody under a chosen id, e.g. one that is the same on every machine of a
+     * lockstep game. Ids given later by add(body) start after the largest chosen one.
+     * The caller keeps ids unique, the store does not check them.
+     * @param body - the Rigidbody2D to add
+     * @param bodyId - id of the body, at least 0
+     */
+    public void add(Rigidbody2D body, int bodyId) {
+        if (bodyId < 0) {
+            throw new IllegalArgumentException("Body ids start at 0: " + bodyId);
+        }
+        if (body.store == this) return;
+        if (body.store != null) body.store.remove(body);
+        ensureCapacity(size + 1);
+        int index = size++;
+        bodies[index] = body;
+        body.store = this;
+        body.storeIndex = index;
+        body.bodyId = bodyId;
+        nextBodyId = Math.max(nextBodyId, bodyId + 1);
+        body.pushToStore();
+        prevPosX[index] = posX[index];
+        prevPosY[index] = posY[index];
+        prevRotation[index] = rotation[index];
+    }
+
+    /*
+     * Removes a rigidbody from the store. Its state is copied back into the rigidbody,
+     * which works on its own fields again afterwards. The last slot is moved into the gap.
+     * @param body - the Rigidbody2D to remove
+     */
+    public void remove(Rigidbody2D body) {
+        if (body.store != this) return;
+        int index = body.storeIndex;
+        body.pullFromStore();
+        body.pullAccumulators();
+        body.store = null;
+        body.storeIndex = -1;
+
+        int last = --size;
+        if (index != last) {
+            copySlot(last, index);
+            bodies[index] = bodies[last];
+            bodies[index].storeIndex = index;
+        }
+        bodies[last] = null;
+    }
+
+    /*
+     * Removes every rigidbody, copying their state back first.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            Rigidbody2D body = bodies[i];
+            body.pullFromStore();
+            body.pullAccumulators();
+            body.store = null;
+            body.storeIndex = -1;
+            bodies[i] = null;
+        }
+        size = 0;
+    }
+
+    /*
+     * Integrates forces and velocities of all dynamic bodies, applies damping,
+     * clears their accumulators and writes the result back to the rigidbodies.
+     * @param dt - duration of the step in seconds
+     */
+    public void integrate(float dt) {
+        integrate(0, size, dt);
+    }
+
+    /*
+     * Integrates the bodies in slots [from, to).
+     * @param from - first slot
+     * @param to - slot after the last one
+     * @param dt - duration of the step in seconds
+     */
+    void integrate(int from, int to, float dt) {
+        integrateVelocities(from, to, dt);
+        integratePositions(from, to, dt);
+        writeBack(from, to);
+    }
+
+    /*
+     * First half of integrate: applies the accumulated forces and damping to the velocities
+     * and clears the accumulators, leaving positions alone. Used when contacts are solved
+     * on the new velocities before moving the bodies.
+     * @param dt - duration of the step in seconds
+     */
+    public void integrateVelocities(float dt) {
+        integrateVelocities(0, size, dt);
+        writeBack(0, size);
+    }
+
+    /*
+     * Second half of integrate: moves the bodies with their current velocities.
+     * @param dt - duration of the step in seconds
+     */
+    public void integratePositions(float dt) {
+        integratePositions(0, size, dt);
+        writeBack(0, size);
+    }
+
+    private void integrateVelocities(int from, int to, float dt) {
+        float[] velX = this.velX, velY = this.velY;
+        float[] forceX = this.forceX, forceY = this.forceY, invMass = this.invMass;
+        float[] angularVelocity = this.angularVelocity;
+        float[] torque = this.torque, invInertia = this.invInertia;
+        float[] linearActive = this.linearActive, angularActive = this.angularActive;
+
+        // inactive bodies get a step of 0 and a damping factor of 1, so they are left untouched
+        for (int i = from; i < to; i++) {
+            float step = dt * linearActive[i];
+            float damping = 1.0f - LINEAR_DAMPING * step;
+            velX[i] = (velX[i] + forceX[i] * invMass[i] * step) * damping;
+            velY[i] = (velY[i] + forceY[i] * invMass[i] * step) * damping;
+        }
+        for (int i = from; i < to; i++) {
+            float step = dt * angularActive[i];
+            float damping = 1.0f - ANGULAR_DAMPING * step;
+            angularVelocity[i] = (angularVelocity[i] + torque[i] * invInertia[i] * step) * damping;
+        }
+        // clear accumulators of integrated bodies, adding 0 turns -0 from a negative force into 0
+        for (int i = from; i < to; i++) {
+            float keep = 1.0f - linearActive[i];
+            forceX[i] = forceX[i] * keep + 0.0f;
+            forceY[i] = forceY[i] * keep + 0.0f;
+            torque[i] = torque[i] * keep + 0.0f;
+        }
+    }
+
+    private void integratePositions(int from, int to, float dt) {
+        float[] posX = this.posX, posY = this.posY, velX = this.velX, velY = this.velY;
+        float[] rotation = this.rotation, angularVelocity = this.angularVelocity;
+        float[] linearActive = this.linearActive, angularActive = this.angularActive;
+
+        for (int i = from; i < to; i++) {
+            float step = dt * linearActive[i];
+            posX[i] += velX[i] * step;
+            posY[i] += velY[i] * step;
+        }
+        for (int i = from; i < to; i++) {
+            rotation[i] += angularVelocity[i] * (dt * angularActive[i]);
+        }
+    }
+
+    // copies the new state of integrated bodies back into their rigidbodies
+    private void writeBack(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (linearActive[i] != 0.0f) {
+                Rigidbody2D body = bodies[i];
+                body.pullFromStore();
+                body.synchCollisionTransforms();
+            }
+        }
+    }
+
+    /*
+     * Remembers the current positions and rotations as the previous state,
+     * called at the start of every fixed step.
+     */
+    public void savePreviousState() {
+        System.arraycopy(posX, 0, prevPosX, 0, size);
+        System.arraycopy(posY, 0, prevPosY, 0, size);
+        System.arraycopy(rotation, 0, prevRotation, 0, size);
+    }
+
+    /*
+     * Writes the state of every body into a buffer, STATE_STRIDE floats per body in slot
+     * order: position, rotation, velocities, force and torque accumulators, the previous
+     * state used for interpolation, sleep time and awake flag.
+     * @param buffer - receives the state, at least size() * STATE_STRIDE long
+     */
+    public void saveState(float[] buffer) {
+        for (int i = 0, o = 0; i < size; i++, o += STATE_STRIDE) {
+            buffer[o] = posX[i];
+            buffer[o + 1] = posY[i];
+            buffer[o + 2] = rotation[i];
+            buffer[o + 3] = velX[i];
+            buffer[o + 4] = velY[i];
+            buffer[o + 5] = angularVelocity[i];
+            buffer[o + 6] = forceX[i];
+            buffer[o + 7] = forceY[i];
+            buffer[o + 8] = torque[i];
+            buffer[o + 9] = prevPosX[i];
+            buffer[o + 10] = prevPosY[i];
+            buffer[o + 11] = prevRotation[i];
+            buffer[o + 12] = bodies[i].sleepTime;
+            buffer[o + 13] = bodies[i].awake ? 1.0f : 0.0f;
+        }
+    }
+
+    /*
+     * Puts back the state written by saveState and copies it into the rigidbodies.
+     * The store must hold the same bodies in the same slots as when it was saved.
+     * @param buffer - state written by saveState
+     */
+    public void restoreState(float[] buffer) {
+        for (int i = 0, o = 0; i < size; i++, o += STATE_STRIDE) {
+            posX[i] = buffer[o];
+            posY[i] = buffer[o + 1];
+            rotation[i] = buffer[o + 2];
+            velX[i] = buffer[o + 3];
+            velY[i] = buffer[o + 4];
+            angularVelocity[i] = buffer[o + 5];
+            forceX[i] = buffer[o + 6];
+            forceY[i] = buffer[o + 7];
+            torque[i] = buffer[o + 8];
+            prevPosX[i] = buffer[o + 9];
+            prevPosY[i] = buffer[o + 10];
+            prevRotation[i] = buffer[o + 11];
+            Rigidbody2D body = bodies[i];
+            body.sleepTime = buffer[o + 12];
+            body.awake = buffer[o + 13] != 0.0f;
+            body.pullFromStore();
+            body.pullAccumulators();
+            body.pushProperties();
+            body.synchCollisionTransforms();
+        }
+    }
+
+    /*
+     * @return number of bodies in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return the rigidbody stored in the slot
+     */
+    public Rigidbody2D getBody(int index) {
+        return bodies[index];
+    }
+
+    /*
+     * @param body - a rigidbody
+     * @return slot of the body in this store, or -1 if it is not stored here
+     */
+    public int indexOf(Rigidbody2D body) {
+        return body.store == this ? body.storeIndex : -1;
+    }
+
+    /*
+     * The accessors below let solvers outside this package, like joints, work on the
+     * packed state the same way the ContactSolver does.
+     * @param index - slot of the body
+     * @return x position of the body
+     */
+    public float getPositionX(int index) {
+        return posX[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return y position of the body
+     */
+    public float getPositionY(int index) {
+        return posY[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return rotation of the body in degrees
+     */
+    public float getRotation(int index) {
+        return rotation[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return x velocity of the body
+     */
+    public float getVelocityX(int index) {
+        return velX[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return y velocity of the body
+     */
+    public float getVelocityY(int index) {
+        return velY[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return angular velocity of the body in degrees per second
+     */
+    public float getAngularVelocity(int index) {
+        return angularVelocity[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return accumulated force along x, not yet integrated
+     */
+    public float getForceX(int index) {
+        return forceX[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return accumulated force along y, not yet integrated
+     */
+    public float getForceY(int index) {
+        return forceY[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return accumulated torque, not yet integrated
+     */
+    public float getTorque(int index) {
+        return torque[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return inverse mass seen by solvers, 0 for bodies that are not integrated
+     */
+    public float getSolverInverseMass(int index) {
+        return invMass[index] * linearActive[index];
+    }
+
+    /*
+     * @param index - slot of the body
+     * @return inverse inertia seen by solvers, 0 for bodies that do not rotate
+     */
+    public float getSolverInverseInertia(int index) {
+        return invInertia[index] * angularActive[index];
+    }
+
+    /*
+     * Sets the velocities of a body from a solver. The rigidbody sees them at once, so
+     * solving through its setters in the same step keeps working on current values.
+     * @param index - slot of the body
+     * @param velocityX - new x velocity
+     * @param velocityY - new y velocity
+     * @param angularVelocity - new angular velocity in degrees per second
+     */
+    public void setVelocity(int index, float velocityX, float velocityY, float angularVelocity) {
+        velX[index] = velocityX;
+        velY[index] = velocityY;
+        this.angularVelocity[index] = angularVelocity;
+        bodies[index].pullFromStore();
+    }
+
+    /*
+     * Moves a body from a solver and updates its rigidbody and colliders.
+     * @param index - slot of the body
+     * @param x - new x position
+     * @param y - new y position
+     * @param rotation - new rotation in degrees
+     */
+    public void setPosition(int index, float x, float y, float rotation) {
+        posX[index] = x;
+        posY[index] = y;
+        this.rotation[index] = rotation;
+        Rigidbody2D body = bodies[index];
+        body.pullFromStore();
+        body.synchCollisionTransforms();
+    }
+
+    private void copySlot(int from, int to) {
+        posX[to] = posX[from];
+        posY[to] = posY[from];
+        velX[to] = velX[from];
+        velY[to] = velY[from];
+        forceX[to] = forceX[from];
+        forceY[to] = forceY[from];
+        rotation[to] = rotation[from];
+        angularVelocity[to] = angularVelocity[from];
+        torque[to] = torque[from];
+        prevPosX[to] = prevPosX[from];
+        prevPosY[to] = prevPosY[from];
+        prevRotation[to] = prevRotation[from];
+        invMass[to] = invMass[from];
+        invInertia[to] = invInertia[from];
+        linearActive[to] = linearActive[from];
+        angularActive[to] = angularActive[from];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (bodies.length >= capacity) return;
+        int newCapacity = Math.max(capacity, Math.max(16, bodies.length * 2));
+        posX = Arrays.copyOf(posX, newCapacity);
+        posY = Arrays.copyOf(posY, newCapacity);
+        velX = Arrays.copyOf(velX, newCapacity);
+        velY = Arrays.copyOf(velY, newCapacity);
+        forceX = Arrays.copyOf(forceX, newCapacity);
+        forceY = Arrays.copyOf(forceY, newCapacity);
+        rotation = Arrays.copyOf(rotation, newCapacity);
+        angularVelocity = Arrays.copyOf(angularVelocity, newCapacity);
+        torque = Arrays.copyOf(torque, newCapacity);
+        prevPosX = Arrays.copyOf(prevPosX, newCapacity);
+        prevPosY = Arrays.copyOf(prevPosY, newCapacity);
+        prevRotation = Arrays.copyOf(prevRotation, newCapacity);
+        invMass = Arrays.copyOf(invMass, newCapacity);
+        invInertia = Arrays.copyOf(invInertia, newCapacity);
+        linearActive = Arrays.copyOf(linearActive, newCapacity);
+        angularActive = Arrays.copyOf(angularActive, newCapacity);
+        bodies = Arrays.copyOf(bodies, newCapacity);
+    }
+}
@@ -0,0 +1,155 @@
+package physics.collisions;
+
+import org.joml.Vector2f;
+import physics.primitives.OBBCollider;
+import util.DTUMath;
+
+import java.util.Arrays;
+
+/*
+ * BoxPairBatch packs many pairs of oriented boxes into float arrays, one array per vertex
+ * coordinate and per axis coordinate, so a BatchSAT can run the separating axis test on
+ * several pairs at once. Vertices and axes are computed exactly like CollisionManager does
+ * for a single pair, so the batched test reaches the same results.
+ * After testing, each pair holds whether the boxes overlap, the smallest overlap and the
+ * axis it was found on, pointing from the first box to the second.
+ * Author(s): Gabriel, Ahmed
+ */
+public class BoxPairBatch {
+    private int size = 0;
+    private int capacity = 64;
+
+    // [vertex][pair], vertices in the order of OBBCollider.getVertices
+    float[][] vertAX = new float[4][capacity], vertAY = new float[4][capacity];
+    float[][] vertBX = new float[4][capacity], vertBY = new float[4][capacity];
+    // [axis][pair], the two local axes of box A, then those of box B
+    float[][] axisX = new float[4][capacity], axisY = new float[4][capacity];
+    float[] centerAX = new float[capacity], centerAY = new float[capacity];
+    float[] centerBX = new float[capacity], centerBY = new float[capacity];
+
+    // results
+    boolean[] colliding = new boolean[capacity];
+    float[] overlap = new float[capacity];
+    float[] normalX = new float[capacity], normalY = new float[capacity];
+
+    private final Vector2f[] verts = {new Vector2f(), new Vector2f(), new Vector2f(), new Vector2f()};
+    private final Vector2f axis = new Vector2f();
+    private final Vector2f zero = new Vector2f();
+
+    /*
+     * Removes all pairs while keeping the arrays.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /*
+     * Adds a pair of boxes with their current position and rotation.
+     * @param a - first box, attached to a rigidbody
+     * @param b - second box, attached to a rigidbody
+     * @return index of the pair
+     */
+    public int add(OBBCollider a, OBBCollider b) {
+        if (size == capacity) {
+            grow();
+        }
+        int i = size++;
+        a.getVertices(verts);
+        for (int v = 0; v < 4; v++) {
+            vertAX[v][i] = verts[v].x;
+            vertAY[v][i] = verts[v].y;
+        }
+        b.getVertices(verts);
+        for (int v = 0; v < 4; v++) {
+            vertBX[v][i] = verts[v].x;
+            vertBY[v][i] = verts[v].y;
+        }
+        setAxes(i, 0, a.getRigidbody().getRotation());
+        setAxes(i, 2, b.getRigidbody().getRotation());
+        centerAX[i] = a.getRigidbody().getPosition().x;
+        centerAY[i] = a.getRigidbody().getPosition().y;
+        centerBX[i] = b.getRigidbody().getPosition().x;
+        centerBY[i] = b.getRigidbody().getPosition().y;
+        return i;
+    }
+
+    // the box's x and y axes, rotated the way CollisionManager rotates them
+    private void setAxes(int pair, int first, float rotation) {
+        axis.set(1, 0);
+        DTUMath.rotate(axis, rotation, zero);
+        axisX[first][pair] = axis.x;
+        axisY[first][pair] = axis.y;
+        axis.set(0, 1);
+        DTUMath.rotate(axis, rotation, zero);
+        axisX[first + 1][pair] = axis.x;
+        axisY[first + 1][pair] = axis.y;
+    }
+
+    /*
+     * @return number of pairs in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * @return number of pairs the arrays hold, a vectorized test may read up to here
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /*
+     * @param i - index of the pair
+     * @return true if the boxes overlapped when the batch was last tested
+     */
+    public boolean isColliding(int i) {
+        checkIndex(i);
+        return colliding[i];
+    }
+
+    /*
+     * @param i - index of the pair
+     * @return smallest overlap of the projections, the penetration depth of overlapping boxes
+     */
+    public float getOverlap(int i) {
+        checkIndex(i);
+        return overlap[i];
+    }
+
+    /*
+     * @param i - index of the pair
+     * @param normal - receives the axis of the smallest overlap, pointing from box A to box B
+     * @return the normal
+     */
+    public Vector2f getNormal(int i, Vector2f normal) {
+        checkIndex(i);
+        return normal.set(normalX[i], normalY[i]);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IllegalArgumentException("No pair " + i + " in a batch of " + size);
+        }
+    }
+
+    private void grow() {
+        capacity *= 2;
+        for (int v = 0; v < 4; v++) {
+            vertAX[v] = Arrays.copyOf(vertAX[v], capacity);
+            vertAY[v] = Arrays.copyOf(vertAY[v], capacity);
+            vertBX[v] = Arrays.copyOf(vertBX[v], capacity);
+            vertBY[v] = Arrays.copyOf(vertBY[v], capacity);
+            axisX[v] = Arrays.copyOf(axisX[v], capacity);
+            axisY[v] = Arrays.copyOf(axisY[v], capacity);
+        }
+        centerAX = Arrays.copyOf(centerAX, capacity);
+        centerAY = Arrays.copyOf(centerAY, capacity);
+        centerBX = Arrays.copyOf(centerBX, capacity);
+        centerBY = Arrays.copyOf(centerBY, capacity);
+        colliding = Arrays.copyOf(colliding, capacity);
+        overlap = Arrays.copyOf(overlap, capacity);
+        normalX = Arrays.copyOf(normalX, capacity);
+        normalY = Arrays.copyOf(normalY, capacity);
+    }
+}
@@ -1,22 +1,29 @@
 package physics.collisions;
 
 import org.joml.Vector2f;
-import physics.primitives.AABBCollider;
 import physics.primitives.Circle;
 import physics.primitives.Collider;
 import physics.primitives.OBBCollider;
 import physics.raycast.RaycastManager;
 import util.DTUMath;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /*
  * CollisionManager provides methods to detect and compute collision details
  * between various collider types (Circle, OBB, AABB) using SAT and geometric tests.
+ * Pairs with a polygon or a capsule go through GJK and EPA instead, on the ConvexProxy of
+ * each collider, and get their contacts by clipping like box pairs. The narrow phase
+ * writes into a caller-supplied CollisionManifold using the vectors of a CollisionScratch,
+ * so a physics step can run it without allocating.
  * Author(s): Ahmed, Ilias, Mathias, Gabriel
  */
 public class CollisionManager {
+    // how much better aligned the second box's face must be to become the reference face
+    private static final float FACE_TOLERANCE = 1e-3f;
+    // clipped points this far outside the reference face are still kept, so a box that rocks
+    // slightly keeps both contacts and their cached impulses
+    private static final float CONTACT_MARGIN = 0.5f;
+    // a rounded pair whose normal is less aligned with any face gets a single contact point
+    private static final float CLIP_ALIGNMENT = 0.998f;
 
     /*
      * Dispatches to appropriate collision detection method based on collider types.
@@ -25,19 +32,39 @@ public class CollisionManager {
      * @return CollisionManifold containing collision normal, penetration, and contacts, or null if unsupported
      */
     public static CollisionManifold findCollisionFeatures(Collider c1, Collider c2) {
-        if (c1 instanceof Circle && c2 instanceof Circle) {
-            return findCollisionFeatures((Circle) c1, (Circle) c2);
-        } else if (c1 instanceof OBBCollider && c2 instanceof OBBCollider) {
-            return findCollisionFeatures((OBBCollider) c1, (OBBCollider) c2);
-        } else if (c1 instanceof OBBCollider && c2 instanceof Circle) {
-            return findCollisionFeatures((Circle) c2, (OBBCollider) c1);
-        } else if (c1 instanceof Circle && c2 instanceof OBBCollider) {
-            return findCollisionFeatures((Circle) c1, (OBBCollider) c2);
-        } else {
-            System.err.println("Unsupported collision detection between "
-                    + c1.getClass().getSimpleName() + " and " + c2.getClass().getSimpleName());
+        if (!isSupported(c1, c2)) {
+            printUnsupported(c1, c2);
             return null;
         }
+        CollisionManifold m = new CollisionManifold();
+        findCollisionFeatures(c1, c2, m, new CollisionScratch());
+        return m;
+    }
+
+    /*
+     * Allocation-free narrow phase: resets the given manifold and fills it with the
+     * collision between two colliders.
+     * @param c1 - first collider
+     * @param c2 - second collider
+     * @param m - manifold receiving the result, reset first
+     * @param scratch - temporary vectors reused between calls
+     * @return true if the colliders are colliding, false if not or the pair is unsupported
+     */
+    public static boolean findCollisionFeatures(Collider c1, Collider c2, CollisionManifold m, CollisionScratch scratch) {
+        m.reset();
+        if (c1 instanceof Circle a && c2 instanceof Circle b) {
+            return circleCircle(a, b, m, scratch);
+        } else if (c1 instanceof OBBCollider a && c2 instanceof OBBCollider b) {
+            return boxBox(a, b, m, scratch);
+        } else if (c1 instanceof OBBCollider box && c2 instanceof Circle circle) {
+            return circleBox(circle, box, m, scratch);
+        } else if (c1 instanceof Circle circle && c2 instanceof OBBCollider box) {
+            return circleBox(circle, box, m, scratch);
+        } else if (scratch.proxyA.set(c1) && scratch.proxyB.set(c2)) {
+            return convexConvex(scratch.proxyA, scratch.proxyB, m, scratch);
+        }
+        printUnsupported(c1, c2);
+        return false;
     }
 
     /*
@@ -48,210 +75,506 @@ public class CollisionManager {
      */
     public static CollisionManifold findCollisionFeatures(Circle a, Circle b) {
         CollisionManifold m = new CollisionManifold();
+        circleCircle(a, b, m, new CollisionScratch());
+        return m;
+    }
+
+    /*
+     * Detects collision between two oriented boxes using SAT, falling back to AABB if unrotated.
+     * @param s1 - first OBB collider
+     * @param s2 - second OBB collider
+     * @return CollisionManifold with smallest penetration axis and contacts
+     */
+    public static CollisionManifold findCollisionFeatures(OBBCollider s1, OBBCollider s2) {
+        CollisionManifold m = new CollisionManifold();
+        boxBox(s1, s2, m, new CollisionScratch());
+        return m;
+    }
+
+    /*
+     * @return true if the narrow phase supports this collider pair
+     */
+    private static boolean isSupported(Collider c1, Collider c2) {
+        return ConvexProxy.supports(c1) && ConvexProxy.supports(c2);
+    }
+
+    private static void printUnsupported(Collider c1, Collider c2) {
+        System.err.println("Unsupported collision detection between "
+                + c1.getClass().getSimpleName() + " and " + c2.getClass().getSimpleName());
+    }
+
+    /*
+     * Detects and computes collision between two circles.
+     * @param a - first circle collider
+     * @param b - second circle collider
+     * @param m - manifold receiving normal, penetration and a single contact point
+     * @param s - scratch vectors
+     * @return true if colliding
+     */
+    private static boolean circleCircle(Circle a, Circle b, CollisionManifold m, CollisionScratch s) {
         float radiusSum = a.getRadius() + b.getRadius();
-        Vector2f diff = new Vector2f(b.getCenter()).sub(a.getCenter());
+        Vector2f diff = s.diff.set(b.getCenter()).sub(a.getCenter());
         // no collision if centers too far apart
-        if (diff.lengthSquared() > radiusSum * radiusSum) return m;
+        if (diff.lengthSquared() > radiusSum * radiusSum) return false;
 
         float penetration = radiusSum - diff.length();
-        Vector2f normal = new Vector2f(diff).normalize();
+        Vector2f normal = s.normal.set(diff).normalize();
         float contactDist = a.getRadius() - penetration * 0.5f;
-        Vector2f contactPoint = new Vector2f(a.getCenter()).add(new Vector2f(normal).mul(contactDist));
+        Vector2f offset = s.contact.set(normal).mul(contactDist);
 
-        m = new CollisionManifold(normal, penetration);
-        m.addContactPoint(contactPoint);
-        return m;
+        m.set(normal, penetration);
+        m.addContactPoint(a.getCenter().x + offset.x, a.getCenter().y + offset.y);
+        return true;
     }
 
     /*
      * Detects collision between two oriented boxes using SAT, falling back to AABB if unrotated.
      * @param s1 - first OBB collider
      * @param s2 - second OBB collider
-     * @return CollisionManifold with smallest penetration axis and contacts
+     * @param m - manifold receiving the smallest penetration axis and contacts
+     * @param s - scratch vectors
+     * @return true if colliding
      */
-    public static CollisionManifold findCollisionFeatures(OBBCollider s1, OBBCollider s2) {
-        // if both unrotated, convert to AABB for simpler check
-        if (s1.getRigidbody().getRotation() == 0f && s2.getRigidbody().getRotation() == 0f) {
-            return findCollisionFeatures(convertToAlignedBox(s1), convertToAlignedBox(s2));
+    private static boolean boxBox(OBBCollider s1, OBBCollider s2, CollisionManifold m, CollisionScratch s) {
+        // if both unrotated, use the simpler axis-aligned check
+        if (s1.getRigidbody().getRotation() == 0f && s2.getRigidbody().getRotation() == 0f
+                && !s.isClippedBoxContacts()) {
+            alignedBounds(s1, s.aMin, s.aMax);
+            alignedBounds(s2, s.bMin, s.bMax);
+            return alignedBoxes(s1.getRigidbody(), s2.getRigidbody(), m, s);
         }
         // build SAT axes from both boxes' local axes
-        Vector2f[] axes = new Vector2f[]{
-                new Vector2f(1,0), new Vector2f(0,1),
-                new Vector2f(1,0), new Vector2f(0,1)
-        };
-        DTUMath.rotate(axes[0], s1.getRigidbody().getRotation(), new Vector2f());
-        DTUMath.rotate(axes[1], s1.getRigidbody().getRotation(), new Vector2f());
-        DTUMath.rotate(axes[2], s2.getRigidbody().getRotation(), new Vector2f());
-        DTUMath.rotate(axes[3], s2.getRigidbody().getRotation(), new Vector2f());
-        return runSAT(s1, s2, axes);
+        Vector2f[] axes = s.axes;
+        axes[0].set(1, 0);
+        axes[1].set(0, 1);
+        axes[2].set(1, 0);
+        axes[3].set(0, 1);
+        DTUMath.rotate(axes[0], s1.getRigidbody().getRotation(), s.zero);
+        DTUMath.rotate(axes[1], s1.getRigidbody().getRotation(), s.zero);
+        DTUMath.rotate(axes[2], s2.getRigidbody().getRotation(), s.zero);
+        DTUMath.rotate(axes[3], s2.getRigidbody().getRotation(), s.zero);
+        s1.getVertices(s.vertsA);
+        s2.getVertices(s.vertsB);
+        return runSAT(s1.getRigidbody(), s2.getRigidbody(), m, s);
     }
 
     /*
      * Detects collision between a circle and an OBB collider.
      * @param circle - circle collider
      * @param obb - oriented box collider
-     * @return CollisionManifold with normal, penetration, and contact
+     * @param m - manifold receiving normal, penetration, and contact
+     * @param s - scratch vectors
+     * @return true if colliding
      */
-    private static CollisionManifold findCollisionFeatures(Circle circle, OBBCollider obb) {
+    private static boolean circleBox(Circle circle, OBBCollider obb, CollisionManifold m, CollisionScratch s) {
         // if box unrotated, use AABB method
         if (obb.getRigidbody().getRotation() == 0f) {
-            return findCollisionFeatures(circle, convertToAlignedBox(obb));
+            alignedBounds(obb, s.bMin, s.bMax);
+            return circleAlignedBox(circle, s.bMin, s.bMax, m, s);
         }
         // transform circle center into box local space
-        Vector2f center = new Vector2f(circle.getCenter()).sub(obb.getRigidbody().getPosition());
-        DTUMath.rotate(center, -obb.getRigidbody().getRotation(), new Vector2f());
+        Vector2f center = s.center.set(circle.getCenter()).sub(obb.getRigidbody().getPosition());
+        DTUMath.rotate(center, -obb.getRigidbody().getRotation(), s.zero);
 
         Vector2f half = obb.getHalfSize();
-        Vector2f min = new Vector2f(half).negate();
-        Vector2f max = new Vector2f(half);
-        // find closest point on AABB to local center
-        float cx = Math.max(min.x, Math.min(center.x, max.x));
-        float cy = Math.max(min.y, Math.min(center.y, max.y));
-        Vector2f closest = new Vector2f(cx, cy);
-        Vector2f diff = new Vector2f(center).sub(closest);
+        // find closest point on the local box to the local center
+        float cx = Math.max(-half.x, Math.min(center.x, half.x));
+        float cy = Math.max(-half.y, Math.min(center.y, half.y));
+        Vector2f closest = s.closest.set(cx, cy);
+        Vector2f diff = s.diff.set(center).sub(closest);
         float dist2 = diff.lengthSquared();
-        if (dist2 > circle.getRadius()*circle.getRadius()) return new CollisionManifold();
-        float dist = (float)Math.sqrt(dist2);
-        Vector2f normalLocal = dist==0 ? new Vector2f(1,0) : new Vector2f(diff).div(dist);
-        Vector2f normal = new Vector2f(normalLocal);
-        DTUMath.rotate(normal, obb.getRigidbody().getRotation(), new Vector2f());
+        if (dist2 > circle.getRadius() * circle.getRadius()) return false;
+        float dist = (float) Math.sqrt(dist2);
+        Vector2f normal = dist == 0 ? s.normal.set(1, 0) : s.normal.set(diff).div(dist);
+        DTUMath.rotate(normal, obb.getRigidbody().getRotation(), s.zero);
         float penetration = circle.getRadius() - dist;
         // compute world contact point
-        Vector2f contact = new Vector2f(closest).sub(half);
-        DTUMath.rotate(contact, obb.getRigidbody().getRotation(), new Vector2f());
+        Vector2f contact = s.contact.set(closest).sub(half);
+        DTUMath.rotate(contact, obb.getRigidbody().getRotation(), s.zero);
         contact.add(obb.getRigidbody().getPosition());
 
-        CollisionManifold m = new CollisionManifold(normal, penetration);
-        m.addContactPoint(contact);
-        return m;
+        m.set(normal, penetration);
+        m.addContactPoint(contact.x, contact.y);
+        return true;
+    }
+
+    /*
+     * Detects collision between any two convex proxies: GJK gives the distance between their
+     * cores, which collide when it is less than the sum of the radii; overlapping cores get
+     * their normal and depth from EPA. Contacts are clipped when the normal is the normal of a
+     * face of either core, otherwise the single point between the closest points is used.
+     * @param a - proxy of the first collider
+     * @param b - proxy of the second collider
+     * @param m - manifold receiving normal, penetration and contacts
+     * @param s - scratch vectors
+     * @return true if colliding
+     */
+    private static boolean convexConvex(ConvexProxy a, ConvexProxy b, CollisionManifold m, CollisionScratch s) {
+        GJK gjk = s.gjk;
+        float radius = a.radius + b.radius;
+        float distance = gjk.distance(a, b);
+        float penetration;
+        if (!gjk.isOverlapping()) {
+            if (distance > radius) return false;
+            s.normal.set(gjk.getPointBX() - gjk.getPointAX(), gjk.getPointBY() - gjk.getPointAY()).div(distance);
+            penetration = radius - distance;
+        } else if (gjk.penetration(a, b)) {
+            s.normal.set(gjk.getNormalX(), gjk.getNormalY());
+            penetration = gjk.getDepth() + radius;
+        } else {
+            // cores touching without overlap: point the guessed normal from A's core to B's
+            if (radius == 0.0f) return false;
+            s.normal.set(gjk.getNormalX(), gjk.getNormalY());
+            if (s.normal.x * (centroidX(b) - centroidX(a)) + s.normal.y * (centroidY(b) - centroidY(a)) < 0.0f) {
+                s.normal.negate();
+            }
+            penetration = radius;
+        }
+        m.set(s.normal, penetration);
+        if (a.count >= 2 && b.count >= 2 && clipProxies(a, b, m, s)) {
+            return true;
+        }
+        // halfway between the surfaces, which lie the radii beyond the closest points of the cores
+        float nx = s.normal.x, ny = s.normal.y;
+        float x = (gjk.getPointAX() + nx * a.radius + gjk.getPointBX() - nx * b.radius) * 0.5f;
+        float y = (gjk.getPointAY() + ny * a.radius + gjk.getPointBY() - ny * b.radius) * 0.5f;
+        m.addContactPoint(x, y, 0, -penetration);
+        return true;
+    }
+
+    /*
+     * Clips the contacts of two proxies like clipContactPoints clips boxes, for any number of
+     * core points and with the radii moved into the separations.
+     * @param a - proxy of the first collider
+     * @param b - proxy of the second collider
+     * @param m - manifold holding the GJK or EPA normal, receiving the contacts
+     * @param s - scratch vectors
+     * @return false if the normal is not a face normal or clipping left no contact, the manifold is then unchanged
+     */
+    private static boolean clipProxies(ConvexProxy a, ConvexProxy b, CollisionManifold m, CollisionScratch s) {
+        float nx = m.getNormal().x, ny = m.getNormal().y;
+        int faceA = mostAlignedFace(a, nx, ny);
+        int faceB = mostAlignedFace(b, -nx, -ny);
+        float alignA = faceNormalDot(a, faceA, nx, ny);
+        float alignB = faceNormalDot(b, faceB, -nx, -ny);
+        if (Math.max(alignA, alignB) < CLIP_ALIGNMENT) return false;
+        boolean flip = alignB > alignA + FACE_TOLERANCE;
+        ConvexProxy ref = flip ? b : a;
+        ConvexProxy inc = flip ? a : b;
+        int refFace = flip ? faceB : faceA;
+
+        int next = (refFace + 1) % ref.count;
+        float v1x = ref.x[refFace], v1y = ref.y[refFace];
+        float v2x = ref.x[next], v2y = ref.y[next];
+        float tx = v2x - v1x, ty = v2y - v1y;
+        float length = (float) Math.sqrt(tx * tx + ty * ty);
+        tx /= length;
+        ty /= length;
+        float refNx = ty, refNy = -tx;
+
+        int incFace = mostAlignedFace(inc, -refNx, -refNy);
+        int incNext = (incFace + 1) % inc.count;
+        s.clip[0].set(inc.x[incFace], inc.y[incFace]);
+        s.clip[1].set(inc.x[incNext], inc.y[incNext]);
+        if (!clipSegment(s, -tx, -ty, -(tx * v1x + ty * v1y))) return false;
+        if (!clipSegment(s, tx, ty, tx * v2x + ty * v2y)) return false;
+
+        float faceOffset = refNx * v1x + refNy * v1y + ref.radius + inc.radius;
+        float separation0 = refNx * s.clip[0].x + refNy * s.clip[0].y - faceOffset;
+        float separation1 = refNx * s.clip[1].x + refNy * s.clip[1].y - faceOffset;
+        if (separation0 > CONTACT_MARGIN && separation1 > CONTACT_MARGIN) return false;
+
+        float sign = flip ? -1 : 1;
+        m.set(s.normal.set(refNx * sign, refNy * sign), -Math.min(separation0, separation1));
+        // three bits per face, polygons have at most eight
+        int edgeId = (flip ? 128 : 0) | refFace << 4 | incFace << 1;
+        for (int i = 0; i < 2; i++) {
+            float separation = i == 0 ? separation0 : separation1;
+            if (separation > CONTACT_MARGIN) continue;
+            // halfway between the incident surface and the reference surface
+            Vector2f p = s.clip[i];
+            float offset = separation * 0.5f + inc.radius;
+            m.addContactPoint(p.x - refNx * offset, p.y - refNy * offset, edgeId | i, separation);
+        }
+        return true;
+    }
+
+    private static int mostAlignedFace(ConvexProxy proxy, float dx, float dy) {
+        int best = 0;
+        float bestDot = -Float.MAX_VALUE;
+        for (int i = 0; i < proxy.count; i++) {
+            float dot = faceNormalDot(proxy, i, dx, dy);
+            if (dot > bestDot) {
+                bestDot = dot;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static float faceNormalDot(ConvexProxy proxy, int face, float dx, float dy) {
+        int next = (face + 1) % proxy.count;
+        float ex = proxy.x[next] - proxy.x[face], ey = proxy.y[next] - proxy.y[face];
+        return (ey * dx - ex * dy) / (float) Math.sqrt(ex * ex + ey * ey);
+    }
+
+    private static float centroidX(ConvexProxy proxy) {
+        float sum = 0.0f;
+        for (int i = 0; i < proxy.count; i++) sum += proxy.x[i];
+        return sum / proxy.count;
+    }
+
+    private static float centroidY(ConvexProxy proxy) {
+        float sum = 0.0f;
+        for (int i = 0; i < proxy.count; i++) sum += proxy.y[i];
+        return sum / proxy.count;
     }
 
     /*
      * Detects collision between a circle and an axis-aligned box.
      * @param circle - circle collider
-     * @param box - AABB collider
-     * @return CollisionManifold with normal, penetration, and contact
+     * @param min - minimum corner of the box
+     * @param max - maximum corner of the box
+     * @param m - manifold receiving normal, penetration, and contact
+     * @param s - scratch vectors
+     * @return true if colliding
      */
-    private static CollisionManifold findCollisionFeatures(Circle circle, AABBCollider box) {
-        CollisionManifold m = new CollisionManifold();
+    private static boolean circleAlignedBox(Circle circle, Vector2f min, Vector2f max, CollisionManifold m, CollisionScratch s) {
         Vector2f c = circle.getCenter();
-        Vector2f min = box.getMin(), max = box.getMax();
         float cx = Math.max(min.x, Math.min(c.x, max.x));
         float cy = Math.max(min.y, Math.min(c.y, max.y));
-        Vector2f closest = new Vector2f(cx, cy);
-        Vector2f diff = new Vector2f(c).sub(closest);
+        Vector2f closest = s.closest.set(cx, cy);
+        Vector2f diff = s.diff.set(c).sub(closest);
         float dist2 = diff.lengthSquared();
-        if (dist2 > circle.getRadius()*circle.getRadius()) return m;
-        float dist = (float)Math.sqrt(dist2);
-        Vector2f normal = dist==0 ? new Vector2f(1,0) : new Vector2f(diff).normalize();
+        if (dist2 > circle.getRadius() * circle.getRadius()) return false;
+        float dist = (float) Math.sqrt(dist2);
+        Vector2f normal = dist == 0 ? s.normal.set(1, 0) : s.normal.set(diff).normalize();
         float penetration = circle.getRadius() - dist;
-        m = new CollisionManifold(normal, penetration);
-        m.addContactPoint(closest);
-        return m;
+        m.set(normal, penetration);
+        m.addContactPoint(closest.x, closest.y);
+        return true;
     }
 
     /*
-     * Detects collision between two AABBs.
-     * @param a - first AABB collider
-     * @param b - second AABB collider
-     * @return CollisionManifold with minimal axis normal and all contact points
+     * Detects collision between two axis-aligned boxes stored in s.aMin/aMax and s.bMin/bMax.
+     * @param ra - rigidbody of the first box
+     * @param rb - rigidbody of the second box
+     * @param m - manifold receiving the minimal axis normal and all contact points
+     * @param s - scratch vectors
+     * @return true if colliding
      */
-    private static CollisionManifold findCollisionFeatures(AABBCollider a, AABBCollider b) {
-        CollisionManifold m = new CollisionManifold();
-        Vector2f aMin = a.getMin(), aMax = a.getMax();
-        Vector2f bMin = b.getMin(), bMax = b.getMax();
+    private static boolean alignedBoxes(Rigidbody2D ra, Rigidbody2D rb, CollisionManifold m, CollisionScratch s) {
+        Vector2f aMin = s.aMin, aMax = s.aMax;
+        Vector2f bMin = s.bMin, bMax = s.bMax;
         boolean xOverlap = aMax.x > bMin.x && aMin.x < bMax.x;
         boolean yOverlap = aMax.y > bMin.y && aMin.y < bMax.y;
-        if (!(xOverlap && yOverlap)) return m;
+        if (!(xOverlap && yOverlap)) return false;
         float overlapX = Math.min(aMax.x, bMax.x) - Math.max(aMin.x, bMin.x);
         float overlapY = Math.min(aMax.y, bMax.y) - Math.max(aMin.y, bMin.y);
-        Vector2f centerDiff = new Vector2f(b.getRigidbody().getPosition()).sub(a.getRigidbody().getPosition());
-        Vector2f normal;
-        float penetration;
+        Vector2f centerDiff = s.diff.set(rb.getPosition()).sub(ra.getPosition());
         if (overlapX < overlapY) {
-            normal = new Vector2f(centerDiff.x<0?-1:1,0);
-            penetration = overlapX;
+            m.set(s.normal.set(centerDiff.x < 0 ? -1 : 1, 0), overlapX);
         } else {
-            normal = new Vector2f(0, centerDiff.y<0?-1:1);
-            penetration = overlapY;
+            m.set(s.normal.set(0, centerDiff.y < 0 ? -1 : 1), overlapY);
         }
-        m = new CollisionManifold(normal, penetration);
-        for (Vector2f p : getContactPoints(a, b, normal)) m.addContactPoint(p);
-        return m;
+        boxVertices(aMin, aMax, s.vertsA);
+        boxVertices(bMin, bMax, s.vertsB);
+        addContactPoints(ra, rb, m, s);
+        return true;
     }
 
     /*
-     * Runs the Separating Axis Theorem test between two oriented shapes.
-     * @param a - first collider
-     * @param b - second collider
-     * @param axes - candidate separating axes
-     * @return CollisionManifold with smallest overlap axis and contacts
+     * Runs the Separating Axis Theorem test between two boxes whose vertices are in
+     * s.vertsA and s.vertsB, over the candidate axes in s.axes.
+     * @param ra - rigidbody of the first box
+     * @param rb - rigidbody of the second box
+     * @param m - manifold receiving the smallest overlap axis and contacts
+     * @param s - scratch vectors
+     * @return true if colliding
      */
-    private static CollisionManifold runSAT(Collider a, Collider b, Vector2f[] axes) {
+    private static boolean runSAT(Rigidbody2D ra, Rigidbody2D rb, CollisionManifold m, CollisionScratch s) {
         float minOverlap = Float.MAX_VALUE;
-        Vector2f smallestAxis = new Vector2f();
-        for (Vector2f axis : axes) {
-            Vector2f i1 = getInterval(a, axis);
-            Vector2f i2 = getInterval(b, axis);
-            if (i1.y < i2.x || i2.y < i1.x) return new CollisionManifold();
-            float overlap = Math.min(i1.y, i2.y) - Math.max(i1.x, i2.x);
+        Vector2f smallestAxis = s.axis.zero();
+        for (Vector2f axis : s.axes) {
+            projectInterval(s.vertsA, axis, s);
+            float min1 = s.intervalMin, max1 = s.intervalMax;
+            projectInterval(s.vertsB, axis, s);
+            float min2 = s.intervalMin, max2 = s.intervalMax;
+            if (max1 < min2 || max2 < min1) return false;
+            float overlap = Math.min(max1, max2) - Math.max(min1, min2);
             if (overlap < minOverlap) { minOverlap = overlap; smallestAxis.set(axis); }
         }
-        Vector2f offset = new Vector2f(b.getRigidbody().getPosition()).sub(a.getRigidbody().getPosition());
+        Vector2f offset = s.diff.set(rb.getPosition()).sub(ra.getPosition());
         if (offset.dot(smallestAxis) < 0) smallestAxis.negate();
-        CollisionManifold m = new CollisionManifold(new Vector2f(smallestAxis), minOverlap);
-        for (Vector2f p : getContactPoints(a, b, smallestAxis)) m.addContactPoint(p);
-        return m;
+        m.set(smallestAxis, minOverlap);
+        if (!s.isClippedBoxContacts() || !clipContactPoints(m, s)) {
+            addContactPoints(ra, rb, m, s);
+        }
+        return true;
     }
 
     /*
-     * Projects collider vertices onto an axis to get min/max interval.
-     * @param c - collider (OBB or AABB)
+     * Finds the contacts of two boxes the way Box2D does: the face of one box that is most
+     * aligned with the normal is the reference face, the edge of the other box facing it is
+     * clipped to the sides of that face, and the clipped points behind the face are the contacts.
+     * Feature ids combine the reference face, the incident edge and the end of that edge, clipped
+     * or not, so they do not change while the boxes keep resting on each other. The manifold normal becomes the
+     * reference face normal and the penetration the deepest contact.
+     * @param m - manifold holding the SAT normal, receiving the contacts
+     * @param s - scratch vectors with the vertices of both boxes in vertsA and vertsB
+     * @return false if clipping left no contact, the manifold is then unchanged
+     */
+    private static boolean clipContactPoints(CollisionManifold m, CollisionScratch s) {
+        float nx = m.getNormal().x, ny = m.getNormal().y;
+        int faceA = mostAlignedFace(s.vertsA, nx, ny);
+        int faceB = mostAlignedFace(s.vertsB, -nx, -ny);
+        float alignA = faceNormalDot(s.vertsA, faceA, nx, ny);
+        float alignB = faceNormalDot(s.vertsB, faceB, -nx, -ny);
+        // prefer the first box, so the reference face does not flip between nearly aligned faces
+        boolean flip = alignB > alignA + FACE_TOLERANCE;
+        Vector2f[] ref = flip ? s.vertsB : s.vertsA;
+        Vector2f[] inc = flip ? s.vertsA : s.vertsB;
+        int refFace = flip ? faceB : faceA;
+
+        Vector2f v1 = ref[refFace], v2 = ref[(refFace + 1) % 4];
+        float tx = v2.x - v1.x, ty = v2.y - v1.y;
+        float length = (float) Math.sqrt(tx * tx + ty * ty);
+        tx /= length;
+        ty /= length;
+        float refNx = ty, refNy = -tx;
+
+        // the incident edge is the face of the other box most opposed to the reference normal
+        int incFace = mostAlignedFace(inc, -refNx, -refNy);
+        s.clip[0].set(inc[incFace]);
+        s.clip[1].set(inc[(incFace + 1) % 4]);
+        if (!clipSegment(s, -tx, -ty, -(tx * v1.x + ty * v1.y))) return false;
+        if (!clipSegment(s, tx, ty, tx * v2.x + ty * v2.y)) return false;
+
+        float faceOffset = refNx * v1.x + refNy * v1.y;
+        float separation0 = refNx * s.clip[0].x + refNy * s.clip[0].y - faceOffset;
+        float separation1 = refNx * s.clip[1].x + refNy * s.clip[1].y - faceOffset;
+        if (separation0 > CONTACT_MARGIN && separation1 > CONTACT_MARGIN) return false;
+
+        float sign = flip ? -1 : 1;
+        m.set(s.normal.set(refNx * sign, refNy * sign), -Math.min(separation0, separation1));
+        int edgeId = (flip ? 32 : 0) | refFace << 3 | incFace << 1;
+        for (int i = 0; i < 2; i++) {
+            float separation = i == 0 ? separation0 : separation1;
+            if (separation > CONTACT_MARGIN) continue;
+            // halfway between the incident point and the reference face
+            Vector2f p = s.clip[i];
+            m.addContactPoint(p.x - refNx * separation * 0.5f, p.y - refNy * separation * 0.5f,
+                    edgeId | i, separation);
+        }
+        return true;
+    }
+
+    /*
+     * @return index of the face whose outward normal points furthest along (dx, dy);
+     *         face i runs from vertex i to vertex i + 1 of the counter-clockwise vertices
+     */
+    private static int mostAlignedFace(Vector2f[] verts, float dx, float dy) {
+        int best = 0;
+        float bestDot = -Float.MAX_VALUE;
+        for (int i = 0; i < verts.length; i++) {
+            float dot = faceNormalDot(verts, i, dx, dy);
+            if (dot > bestDot) {
+                bestDot = dot;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static float faceNormalDot(Vector2f[] verts, int face, float dx, float dy) {
+        Vector2f a = verts[face], b = verts[(face + 1) % verts.length];
+        float ex = b.x - a.x, ey = b.y - a.y;
+        return (ey * dx - ex * dy) / (float) Math.sqrt(ex * ex + ey * ey);
+    }
+
+    /*
+     * Clips the segment in s.clip to the half plane dot(dir, p) <= offset,
+     * moving an end point outside onto the plane.
+     * @return false if the whole segment lies outside
+     */
+    private static boolean clipSegment(CollisionScratch s, float dirX, float dirY, float offset) {
+        Vector2f p0 = s.clip[0], p1 = s.clip[1];
+        float d0 = dirX * p0.x + dirY * p0.y - offset;
+        float d1 = dirX * p1.x + dirY * p1.y - offset;
+        if (d0 > 0 && d1 > 0) return false;
+        if (d0 > 0 || d1 > 0) {
+            float t = d0 / (d0 - d1);
+            float x = p0.x + (p1.x - p0.x) * t;
+            float y = p0.y + (p1.y - p0.y) * t;
+            int end = d0 > 0 ? 0 : 1;
+            s.clip[end].set(x, y);
+        }
+        return true;
+    }
+
+    /*
+     * Projects vertices onto an axis and stores the min/max interval in s.intervalMin/intervalMax.
+     * @param verts - vertices to project
      * @param axis - axis vector to project onto
-     * @return Vector2f(x=min, y=max) projection interval
+     * @param s - scratch receiving the interval
      */
-    private static Vector2f getInterval(Collider c, Vector2f axis) {
-        Vector2f[] verts = c instanceof OBBCollider ? ((OBBCollider)c).getVertices() : ((AABBCollider)c).getVertices();
+    private static void projectInterval(Vector2f[] verts, Vector2f axis, CollisionScratch s) {
         float min = axis.dot(verts[0]), max = min;
         for (int i = 1; i < verts.length; i++) {
             float proj = axis.dot(verts[i]);
             if (proj < min) min = proj; else if (proj > max) max = proj;
         }
-        return new Vector2f(min, max);
+        s.intervalMin = min;
+        s.intervalMax = max;
     }
 
     /*
-     * Computes contact points by testing polygon vertices against the other polygon.
-     * @param c1 - first collider
-     * @param c2 - second collider
-     * @param normal - collision normal
-     * @return list of contact points
+     * Adds contact points by testing the vertices in s.vertsA and s.vertsB against the other box,
+     * falling back to the midpoint between the bodies if no vertex is inside.
+     * @param ra - rigidbody of the first box
+     * @param rb - rigidbody of the second box
+     * @param m - manifold receiving the contacts
+     * @param s - scratch vectors
      */
-    private static List<Vector2f> getContactPoints(Collider c1, Collider c2, Vector2f normal) {
-        List<Vector2f> contacts = new ArrayList<>();
-        Vector2f[] v1 = c1 instanceof OBBCollider ? ((OBBCollider)c1).getVertices() : ((AABBCollider)c1).getVertices();
-        Vector2f[] v2 = c2 instanceof OBBCollider ? ((OBBCollider)c2).getVertices() : ((AABBCollider)c2).getVertices();
-        for (Vector2f v : v1) if (RaycastManager.pointInPolygon(v, v2)) contacts.add(new Vector2f(v));
-        for (Vector2f v : v2) if (RaycastManager.pointInPolygon(v, v1)) contacts.add(new Vector2f(v));
-        if (contacts.isEmpty()) {
-            Vector2f c = new Vector2f(c1.getRigidbody().getPosition()).add(c2.getRigidbody().getPosition()).mul(0.5f);
-            contacts.add(c);
+    private static void addContactPoints(Rigidbody2D ra, Rigidbody2D rb, CollisionManifold m, CollisionScratch s) {
+        // features: 0-3 vertices of the first box, 4-7 vertices of the second, 8 the midpoint
+        for (int i = 0; i < s.vertsA.length; i++) {
+            Vector2f v = s.vertsA[i];
+            if (RaycastManager.pointInPolygon(v, s.vertsB, s.edgeAxis)) m.addContactPoint(v.x, v.y, i);
+        }
+        for (int i = 0; i < s.vertsB.length; i++) {
+            Vector2f v = s.vertsB[i];
+            if (RaycastManager.pointInPolygon(v, s.vertsA, s.edgeAxis)) m.addContactPoint(v.x, v.y, 4 + i);
+        }
+        if (m.getContactCount() == 0) {
+            Vector2f c = s.contact.set(ra.getPosition()).add(rb.getPosition()).mul(0.5f);
+            m.addContactPoint(c.x, c.y, 8);
         }
-        return contacts;
     }
 
     /*
-     * Converts an OBB collider to an AABB based on its world position and half-size.
-     * @param obb - oriented box collider
-     * @return new AABBCollider aligned with world axes
+     * Writes the four corners of an axis-aligned box in CCW order, starting bottom-left.
+     */
+    private static void boxVertices(Vector2f min, Vector2f max, Vector2f[] out) {
+        out[0].set(min.x, min.y);
+        out[1].set(max.x, min.y);
+        out[2].set(max.x, max.y);
+        out[3].set(min.x, max.y);
+    }
+
+    /*
+     * Computes the world bounds of an unrotated OBB. The half size is rebuilt from the
+     * corners the same way an AABBCollider built from them would, so the rounding matches.
+     * @param obb - oriented box collider with zero rotation
+     * @param min - receives the minimum corner
+     * @param max - receives the maximum corner
      */
-    private static AABBCollider convertToAlignedBox(OBBCollider obb) {
+    private static void alignedBounds(OBBCollider obb, Vector2f min, Vector2f max) {
         Vector2f center = obb.getRigidbody().getPosition();
         Vector2f half = obb.getHalfSize();
-        Vector2f min = new Vector2f(center).sub(half);
-        Vector2f max = new Vector2f(center).add(half);
-        AABBCollider box = new AABBCollider(min, max);
-        box.setRigidbody(obb.getRigidbody());
-        return box;
+        float halfX = ((center.x + half.x) - (center.x - half.x)) * 0.5f;
+        float halfY = ((center.y + half.y) - (center.y - half.y)) * 0.5f;
+        min.set(center.x - halfX, center.y - halfY);
+        max.set(center.x + halfX, center.y + halfY);
     }
-}
\ No newline at end of file
+}
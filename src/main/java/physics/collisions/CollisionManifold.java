@@ -2,17 +2,26 @@ package physics.collisions;
 
 import org.joml.Vector2f;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /*
  * CollisionManifold stores collision information between two Rigidbody2D objects,
  * including contact normal, penetration depth, and contact points.
  * It also holds references to the involved bodies for resolution.
+ * A manifold can be reset and refilled, reusing its contact point vectors, so the
+ * physics step can keep a pool of manifolds instead of allocating new ones.
  * Author(s): Gabriel
  */
 public class CollisionManifold {
     private Vector2f normal;
     private List<Vector2f> contactPoints;
+    private final List<Vector2f> contactPool = new ArrayList<>();  // owned vectors reused across resets
+    private int pooledCount = 0;
+    // identifies which vertex or edge produced each contact point, stable across steps
+    private int[] features = new int[4];
+    // signed distance of each contact point to the other body, negative while overlapping
+    private float[] separations = new float[4];
     private float penetrationDepth;
     private boolean isColliding;
     private Rigidbody2D bodyA;
@@ -45,9 +54,73 @@ public class CollisionManifold {
      * @param contactPoint - point of contact in world coordinates
      */
     public void addContactPoint(Vector2f contactPoint) {
+        setFeature(contactPoints.size(), contactPoints.size(), -penetrationDepth);
         contactPoints.add(contactPoint);  // record contact point
     }
 
+    /*
+     * Adds a contact point stored in a vector owned by this manifold, reused after reset.
+     * @param x - x coordinate of the contact in world space
+     * @param y - y coordinate of the contact in world space
+     */
+    public void addContactPoint(float x, float y) {
+        addContactPoint(x, y, contactPoints.size());
+    }
+
+    /*
+     * Adds a contact point together with the feature that produced it, e.g. a box vertex.
+     * Contacts of the same body pair with the same feature are matched between steps.
+     * @param x - x coordinate of the contact in world space
+     * @param y - y coordinate of the contact in world space
+     * @param feature - id of the feature, unique within the manifold
+     */
+    public void addContactPoint(float x, float y, int feature) {
+        addContactPoint(x, y, feature, -penetrationDepth);
+    }
+
+    /*
+     * Adds a contact point with its own separation, for manifolds whose points are not
+     * all as deep as the manifold's penetration depth.
+     * @param x - x coordinate of the contact in world space
+     * @param y - y coordinate of the contact in world space
+     * @param feature - id of the feature, unique within the manifold
+     * @param separation - distance between the bodies at this point, negative while overlapping
+     */
+    public void addContactPoint(float x, float y, int feature, float separation) {
+        setFeature(contactPoints.size(), feature, separation);
+        if (pooledCount == contactPool.size()) {
+            contactPool.add(new Vector2f());
+        }
+        Vector2f point = contactPool.get(pooledCount++);
+        point.set(x, y);
+        contactPoints.add(point);
+    }
+
+    /*
+     * Marks the manifold as colliding with the given normal and penetration.
+     * The normal is copied, so the argument can be a scratch vector.
+     * @param normal - collision normal vector pointing from body A to B
+     * @param penetrationDepth - penetration depth of the collision
+     */
+    public void set(Vector2f normal, float penetrationDepth) {
+        this.normal.set(normal);
+        this.penetrationDepth = penetrationDepth;
+        this.isColliding = true;
+    }
+
+    /*
+     * Clears the manifold back to the non-colliding state, keeping its storage.
+     */
+    public void reset() {
+        normal.zero();
+        penetrationDepth = 0.0f;
+        isColliding = false;
+        contactPoints.clear();
+        pooledCount = 0;
+        bodyA = null;
+        bodyB = null;
+    }
+
     /*
      * @return the collision normal vector
      */
@@ -62,6 +135,38 @@ public class CollisionManifold {
         return contactPoints;
     }
 
+    /*
+     * @param index - index of the contact point
+     * @return feature id of the contact point
+     */
+    public int getFeature(int index) {
+        return features[index];
+    }
+
+    /*
+     * @param index - index of the contact point
+     * @return separation of the bodies at the contact point, negative while overlapping
+     */
+    public float getSeparation(int index) {
+        return separations[index];
+    }
+
+    private void setFeature(int index, int feature, float separation) {
+        if (index == features.length) {
+            features = Arrays.copyOf(features, features.length * 2);
+            separations = Arrays.copyOf(separations, separations.length * 2);
+        }
+        features[index] = feature;
+        separations[index] = separation;
+    }
+
+    /*
+     * @return number of contact points in the collision
+     */
+    public int getContactCount() {
+        return contactPoints.size();
+    }
+
     /*
      * @return penetration depth of the collision
      */
@@ -99,4 +204,4 @@ public class CollisionManifold {
     public Rigidbody2D getB() {
         return bodyB;
     }
-}
\ No newline at end of file
+}
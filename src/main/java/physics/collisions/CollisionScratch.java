@@ -0,0 +1,66 @@
+package physics.collisions;
+
+import org.joml.Vector2f;
+
+/*
+ * CollisionScratch holds the temporary vectors and vertex arrays used by the
+ * allocation-free narrow phase in CollisionManager. One instance can be reused
+ * for every pair, but it must not be shared between threads.
+ * Author(s): Gabriel, Ahmed
+ */
+public class CollisionScratch {
+    final Vector2f zero = new Vector2f();  // rotation origin, never written
+    final Vector2f diff = new Vector2f();
+    final Vector2f normal = new Vector2f();
+    final Vector2f contact = new Vector2f();
+    final Vector2f closest = new Vector2f();
+    final Vector2f center = new Vector2f();
+    final Vector2f axis = new Vector2f();
+    final Vector2f edgeAxis = new Vector2f();
+    final Vector2f aMin = new Vector2f();
+    final Vector2f aMax = new Vector2f();
+    final Vector2f bMin = new Vector2f();
+    final Vector2f bMax = new Vector2f();
+    final Vector2f[] axes = newVectors(4);
+    final Vector2f[] vertsA = newVectors(4);
+    final Vector2f[] vertsB = newVectors(4);
+
+    final Vector2f[] clip = newVectors(2);
+
+    // cores of polygon and capsule pairs and the GJK state used on them
+    final ConvexProxy proxyA = new ConvexProxy();
+    final ConvexProxy proxyB = new ConvexProxy();
+    final GJK gjk = new GJK();
+
+    // result of the last interval projection
+    float intervalMin;
+    float intervalMax;
+
+    private boolean clippedBoxContacts = false;
+
+    /*
+     * Chooses how contacts between two boxes are found. Clipped contacts are the edge of one box
+     * clipped against the face of the other, at most two points with their own separation and
+     * feature ids that stay the same while the boxes rest on each other, as needed for warm starting.
+     * Otherwise the vertices of each box that lie inside the other one are used.
+     * @param clippedBoxContacts - true to clip box edges
+     */
+    public void setClippedBoxContacts(boolean clippedBoxContacts) {
+        this.clippedBoxContacts = clippedBoxContacts;
+    }
+
+    /*
+     * @return true if box contacts are found by clipping
+     */
+    public boolean isClippedBoxContacts() {
+        return clippedBoxContacts;
+    }
+
+    private static Vector2f[] newVectors(int count) {
+        Vector2f[] vectors = new Vector2f[count];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = new Vector2f();
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,257 @@
+package physics.collisions;
+
+import java.util.Arrays;
+
+/*
+ * ContactCache keeps the accumulated normal and tangent impulses of every contact point
+ * from one step to the next, keyed by body pair and contact feature. The solver starts
+ * each contact from its cached impulses (warm starting) instead of from zero, so resting
+ * stacks need far fewer iterations to converge.
+ * Entries of pairs that are not touching in a step are dropped at the next step.
+ * Author(s): Gabriel, Ahmed
+ */
+public class ContactCache {
+    private Table previous = new Table();
+    private Table current = new Table();
+    private boolean enabled = true;
+
+    /*
+     * Makes the impulses stored during the last step available for lookup
+     * and starts collecting the impulses of the new step.
+     */
+    public void beginStep() {
+        Table tmp = previous;
+        previous = current;
+        current = tmp;
+        current.clear();
+    }
+
+    /*
+     * Forgets all cached impulses.
+     */
+    public void clear() {
+        previous.clear();
+        current.clear();
+    }
+
+    /*
+     * Replaces the impulses stored during the last step with those of another cache, e.g.
+     * to keep them in a snapshot or to put a snapshot back. Allocates only when the other
+     * cache holds more than this one ever did.
+     * @param source - the cache to copy
+     */
+    public void copyFrom(ContactCache source) {
+        current.copyFrom(source.current);
+        previous.clear();
+    }
+
+    /*
+     * @param idA - id of the first body of the manifold
+     * @param idB - id of the second body of the manifold
+     * @return key of the body pair; swapping the bodies gives a different key
+     */
+    public static long key(int idA, int idB) {
+        return ((long) idA << 32) | (idB & 0xFFFFFFFFL);
+    }
+
+    /*
+     * @param key - key of the body pair
+     * @return entry of the pair in the previous step, or -1 if the pair was not touching
+     */
+    public int findPrevious(long key) {
+        return enabled ? previous.find(key) : -1;
+    }
+
+    /*
+     * @param entry - entry returned by findPrevious
+     * @param feature - feature id of the contact point
+     * @return index of the matching point for the impulse getters, or -1 if there is none
+     */
+    public int findPreviousPoint(int entry, int feature) {
+        int start = previous.start[entry];
+        int end = start + previous.count[entry];
+        for (int p = start; p < end; p++) {
+            if (previous.feature[p] == feature) return p;
+        }
+        return -1;
+    }
+
+    /*
+     * @param point - point returned by findPreviousPoint
+     * @return accumulated normal impulse of the point in the previous step
+     */
+    public float getPreviousNormalImpulse(int point) {
+        return previous.normalImpulse[point];
+    }
+
+    /*
+     * @param point - point returned by findPreviousPoint
+     * @return accumulated tangent impulse of the point in the previous step
+     */
+    public float getPreviousTangentImpulse(int point) {
+        return previous.tangentImpulse[point];
+    }
+
+    /*
+     * Starts a new entry for a body pair of the current step. Its points must be added
+     * right after, before the next entry is started.
+     * @param key - key of the body pair
+     */
+    public void beginEntry(long key) {
+        current.beginEntry(key);
+    }
+
+    /*
+     * Adds a contact point to the entry started last.
+     * @param feature - feature id of the contact point
+     * @param normalImpulse - accumulated normal impulse
+     * @param tangentImpulse - accumulated tangent impulse
+     */
+    public void addPoint(int feature, float normalImpulse, float tangentImpulse) {
+        current.addPoint(feature, normalImpulse, tangentImpulse);
+    }
+
+    /*
+     * @return number of body pairs stored in the current step
+     */
+    public int size() {
+        return current.entries;
+    }
+
+    /*
+     * Turns lookups on or off. A disabled cache finds nothing, so the solver starts cold.
+     * @param enabled - true to return cached impulses
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /*
+     * @return true if lookups return cached impulses
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * One step worth of entries: an open-addressing hash table from pair key to entry,
+     * and the points of all entries stored back to back.
+     */
+    private static class Table {
+        long[] keys = new long[64];
+        int[] entryOfKey = new int[64];
+        int entries = 0;
+
+        int[] start = new int[32];
+        int[] count = new int[32];
+
+        int[] feature = new int[64];
+        float[] normalImpulse = new float[64];
+        float[] tangentImpulse = new float[64];
+        int points = 0;
+
+        Table() {
+            Arrays.fill(entryOfKey, -1);
+        }
+
+        void clear() {
+            if (entries > 0) {
+                Arrays.fill(entryOfKey, -1);
+            }
+            entries = 0;
+            points = 0;
+        }
+
+        void copyFrom(Table source) {
+            // hash slots depend on the table length, so the tables must be the same size
+            if (keys.length != source.keys.length) {
+                keys = new long[source.keys.length];
+                entryOfKey = new int[source.keys.length];
+            }
+            System.arraycopy(source.keys, 0, keys, 0, keys.length);
+            System.arraycopy(source.entryOfKey, 0, entryOfKey, 0, entryOfKey.length);
+            entries = source.entries;
+            if (start.length < entries) {
+                start = new int[source.start.length];
+                count = new int[source.start.length];
+            }
+            System.arraycopy(source.start, 0, start, 0, entries);
+            System.arraycopy(source.count, 0, count, 0, entries);
+            points = source.points;
+            if (feature.length < points) {
+                feature = new int[source.feature.length];
+                normalImpulse = new float[source.feature.length];
+                tangentImpulse = new float[source.feature.length];
+            }
+            System.arraycopy(source.feature, 0, feature, 0, points);
+            System.arraycopy(source.normalImpulse, 0, normalImpulse, 0, points);
+            System.arraycopy(source.tangentImpulse, 0, tangentImpulse, 0, points);
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; entryOfKey[i] >= 0; i = (i + 1) & mask) {
+                if (keys[i] == key) return entryOfKey[i];
+            }
+            return -1;
+        }
+
+        void beginEntry(long key) {
+            // keep the table at most half full
+            if ((entries + 1) * 2 > keys.length) {
+                grow();
+            }
+            if (entries == start.length) {
+                start = Arrays.copyOf(start, entries * 2);
+                count = Arrays.copyOf(count, entries * 2);
+            }
+            insert(key, entries);
+            start[entries] = points;
+            count[entries] = 0;
+            entries++;
+        }
+
+        void addPoint(int f, float pn, float pt) {
+            if (points == feature.length) {
+                feature = Arrays.copyOf(feature, points * 2);
+                normalImpulse = Arrays.copyOf(normalImpulse, points * 2);
+                tangentImpulse = Arrays.copyOf(tangentImpulse, points * 2);
+            }
+            feature[points] = f;
+            normalImpulse[points] = pn;
+            tangentImpulse[points] = pt;
+            points++;
+            count[entries - 1]++;
+        }
+
+        private void insert(long key, int entry) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (entryOfKey[i] >= 0) {
+                if (keys[i] == key) {
+                    entryOfKey[i] = entry;  // the same pair twice, the later one wins
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            entryOfKey[i] = entry;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldEntries = entryOfKey;
+            keys = new long[oldKeys.length * 2];
+            entryOfKey = new int[oldKeys.length * 2];
+            Arrays.fill(entryOfKey, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldEntries[i] >= 0) insert(oldKeys[i], oldEntries[i]);
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package physics.collisions;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * ContactIndex holds the contacts of the current step grouped by body, so a body's
+ * contacts can be listed without scanning every manifold, and compares them with the
+ * contacts of the step before to send enter, stay and exit events to ContactListeners.
+ * Solid and ghost contacts are both indexed. A pair whose bodies both rest is not tested
+ * by the narrow phase; it keeps the contact it had in the step before, without a manifold.
+ * Author(s): Gabriel, Ahmed
+ */
+public class ContactIndex {
+    private Step previous = new Step();
+    private Step current = new Step();
+    // body contacts of the current step, as contact numbers, grouped per body
+    private int[] entries = new int[128];
+    private int step = 0;
+
+    /*
+     * Makes the contacts of the last step the previous ones and starts collecting new ones.
+     */
+    public void beginStep() {
+        Step tmp = previous;
+        previous = current;
+        current = tmp;
+        current.clear();
+        step++;
+    }
+
+    /*
+     * Forgets the contacts of the current and the previous step without sending exit events.
+     */
+    public void clear() {
+        previous.clear();
+        current.clear();
+        step++;
+    }
+
+    /*
+     * Copies the contacts of the current step into another index, e.g. a snapshot.
+     * Manifolds are not kept, they are reused by the next step.
+     * @param snapshot - receives the contacts, never used for queries
+     */
+    public void saveTo(ContactIndex snapshot) {
+        snapshot.previous.clear();
+        snapshot.current.copyFrom(current);
+    }
+
+    /*
+     * Puts back contacts saved by saveTo as the contacts of the current step, so the next
+     * step sends stay and exit events as if the saved step had just run. Their manifolds
+     * are null until then.
+     * @param snapshot - index written by saveTo
+     */
+    public void restoreFrom(ContactIndex snapshot) {
+        beginStep();
+        previous.clear();
+        current.copyFrom(snapshot.current);
+        build();
+    }
+
+    /*
+     * Adds a contact of the current step.
+     * @param a - first body
+     * @param b - second body
+     * @param manifold - the contact between them, or null for a resting pair
+     * @param solid - true if both colliders are solid
+     */
+    public void add(Rigidbody2D a, Rigidbody2D b, CollisionManifold manifold, boolean solid) {
+        current.add(pairKey(a, b), a, b, manifold, solid);
+    }
+
+    /*
+     * Keeps the contact of a pair that is not tested this step because both bodies rest.
+     * @param a - first body
+     * @param b - second body
+     * @return true if the bodies touched in the previous step and still do
+     */
+    public boolean keepResting(Rigidbody2D a, Rigidbody2D b) {
+        long key = pairKey(a, b);
+        int contact = previous.find(key);
+        if (contact < 0) return false;
+        current.add(key, a, b, null, previous.solid[contact]);
+        return true;
+    }
+
+    /*
+     * Groups the contacts added this step by body. Must be called before the queries.
+     */
+    public void build() {
+        int count = current.count;
+        if (entries.length < count * 2) {
+            entries = new int[Math.max(count * 2, entries.length * 2)];
+        }
+        // count the contacts of every body
+        for (int c = 0; c < count; c++) {
+            countContact(current.bodyA[c]);
+            countContact(current.bodyB[c]);
+        }
+        // give every body its range of entries on first sight and fill it
+        int offset = 0;
+        for (int c = 0; c < count; c++) {
+            offset = placeContact(current.bodyA[c], c, offset);
+            offset = placeContact(current.bodyB[c], c, offset);
+        }
+    }
+
+    private void countContact(Rigidbody2D body) {
+        if (body.contactIndex != this || body.contactStep != step) {
+            body.contactIndex = this;
+            body.contactStep = step;
+            body.contactStart = -1;
+            body.contactCount = 0;
+        }
+        body.contactCount++;
+    }
+
+    private int placeContact(Rigidbody2D body, int contact, int offset) {
+        if (body.contactStart < 0) {
+            body.contactStart = offset;
+            offset += body.contactCount;
+            body.contactCount = 0;
+        }
+        entries[body.contactStart + body.contactCount++] = contact;
+        return offset;
+    }
+
+    /*
+     * Sends the enter and stay events of the current contacts and the exit events of the
+     * contacts of the previous step that are gone, to the bodies that have listeners.
+     */
+    public void dispatchEvents() {
+        for (int c = 0; c < current.count; c++) {
+            Rigidbody2D a = current.bodyA[c];
+            Rigidbody2D b = current.bodyB[c];
+            if (!a.hasContactListeners() && !b.hasContactListeners()) continue;
+            boolean stay = previous.find(current.keys[c]) >= 0;
+            CollisionManifold manifold = current.manifold[c];
+            notifyContact(a, b, manifold, stay);
+            notifyContact(b, a, manifold, stay);
+        }
+        for (int c = 0; c < previous.count; c++) {
+            Rigidbody2D a = previous.bodyA[c];
+            Rigidbody2D b = previous.bodyB[c];
+            if (!a.hasContactListeners() && !b.hasContactListeners()) continue;
+            if (current.find(previous.keys[c]) >= 0) continue;
+            for (ContactListener listener : listeners(a)) {
+                listener.onContactExit(a, b);
+            }
+            for (ContactListener listener : listeners(b)) {
+                listener.onContactExit(b, a);
+            }
+        }
+    }
+
+    private static void notifyContact(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold, boolean stay) {
+        for (ContactListener listener : listeners(self)) {
+            if (stay) {
+                listener.onContactStay(self, other, manifold);
+            } else {
+                listener.onContactEnter(self, other, manifold);
+            }
+        }
+    }
+
+    private static List<ContactListener> listeners(Rigidbody2D body) {
+        // a copy, so listeners may remove themselves while being notified
+        return body.hasContactListeners() ? List.copyOf(body.contactListeners) : List.of();
+    }
+
+    /*
+     * @param body - a body of the simulation
+     * @return number of bodies touching it in the current step
+     */
+    public int getContactCount(Rigidbody2D body) {
+        return isIndexed(body) ? body.contactCount : 0;
+    }
+
+    /*
+     * @param body - a body of the simulation
+     * @param i - index of the contact, below getContactCount(body)
+     * @return the body on the other side of the contact
+     */
+    public Rigidbody2D getOther(Rigidbody2D body, int i) {
+        int c = contact(body, i);
+        return current.bodyA[c] == body ? current.bodyB[c] : current.bodyA[c];
+    }
+
+    /*
+     * @param body - a body of the simulation
+     * @param i - index of the contact, below getContactCount(body)
+     * @return the manifold of the contact, valid until the next step, or null while both bodies rest
+     */
+    public CollisionManifold getManifold(Rigidbody2D body, int i) {
+        return current.manifold[contact(body, i)];
+    }
+
+    /*
+     * @param body - a body of the simulation
+     * @param i - index of the contact, below getContactCount(body)
+     * @return true for a solid contact, false for a ghost contact
+     */
+    public boolean isSolid(Rigidbody2D body, int i) {
+        return current.solid[contact(body, i)];
+    }
+
+    /*
+     * @return number of contacts in the current step
+     */
+    public int size() {
+        return current.count;
+    }
+
+    private boolean isIndexed(Rigidbody2D body) {
+        return body.contactIndex == this && body.contactStep == step;
+    }
+
+    private int contact(Rigidbody2D body, int i) {
+        if (i < 0 || i >= getContactCount(body)) {
+            throw new IllegalArgumentException("No contact " + i + " for a body with " + getContactCount(body));
+        }
+        return entries[body.contactStart + i];
+    }
+
+    // the same key whatever the order of the bodies
+    private static long pairKey(Rigidbody2D a, Rigidbody2D b) {
+        int idA = a.bodyId, idB = b.bodyId;
+        return idA < idB ? ContactCache.key(idA, idB) : ContactCache.key(idB, idA);
+    }
+
+    /*
+     * The contacts of one step, and an open-addressing hash table from pair key to contact.
+     */
+    private static class Step {
+        int count = 0;
+        long[] keys = new long[64];
+        Rigidbody2D[] bodyA = new Rigidbody2D[64];
+        Rigidbody2D[] bodyB = new Rigidbody2D[64];
+        CollisionManifold[] manifold = new CollisionManifold[64];
+        boolean[] solid = new boolean[64];
+
+        long[] tableKeys = new long[128];
+        int[] tableContact = new int[128];
+
+        Step() {
+            Arrays.fill(tableContact, -1);
+        }
+
+        void clear() {
+            if (count > 0) {
+                Arrays.fill(tableContact, -1);
+                Arrays.fill(bodyA, 0, count, null);
+                Arrays.fill(bodyB, 0, count, null);
+                Arrays.fill(manifold, 0, count, null);
+            }
+            count = 0;
+        }
+
+        void add(long key, Rigidbody2D a, Rigidbody2D b, CollisionManifold m, boolean isSolid) {
+            if (count == keys.length) {
+                int n = count * 2;
+                keys = Arrays.copyOf(keys, n);
+                bodyA = Arrays.copyOf(bodyA, n);
+                bodyB = Arrays.copyOf(bodyB, n);
+                manifold = Arrays.copyOf(manifold, n);
+                solid = Arrays.copyOf(solid, n);
+            }
+            // keep the table at most half full
+            if ((count + 1) * 2 > tableKeys.length) {
+                grow();
+            }
+            keys[count] = key;
+            bodyA[count] = a;
+            bodyB[count] = b;
+            manifold[count] = m;
+            solid[count] = isSolid;
+            insert(key, count);
+            count++;
+        }
+
+        void copyFrom(Step source) {
+            clear();
+            if (tableKeys.length != source.tableKeys.length) {
+                tableKeys = new long[source.tableKeys.length];
+                tableContact = new int[source.tableKeys.length];
+            }
+            System.arraycopy(source.tableKeys, 0, tableKeys, 0, tableKeys.length);
+            System.arraycopy(source.tableContact, 0, tableContact, 0, tableContact.length);
+            count = source.count;
+            if (keys.length < count) {
+                int n = source.keys.length;
+                keys = new long[n];
+                bodyA = new Rigidbody2D[n];
+                bodyB = new Rigidbody2D[n];
+                manifold = new CollisionManifold[n];
+                solid = new boolean[n];
+            }
+            System.arraycopy(source.keys, 0, keys, 0, count);
+            System.arraycopy(source.bodyA, 0, bodyA, 0, count);
+            System.arraycopy(source.bodyB, 0, bodyB, 0, count);
+            System.arraycopy(source.solid, 0, solid, 0, count);
+        }
+
+        int find(long key) {
+            int mask = tableKeys.length - 1;
+            for (int i = hash(key) & mask; tableContact[i] >= 0; i = (i + 1) & mask) {
+                if (tableKeys[i] == key) return tableContact[i];
+            }
+            return -1;
+        }
+
+        private void insert(long key, int contact) {
+            int mask = tableKeys.length - 1;
+            int i = hash(key) & mask;
+            while (tableContact[i] >= 0) {
+                if (tableKeys[i] == key) {
+                    tableContact[i] = contact;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            tableKeys[i] = key;
+            tableContact[i] = contact;
+        }
+
+        private void grow() {
+            tableKeys = new long[tableKeys.length * 2];
+            tableContact = new int[tableKeys.length];
+            Arrays.fill(tableContact, -1);
+            for (int c = 0; c < count; c++) {
+                insert(keys[c], c);
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
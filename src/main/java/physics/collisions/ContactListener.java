@@ -0,0 +1,38 @@
+package physics.collisions;
+
+/*
+ * ContactListener receives the contact events of the bodies it is added to with
+ * Rigidbody2D.addContactListener. Events are sent at the end of each fixed step, for solid
+ * and ghost contacts alike. Only the methods that are needed have to be overridden.
+ * The manifold is only valid during the call, and is null while both bodies rest,
+ * because resting pairs keep their contact without being tested again.
+ * Author(s): Gabriel, Ahmed
+ */
+public interface ContactListener {
+
+    /*
+     * Called in the first step two bodies touch.
+     * @param self - the body the listener was added to
+     * @param other - the body it touches
+     * @param manifold - the contact of this step
+     */
+    default void onContactEnter(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold) {
+    }
+
+    /*
+     * Called in every later step the two bodies still touch.
+     * @param self - the body the listener was added to
+     * @param other - the body it touches
+     * @param manifold - the contact of this step, or null while both bodies rest
+     */
+    default void onContactStay(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold) {
+    }
+
+    /*
+     * Called in the first step two bodies no longer touch, also when one of them was removed.
+     * @param self - the body the listener was added to
+     * @param other - the body it touched
+     */
+    default void onContactExit(Rigidbody2D self, Rigidbody2D other) {
+    }
+}
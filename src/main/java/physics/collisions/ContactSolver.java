@@ -0,0 +1,261 @@
+package physics.collisions;
+
+import physics.collisions.Rigidbody2D.BodyType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * ContactSolver is a sequential impulse solver with accumulated, clamped impulses per
+ * contact point. Impulses act at the contact points, so they change both linear and
+ * angular velocity, and friction is limited by the normal impulse of the same point.
+ * The accumulated impulses are kept in a ContactCache and applied again at the start of
+ * the next step (warm starting), which lets resting stacks converge in a few iterations.
+ * The solver reads and writes the velocities in the BodyStore directly. Manifolds that
+ * share no movable body can be solved on different threads.
+ * Author(s): Gabriel, Ahmed
+ */
+public class ContactSolver {
+    private static final float DEG_TO_RAD = (float) (Math.PI / 180.0);
+    private static final float RAD_TO_DEG = (float) (180.0 / Math.PI);
+    // approach speed below which contacts do not bounce, so resting contacts stay at rest
+    private static final float RESTITUTION_THRESHOLD = 1.0f;
+    // share of the penetration removed per step, and the penetration that is left alone
+    private static final float BAUMGARTE = 0.2f;
+    private static final float SLOP = 0.1f;
+
+    private final BodyStore store;
+    private final ContactCache cache = new ContactCache();
+
+    // per manifold
+    private int manifolds = 0;
+    private int[] bodyA = new int[32], bodyB = new int[32];
+    private long[] pairKey = new long[32];
+    private float[] normalX = new float[32], normalY = new float[32];
+    private float[] friction = new float[32];
+    private int[] pointStart = new int[32], pointCount = new int[32];
+
+    // per contact point
+    private int points = 0;
+    private int[] feature = new int[64];
+    private float[] r1x = new float[64], r1y = new float[64];
+    private float[] r2x = new float[64], r2y = new float[64];
+    private float[] normalMass = new float[64], tangentMass = new float[64];
+    private float[] velocityBias = new float[64];
+    private float[] normalImpulse = new float[64], tangentImpulse = new float[64];
+
+    /*
+     * @param store - the store holding the bodies of all manifolds passed to prepare
+     */
+    public ContactSolver(BodyStore store) {
+        this.store = store;
+    }
+
+    /*
+     * Builds the constraints of this step from the manifolds and looks up their cached impulses.
+     * Velocities must already include this step's forces.
+     * @param collisions - manifolds of solid contacts, their bodies set with setBodies
+     * @param dt - length of the step
+     */
+    public void prepare(List<CollisionManifold> collisions, float dt) {
+        cache.beginStep();
+        manifolds = 0;
+        points = 0;
+        for (int j = 0; j < collisions.size(); j++) {
+            CollisionManifold m = collisions.get(j);
+            ensureManifoldCapacity(j + 1);
+            ensurePointCapacity(points + m.getContactCount());
+
+            Rigidbody2D rbA = m.getA();
+            Rigidbody2D rbB = m.getB();
+            int a = rbA.storeIndex;
+            int b = rbB.storeIndex;
+            bodyA[j] = a;
+            bodyB[j] = b;
+            pairKey[j] = ContactCache.key(rbA.bodyId, rbB.bodyId);
+            float length = m.getNormal().length();
+            float nx = m.getNormal().x / length;
+            float ny = m.getNormal().y / length;
+            normalX[j] = nx;
+            normalY[j] = ny;
+            friction[j] = (float) Math.sqrt(rbA.getFriction() * rbB.getFriction());
+            float restitution = Math.min(rbA.getRestitution(), rbB.getRestitution());
+            pointStart[j] = points;
+            pointCount[j] = m.getContactCount();
+
+            float imA = inverseMass(rbA), imB = inverseMass(rbB);
+            float iiA = inverseInertia(rbA), iiB = inverseInertia(rbB);
+            float tx = ny, ty = -nx;
+            int entry = cache.findPrevious(pairKey[j]);
+            for (int c = 0; c < m.getContactCount(); c++) {
+                int p = points++;
+                float px = m.getContactPoints().get(c).x;
+                float py = m.getContactPoints().get(c).y;
+                r1x[p] = px - store.posX[a];
+                r1y[p] = py - store.posY[a];
+                r2x[p] = px - store.posX[b];
+                r2y[p] = py - store.posY[b];
+
+                float rnA = r1x[p] * ny - r1y[p] * nx;
+                float rnB = r2x[p] * ny - r2y[p] * nx;
+                float kNormal = imA + imB + iiA * rnA * rnA + iiB * rnB * rnB;
+                normalMass[p] = kNormal > 0.0f ? 1.0f / kNormal : 0.0f;
+                float rtA = r1x[p] * ty - r1y[p] * tx;
+                float rtB = r2x[p] * ty - r2y[p] * tx;
+                float kTangent = imA + imB + iiA * rtA * rtA + iiB * rtB * rtB;
+                tangentMass[p] = kTangent > 0.0f ? 1.0f / kTangent : 0.0f;
+
+                float vn = relativeVelocityX(a, b, p) * nx + relativeVelocityY(a, b, p) * ny;
+                // a separated point may close its gap this step; an overlapping one bounces off
+                // or is pushed apart by a share of the overlap
+                float separation = m.getSeparation(c);
+                if (separation > 0.0f) {
+                    velocityBias[p] = -separation / dt;
+                } else {
+                    float bounce = vn < -RESTITUTION_THRESHOLD ? -restitution * vn : 0.0f;
+                    float push = BAUMGARTE / dt * Math.max(-separation - SLOP, 0.0f);
+                    velocityBias[p] = Math.max(bounce, push);
+                }
+
+                feature[p] = m.getFeature(c);
+                int cached = entry >= 0 ? cache.findPreviousPoint(entry, feature[p]) : -1;
+                normalImpulse[p] = cached >= 0 ? cache.getPreviousNormalImpulse(cached) : 0.0f;
+                tangentImpulse[p] = cached >= 0 ? cache.getPreviousTangentImpulse(cached) : 0.0f;
+            }
+            manifolds++;
+        }
+    }
+
+    /*
+     * Applies the impulses carried over from the last step to the bodies of a manifold.
+     * @param j - index of the manifold in the list given to prepare
+     */
+    public void warmStart(int j) {
+        float nx = normalX[j], ny = normalY[j];
+        float tx = ny, ty = -nx;
+        for (int p = pointStart[j], end = p + pointCount[j]; p < end; p++) {
+            float px = nx * normalImpulse[p] + tx * tangentImpulse[p];
+            float py = ny * normalImpulse[p] + ty * tangentImpulse[p];
+            applyImpulse(bodyA[j], bodyB[j], p, px, py);
+        }
+    }
+
+    /*
+     * Runs one velocity iteration over the contact points of a manifold:
+     * friction first, then the non-penetration constraint.
+     * @param j - index of the manifold in the list given to prepare
+     */
+    public void solve(int j) {
+        int a = bodyA[j], b = bodyB[j];
+        float nx = normalX[j], ny = normalY[j];
+        float tx = ny, ty = -nx;
+        for (int p = pointStart[j], end = p + pointCount[j]; p < end; p++) {
+            // friction, bounded by the normal impulse of this point
+            float vt = relativeVelocityX(a, b, p) * tx + relativeVelocityY(a, b, p) * ty;
+            float maxFriction = friction[j] * normalImpulse[p];
+            float newTangent = Math.max(-maxFriction, Math.min(tangentImpulse[p] - tangentMass[p] * vt, maxFriction));
+            float lambda = newTangent - tangentImpulse[p];
+            tangentImpulse[p] = newTangent;
+            applyImpulse(a, b, p, tx * lambda, ty * lambda);
+
+            // non-penetration, the accumulated impulse may only push
+            float vn = relativeVelocityX(a, b, p) * nx + relativeVelocityY(a, b, p) * ny;
+            float newNormal = Math.max(normalImpulse[p] - normalMass[p] * (vn - velocityBias[p]), 0.0f);
+            lambda = newNormal - normalImpulse[p];
+            normalImpulse[p] = newNormal;
+            applyImpulse(a, b, p, nx * lambda, ny * lambda);
+        }
+    }
+
+    /*
+     * Stores the accumulated impulses of this step in the cache for the next one.
+     */
+    public void storeImpulses() {
+        for (int j = 0; j < manifolds; j++) {
+            cache.beginEntry(pairKey[j]);
+            for (int p = pointStart[j], end = p + pointCount[j]; p < end; p++) {
+                cache.addPoint(feature[p], normalImpulse[p], tangentImpulse[p]);
+            }
+        }
+    }
+
+    /*
+     * @param j - index of the manifold in the list given to prepare
+     * @param point - index of the contact point within the manifold
+     * @return accumulated normal impulse of the point
+     */
+    public float getNormalImpulse(int j, int point) {
+        return normalImpulse[pointStart[j] + point];
+    }
+
+    /*
+     * @return the cache holding the impulses between steps
+     */
+    public ContactCache getCache() {
+        return cache;
+    }
+
+    // velocity of b relative to a at contact point p, angular velocities are in degrees
+    private float relativeVelocityX(int a, int b, int p) {
+        float wA = store.angularVelocity[a] * DEG_TO_RAD;
+        float wB = store.angularVelocity[b] * DEG_TO_RAD;
+        return store.velX[b] - wB * r2y[p] - store.velX[a] + wA * r1y[p];
+    }
+
+    private float relativeVelocityY(int a, int b, int p) {
+        float wA = store.angularVelocity[a] * DEG_TO_RAD;
+        float wB = store.angularVelocity[b] * DEG_TO_RAD;
+        return store.velY[b] + wB * r2x[p] - store.velY[a] - wA * r1x[p];
+    }
+
+    // applies impulse (px, py) at point p: -P to body a, +P to body b
+    private void applyImpulse(int a, int b, int p, float px, float py) {
+        float imA = store.invMass[a] * store.linearActive[a];
+        float imB = store.invMass[b] * store.linearActive[b];
+        float iiA = store.invInertia[a] * store.angularActive[a];
+        float iiB = store.invInertia[b] * store.angularActive[b];
+        store.velX[a] -= imA * px;
+        store.velY[a] -= imA * py;
+        store.angularVelocity[a] -= iiA * (r1x[p] * py - r1y[p] * px) * RAD_TO_DEG;
+        store.velX[b] += imB * px;
+        store.velY[b] += imB * py;
+        store.angularVelocity[b] += iiB * (r2x[p] * py - r2y[p] * px) * RAD_TO_DEG;
+    }
+
+    // only dynamic bodies respond to contacts, like in the PhysicsSystem impulse solver
+    private static float inverseMass(Rigidbody2D body) {
+        return body.getBodyType() == BodyType.DYNAMIC ? body.getInverseMass() : 0.0f;
+    }
+
+    private static float inverseInertia(Rigidbody2D body) {
+        return body.getBodyType() == BodyType.DYNAMIC && !body.isFixedRotation() ? body.getInverseInertia() : 0.0f;
+    }
+
+    private void ensureManifoldCapacity(int capacity) {
+        if (bodyA.length >= capacity) return;
+        int n = Math.max(capacity, bodyA.length * 2);
+        bodyA = Arrays.copyOf(bodyA, n);
+        bodyB = Arrays.copyOf(bodyB, n);
+        pairKey = Arrays.copyOf(pairKey, n);
+        normalX = Arrays.copyOf(normalX, n);
+        normalY = Arrays.copyOf(normalY, n);
+        friction = Arrays.copyOf(friction, n);
+        pointStart = Arrays.copyOf(pointStart, n);
+        pointCount = Arrays.copyOf(pointCount, n);
+    }
+
+    private void ensurePointCapacity(int capacity) {
+        if (feature.length >= capacity) return;
+        int n = Math.max(capacity, feature.length * 2);
+        feature = Arrays.copyOf(feature, n);
+        r1x = Arrays.copyOf(r1x, n);
+        r1y = Arrays.copyOf(r1y, n);
+        r2x = Arrays.copyOf(r2x, n);
+        r2y = Arrays.copyOf(r2y, n);
+        normalMass = Arrays.copyOf(normalMass, n);
+        tangentMass = Arrays.copyOf(tangentMass, n);
+        velocityBias = Arrays.copyOf(velocityBias, n);
+        normalImpulse = Arrays.copyOf(normalImpulse, n);
+        tangentImpulse = Arrays.copyOf(tangentImpulse, n);
+    }
+}
@@ -0,0 +1,341 @@
+package physics.collisions;
+
+import physics.broadphase.DynamicAABBTree;
+import physics.collisions.Rigidbody2D.BodyType;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+import util.DTUMath;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * ContinuousCollision keeps fast bodies from tunneling through static colliders.
+ * Bodies marked continuous are swept from where they were before the position update
+ * to where it moved them. The time of impact with each static collider along the way is
+ * found by conservative advancement: the body is moved forward by the distance it is
+ * guaranteed to travel without touching, until it is within a small gap of the collider.
+ * At the first impact the step is split: the body is moved to the impact, its velocity
+ * loses the approaching part (with restitution), and the rest of the step is swept again
+ * with the new velocity. Ghost bodies are stopped just inside the collider instead, so the
+ * next step reports the ghost contact. The sweep only translates; rotation stays as integrated.
+ * Static polygons and capsules are swept against with the GJK distance of their proxies.
+ * Author(s): Gabriel, Ahmed
+ */
+public class ContinuousCollision {
+    // gap left between a solid body and the collider it hits
+    private static final float TARGET_SEPARATION = 0.05f;
+    private static final float TOLERANCE = 0.025f;
+    // how far a ghost body is moved into the collider it hits
+    private static final float GHOST_OVERLAP = 0.1f;
+    private static final int MAX_ITERATIONS = 30;
+    private static final int MAX_SUBSTEPS = 4;
+
+    private final BodyStore store;
+    private Rigidbody2D[] bodies = new Rigidbody2D[16];
+    private float[] startX = new float[16], startY = new float[16];
+    private int count = 0;
+    private int impacts = 0;
+
+    // state of the sweep being run, read by the tree query
+    private DynamicAABBTree tree;
+    private Rigidbody2D sweepBody;
+    private float sweepX, sweepY, sweepDx, sweepDy, sweepRotation;
+    private float bestTime, bestNormalX, bestNormalY;
+    private Rigidbody2D bestOther;
+    // normal of the last distance computation, pointing from the other collider to the body
+    private float normalX, normalY;
+    private final DynamicAABBTree.QueryCallback sweepQuery = this::sweepAgainst;
+    private final ConvexProxy proxy = new ConvexProxy(), otherProxy = new ConvexProxy();
+    private final GJK gjk = new GJK();
+
+    /*
+     * @param store - the store holding the bodies that are swept
+     */
+    public ContinuousCollision(BodyStore store) {
+        this.store = store;
+    }
+
+    /*
+     * Remembers where the continuous bodies are before their positions are integrated.
+     * Only awake dynamic bodies with a circle or box collider are swept.
+     * @param all - all rigidbodies of the simulation
+     */
+    public void begin(List<Rigidbody2D> all) {
+        count = 0;
+        for (int i = 0; i < all.size(); i++) {
+            Rigidbody2D body = all.get(i);
+            if (!body.isContinuous() || body.getBodyType() != BodyType.DYNAMIC || !body.isAwake()) continue;
+            if (body.store != store || !(body.getCollider() instanceof Circle || body.getCollider() instanceof OBBCollider)) continue;
+            if (count == bodies.length) {
+                bodies = Arrays.copyOf(bodies, count * 2);
+                startX = Arrays.copyOf(startX, count * 2);
+                startY = Arrays.copyOf(startY, count * 2);
+            }
+            bodies[count] = body;
+            startX[count] = store.posX[body.storeIndex];
+            startY[count] = store.posY[body.storeIndex];
+            count++;
+        }
+    }
+
+    /*
+     * Sweeps every body remembered by begin from its start to its integrated position,
+     * and moves it back to the first impact with a static collider.
+     * @param tree - tree holding the colliders of the simulation
+     * @param dt - duration of the step in seconds
+     */
+    public void solve(DynamicAABBTree tree, float dt) {
+        this.tree = tree;
+        impacts = 0;
+        for (int k = 0; k < count; k++) {
+            Rigidbody2D body = bodies[k];
+            bodies[k] = null;
+            int s = body.storeIndex;
+            if (body.store != store) continue;
+            float x = startX[k], y = startY[k];
+            float dx = store.posX[s] - x, dy = store.posY[s] - y;
+            // a body moving less than its own half extent cannot pass through anything
+            float extent = minExtent(body.getCollider());
+            if (dx * dx + dy * dy <= extent * extent) continue;
+
+            boolean moved = false;
+            float timeLeft = dt;
+            for (int sub = 0; sub < MAX_SUBSTEPS; sub++) {
+                float time = sweep(body, x, y, dx, dy, store.rotation[s]);
+                if (time >= 1.0f) {
+                    x += dx;
+                    y += dy;
+                    break;
+                }
+                impacts++;
+                moved = true;
+                x += dx * time;
+                y += dy * time;
+                if (!body.getCollider().isSolid()) break;
+
+                // split the step: bounce off the impact and sweep the rest of it
+                float vn = store.velX[s] * bestNormalX + store.velY[s] * bestNormalY;
+                if (vn < 0.0f) {
+                    float restitution = Math.min(body.getRestitution(), bestOther.getRestitution());
+                    store.velX[s] -= (1.0f + restitution) * vn * bestNormalX;
+                    store.velY[s] -= (1.0f + restitution) * vn * bestNormalY;
+                }
+                timeLeft *= 1.0f - time;
+                dx = store.velX[s] * timeLeft;
+                dy = store.velY[s] * timeLeft;
+                if (dx * dx + dy * dy <= extent * extent) {
+                    x += dx;
+                    y += dy;
+                    break;
+                }
+            }
+            if (moved) {
+                store.posX[s] = x;
+                store.posY[s] = y;
+                body.pullFromStore();
+                body.synchCollisionTransforms();
+            }
+        }
+        this.tree = null;
+        sweepBody = null;
+        bestOther = null;
+    }
+
+    /*
+     * @return number of impacts found in the last step
+     */
+    public int getImpactCount() {
+        return impacts;
+    }
+
+    // finds the earliest impact of the body moving from (x, y) by (dx, dy), 1 if there is none
+    private float sweep(Rigidbody2D body, float x, float y, float dx, float dy, float rotation) {
+        sweepBody = body;
+        sweepX = x;
+        sweepY = y;
+        sweepDx = dx;
+        sweepDy = dy;
+        sweepRotation = rotation;
+        bestTime = 1.0f;
+        bestOther = null;
+
+        float extentX, extentY;
+        Collider collider = body.getCollider();
+        if (collider instanceof Circle circle) {
+            extentX = extentY = circle.getRadius();
+        } else {
+            OBBCollider box = (OBBCollider) collider;
+            float c = Math.abs(DTUMath.cosDeg(rotation));
+            float sn = Math.abs(DTUMath.sinDeg(rotation));
+            extentX = c * box.getHalfSize().x + sn * box.getHalfSize().y;
+            extentY = sn * box.getHalfSize().x + c * box.getHalfSize().y;
+        }
+        tree.query(Math.min(x, x + dx) - extentX, Math.min(y, y + dy) - extentY,
+                Math.max(x, x + dx) + extentX, Math.max(y, y + dy) + extentY, sweepQuery);
+        return bestTime;
+    }
+
+    private boolean sweepAgainst(int proxy) {
+        Collider other = tree.getCollider(proxy);
+        Rigidbody2D otherBody = other.getRigidbody();
+        Collider collider = sweepBody.getCollider();
+        if (otherBody == null || otherBody == sweepBody || otherBody.getBodyType() != BodyType.STATIC) return true;
+        if (!other.isSolid() || !collider.canCollideWith(other)) return true;
+        if (!ConvexProxy.supports(other)) return true;
+
+        float time = timeOfImpact(collider, other, collider.isSolid() ? TARGET_SEPARATION : -GHOST_OVERLAP);
+        if (time < bestTime) {
+            bestTime = time;
+            bestNormalX = normalX;
+            bestNormalY = normalY;
+            bestOther = otherBody;
+        }
+        return true;
+    }
+
+    // conservative advancement: the distance shrinks at most by the length of the motion
+    private float timeOfImpact(Collider collider, Collider other, float target) {
+        float length = (float) Math.sqrt(sweepDx * sweepDx + sweepDy * sweepDy);
+        float distance = distance(collider, sweepX, sweepY, other);
+        // already touching at the start, the discrete contact takes care of it
+        if (distance <= target + TOLERANCE) return 1.0f;
+        float time = 0.0f;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            time += (distance - target) / length;
+            if (time >= 1.0f) return 1.0f;
+            distance = distance(collider, sweepX + sweepDx * time, sweepY + sweepDy * time, other);
+            if (distance <= target + TOLERANCE) return time;
+        }
+        // a grazing sweep that did not converge stops where it got to, which never tunnels
+        return time;
+    }
+
+    /*
+     * Signed distance between the body's collider placed at (x, y) and the other collider,
+     * negative when they overlap. Box pairs use the largest separation along their axes,
+     * which is never more than the true distance. Sets normalX and normalY.
+     */
+    private float distance(Collider collider, float x, float y, Collider other) {
+        Rigidbody2D otherBody = other.getRigidbody();
+        float ox = otherBody.getPosition().x, oy = otherBody.getPosition().y;
+        if (!(other instanceof Circle || other instanceof OBBCollider)) {
+            return convexDistance(collider, x, y, other);
+        }
+        if (collider instanceof Circle circle) {
+            if (other instanceof Circle otherCircle) {
+                return circleCircle(x, y, circle.getRadius(), ox, oy, otherCircle.getRadius());
+            }
+            OBBCollider box = (OBBCollider) other;
+            return circleBox(x, y, circle.getRadius(), ox, oy, box, otherBody.getRotation());
+        }
+        OBBCollider box = (OBBCollider) collider;
+        if (other instanceof Circle otherCircle) {
+            float d = circleBox(ox, oy, otherCircle.getRadius(), x, y, box, sweepRotation);
+            normalX = -normalX;
+            normalY = -normalY;
+            return d;
+        }
+        return boxBox(x, y, box, sweepRotation, ox, oy, (OBBCollider) other, otherBody.getRotation());
+    }
+
+    // distance between the proxies' surfaces, overlapping ones get the EPA depth
+    private float convexDistance(Collider collider, float x, float y, Collider other) {
+        proxy.set(collider, x, y, sweepRotation);
+        otherProxy.set(other);
+        float radius = proxy.getRadius() + otherProxy.getRadius();
+        float distance = gjk.distance(proxy, otherProxy);
+        if (!gjk.isOverlapping()) {
+            normalX = (gjk.getPointAX() - gjk.getPointBX()) / distance;
+            normalY = (gjk.getPointAY() - gjk.getPointBY()) / distance;
+            return distance - radius;
+        }
+        gjk.penetration(proxy, otherProxy);
+        normalX = -gjk.getNormalX();
+        normalY = -gjk.getNormalY();
+        return -gjk.getDepth() - radius;
+    }
+
+    private float circleCircle(float x, float y, float radius, float ox, float oy, float otherRadius) {
+        float vx = x - ox, vy = y - oy;
+        float length = (float) Math.sqrt(vx * vx + vy * vy);
+        if (length > 1e-6f) {
+            normalX = vx / length;
+            normalY = vy / length;
+        } else {
+            normalX = 0.0f;
+            normalY = 1.0f;
+        }
+        return length - radius - otherRadius;
+    }
+
+    // normal points from the box to the circle
+    private float circleBox(float cx, float cy, float radius, float bx, float by, OBBCollider box, float rotation) {
+        float cos = DTUMath.cosDeg(rotation);
+        float sin = DTUMath.sinDeg(rotation);
+        float hx = box.getHalfSize().x, hy = box.getHalfSize().y;
+        float vx = cx - bx, vy = cy - by;
+        // circle center in the frame of the box
+        float lx = cos * vx + sin * vy;
+        float ly = -sin * vx + cos * vy;
+        float nx, ny, distance;
+        if (Math.abs(lx) <= hx && Math.abs(ly) <= hy) {
+            // center inside: push out through the closest face
+            float faceX = hx - Math.abs(lx), faceY = hy - Math.abs(ly);
+            if (faceX < faceY) {
+                nx = Math.signum(lx) >= 0 ? 1.0f : -1.0f;
+                ny = 0.0f;
+                distance = -faceX - radius;
+            } else {
+                nx = 0.0f;
+                ny = Math.signum(ly) >= 0 ? 1.0f : -1.0f;
+                distance = -faceY - radius;
+            }
+        } else {
+            float qx = lx - Math.max(-hx, Math.min(lx, hx));
+            float qy = ly - Math.max(-hy, Math.min(ly, hy));
+            float length = (float) Math.sqrt(qx * qx + qy * qy);
+            nx = qx / length;
+            ny = qy / length;
+            distance = length - radius;
+        }
+        normalX = cos * nx - sin * ny;
+        normalY = sin * nx + cos * ny;
+        return distance;
+    }
+
+    // largest separation along the four box axes, normal points from the other box to the body
+    private float boxBox(float x, float y, OBBCollider box, float rotation,
+                         float ox, float oy, OBBCollider other, float otherRotation) {
+        float cosA = DTUMath.cosDeg(rotation), sinA = DTUMath.sinDeg(rotation);
+        float cosB = DTUMath.cosDeg(otherRotation), sinB = DTUMath.sinDeg(otherRotation);
+        float best = -Float.MAX_VALUE;
+        for (int axis = 0; axis < 4; axis++) {
+            float cos = axis < 2 ? cosA : cosB, sin = axis < 2 ? sinA : sinB;
+            float nx = axis % 2 == 0 ? cos : -sin;
+            float ny = axis % 2 == 0 ? sin : cos;
+            float projA = box.getHalfSize().x * Math.abs(cosA * nx + sinA * ny)
+                    + box.getHalfSize().y * Math.abs(-sinA * nx + cosA * ny);
+            float projB = other.getHalfSize().x * Math.abs(cosB * nx + sinB * ny)
+                    + other.getHalfSize().y * Math.abs(-sinB * nx + cosB * ny);
+            float d = (x - ox) * nx + (y - oy) * ny;
+            float separation = Math.abs(d) - projA - projB;
+            if (separation > best) {
+                best = separation;
+                float sign = d >= 0.0f ? 1.0f : -1.0f;
+                normalX = nx * sign;
+                normalY = ny * sign;
+            }
+        }
+        return best;
+    }
+
+    private static float minExtent(Collider collider) {
+        if (collider instanceof Circle circle) {
+            return circle.getRadius();
+        }
+        OBBCollider box = (OBBCollider) collider;
+        return Math.min(box.getHalfSize().x, box.getHalfSize().y);
+    }
+}
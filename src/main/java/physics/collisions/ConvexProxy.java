@@ -0,0 +1,151 @@
+package physics.collisions;
+
+import org.joml.Vector2f;
+import physics.primitives.CapsuleCollider;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+import physics.primitives.PolygonCollider;
+import util.DTUMath;
+
+/*
+ * ConvexProxy describes any convex collider the way GJK sees it: a core of up to
+ * MAX_VERTICES counter-clockwise world-space points and a radius rounding the core.
+ * A circle is one point with its radius, a capsule the two centers of its caps with its
+ * radius, boxes and polygons are their corners without a radius. Filling a proxy does
+ * not allocate, so a CollisionScratch can keep two of them for the narrow phase.
+ * Author(s): Gabriel, Ahmed
+ */
+public class ConvexProxy {
+    public static final int MAX_VERTICES = PolygonCollider.MAX_VERTICES;
+
+    final float[] x = new float[MAX_VERTICES];
+    final float[] y = new float[MAX_VERTICES];
+    int count = 0;
+    float radius = 0.0f;
+
+    /*
+     * Fills the proxy with a collider at its body's position and rotation.
+     * @param collider - a circle, box, polygon or capsule collider
+     * @return false if the collider type has no convex proxy
+     */
+    public boolean set(Collider collider) {
+        Rigidbody2D body = collider.getRigidbody();
+        return set(collider, body.getPosition().x, body.getPosition().y, body.getRotation());
+    }
+
+    /*
+     * Fills the proxy with a collider placed at the given position and rotation instead of
+     * its body's, e.g. along a sweep.
+     * @param collider - a circle, box, polygon or capsule collider
+     * @param px - x coordinate of the body position
+     * @param py - y coordinate of the body position
+     * @param rotation - rotation of the body in degrees
+     * @return false if the collider type has no convex proxy
+     */
+    public boolean set(Collider collider, float px, float py, float rotation) {
+        if (collider instanceof Circle circle) {
+            count = 1;
+            x[0] = px;
+            y[0] = py;
+            radius = circle.getRadius();
+            return true;
+        }
+        float cos = DTUMath.cosDeg(rotation), sin = DTUMath.sinDeg(rotation);
+        if (collider instanceof OBBCollider box) {
+            // same corner order as OBBCollider.getVertices
+            Vector2f half = box.getHalfSize();
+            count = 0;
+            radius = 0.0f;
+            add(-half.x, -half.y, px, py, cos, sin);
+            add(half.x, -half.y, px, py, cos, sin);
+            add(half.x, half.y, px, py, cos, sin);
+            add(-half.x, half.y, px, py, cos, sin);
+            return true;
+        } else if (collider instanceof PolygonCollider polygon) {
+            count = 0;
+            radius = 0.0f;
+            for (Vector2f v : polygon.getLocalVertices()) {
+                add(v.x, v.y, px, py, cos, sin);
+            }
+            return count > 0;
+        } else if (collider instanceof CapsuleCollider capsule) {
+            count = 0;
+            radius = capsule.getRadius();
+            if (capsule.getHalfLength() == 0.0f) {
+                // a capsule without a straight part is a circle
+                add(0.0f, 0.0f, px, py, cos, sin);
+            } else {
+                add(0.0f, -capsule.getHalfLength(), px, py, cos, sin);
+                add(0.0f, capsule.getHalfLength(), px, py, cos, sin);
+            }
+            return true;
+        }
+        count = 0;
+        return false;
+    }
+
+    /*
+     * @param collider - any collider
+     * @return true if a proxy can be built for the collider type
+     */
+    public static boolean supports(Collider collider) {
+        return collider instanceof Circle || collider instanceof OBBCollider
+                || collider instanceof PolygonCollider || collider instanceof CapsuleCollider;
+    }
+
+    // adds a local point rotated and moved into world space
+    private void add(float localX, float localY, float px, float py, float cos, float sin) {
+        x[count] = localX * cos - localY * sin + px;
+        y[count] = localX * sin + localY * cos + py;
+        count++;
+    }
+
+    /*
+     * @param dx - x component of the direction
+     * @param dy - y component of the direction
+     * @return index of the core point furthest along the direction
+     */
+    public int support(float dx, float dy) {
+        int best = 0;
+        float bestDot = x[0] * dx + y[0] * dy;
+        for (int i = 1; i < count; i++) {
+            float dot = x[i] * dx + y[i] * dy;
+            if (dot > bestDot) {
+                bestDot = dot;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * @return number of core points
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /*
+     * @param i - index of a core point
+     * @return x coordinate of the point
+     */
+    public float getX(int i) {
+        return x[i];
+    }
+
+    /*
+     * @param i - index of a core point
+     * @return y coordinate of the point
+     */
+    public float getY(int i) {
+        return y[i];
+    }
+
+    /*
+     * @return radius rounding the core
+     */
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,421 @@
+package physics.collisions;
+
+/*
+ * GJK finds the distance between the cores of two ConvexProxies with the Gilbert-Johnson-Keerthi
+ * algorithm, and when the cores overlap, how deep they overlap with the Expanding Polytope
+ * Algorithm. Both work on the Minkowski difference A - B of the cores: the cores overlap when
+ * it contains the origin, their distance is the distance of the origin to it, and the face of
+ * it closest to the origin gives the penetration normal, pointing from A to B.
+ * The radii of the proxies are left to the caller. An instance keeps its simplex, polytope and
+ * results in fields, so it can be reused for every pair without allocating, but not shared
+ * between threads.
+ * Author(s): Gabriel, Ahmed
+ */
+public class GJK {
+    private static final int MAX_ITERATIONS = 20;
+    private static final int MAX_EPA_ITERATIONS = 24;
+    private static final int MAX_POLYTOPE = 3 + MAX_EPA_ITERATIONS;
+    // cores closer than this count as touching
+    private static final float OVERLAP_TOLERANCE = 1e-4f;
+    // EPA stops once a new support point improves the closest face by less than this share
+    private static final float EPA_TOLERANCE = 1e-4f;
+
+    // simplex vertices: the core points of A and B and their difference w = a - b
+    private final int[] indexA = new int[3], indexB = new int[3];
+    private final float[] wx = new float[3], wy = new float[3];
+    // barycentric weights of the simplex point closest to the origin
+    private final float[] weight = new float[3];
+    private int simplexCount;
+    private final int[] savedA = new int[3], savedB = new int[3];
+
+    // EPA polytope, counter-clockwise around the origin
+    private final int[] polyA = new int[MAX_POLYTOPE], polyB = new int[MAX_POLYTOPE];
+    private final float[] polyX = new float[MAX_POLYTOPE], polyY = new float[MAX_POLYTOPE];
+    private int polyCount;
+    private int closestEdge;
+    private float edgeNormalX, edgeNormalY, edgeDistance;
+
+    // results
+    private boolean overlapping;
+    private float distance, depth;
+    private float pointAX, pointAY, pointBX, pointBY;
+    private float normalX, normalY;
+    private int iterations;
+
+    /*
+     * Computes the distance between the cores of two proxies and their closest points.
+     * @param a - first proxy
+     * @param b - second proxy
+     * @return the distance, 0 when the cores overlap
+     */
+    public float distance(ConvexProxy a, ConvexProxy b) {
+        // start from a support point, an arbitrary pair of points may lie inside the difference
+        float startX = b.x[0] - a.x[0], startY = b.y[0] - a.y[0];
+        if (startX * startX + startY * startY < 1e-12f) {
+            startX = 1.0f;
+            startY = 0.0f;
+        }
+        simplexCount = 1;
+        setVertex(0, a, a.support(startX, startY), b, b.support(-startX, -startY));
+        weight[0] = 1.0f;
+        overlapping = false;
+        int iteration = 0;
+        while (iteration < MAX_ITERATIONS) {
+            int saved = simplexCount;
+            for (int i = 0; i < saved; i++) {
+                savedA[i] = indexA[i];
+                savedB[i] = indexB[i];
+            }
+            if (simplexCount == 2) {
+                solve2();
+            } else if (simplexCount == 3) {
+                solve3();
+            }
+            if (simplexCount == 3) {
+                overlapping = true;
+                break;
+            }
+
+            // search from the closest feature of the simplex towards the origin
+            float dx, dy;
+            if (simplexCount == 1) {
+                dx = -wx[0];
+                dy = -wy[0];
+            } else {
+                float ex = wx[1] - wx[0], ey = wy[1] - wy[0];
+                float side = ex * -wy[0] - ey * -wx[0];
+                if (side > 0.0f) {
+                    dx = -ey;
+                    dy = ex;
+                } else {
+                    dx = ey;
+                    dy = -ex;
+                }
+            }
+            if (dx * dx + dy * dy < 1e-12f) {
+                // the origin lies on the simplex, the cores touch
+                break;
+            }
+            iteration++;
+
+            int newA = a.support(dx, dy), newB = b.support(-dx, -dy);
+            boolean duplicate = false;
+            for (int i = 0; i < saved; i++) {
+                if (savedA[i] == newA && savedB[i] == newB) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            // no new vertex, so no progress is possible
+            if (duplicate) break;
+            setVertex(simplexCount++, a, newA, b, newB);
+        }
+        iterations = iteration;
+
+        pointAX = pointAY = pointBX = pointBY = 0.0f;
+        for (int i = 0; i < simplexCount; i++) {
+            pointAX += weight[i] * a.x[indexA[i]];
+            pointAY += weight[i] * a.y[indexA[i]];
+            pointBX += weight[i] * b.x[indexB[i]];
+            pointBY += weight[i] * b.y[indexB[i]];
+        }
+        float vx = pointAX - pointBX, vy = pointAY - pointBY;
+        distance = (float) Math.sqrt(vx * vx + vy * vy);
+        if (overlapping || distance < OVERLAP_TOLERANCE) {
+            overlapping = true;
+            distance = 0.0f;
+        }
+        return distance;
+    }
+
+    /*
+     * Finds how deep the cores overlap, after distance returned 0 for the same proxies. Sets the
+     * normal, the depth and the deepest points of each core, which are depth apart along the normal.
+     * @param a - first proxy
+     * @param b - second proxy
+     * @return false if the cores only touch without enclosing an area, e.g. two crossing segments;
+     *         the normal is then a guess perpendicular to the touching feature and the depth 0
+     */
+    public boolean penetration(ConvexProxy a, ConvexProxy b) {
+        if (!completeSimplex(a, b)) {
+            depth = 0.0f;
+            return false;
+        }
+        polyCount = 3;
+        // counter-clockwise, so the outward normal of edge i is the edge rotated clockwise
+        boolean flip = cross(wx[1] - wx[0], wy[1] - wy[0], wx[2] - wx[0], wy[2] - wy[0]) < 0.0f;
+        for (int i = 0; i < 3; i++) {
+            int j = flip && i > 0 ? 3 - i : i;
+            polyA[i] = indexA[j];
+            polyB[i] = indexB[j];
+            polyX[i] = wx[j];
+            polyY[i] = wy[j];
+        }
+
+        for (int iteration = 0; ; iteration++) {
+            findClosestEdge();
+            if (iteration == MAX_EPA_ITERATIONS || polyCount == MAX_POLYTOPE) break;
+            int newA = a.support(edgeNormalX, edgeNormalY), newB = b.support(-edgeNormalX, -edgeNormalY);
+            float px = a.x[newA] - b.x[newB], py = a.y[newA] - b.y[newB];
+            float supportDistance = px * edgeNormalX + py * edgeNormalY;
+            if (supportDistance - edgeDistance <= EPA_TOLERANCE * Math.max(1.0f, supportDistance)) break;
+            if (onPolytope(newA, newB)) break;
+            // insert the support point after the closest edge's first vertex
+            int at = closestEdge + 1;
+            for (int i = polyCount; i > at; i--) {
+                polyA[i] = polyA[i - 1];
+                polyB[i] = polyB[i - 1];
+                polyX[i] = polyX[i - 1];
+                polyY[i] = polyY[i - 1];
+            }
+            polyA[at] = newA;
+            polyB[at] = newB;
+            polyX[at] = px;
+            polyY[at] = py;
+            polyCount++;
+        }
+
+        normalX = edgeNormalX;
+        normalY = edgeNormalY;
+        depth = Math.max(edgeDistance, 0.0f);
+        // the points of A and B whose difference is the origin projected onto the closest edge
+        int i = closestEdge, j = (closestEdge + 1) % polyCount;
+        float ex = polyX[j] - polyX[i], ey = polyY[j] - polyY[i];
+        float lengthSquared = ex * ex + ey * ey;
+        float t = lengthSquared > 0.0f ? Math.max(0.0f, Math.min(1.0f, -(polyX[i] * ex + polyY[i] * ey) / lengthSquared)) : 0.0f;
+        pointAX = a.x[polyA[i]] + (a.x[polyA[j]] - a.x[polyA[i]]) * t;
+        pointAY = a.y[polyA[i]] + (a.y[polyA[j]] - a.y[polyA[i]]) * t;
+        pointBX = b.x[polyB[i]] + (b.x[polyB[j]] - b.x[polyB[i]]) * t;
+        pointBY = b.y[polyB[i]] + (b.y[polyB[j]] - b.y[polyB[i]]) * t;
+        return true;
+    }
+
+    // grows the simplex left by distance into a triangle with an area, false if the cores have none together
+    private boolean completeSimplex(ConvexProxy a, ConvexProxy b) {
+        if (simplexCount == 1) {
+            // any direction finds a second point unless the difference is a single point
+            if (!addSupport(a, b, 1.0f, 0.0f) && !addSupport(a, b, -1.0f, 0.0f)
+                    && !addSupport(a, b, 0.0f, 1.0f) && !addSupport(a, b, 0.0f, -1.0f)) {
+                normalX = 0.0f;
+                normalY = 1.0f;
+                return false;
+            }
+        }
+        if (simplexCount == 2) {
+            float ex = wx[1] - wx[0], ey = wy[1] - wy[0];
+            if (!addSupport(a, b, -ey, ex) && !addSupport(a, b, ey, -ex)) {
+                float length = (float) Math.sqrt(ex * ex + ey * ey);
+                normalX = length > 0.0f ? ey / length : 0.0f;
+                normalY = length > 0.0f ? -ex / length : 1.0f;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // adds the support point along (dx, dy) if it is new and not on the line of the simplex
+    private boolean addSupport(ConvexProxy a, ConvexProxy b, float dx, float dy) {
+        int newA = a.support(dx, dy), newB = b.support(-dx, -dy);
+        float px = a.x[newA] - b.x[newB], py = a.y[newA] - b.y[newB];
+        for (int i = 0; i < simplexCount; i++) {
+            if (indexA[i] == newA && indexB[i] == newB) return false;
+        }
+        if (simplexCount == 2) {
+            float area = cross(wx[1] - wx[0], wy[1] - wy[0], px - wx[0], py - wy[0]);
+            float ex = wx[1] - wx[0], ey = wy[1] - wy[0];
+            if (Math.abs(area) <= OVERLAP_TOLERANCE * (float) Math.sqrt(ex * ex + ey * ey)) return false;
+        }
+        setVertex(simplexCount++, a, newA, b, newB);
+        return true;
+    }
+
+    // true if the polytope already has the vertex, rounding can find it again as a support point
+    private boolean onPolytope(int newA, int newB) {
+        for (int i = 0; i < polyCount; i++) {
+            if (polyA[i] == newA && polyB[i] == newB) return true;
+        }
+        return false;
+    }
+
+    private void findClosestEdge() {
+        edgeDistance = Float.MAX_VALUE;
+        for (int i = 0; i < polyCount; i++) {
+            int j = (i + 1) % polyCount;
+            float ex = polyX[j] - polyX[i], ey = polyY[j] - polyY[i];
+            float length = (float) Math.sqrt(ex * ex + ey * ey);
+            if (length == 0.0f) continue;
+            float nx = ey / length, ny = -ex / length;
+            float d = nx * polyX[i] + ny * polyY[i];
+            if (d < edgeDistance) {
+                edgeDistance = d;
+                edgeNormalX = nx;
+                edgeNormalY = ny;
+                closestEdge = i;
+            }
+        }
+    }
+
+    private void setVertex(int slot, ConvexProxy a, int ia, ConvexProxy b, int ib) {
+        indexA[slot] = ia;
+        indexB[slot] = ib;
+        wx[slot] = a.x[ia] - b.x[ib];
+        wy[slot] = a.y[ia] - b.y[ib];
+    }
+
+    private void copyVertex(int from, int to) {
+        indexA[to] = indexA[from];
+        indexB[to] = indexB[from];
+        wx[to] = wx[from];
+        wy[to] = wy[from];
+    }
+
+    // reduces a segment to the feature closest to the origin
+    private void solve2() {
+        float ex = wx[1] - wx[0], ey = wy[1] - wy[0];
+        float d2 = -(wx[0] * ex + wy[0] * ey);
+        if (d2 <= 0.0f) {
+            weight[0] = 1.0f;
+            simplexCount = 1;
+            return;
+        }
+        float d1 = wx[1] * ex + wy[1] * ey;
+        if (d1 <= 0.0f) {
+            copyVertex(1, 0);
+            weight[0] = 1.0f;
+            simplexCount = 1;
+            return;
+        }
+        float inv = 1.0f / (d1 + d2);
+        weight[0] = d1 * inv;
+        weight[1] = d2 * inv;
+        simplexCount = 2;
+    }
+
+    // reduces a triangle to the feature closest to the origin, keeps it if it contains the origin
+    private void solve3() {
+        float e12x = wx[1] - wx[0], e12y = wy[1] - wy[0];
+        float d12_1 = wx[1] * e12x + wy[1] * e12y;
+        float d12_2 = -(wx[0] * e12x + wy[0] * e12y);
+        float e13x = wx[2] - wx[0], e13y = wy[2] - wy[0];
+        float d13_1 = wx[2] * e13x + wy[2] * e13y;
+        float d13_2 = -(wx[0] * e13x + wy[0] * e13y);
+        float e23x = wx[2] - wx[1], e23y = wy[2] - wy[1];
+        float d23_1 = wx[2] * e23x + wy[2] * e23y;
+        float d23_2 = -(wx[1] * e23x + wy[1] * e23y);
+
+        float n123 = cross(e12x, e12y, e13x, e13y);
+        float d123_1 = n123 * cross(wx[1], wy[1], wx[2], wy[2]);
+        float d123_2 = n123 * cross(wx[2], wy[2], wx[0], wy[0]);
+        float d123_3 = n123 * cross(wx[0], wy[0], wx[1], wy[1]);
+
+        if (d12_2 <= 0.0f && d13_2 <= 0.0f) {
+            weight[0] = 1.0f;
+            simplexCount = 1;
+        } else if (d12_1 > 0.0f && d12_2 > 0.0f && d123_3 <= 0.0f) {
+            float inv = 1.0f / (d12_1 + d12_2);
+            weight[0] = d12_1 * inv;
+            weight[1] = d12_2 * inv;
+            simplexCount = 2;
+        } else if (d13_1 > 0.0f && d13_2 > 0.0f && d123_2 <= 0.0f) {
+            float inv = 1.0f / (d13_1 + d13_2);
+            weight[0] = d13_1 * inv;
+            weight[1] = d13_2 * inv;
+            copyVertex(2, 1);
+            simplexCount = 2;
+        } else if (d12_1 <= 0.0f && d23_2 <= 0.0f) {
+            copyVertex(1, 0);
+            weight[0] = 1.0f;
+            simplexCount = 1;
+        } else if (d13_1 <= 0.0f && d23_1 <= 0.0f) {
+            copyVertex(2, 0);
+            weight[0] = 1.0f;
+            simplexCount = 1;
+        } else if (d23_1 > 0.0f && d23_2 > 0.0f && d123_1 <= 0.0f) {
+            float inv = 1.0f / (d23_1 + d23_2);
+            weight[1] = d23_1 * inv;
+            weight[0] = d23_2 * inv;
+            copyVertex(2, 0);
+            simplexCount = 2;
+        } else {
+            float inv = 1.0f / (d123_1 + d123_2 + d123_3);
+            weight[0] = d123_1 * inv;
+            weight[1] = d123_2 * inv;
+            weight[2] = d123_3 * inv;
+            simplexCount = 3;
+        }
+    }
+
+    private static float cross(float ax, float ay, float bx, float by) {
+        return ax * by - ay * bx;
+    }
+
+    /*
+     * @return true if the cores overlapped in the last distance call
+     */
+    public boolean isOverlapping() {
+        return overlapping;
+    }
+
+    /*
+     * @return distance between the cores found by the last distance call
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /*
+     * @return overlap of the cores found by the last penetration call
+     */
+    public float getDepth() {
+        return depth;
+    }
+
+    /*
+     * @return x component of the penetration normal, pointing from A to B
+     */
+    public float getNormalX() {
+        return normalX;
+    }
+
+    /*
+     * @return y component of the penetration normal, pointing from A to B
+     */
+    public float getNormalY() {
+        return normalY;
+    }
+
+    /*
+     * @return x coordinate of the closest or deepest point on the core of A
+     */
+    public float getPointAX() {
+        return pointAX;
+    }
+
+    /*
+     * @return y coordinate of the closest or deepest point on the core of A
+     */
+    public float getPointAY() {
+        return pointAY;
+    }
+
+    /*
+     * @return x coordinate of the closest or deepest point on the core of B
+     */
+    public float getPointBX() {
+        return pointBX;
+    }
+
+    /*
+     * @return y coordinate of the closest or deepest point on the core of B
+     */
+    public float getPointBY() {
+        return pointBY;
+    }
+
+    /*
+     * @return number of support points the last distance call added
+     */
+    public int getIterations() {
+        return iterations;
+    }
+}
@@ -4,14 +4,22 @@ import components.Component;
 import org.example.GameObject;
 import org.example.Transform;
 import org.joml.Vector2f;
+import physics.primitives.CapsuleCollider;
 import physics.primitives.Circle;
 import physics.primitives.Collider;
 import physics.primitives.OBBCollider;
+import physics.primitives.PolygonCollider;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /*
  * Rigidbody2D adds physics properties and behavior to GameObjects.
  * It supports dynamic, static, and kinematic bodies with forces,
  * velocity integration, collision synchronization, and inertia computation.
+ * While added to a PhysicsSystem the simulated state lives in its BodyStore and this
+ * component acts as a handle: setters write into the store and the fields below are
+ * refreshed from it after each step.
  * Author(s): Ilias, Gabriel, Mathias, Ahmed
  */
 public class Rigidbody2D extends Component {
@@ -37,11 +45,31 @@ public class Rigidbody2D extends Component {
     private float linearDamping = 0.05f;
     private float angularDamping = 0.15f;
     private boolean fixedRotation = false;
+    // swept against static colliders each step, so it cannot tunnel through them
+    private boolean continuous = false;
 
     private float torque = 0.0f;
     private float inertia = 1.0f;
     private float friction = 0.5f;
 
+    // sleeping bodies are not integrated and skip contacts with other resting bodies,
+    // BodyStore saves both together with the state in its arrays
+    transient boolean awake = true;
+    transient float sleepTime = 0.0f;
+
+    // slot in the BodyStore of the PhysicsSystem, or null/-1 when not simulated
+    transient BodyStore store = null;
+    transient int storeIndex = -1;
+    // id given by the BodyStore, unique within one PhysicsSystem
+    transient int bodyId = -1;
+
+    // range of this body's contacts in the ContactIndex, valid in the step it was built for
+    transient ContactIndex contactIndex = null;
+    transient int contactStep = -1;
+    transient int contactStart = -1;
+    transient int contactCount = 0;
+    transient List<ContactListener> contactListeners = null;
+
     @Override
     public void update(float dt) {
         // no-op: physics driven by physicsUpdate
@@ -56,16 +84,24 @@ public class Rigidbody2D extends Component {
         linearDamping = 0.05f;
         angularDamping = 0.05f;
 
-        // skip static or infinite-mass bodies
-        if (mass == 0.0f || bodyType == BodyType.STATIC) return;
+        // skip static, infinite-mass or sleeping bodies
+        if (mass == 0.0f || bodyType == BodyType.STATIC || !awake) return;
+
+        // a simulated body works on the state held by its store
+        if (store != null) {
+            pullFromStore();
+            pullAccumulators();
+        }
 
         // integrate linear forces
-        Vector2f accel = new Vector2f(forceAcc).mul(getInverseMass());
-        linearVelocity.add(new Vector2f(accel).mul(dt));
+        float invMass = getInverseMass();
+        linearVelocity.x += forceAcc.x * invMass * dt;
+        linearVelocity.y += forceAcc.y * invMass * dt;
         linearVelocity.mul(1.0f - linearDamping * dt);  // apply damping
 
         // integrate position
-        position.add(new Vector2f(linearVelocity).mul(dt));
+        position.x += linearVelocity.x * dt;
+        position.y += linearVelocity.y * dt;
 
         // integrate angular motion if allowed
         if (!fixedRotation) {
@@ -77,6 +113,9 @@ public class Rigidbody2D extends Component {
 
         synchCollisionTransforms();
         clearAccumulators();
+        if (store != null) {
+            pushToStore();
+        }
     }
 
     /*
@@ -94,13 +133,18 @@ public class Rigidbody2D extends Component {
     public void clearAccumulators() {
         forceAcc.zero();
         torque = 0.0f;
+        if (store != null) {
+            store.forceX[storeIndex] = 0.0f;
+            store.forceY[storeIndex] = 0.0f;
+            store.torque[storeIndex] = 0.0f;
+        }
     }
 
     /*
      * @return the accumulated torque for this body
      */
     public float getTorque() {
-        return torque;
+        return store != null ? store.torque[storeIndex] : torque;
     }
 
     /*
@@ -111,12 +155,43 @@ public class Rigidbody2D extends Component {
     }
 
     /*
+     * Changing the returned vector does not move a simulated body, use setPosition.
      * @return current position of the rigidbody
      */
     public Vector2f getPosition() {
         return position;
     }
 
+    /*
+     * Blends the position at the start of the last physics step with the current one,
+     * so rendering between steps moves smoothly. A body outside a PhysicsSystem
+     * gives its current position.
+     * @param alpha - blend factor from PhysicsSystem.getInterpolationAlpha, 0 is the previous state
+     * @param dest - vector receiving the blended position
+     * @return dest
+     */
+    public Vector2f getInterpolatedPosition(float alpha, Vector2f dest) {
+        if (store == null) {
+            return dest.set(position);
+        }
+        int i = storeIndex;
+        return dest.set(store.prevPosX[i] + (position.x - store.prevPosX[i]) * alpha,
+                store.prevPosY[i] + (position.y - store.prevPosY[i]) * alpha);
+    }
+
+    /*
+     * Blends the rotation at the start of the last physics step with the current one.
+     * @param alpha - blend factor from PhysicsSystem.getInterpolationAlpha, 0 is the previous state
+     * @return the blended rotation
+     */
+    public float getInterpolatedRotation(float alpha) {
+        if (store == null) {
+            return rotation;
+        }
+        float previous = store.prevRotation[storeIndex];
+        return previous + (rotation - previous) * alpha;
+    }
+
     public boolean isFixedRotation() {
         return fixedRotation;
     }
@@ -126,7 +201,12 @@ public class Rigidbody2D extends Component {
      * @param position - new position vector
      */
     public void setPosition(Vector2f position) {
+        setAwake(true);
         this.position.set(position);
+        if (store != null) {
+            store.posX[storeIndex] = this.position.x;
+            store.posY[storeIndex] = this.position.y;
+        }
     }
 
     /*
@@ -134,10 +214,16 @@ public class Rigidbody2D extends Component {
      * @param velocity - new velocity vector
      */
     public void setVelocity(Vector2f velocity) {
+        setAwake(true);
         this.linearVelocity.set(velocity);
+        if (store != null) {
+            store.velX[storeIndex] = linearVelocity.x;
+            store.velY[storeIndex] = linearVelocity.y;
+        }
     }
 
     /*
+     * Changing the returned vector does not change a simulated body, use setVelocity.
      * @return current linear velocity
      */
     public Vector2f getLinearVelocity() {
@@ -157,6 +243,9 @@ public class Rigidbody2D extends Component {
      */
     public void setRotation(float rotation) {
         this.rotation = rotation;
+        if (store != null) {
+            store.rotation[storeIndex] = rotation;
+        }
     }
 
     /*
@@ -184,6 +273,9 @@ public class Rigidbody2D extends Component {
      * @return copy of current force accumulator
      */
     public Vector2f getForceAccumulator() {
+        if (store != null) {
+            return new Vector2f(store.forceX[storeIndex], store.forceY[storeIndex]);
+        }
         return new Vector2f(forceAcc);
     }
 
@@ -193,6 +285,7 @@ public class Rigidbody2D extends Component {
      */
     public void setMass(float mass) {
         this.mass = mass;
+        pushProperties();
     }
 
     /*
@@ -200,7 +293,23 @@ public class Rigidbody2D extends Component {
      * @param force - force vector to apply
      */
     public void addForce(Vector2f force) {
-        forceAcc.add(force);
+        addForce(force.x, force.y);
+    }
+
+    /*
+     * Adds a force to the accumulator without needing a vector, for force generators.
+     * @param forceX - x component of the force
+     * @param forceY - y component of the force
+     */
+    public void addForce(float forceX, float forceY) {
+        setAwake(true);
+        if (store != null) {
+            store.forceX[storeIndex] += forceX;
+            store.forceY[storeIndex] += forceY;
+        } else {
+            forceAcc.x += forceX;
+            forceAcc.y += forceY;
+        }
     }
 
     /*
@@ -209,7 +318,7 @@ public class Rigidbody2D extends Component {
      */
     public void setRawTransform(Transform rawTransform) {
         this.rawTransform = rawTransform;
-        this.position.set(rawTransform.position);
+        setPosition(rawTransform.position);
     }
 
     /*
@@ -217,7 +326,12 @@ public class Rigidbody2D extends Component {
      * @param torque - torque value to add
      */
     public void addTorque(float torque) {
-        this.torque += torque;
+        setAwake(true);
+        if (store != null) {
+            store.torque[storeIndex] += torque;
+        } else {
+            this.torque += torque;
+        }
     }
 
     /*
@@ -239,17 +353,39 @@ public class Rigidbody2D extends Component {
      * @param angularVelocity - new angular velocity
      */
     public void setAngularVelocity(float angularVelocity) {
+        setAwake(true);
         this.angularVelocity = angularVelocity;
+        if (store != null) {
+            store.angularVelocity[storeIndex] = angularVelocity;
+        }
     }
 
 
     public void setFixedRotation(boolean x ) {
         this.fixedRotation = x;
+        pushProperties();
+    }
+
+    /*
+     * Turns continuous collision detection on or off. A continuous body is swept from its
+     * old to its new position every step and stopped at the first static collider in its
+     * way, so it cannot tunnel through thin geometry even when moving fast.
+     * @param continuous - true to sweep the body every step
+     */
+    public void setContinuous(boolean continuous) {
+        this.continuous = continuous;
+    }
+
+    /*
+     * @return true if the body is swept against static colliders every step
+     */
+    public boolean isContinuous() {
+        return continuous;
     }
 
     /*
      * Sets the collider and computes inertia based on shape.
-     * @param collider - Collider instance (OBB or Circle)
+     * @param collider - Collider instance (OBB, Circle, polygon or capsule)
      */
     public void setCollider(Collider collider) {
         this.collider = collider;
@@ -257,7 +393,12 @@ public class Rigidbody2D extends Component {
             inertia = (mass * (obb.getHalfSize().x*2 * obb.getHalfSize().y*2)) / 6; // rectangle inertia
         } else if (bodyType != BodyType.STATIC && collider instanceof Circle circ) {
             inertia = 0.05f * mass * circ.getRadius() * circ.getRadius(); // approximate disk
+        } else if (bodyType != BodyType.STATIC && collider instanceof PolygonCollider polygon) {
+            inertia = polygon.computeInertia(mass);
+        } else if (bodyType != BodyType.STATIC && collider instanceof CapsuleCollider capsule) {
+            inertia = capsule.computeInertia(mass);
         }
+        pushProperties();
     }
 
     /*
@@ -295,6 +436,7 @@ public class Rigidbody2D extends Component {
      */
     public void setBodyType(BodyType bodyType) {
         this.bodyType = bodyType;
+        pushProperties();
     }
 
     /*
@@ -304,10 +446,152 @@ public class Rigidbody2D extends Component {
         return inertia;
     }
 
+    /*
+     * @return id of the body within its PhysicsSystem, or -1 if it was never added to one
+     */
+    public int getBodyId() {
+        return bodyId;
+    }
+
+    /*
+     * @return false while the body sleeps
+     */
+    public boolean isAwake() {
+        return awake;
+    }
+
+    /*
+     * Wakes the body up or puts it to sleep. A sleeping body keeps its position,
+     * loses its velocity and accumulated forces, and is not integrated until woken
+     * by a contact, a force or a new position or velocity.
+     * @param awake - true to wake the body, false to put it to sleep
+     */
+    public void setAwake(boolean awake) {
+        if (awake) {
+            if (this.awake) return;
+            this.awake = true;
+            sleepTime = 0.0f;
+        } else {
+            this.awake = false;
+            sleepTime = 0.0f;
+            linearVelocity.zero();
+            angularVelocity = 0.0f;
+            forceAcc.zero();
+            torque = 0.0f;
+            if (store != null) {
+                pushToStore();
+                return;
+            }
+        }
+        pushProperties();
+    }
+
+    /*
+     * Adds dt to the time the body has been resting, or resets it when the body moves faster
+     * than the given tolerances.
+     * @param dt - duration of the step in seconds
+     * @param linearTolerance - speed below which the body counts as resting
+     * @param angularTolerance - angular speed below which the body counts as resting
+     * @return time in seconds the body has been resting
+     */
+    public float updateSleepTime(float dt, float linearTolerance, float angularTolerance) {
+        if (linearVelocity.lengthSquared() > linearTolerance * linearTolerance
+                || Math.abs(angularVelocity) > angularTolerance) {
+            sleepTime = 0.0f;
+        } else {
+            sleepTime += dt;
+        }
+        return sleepTime;
+    }
+
+    /*
+     * @return time in seconds the body has been resting
+     */
+    public float getSleepTime() {
+        return sleepTime;
+    }
+
+    /*
+     * Subscribes a listener to the contact events of this body.
+     * @param listener - the listener to add
+     */
+    public void addContactListener(ContactListener listener) {
+        if (contactListeners == null) {
+            contactListeners = new ArrayList<>();
+        }
+        contactListeners.add(listener);
+    }
+
+    /*
+     * @param listener - the listener to remove
+     */
+    public void removeContactListener(ContactListener listener) {
+        if (contactListeners != null) {
+            contactListeners.remove(listener);
+        }
+    }
+
+    /*
+     * @return true if a listener is subscribed to the contact events of this body
+     */
+    public boolean hasContactListeners() {
+        return contactListeners != null && !contactListeners.isEmpty();
+    }
+
     /*
      * @return associated GameObject
      */
     public GameObject getGameObject() {
         return gameObject;
     }
-}
\ No newline at end of file
+
+    /*
+     * Copies the whole state of this body into its store slot.
+     */
+    void pushToStore() {
+        int i = storeIndex;
+        store.posX[i] = position.x;
+        store.posY[i] = position.y;
+        store.velX[i] = linearVelocity.x;
+        store.velY[i] = linearVelocity.y;
+        store.forceX[i] = forceAcc.x;
+        store.forceY[i] = forceAcc.y;
+        store.rotation[i] = rotation;
+        store.angularVelocity[i] = angularVelocity;
+        store.torque[i] = torque;
+        pushProperties();
+    }
+
+    /*
+     * Copies mass, inertia and body type derived values into the store slot.
+     */
+    void pushProperties() {
+        if (store == null) return;
+        int i = storeIndex;
+        boolean integrated = bodyType == BodyType.DYNAMIC && mass != 0.0f && awake;
+        store.invMass[i] = getInverseMass();
+        store.invInertia[i] = getInverseInertia();
+        store.linearActive[i] = integrated ? 1.0f : 0.0f;
+        store.angularActive[i] = integrated && !fixedRotation ? 1.0f : 0.0f;
+    }
+
+    /*
+     * Refreshes position, velocity and rotation from the store slot.
+     */
+    void pullFromStore() {
+        int i = storeIndex;
+        position.set(store.posX[i], store.posY[i]);
+        linearVelocity.set(store.velX[i], store.velY[i]);
+        rotation = store.rotation[i];
+        angularVelocity = store.angularVelocity[i];
+    }
+
+    /*
+     * Copies the force and torque accumulators back from the store slot.
+     */
+    void pullAccumulators() {
+        int i = storeIndex;
+        forceAcc.set(store.forceX[i], store.forceY[i]);
+        torque = store.torque[i];
+    }
+}
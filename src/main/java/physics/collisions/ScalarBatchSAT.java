@@ -0,0 +1,58 @@
+package physics.collisions;
+
+/*
+ * ScalarBatchSAT tests the pairs of a BoxPairBatch one after the other, reading the packed
+ * arrays the same way the vectorized test does. It is the fallback when the Vector API is
+ * not available, and tests the pairs left over after the last full vector.
+ * Author(s): Gabriel, Ahmed
+ */
+public class ScalarBatchSAT implements BatchSAT {
+
+    @Override
+    public void test(BoxPairBatch batch) {
+        test(batch, 0, batch.size());
+    }
+
+    /*
+     * Tests the pairs in [from, to).
+     * @param batch - pairs of boxes to test
+     * @param from - first pair
+     * @param to - pair after the last one
+     */
+    static void test(BoxPairBatch batch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            float best = Float.MAX_VALUE, bestX = 0.0f, bestY = 0.0f;
+            boolean separated = false;
+            for (int axis = 0; axis < 4; axis++) {
+                float nx = batch.axisX[axis][i], ny = batch.axisY[axis][i];
+                float minA = Float.MAX_VALUE, maxA = -Float.MAX_VALUE;
+                float minB = Float.MAX_VALUE, maxB = -Float.MAX_VALUE;
+                for (int v = 0; v < 4; v++) {
+                    float projA = batch.vertAX[v][i] * nx + batch.vertAY[v][i] * ny;
+                    minA = Math.min(minA, projA);
+                    maxA = Math.max(maxA, projA);
+                    float projB = batch.vertBX[v][i] * nx + batch.vertBY[v][i] * ny;
+                    minB = Math.min(minB, projB);
+                    maxB = Math.max(maxB, projB);
+                }
+                separated |= maxA < minB || maxB < minA;
+                float overlap = Math.min(maxA, maxB) - Math.max(minA, minB);
+                if (overlap < best) {
+                    best = overlap;
+                    bestX = nx;
+                    bestY = ny;
+                }
+            }
+            // point the normal from box A to box B
+            float dot = (batch.centerBX[i] - batch.centerAX[i]) * bestX + (batch.centerBY[i] - batch.centerAY[i]) * bestY;
+            if (dot < 0.0f) {
+                bestX = -bestX;
+                bestY = -bestY;
+            }
+            batch.colliding[i] = !separated;
+            batch.overlap[i] = best;
+            batch.normalX[i] = bestX;
+            batch.normalY[i] = bestY;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package physics.forces;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+
+/*
+ * Drag slows Rigidbody2D objects down against their velocity, with a linear part for
+ * slow motion through thick media and a quadratic part that dominates at high speed:
+ * F = -v * (k1 + k2 * |v|).
+ * Author(s): Ahmed
+ */
+public class Drag implements ForceGenerator {
+    private float linear;
+    private float quadratic;
+
+    /*
+     * Constructs a Drag generator with the given coefficients.
+     * @param linear - k1, force per unit of speed
+     * @param quadratic - k2, force per unit of speed squared
+     */
+    public Drag(float linear, float quadratic) {
+        setCoefficients(linear, quadratic);
+    }
+
+    /*
+     * Changes the drag coefficients.
+     * @param linear - k1, force per unit of speed
+     * @param quadratic - k2, force per unit of speed squared
+     */
+    public void setCoefficients(float linear, float quadratic) {
+        if (linear < 0.0f || quadratic < 0.0f) {
+            throw new IllegalArgumentException("Drag coefficients cannot be negative: " + linear + ", " + quadratic);
+        }
+        this.linear = linear;
+        this.quadratic = quadratic;
+    }
+
+    /*
+     * Applies drag to the rigidbodies.
+     * @param bodies - the Rigidbody2Ds to slow down
+     * @param count - number of bodies
+     * @param dt - duration of the timestep (unused)
+     */
+    @Override
+    public void updateForces(Rigidbody2D[] bodies, int count, float dt) {
+        for (int i = 0; i < count; i++) {
+            Rigidbody2D rb = bodies[i];
+            if (!rb.isAwake()) continue;
+            Vector2f velocity = rb.getLinearVelocity();
+            float speed = (float) Math.sqrt(velocity.x * velocity.x + velocity.y * velocity.y);
+            if (speed == 0.0f) continue;
+            float scale = -(linear + quadratic * speed);
+            rb.addForce(velocity.x * scale, velocity.y * scale);
+        }
+    }
+
+    /*
+     * @return k1, force per unit of speed
+     */
+    public float getLinear() {
+        return linear;
+    }
+
+    /*
+     * @return k2, force per unit of speed squared
+     */
+    public float getQuadratic() {
+        return quadratic;
+    }
+}
@@ -4,14 +4,18 @@ import physics.collisions.Rigidbody2D;
 
 /*
  * ForceGenerator defines an interface for applying continuous forces
- * to Rigidbody2D objects over time.
+ * to Rigidbody2D objects over time. A generator is handed all bodies registered with it
+ * at once, so it can apply its force in one loop and advance its own state, like the
+ * timer of an explosion, once per step instead of once per body.
  * Author(s): Ahmed
  */
 public interface ForceGenerator {
     /*
-     * Applies or updates the force on the given rigidbody for the specified timestep.
-     * @param rb - the Rigidbody2D to update with force
+     * Applies or updates the force on the registered rigidbodies for the specified timestep.
+     * Bodies that are asleep should be skipped, adding a force to them would wake them up.
+     * @param bodies - the registered bodies, only the first count entries are valid
+     * @param count - number of registered bodies
      * @param dt - duration of the timestep in seconds
      */
-    void updateForce(Rigidbody2D rb, float dt);
+    void updateForces(Rigidbody2D[] bodies, int count, float dt);
 }
\ No newline at end of file
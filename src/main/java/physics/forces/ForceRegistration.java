@@ -2,36 +2,95 @@ package physics.forces;
 
 import physics.collisions.Rigidbody2D;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /*
- * ForceRegistration pairs a ForceGenerator with a Rigidbody2D
- * to track which forces apply to which bodies each update cycle.
+ * ForceRegistration holds every Rigidbody2D registered with one ForceGenerator
+ * in a packed array, so the generator can run over them in a single loop. Each body's
+ * slot is remembered, so adding and removing a body takes constant time.
  * Author(s): Ahmed
  */
 public class ForceRegistration {
-    public ForceGenerator fg;
-    public Rigidbody2D rb;
+    public final ForceGenerator fg;
+    private Rigidbody2D[] bodies = new Rigidbody2D[8];
+    private int count = 0;
+    private final Map<Rigidbody2D, Integer> slots = new IdentityHashMap<>();
 
     /*
-     * Constructs a registration linking a force generator to a rigidbody.
-     * @param fg - the ForceGenerator to register
-     * @param rb - the Rigidbody2D that will receive the force
+     * Constructs an empty registration for a force generator.
+     * @param fg - the ForceGenerator whose bodies are tracked
      */
-    public ForceRegistration(ForceGenerator fg, Rigidbody2D rb) {
+    public ForceRegistration(ForceGenerator fg) {
         this.fg = fg;
-        this.rb = rb;
     }
 
     /*
-     * Checks equality by comparing generator and body references.
-     * @param other - the object to compare with
-     * @return true if both ForceRegistration and Rigidbody2D match
+     * Adds a body unless it is already registered.
+     * @param rb - the Rigidbody2D that will receive the force
+     * @return true if the body was added
+     */
+    public boolean add(Rigidbody2D rb) {
+        if (slots.containsKey(rb)) return false;
+        if (count == bodies.length) {
+            Rigidbody2D[] grown = new Rigidbody2D[bodies.length * 2];
+            System.arraycopy(bodies, 0, grown, 0, count);
+            bodies = grown;
+        }
+        slots.put(rb, count);
+        bodies[count++] = rb;
+        return true;
+    }
+
+    /*
+     * Removes a body by moving the last body into its slot.
+     * @param rb - the Rigidbody2D to remove
+     * @return true if the body was registered
+     */
+    public boolean remove(Rigidbody2D rb) {
+        Integer slot = slots.remove(rb);
+        if (slot == null) return false;
+        Rigidbody2D last = bodies[--count];
+        bodies[count] = null;
+        if (last != rb) {
+            bodies[slot] = last;
+            slots.put(last, slot);
+        }
+        return true;
+    }
+
+    /*
+     * @param rb - the Rigidbody2D to look for
+     * @return true if the body is registered
      */
-    @Override
-    public boolean equals(Object other) {
-        if (other == null) return false;
-        if (other.getClass() != ForceRegistration.class) return false;
+    public boolean contains(Rigidbody2D rb) {
+        return slots.containsKey(rb);
+    }
+
+    /*
+     * Removes all bodies.
+     */
+    public void clear() {
+        Arrays.fill(bodies, 0, count, null);
+        count = 0;
+        slots.clear();
+    }
 
-        ForceRegistration fr = (ForceRegistration) other;
-        return fr.rb == this.rb && fr.fg == this.fg;
+    /*
+     * Lets the generator apply its force to all registered bodies.
+     * @param dt - duration of the timestep in seconds
+     */
+    public void updateForces(float dt) {
+        if (count > 0) {
+            fg.updateForces(bodies, count, dt);
+        }
+    }
+
+    /*
+     * @return number of registered bodies
+     */
+    public int getCount() {
+        return count;
     }
 }
@@ -3,15 +3,20 @@ package physics.forces;
 import physics.collisions.Rigidbody2D;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /*
  * ForceRegistry tracks associations between ForceGenerators and Rigidbody2D instances.
  * It allows registering, removing, and updating all forces each physics step.
+ * Bodies are grouped by generator, so every generator is called once per step with
+ * all of its bodies, in the order the generators were first registered.
  * Author(s): Ahmed
  */
 public class ForceRegistry {
-    private List<ForceRegistration> registry;
+    private final List<ForceRegistration> registry;
+    private final Map<ForceGenerator, ForceRegistration> byGenerator = new IdentityHashMap<>();
 
     /*
      * Constructs an empty ForceRegistry.
@@ -22,12 +27,18 @@ public class ForceRegistry {
 
     /*
      * Registers a force generator to apply to the specified rigidbody.
+     * Registering the same pair twice has no further effect.
      * @param rb - the Rigidbody2D to receive the force
      * @param fg - the ForceGenerator to register
      */
     public void add(Rigidbody2D rb, ForceGenerator fg) {
-        ForceRegistration fr = new ForceRegistration(fg, rb);
-        registry.add(fr);
+        ForceRegistration fr = byGenerator.get(fg);
+        if (fr == null) {
+            fr = new ForceRegistration(fg);
+            byGenerator.put(fg, fr);
+            registry.add(fr);
+        }
+        fr.add(rb);
     }
 
     /*
@@ -36,8 +47,50 @@ public class ForceRegistry {
      * @param fg - the ForceGenerator to remove
      */
     public void remove(Rigidbody2D rb, ForceGenerator fg) {
-        ForceRegistration fr = new ForceRegistration(fg, rb);
-        registry.remove(fr);
+        ForceRegistration fr = byGenerator.get(fg);
+        if (fr != null) {
+            fr.remove(rb);
+        }
+    }
+
+    /*
+     * Removes a rigidbody from every force generator, e.g. when it leaves the simulation.
+     * @param rb - the Rigidbody2D to remove
+     */
+    public void remove(Rigidbody2D rb) {
+        for (ForceRegistration fr : registry) {
+            fr.remove(rb);
+        }
+    }
+
+    /*
+     * Removes a force generator together with all of its bodies, e.g. a finished explosion.
+     * @param fg - the ForceGenerator to remove
+     */
+    public void removeGenerator(ForceGenerator fg) {
+        ForceRegistration fr = byGenerator.remove(fg);
+        if (fr != null) {
+            registry.remove(fr);
+        }
+    }
+
+    /*
+     * @param rb - the Rigidbody2D to look for
+     * @param fg - the ForceGenerator to look for
+     * @return true if the generator applies its force to the body
+     */
+    public boolean contains(Rigidbody2D rb, ForceGenerator fg) {
+        ForceRegistration fr = byGenerator.get(fg);
+        return fr != null && fr.contains(rb);
+    }
+
+    /*
+     * @param fg - the ForceGenerator to look for
+     * @return number of bodies the generator applies its force to
+     */
+    public int getBodyCount(ForceGenerator fg) {
+        ForceRegistration fr = byGenerator.get(fg);
+        return fr == null ? 0 : fr.getCount();
     }
 
     /*
@@ -45,6 +98,7 @@ public class ForceRegistry {
      */
     public void clearAll() {
         registry.clear();
+        byGenerator.clear();
     }
 
     /*
@@ -52,8 +106,8 @@ public class ForceRegistry {
      * @param dt - duration of the timestep in seconds
      */
     public void updateForces(float dt) {
-        for (ForceRegistration fr : registry) {
-            fr.fg.updateForce(fr.rb, dt);
+        for (int i = 0; i < registry.size(); i++) {
+            registry.get(i).updateForces(dt);
         }
     }
 
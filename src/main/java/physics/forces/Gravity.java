@@ -20,12 +20,19 @@ public class Gravity implements ForceGenerator {
     }
 
     /*
-     * Applies gravitational force to the rigidbody.
-     * @param rb - the Rigidbody2D to apply gravity to
+     * Applies gravitational force to the rigidbodies.
+     * @param bodies - the Rigidbody2Ds to apply gravity to
+     * @param count - number of bodies
      * @param dt - duration of the timestep (unused)
      */
     @Override
-    public void updateForce(Rigidbody2D rb, float dt) {
-        rb.addForce(new Vector2f(gravity).mul(rb.getMass()));
+    public void updateForces(Rigidbody2D[] bodies, int count, float dt) {
+        float gx = gravity.x, gy = gravity.y;
+        for (int i = 0; i < count; i++) {
+            Rigidbody2D rb = bodies[i];
+            if (!rb.isAwake()) continue;  // sleeping bodies do not gather forces
+            float mass = rb.getMass();
+            rb.addForce(gx * mass, gy * mass);
+        }
     }
 }
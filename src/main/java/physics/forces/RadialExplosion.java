@@ -0,0 +1,86 @@
+package physics.forces;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+
+/*
+ * RadialExplosion pushes Rigidbody2D objects away from a center for a short time. The force
+ * is strongest at the center and falls off linearly to nothing at the radius. The explosion
+ * keeps its own clock, which advances once per step however many bodies it pushes; once it
+ * is finished it applies nothing and can be removed from the ForceRegistry.
+ * Unlike the other generators it wakes sleeping bodies inside its radius, a blast should
+ * throw resting bodies around.
+ * Author(s): Ahmed
+ */
+public class RadialExplosion implements ForceGenerator {
+    private final Vector2f center;
+    private final float radius;
+    private final float strength;
+    private final float duration;
+    private float elapsed = 0.0f;
+
+    /*
+     * Constructs an explosion that starts at the next step.
+     * @param center - center of the explosion
+     * @param radius - distance at which the force has fallen to zero
+     * @param strength - force at the center
+     * @param duration - how long the explosion pushes, in seconds
+     */
+    public RadialExplosion(Vector2f center, float radius, float strength, float duration) {
+        if (radius <= 0.0f) {
+            throw new IllegalArgumentException("Explosion radius must be positive, was " + radius);
+        }
+        if (duration < 0.0f) {
+            throw new IllegalArgumentException("Explosion duration cannot be negative, was " + duration);
+        }
+        this.center = new Vector2f(center);
+        this.radius = radius;
+        this.strength = strength;
+        this.duration = duration;
+    }
+
+    /*
+     * Pushes the rigidbodies inside the radius away from the center and advances the clock.
+     * @param bodies - the Rigidbody2Ds the explosion may reach
+     * @param count - number of bodies
+     * @param dt - duration of the timestep in seconds
+     */
+    @Override
+    public void updateForces(Rigidbody2D[] bodies, int count, float dt) {
+        if (isFinished()) return;
+        float radiusSquared = radius * radius;
+        for (int i = 0; i < count; i++) {
+            Rigidbody2D rb = bodies[i];
+            Vector2f p = rb.getPosition();
+            float dx = p.x - center.x, dy = p.y - center.y;
+            float distanceSquared = dx * dx + dy * dy;
+            // a body exactly at the center has no direction to be pushed in
+            if (distanceSquared >= radiusSquared || distanceSquared == 0.0f) continue;
+            float distance = (float) Math.sqrt(distanceSquared);
+            float scale = strength * (1.0f - distance / radius) / distance;
+            rb.addForce(dx * scale, dy * scale);
+        }
+        elapsed += dt;
+    }
+
+    /*
+     * @return true once the explosion has pushed for its whole duration
+     */
+    public boolean isFinished() {
+        return elapsed >= duration;
+    }
+
+    /*
+     * @return center of the explosion, not to be modified
+     */
+    public Vector2f getCenter() {
+        return center;
+    }
+
+    /*
+     * @return distance at which the force has fallen to zero
+     */
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,90 @@
+package physics.forces;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+
+/*
+ * WindField pushes Rigidbody2D objects inside an axis-aligned region towards the wind's
+ * velocity: F = k * (wind - v). A body moving with the wind feels nothing, a body at rest
+ * is pushed along, so light and heavy bodies drift towards the same speed at different rates.
+ * Sleeping bodies in the region are woken as soon as the air moves differently from them, so
+ * changing the wind or the region, or registering a resting body, gets it moving again.
+ * Author(s): Ahmed
+ */
+public class WindField implements ForceGenerator {
+    private final Vector2f min = new Vector2f(-Float.MAX_VALUE, -Float.MAX_VALUE);
+    private final Vector2f max = new Vector2f(Float.MAX_VALUE, Float.MAX_VALUE);
+    private final Vector2f wind;
+    private float coefficient;
+
+    /*
+     * Constructs a wind blowing everywhere.
+     * @param wind - velocity of the air
+     * @param coefficient - k, force per unit of velocity difference
+     */
+    public WindField(Vector2f wind, float coefficient) {
+        this.wind = new Vector2f(wind);
+        this.coefficient = coefficient;
+    }
+
+    /*
+     * Constructs a wind blowing inside a region, e.g. a vent or a corridor.
+     * @param min - minimum corner of the region
+     * @param max - maximum corner of the region
+     * @param wind - velocity of the air
+     * @param coefficient - k, force per unit of velocity difference
+     */
+    public WindField(Vector2f min, Vector2f max, Vector2f wind, float coefficient) {
+        this(wind, coefficient);
+        setRegion(min, max);
+    }
+
+    /*
+     * Moves the region the wind blows in.
+     * @param min - minimum corner of the region
+     * @param max - maximum corner of the region
+     */
+    public void setRegion(Vector2f min, Vector2f max) {
+        if (min.x > max.x || min.y > max.y) {
+            throw new IllegalArgumentException("Wind region minimum " + min + " exceeds maximum " + max);
+        }
+        this.min.set(min);
+        this.max.set(max);
+    }
+
+    /*
+     * Changes the velocity of the air, e.g. for gusts.
+     * @param wind - velocity of the air
+     */
+    public void setWind(Vector2f wind) {
+        this.wind.set(wind);
+    }
+
+    /*
+     * @return velocity of the air, not to be modified
+     */
+    public Vector2f getWind() {
+        return wind;
+    }
+
+    /*
+     * Applies the wind to the rigidbodies whose position lies in the region.
+     * @param bodies - the Rigidbody2Ds the wind may reach
+     * @param count - number of bodies
+     * @param dt - duration of the timestep (unused)
+     */
+    @Override
+    public void updateForces(Rigidbody2D[] bodies, int count, float dt) {
+        float minX = min.x, minY = min.y, maxX = max.x, maxY = max.y;
+        for (int i = 0; i < count; i++) {
+            Rigidbody2D rb = bodies[i];
+            Vector2f p = rb.getPosition();
+            if (p.x < minX || p.x > maxX || p.y < minY || p.y > maxY) continue;
+            Vector2f velocity = rb.getLinearVelocity();
+            float forceX = (wind.x - velocity.x) * coefficient, forceY = (wind.y - velocity.y) * coefficient;
+            // addForce wakes the body, a sleeping one in still air is left asleep
+            if (!rb.isAwake() && forceX == 0.0f && forceY == 0.0f) continue;
+            rb.addForce(forceX, forceY);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package physics.headless;
+
+import org.joml.Vector2f;
+import physics.PhysicsSystem;
+import physics.broadphase.BroadPhase;
+import physics.broadphase.BruteForceBroadPhase;
+import physics.broadphase.DynamicTreeBroadPhase;
+import physics.broadphase.SweepAndPruneBroadPhase;
+import physics.broadphase.UniformGridBroadPhase;
+import physics.collisions.Rigidbody2D;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * HeadlessSimulation steps a PhysicsSystem filled by a SceneGenerator without opening a
+ * window or touching OpenGL, and measures every step: its time, the bytes the stepping
+ * thread allocated and the number of contacts. Its main method is the entry point for
+ * measuring physics on machines without a GPU, e.g.
+ *   java physics.headless.HeadlessSimulation snowballs=5000 platforms=300 steps=600 broadphase=sap
+ * Allocations made by solver threads are not counted, use threads=1 to see all of them.
+ * Author(s): Gabriel, Ahmed
+ */
+public class HeadlessSimulation {
+    private final PhysicsSystem system;
+    private final SceneGenerator generator;
+    private final List<Rigidbody2D> bodies;
+
+    /*
+     * Creates a system with the game's step and gravity and fills it with the generated scene.
+     * @param generator - configured scene generator
+     */
+    public HeadlessSimulation(SceneGenerator generator) {
+        this(generator, new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -200.0f)));
+    }
+
+    /*
+     * @param generator - configured scene generator
+     * @param system - the system to fill and step, configured by the caller
+     */
+    public HeadlessSimulation(SceneGenerator generator, PhysicsSystem system) {
+        this.system = system;
+        this.generator = generator;
+        this.bodies = generator.populate(system);
+    }
+
+    /*
+     * Runs one step: moves the kinematic bodies like scripts would, then steps the system.
+     */
+    public void step() {
+        generator.moveKinematicBodies(bodies, system.getFixedDeltaTime());
+        system.fixedUpdate();
+    }
+
+    /*
+     * Runs warmup steps without measuring, then measures the given number of steps.
+     * @param warmupSteps - steps run first so the JIT and the pools settle
+     * @param steps - measured steps, at least 1
+     * @return the measurements
+     */
+    public Stats run(int warmupSteps, int steps) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("At least one step must be measured: " + steps);
+        }
+        for (int i = 0; i < warmupSteps; i++) {
+            step();
+        }
+        com.sun.management.ThreadMXBean allocations = allocationCounter();
+        long thread = Thread.currentThread().threadId();
+        long[] times = new long[steps];
+        long allocated = 0, contacts = 0;
+        for (int i = 0; i < steps; i++) {
+            long bytes = allocations != null ? allocations.getThreadAllocatedBytes(thread) : 0;
+            long start = System.nanoTime();
+            step();
+            times[i] = System.nanoTime() - start;
+            if (allocations != null) {
+                allocated += allocations.getThreadAllocatedBytes(thread) - bytes;
+            }
+            contacts += system.getContactIndex().size();
+        }
+        Arrays.sort(times);
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        return new Stats(bodies.size(), steps, total / steps, times[steps / 2], times[Math.min(steps - 1, steps * 99 / 100)],
+                allocations != null ? allocated / steps : -1, (double) contacts / steps, system.getAwakeBodyCount());
+    }
+
+    // the per-thread allocation counter of HotSpot, or null where the JVM has none
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)
+                || !bean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    /*
+     * @return the simulated system
+     */
+    public PhysicsSystem getSystem() {
+        return system;
+    }
+
+    /*
+     * @return the generated bodies
+     */
+    public List<Rigidbody2D> getBodies() {
+        return bodies;
+    }
+
+    /*
+     * Stats are the measurements of a run, per measured step.
+     */
+    public static class Stats {
+        public final int bodies;
+        public final int steps;
+        public final long meanNanos;
+        public final long medianNanos;
+        public final long p99Nanos;
+        // -1 where the JVM cannot count allocations
+        public final long bytesPerStep;
+        public final double contactsPerStep;
+        public final int awakeBodies;
+
+        Stats(int bodies, int steps, long meanNanos, long medianNanos, long p99Nanos, long bytesPerStep,
+              double contactsPerStep, int awakeBodies) {
+            this.bodies = bodies;
+            this.steps = steps;
+            this.meanNanos = meanNanos;
+            this.medianNanos = medianNanos;
+            this.p99Nanos = p99Nanos;
+            this.bytesPerStep = bytesPerStep;
+            this.contactsPerStep = contactsPerStep;
+            this.awakeBodies = awakeBodies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d bodies, %d steps: mean %.3f ms, median %.3f ms, p99 %.3f ms, %d bytes/step, "
+                            + "%.1f contacts/step, %d awake", bodies, steps, meanNanos / 1e6, medianNanos / 1e6,
+                    p99Nanos / 1e6, bytesPerStep, contactsPerStep, awakeBodies);
+        }
+    }
+
+    /*
+     * Runs a generated scene and prints its stats. Arguments are key=value pairs:
+     * snowballs, platforms, seed, steps, warmup, threads, warm (warm starting, true/false),
+     * broadphase (tree, sap, grid or brute), static and kinematic (share of snowballs).
+     * @param args - the arguments
+     */
+    public static void main(String[] args) {
+        SceneGenerator generator = new SceneGenerator();
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -200.0f));
+        int steps = 600, warmup = 120;
+        float staticSnowballs = 0.0f, kinematicSnowballs = 0.0f;
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split < 0) {
+                throw new IllegalArgumentException("Arguments are key=value pairs: " + arg);
+            }
+            String key = arg.substring(0, split), value = arg.substring(split + 1);
+            switch (key) {
+                case "snowballs" -> generator.setSnowballs(Integer.parseInt(value));
+                case "platforms" -> generator.setPlatforms(Integer.parseInt(value));
+                case "seed" -> generator.setSeed(Long.parseLong(value));
+                case "steps" -> steps = Integer.parseInt(value);
+                case "warmup" -> warmup = Integer.parseInt(value);
+                case "threads" -> system.setSolverThreads(Integer.parseInt(value));
+                case "warm" -> system.setWarmStarting(Boolean.parseBoolean(value));
+                case "broadphase" -> system.setBroadPhase(createBroadPhase(value, system));
+                case "static" -> staticSnowballs = Float.parseFloat(value);
+                case "kinematic" -> kinematicSnowballs = Float.parseFloat(value);
+                default -> throw new IllegalArgumentException("Unknown argument: " + key);
+            }
+        }
+        generator.setSnowballMix(staticSnowballs, kinematicSnowballs);
+        HeadlessSimulation simulation = new HeadlessSimulation(generator, system);
+        System.out.println(simulation.run(warmup, steps));
+    }
+
+    private static BroadPhase createBroadPhase(String name, PhysicsSystem system) {
+        return switch (name) {
+            case "tree" -> new DynamicTreeBroadPhase(system.getColliderTree());
+            case "sap" -> new SweepAndPruneBroadPhase();
+            case "grid" -> new UniformGridBroadPhase();
+            case "brute" -> new BruteForceBroadPhase();
+            default -> throw new IllegalArgumentException("Unknown broad phase: " + name);
+        };
+    }
+}
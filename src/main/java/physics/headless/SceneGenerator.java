@@ -0,0 +1,229 @@
+package physics.headless;
+
+import org.joml.Vector2f;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.collisions.Rigidbody2D.BodyType;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * SceneGenerator fills a PhysicsSystem with a procedural scene like the game's, without
+ * GameObjects or rendering: a ground, M box platforms spread over the world and N snowballs
+ * (circles) thrown between them. The share of static and kinematic bodies is configurable
+ * for both kinds, the rest are dynamic. The same seed always gives the same scene.
+ * Author(s): Gabriel, Ahmed
+ */
+public class SceneGenerator {
+    private int snowballs = 1000;
+    private int platforms = 100;
+    private long seed = 1;
+    private float worldWidth = 2000.0f;
+    private float worldHeight = 1200.0f;
+    private float minRadius = 4.0f, maxRadius = 10.0f;
+    private float maxSpeed = 150.0f;
+    private boolean rotatedPlatforms = true;
+    // fractions of each kind that are static or kinematic, the rest is dynamic
+    private float staticSnowballs = 0.0f, kinematicSnowballs = 0.0f;
+    private float staticPlatforms = 0.9f, kinematicPlatforms = 0.1f;
+    private final Vector2f next = new Vector2f();
+
+    /*
+     * Creates the scene and adds it to the system, the ground first, then the platforms,
+     * then the snowballs.
+     * @param system - the system receiving the bodies
+     * @return the created bodies, in the order they were added
+     */
+    public List<Rigidbody2D> populate(PhysicsSystem system) {
+        Random random = new Random(seed);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        bodies.add(createBody(system, new Vector2f(worldWidth * 0.5f, -10.0f), 0.0f,
+                new OBBCollider(new Vector2f(worldWidth, 20.0f)), BodyType.STATIC));
+
+        for (int i = 0; i < platforms; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * worldWidth, 40.0f + random.nextFloat() * (worldHeight - 40.0f));
+            Vector2f size = new Vector2f(40.0f + random.nextFloat() * 160.0f, 10.0f + random.nextFloat() * 20.0f);
+            float rotation = rotatedPlatforms ? random.nextFloat() * 40.0f - 20.0f : 0.0f;
+            BodyType type = pickType(random, staticPlatforms, kinematicPlatforms);
+            Rigidbody2D platform = createBody(system, position, rotation, new OBBCollider(size), type);
+            if (type == BodyType.KINEMATIC) {
+                platform.setVelocity(new Vector2f(random.nextFloat() * 2.0f - 1.0f, random.nextFloat() * 2.0f - 1.0f)
+                        .mul(maxSpeed * 0.5f));
+            }
+            bodies.add(platform);
+        }
+
+        for (int i = 0; i < snowballs; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * worldWidth, random.nextFloat() * worldHeight);
+            float radius = minRadius + random.nextFloat() * (maxRadius - minRadius);
+            BodyType type = pickType(random, staticSnowballs, kinematicSnowballs);
+            Rigidbody2D snowball = createBody(system, position, 0.0f, new Circle(radius), type);
+            if (type != BodyType.STATIC) {
+                snowball.setVelocity(new Vector2f(random.nextFloat() * 2.0f - 1.0f, random.nextFloat() * 2.0f - 1.0f)
+                        .mul(maxSpeed));
+            }
+            bodies.add(snowball);
+        }
+        return bodies;
+    }
+
+    private static BodyType pickType(Random random, float staticFraction, float kinematicFraction) {
+        float r = random.nextFloat();
+        if (r < staticFraction) return BodyType.STATIC;
+        if (r < staticFraction + kinematicFraction) return BodyType.KINEMATIC;
+        return BodyType.DYNAMIC;
+    }
+
+    private static Rigidbody2D createBody(PhysicsSystem system, Vector2f position, float rotation, Collider collider,
+                                          BodyType type) {
+        Rigidbody2D rb = new Rigidbody2D();
+        rb.setBodyType(type);
+        rb.setPosition(position);
+        rb.setRotation(rotation);
+        rb.setRestitution(0.3f);
+        collider.setRigidbody(rb);
+        rb.setCollider(collider);
+        system.addRigidbody(rb);
+        return rb;
+    }
+
+    /*
+     * Moves kinematic bodies by their velocity, the way gameplay scripts move moving platforms,
+     * and turns them around at the edges of the world.
+     * @param bodies - bodies returned by populate
+     * @param dt - duration of the step in seconds
+     */
+    public void moveKinematicBodies(List<Rigidbody2D> bodies, float dt) {
+        for (Rigidbody2D body : bodies) {
+            if (body.getBodyType() != BodyType.KINEMATIC) continue;
+            Vector2f velocity = body.getLinearVelocity();
+            next.set(velocity).mul(dt).add(body.getPosition());
+            if (next.x < 0.0f || next.x > worldWidth || next.y < 0.0f || next.y > worldHeight) {
+                body.setVelocity(next.set(velocity).negate());
+            } else {
+                body.setPosition(next);
+            }
+        }
+    }
+
+    /*
+     * @param snowballs - number of circles
+     */
+    public void setSnowballs(int snowballs) {
+        if (snowballs < 0) {
+            throw new IllegalArgumentException("Snowball count cannot be negative: " + snowballs);
+        }
+        this.snowballs = snowballs;
+    }
+
+    /*
+     * @param platforms - number of boxes, not counting the ground
+     */
+    public void setPlatforms(int platforms) {
+        if (platforms < 0) {
+            throw new IllegalArgumentException("Platform count cannot be negative: " + platforms);
+        }
+        this.platforms = platforms;
+    }
+
+    /*
+     * Sets which share of the snowballs are static or kinematic; the rest are dynamic.
+     * @param staticFraction - share of static snowballs, 0 to 1
+     * @param kinematicFraction - share of kinematic snowballs, 0 to 1 - staticFraction
+     */
+    public void setSnowballMix(float staticFraction, float kinematicFraction) {
+        checkMix(staticFraction, kinematicFraction);
+        this.staticSnowballs = staticFraction;
+        this.kinematicSnowballs = kinematicFraction;
+    }
+
+    /*
+     * Sets which share of the platforms are static or kinematic; the rest are dynamic.
+     * @param staticFraction - share of static platforms, 0 to 1
+     * @param kinematicFraction - share of kinematic platforms, 0 to 1 - staticFraction
+     */
+    public void setPlatformMix(float staticFraction, float kinematicFraction) {
+        checkMix(staticFraction, kinematicFraction);
+        this.staticPlatforms = staticFraction;
+        this.kinematicPlatforms = kinematicFraction;
+    }
+
+    private static void checkMix(float staticFraction, float kinematicFraction) {
+        if (staticFraction < 0.0f || kinematicFraction < 0.0f || staticFraction + kinematicFraction > 1.0f) {
+            throw new IllegalArgumentException("Body type fractions must be positive and add up to at most 1: "
+                    + staticFraction + ", " + kinematicFraction);
+        }
+    }
+
+    /*
+     * @param seed - seed of the random scene
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /*
+     * Sets the area the platforms and snowballs are spread over, starting at the origin.
+     * @param width - width in world units
+     * @param height - height in world units
+     */
+    public void setWorldSize(float width, float height) {
+        if (width <= 0.0f || height <= 0.0f) {
+            throw new IllegalArgumentException("World size must be positive: " + width + " x " + height);
+        }
+        this.worldWidth = width;
+        this.worldHeight = height;
+    }
+
+    /*
+     * @param minRadius - smallest snowball radius
+     * @param maxRadius - largest snowball radius
+     */
+    public void setSnowballRadius(float minRadius, float maxRadius) {
+        if (minRadius <= 0.0f || maxRadius < minRadius) {
+            throw new IllegalArgumentException("Invalid snowball radius range: " + minRadius + " to " + maxRadius);
+        }
+        this.minRadius = minRadius;
+        this.maxRadius = maxRadius;
+    }
+
+    /*
+     * @param maxSpeed - largest start speed of a snowball per axis, platforms move at half of it
+     */
+    public void setMaxSpeed(float maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    /*
+     * @param rotatedPlatforms - true to tilt platforms by up to 20 degrees
+     */
+    public void setRotatedPlatforms(boolean rotatedPlatforms) {
+        this.rotatedPlatforms = rotatedPlatforms;
+    }
+
+    /*
+     * @return number of circles
+     */
+    public int getSnowballs() {
+        return snowballs;
+    }
+
+    /*
+     * @return number of boxes, not counting the ground
+     */
+    public int getPlatforms() {
+        return platforms;
+    }
+
+    /*
+     * @return seed of the random scene
+     */
+    public long getSeed() {
+        return seed;
+    }
+}
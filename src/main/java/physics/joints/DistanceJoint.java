@@ -0,0 +1,140 @@
+package physics.joints;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+import util.DTUMath;
+
+/*
+ * DistanceJoint keeps its two anchors at a fixed distance, like a massless rod: it pushes
+ * as well as pulls. The bodies are free to rotate around the anchors.
+ * Author(s): Gabriel, Ahmed
+ */
+public class DistanceJoint extends Joint {
+    private float length = 1.0f;
+
+    // axis from anchor A to anchor B, its effective mass and bias
+    private transient float ux, uy, mass, bias;
+    private transient float impulse = 0.0f;
+
+    /*
+     * Constructs a joint without bodies. Used by the scene loader.
+     */
+    public DistanceJoint() {
+    }
+
+    /*
+     * Constructs a joint that keeps the anchors at their current distance.
+     * @param bodyA - first body
+     * @param anchor - anchor point in the local frame of bodyA
+     * @param bodyB - second body, or null to hold bodyA at a distance of a world point
+     * @param connectedAnchor - anchor point in the local frame of bodyB, or in the world without bodyB
+     */
+    public DistanceJoint(Rigidbody2D bodyA, Vector2f anchor, Rigidbody2D bodyB, Vector2f connectedAnchor) {
+        super(bodyA, anchor, bodyB, connectedAnchor);
+        this.length = anchorDistance(bodyA, anchor, bodyB, connectedAnchor);
+    }
+
+    /*
+     * Constructs a joint that keeps the anchors at a given distance.
+     * @param bodyA - first body
+     * @param anchor - anchor point in the local frame of bodyA
+     * @param bodyB - second body, or null to hold bodyA at a distance of a world point
+     * @param connectedAnchor - anchor point in the local frame of bodyB, or in the world without bodyB
+     * @param length - distance between the anchors, at least 0
+     */
+    public DistanceJoint(Rigidbody2D bodyA, Vector2f anchor, Rigidbody2D bodyB, Vector2f connectedAnchor, float length) {
+        super(bodyA, anchor, bodyB, connectedAnchor);
+        setLength(length);
+    }
+
+    @Override
+    protected void prepareConstraints(float dt) {
+        bias = biasRate * (computeAxis() - length);
+    }
+
+    @Override
+    protected void solvePositions() {
+        float distance = computeAxis();
+        float lambda = -mass * (distance - length) * POSITION_CORRECTION;
+        applyPositionImpulse(lambda * ux, lambda * uy);
+    }
+
+    // sets the axis and effective mass from the current anchors, returns their distance
+    private float computeAxis() {
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        if (distance > 1e-6f) {
+            ux = dx / distance;
+            uy = dy / distance;
+        } else {
+            // anchors on top of each other, push them apart along any axis
+            ux = 1.0f;
+            uy = 0.0f;
+        }
+        float crA = rAx * uy - rAy * ux;
+        float crB = rBx * uy - rBy * ux;
+        float k = invMassA + invMassB + invInertiaA * crA * crA + invInertiaB * crB * crB;
+        mass = k > 0.0f ? 1.0f / k : 0.0f;
+        return distance;
+    }
+
+    @Override
+    protected void applyWarmStart() {
+        applyImpulse(impulse * ux, impulse * uy);
+    }
+
+    @Override
+    protected void solveVelocities() {
+        float dvx = vBx - wB * rBy - vAx + wA * rAy;
+        float dvy = vBy + wB * rBx - vAy - wA * rAx;
+        float lambda = -mass * (dvx * ux + dvy * uy + bias);
+        impulse += lambda;
+        applyImpulse(lambda * ux, lambda * uy);
+    }
+
+    @Override
+    protected void resetImpulses() {
+        impulse = 0.0f;
+    }
+
+    @Override
+    public void saveImpulses(float[] buffer, int offset) {
+        buffer[offset] = impulse;
+    }
+
+    @Override
+    public void restoreImpulses(float[] buffer, int offset) {
+        impulse = buffer[offset];
+    }
+
+    /*
+     * @return distance kept between the anchors
+     */
+    public float getLength() {
+        return length;
+    }
+
+    /*
+     * @param length - distance kept between the anchors, at least 0
+     */
+    public void setLength(float length) {
+        if (length < 0.0f) {
+            throw new IllegalArgumentException("Joint length cannot be negative: " + length);
+        }
+        this.length = length;
+    }
+
+    /*
+     * @return distance between the world positions of two anchors
+     */
+    private static float anchorDistance(Rigidbody2D bodyA, Vector2f anchor, Rigidbody2D bodyB, Vector2f connectedAnchor) {
+        Vector2f a = toWorld(bodyA, anchor);
+        Vector2f b = bodyB != null ? toWorld(bodyB, connectedAnchor) : new Vector2f(connectedAnchor);
+        return a.distance(b);
+    }
+
+    private static Vector2f toWorld(Rigidbody2D body, Vector2f local) {
+        float cos = DTUMath.cosDeg(body.getRotation()), sin = DTUMath.sinDeg(body.getRotation());
+        return new Vector2f(body.getPosition().x + cos * local.x - sin * local.y,
+                body.getPosition().y + sin * local.x + cos * local.y);
+    }
+}
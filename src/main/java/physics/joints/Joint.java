@@ -0,0 +1,403 @@
+package physics.joints;
+
+import components.Component;
+import imGui.ImGuiCommonFun;
+import imgui.ImGui;
+import org.example.GameEngineManager;
+import org.example.GameObject;
+import org.joml.Vector2f;
+import physics.PhysicsSystem;
+import physics.collisions.BodyStore;
+import physics.collisions.Rigidbody2D;
+import scenes.Scene;
+import util.DTUMath;
+
+/*
+ * Joint is the base of the constraints between two rigidbodies, or between a rigidbody and
+ * a fixed point in the world. Joints are solved by the PhysicsSystem in the same sequential
+ * impulse iterations as the contacts and join their bodies into one island. Like the contact
+ * solver they keep their accumulated impulses and apply them again at the start of the next
+ * step when warm starting is on. The drift that is left is removed from the positions after
+ * the bodies moved. Only without warm starting do the velocities also get a share of the
+ * drift as a bias, carried into the next step by warm starting it would make long chains
+ * with heavy loads oscillate.
+ * As a component the joint belongs to the game object of its first body and finds the second
+ * one by the name of its game object, so it is saved and loaded with the scene.
+ * Author(s): Gabriel, Ahmed
+ */
+public abstract class Joint extends Component {
+    protected static final float DEG_TO_RAD = (float) (Math.PI / 180.0);
+    protected static final float RAD_TO_DEG = (float) (180.0 / Math.PI);
+    // share of the position error removed after each step
+    protected static final float POSITION_CORRECTION = 0.2f;
+    // share of the position error turned into velocity per step without warm starting
+    private static final float BAUMGARTE = 0.2f;
+    // floats per joint written by saveImpulses
+    public static final int IMPULSE_STRIDE = 4;
+
+    // game object holding the second body, null to pin the joint to the world
+    private String connectedObject = null;
+    // anchor point in the local frame of the first body
+    private Vector2f anchor = new Vector2f();
+    // anchor point in the local frame of the second body, or in the world without one
+    private Vector2f connectedAnchor = new Vector2f();
+    // false to let the two bodies pass through each other, like links of a chain
+    private boolean collideConnected = false;
+
+    private transient Rigidbody2D bodyA = null;
+    private transient Rigidbody2D bodyB = null;
+
+    // solver state of the current step, velocities of the two bodies while solving
+    private transient BodyStore store = null;
+    private transient int indexA = -1, indexB = -1;
+    protected transient float invMassA, invMassB, invInertiaA, invInertiaB;
+    // velocity bias per unit of position error, 0 with warm starting
+    protected transient float biasRate;
+    // rotations in degrees like in the store, anchors relative to the body centers and the separation of the anchors, B minus A
+    protected transient float angleA, angleB, rAx, rAy, rBx, rBy, dx, dy;
+    // positions of the body centers, the one of B is the world anchor without a second body
+    private transient float cAx, cAy, cBx, cBy;
+    // angular velocities in radians per second
+    protected transient float vAx, vAy, wA, vBx, vBy, wB;
+    // velocity the forces of the step will add, when they are not yet integrated
+    private transient float pendingAx, pendingAy, pendingWA, pendingBx, pendingBy, pendingWB;
+
+    /*
+     * Constructs a joint without bodies. Used by the scene loader, the bodies are found in start.
+     */
+    protected Joint() {
+    }
+
+    /*
+     * Constructs a joint between two bodies.
+     * @param bodyA - first body
+     * @param anchor - anchor point in the local frame of bodyA
+     * @param bodyB - second body, or null to pin bodyA to the world
+     * @param connectedAnchor - anchor point in the local frame of bodyB, or in the world without bodyB
+     */
+    protected Joint(Rigidbody2D bodyA, Vector2f anchor, Rigidbody2D bodyB, Vector2f connectedAnchor) {
+        if (bodyA == null) {
+            throw new IllegalArgumentException("A joint needs at least its first body");
+        }
+        if (bodyA == bodyB) {
+            throw new IllegalArgumentException("A joint cannot connect a body to itself");
+        }
+        this.bodyA = bodyA;
+        this.bodyB = bodyB;
+        this.anchor.set(anchor);
+        this.connectedAnchor.set(connectedAnchor);
+        if (bodyB != null && bodyB.gameObject != null) {
+            connectedObject = bodyB.gameObject.getName();
+        }
+    }
+
+    /*
+     * Finds the bodies of a joint loaded from a save and adds it to the running simulation.
+     */
+    @Override
+    public void start() {
+        if (bodyA == null && gameObject != null) {
+            bodyA = gameObject.getComponent(Rigidbody2D.class);
+        }
+        if (bodyB == null && connectedObject != null && !connectedObject.isEmpty()) {
+            Scene scene = GameEngineManager.getCurrentScene();
+            GameObject other = scene != null ? scene.getGameObjectByName(connectedObject) : null;
+            if (other == null) {
+                throw new IllegalStateException("Joint is connected to a missing game object: " + connectedObject);
+            }
+            bodyB = other.getComponent(Rigidbody2D.class);
+        }
+        if (bodyA == null) {
+            throw new IllegalStateException("Joint on " + (gameObject != null ? gameObject.getName() : "nothing")
+                    + " has no Rigidbody2D to act on");
+        }
+        PhysicsSystem physicsSystem = GameEngineManager.getPhysicsSystem();
+        if (physicsSystem != null) {
+            physicsSystem.addJoint(this);
+        }
+    }
+
+    @Override
+    public void update(float dt) {
+        // no-op: joints are solved by the PhysicsSystem
+    }
+
+    /*
+     * Shows the fields shared by all joints before the ones of the joint type.
+     */
+    @Override
+    public void imGui() {
+        ImGui.text("Connected to " + (connectedObject != null ? connectedObject : "the world"));
+        anchor = ImGuiCommonFun.vec2fAdder("anchor-x", "anchor-y", anchor.x, anchor.y, 5);
+        connectedAnchor = ImGuiCommonFun.vec2fAdder("connectedAnchor-x", "connectedAnchor-y",
+                connectedAnchor.x, connectedAnchor.y, 5);
+        collideConnected = ImGuiCommonFun.checkBox("collideConnected", collideConnected);
+        super.imGui();
+    }
+
+    /*
+     * Looks up the bodies in the store and computes the anchors of this step, then lets the
+     * joint type build its constraints. Called by the PhysicsSystem once per step, before solving.
+     * @param store - store holding the bodies of the joint
+     * @param dt - length of the step
+     * @param warmStarting - false to start from zero impulses
+     * @param forcesPending - true if the forces of the step are not yet integrated into the velocities
+     */
+    public final void prepare(BodyStore store, float dt, boolean warmStarting, boolean forcesPending) {
+        this.store = store;
+        indexA = store.indexOf(bodyA);
+        indexB = bodyB != null ? store.indexOf(bodyB) : -1;
+
+        invMassA = store.getSolverInverseMass(indexA);
+        invInertiaA = store.getSolverInverseInertia(indexA);
+        invMassB = indexB >= 0 ? store.getSolverInverseMass(indexB) : 0.0f;
+        invInertiaB = indexB >= 0 ? store.getSolverInverseInertia(indexB) : 0.0f;
+        readPositions();
+
+        pendingAx = pendingAy = pendingWA = pendingBx = pendingBy = pendingWB = 0.0f;
+        if (forcesPending) {
+            pendingAx = store.getForceX(indexA) * invMassA * dt;
+            pendingAy = store.getForceY(indexA) * invMassA * dt;
+            pendingWA = store.getTorque(indexA) * invInertiaA * dt * DEG_TO_RAD;
+            if (indexB >= 0) {
+                pendingBx = store.getForceX(indexB) * invMassB * dt;
+                pendingBy = store.getForceY(indexB) * invMassB * dt;
+                pendingWB = store.getTorque(indexB) * invInertiaB * dt * DEG_TO_RAD;
+            }
+        }
+
+        biasRate = warmStarting ? 0.0f : BAUMGARTE / dt;
+        if (!warmStarting) resetImpulses();
+        prepareConstraints(dt);
+    }
+
+    /*
+     * Moves the bodies of the joint towards satisfying it again, after they were moved by
+     * their velocities. Called by the PhysicsSystem once per step, after prepare.
+     */
+    public final void correctPositions() {
+        readPositions();
+        solvePositions();
+        if (invMassA != 0.0f) {
+            store.setPosition(indexA, cAx, cAy, angleA);
+        }
+        if (indexB >= 0 && invMassB != 0.0f) {
+            store.setPosition(indexB, cBx, cBy, angleB);
+        }
+    }
+
+    // reads the positions of the bodies and computes the anchors from them
+    private void readPositions() {
+        cAx = store.getPositionX(indexA);
+        cAy = store.getPositionY(indexA);
+        angleA = store.getRotation(indexA);
+        if (indexB >= 0) {
+            cBx = store.getPositionX(indexB);
+            cBy = store.getPositionY(indexB);
+            angleB = store.getRotation(indexB);
+        } else {
+            cBx = connectedAnchor.x;
+            cBy = connectedAnchor.y;
+            angleB = 0.0f;
+        }
+        updateAnchors();
+    }
+
+    // rotates the anchors with DTUMath so that lockstep peers compute the same bits
+    private void updateAnchors() {
+        float cos = DTUMath.cosDeg(angleA), sin = DTUMath.sinDeg(angleA);
+        rAx = cos * anchor.x - sin * anchor.y;
+        rAy = sin * anchor.x + cos * anchor.y;
+        if (indexB >= 0) {
+            cos = DTUMath.cosDeg(angleB);
+            sin = DTUMath.sinDeg(angleB);
+            rBx = cos * connectedAnchor.x - sin * connectedAnchor.y;
+            rBy = sin * connectedAnchor.x + cos * connectedAnchor.y;
+        } else {
+            rBx = 0.0f;
+            rBy = 0.0f;
+        }
+        dx = cBx + rBx - cAx - rAx;
+        dy = cBy + rBy - cAy - rAy;
+    }
+
+    /*
+     * Applies the impulses kept from the last step.
+     */
+    public final void warmStart() {
+        readVelocities();
+        applyWarmStart();
+        writeVelocities();
+    }
+
+    /*
+     * Runs one impulse iteration of the joint.
+     */
+    public final void solve() {
+        readVelocities();
+        solveVelocities();
+        writeVelocities();
+    }
+
+    private void readVelocities() {
+        vAx = store.getVelocityX(indexA) + pendingAx;
+        vAy = store.getVelocityY(indexA) + pendingAy;
+        wA = store.getAngularVelocity(indexA) * DEG_TO_RAD + pendingWA;
+        if (indexB >= 0) {
+            vBx = store.getVelocityX(indexB) + pendingBx;
+            vBy = store.getVelocityY(indexB) + pendingBy;
+            wB = store.getAngularVelocity(indexB) * DEG_TO_RAD + pendingWB;
+        } else {
+            vBx = vBy = wB = 0.0f;
+        }
+    }
+
+    // only bodies the solver moves are written, the others keep their exact velocity
+    private void writeVelocities() {
+        if (invMassA != 0.0f) {
+            store.setVelocity(indexA, vAx - pendingAx, vAy - pendingAy, (wA - pendingWA) * RAD_TO_DEG);
+        }
+        if (indexB >= 0 && invMassB != 0.0f) {
+            store.setVelocity(indexB, vBx - pendingBx, vBy - pendingBy, (wB - pendingWB) * RAD_TO_DEG);
+        }
+    }
+
+    /*
+     * Applies a linear impulse at the anchors, pushing B along it and A against it.
+     * @param px - impulse along x
+     * @param py - impulse along y
+     */
+    protected void applyImpulse(float px, float py) {
+        vAx -= invMassA * px;
+        vAy -= invMassA * py;
+        wA -= invInertiaA * (rAx * py - rAy * px);
+        vBx += invMassB * px;
+        vBy += invMassB * py;
+        wB += invInertiaB * (rBx * py - rBy * px);
+    }
+
+    /*
+     * Moves the bodies by a position impulse, the position counterpart of applyImpulse,
+     * and updates the anchors for the next correction.
+     * @param px - impulse along x, pushing B along it and A against it
+     * @param py - impulse along y
+     * @param angularA - angular impulse taken from A
+     * @param angularB - angular impulse given to B
+     */
+    protected void applyPositionImpulse(float px, float py, float angularA, float angularB) {
+        cAx -= invMassA * px;
+        cAy -= invMassA * py;
+        angleA -= invInertiaA * angularA * RAD_TO_DEG;
+        cBx += invMassB * px;
+        cBy += invMassB * py;
+        angleB += invInertiaB * angularB * RAD_TO_DEG;
+        updateAnchors();
+    }
+
+    /*
+     * Applies a linear position impulse at the anchors.
+     * @param px - impulse along x
+     * @param py - impulse along y
+     */
+    protected void applyPositionImpulse(float px, float py) {
+        applyPositionImpulse(px, py, rAx * py - rAy * px, rBx * py - rBy * px);
+    }
+
+    /*
+     * Builds the constraints of this step from the anchors, masses and velocities set by prepare.
+     * @param dt - length of the step
+     */
+    protected abstract void prepareConstraints(float dt);
+
+    /*
+     * Applies the accumulated impulses to the velocities.
+     */
+    protected abstract void applyWarmStart();
+
+    /*
+     * Solves the constraints once against the velocities, accumulating the impulses.
+     */
+    protected abstract void solveVelocities();
+
+    /*
+     * Removes part of the position error of the joint with applyPositionImpulse, using the
+     * anchors and the separation dx, dy of the moved bodies.
+     */
+    protected abstract void solvePositions();
+
+    /*
+     * Forgets the accumulated impulses.
+     */
+    protected abstract void resetImpulses();
+
+    /*
+     * Writes the accumulated impulses, used by snapshots to rewind warm starting with the bodies.
+     * @param buffer - receives the impulses
+     * @param offset - first of the IMPULSE_STRIDE floats written
+     */
+    public abstract void saveImpulses(float[] buffer, int offset);
+
+    /*
+     * Puts back the impulses written by saveImpulses.
+     * @param buffer - impulses written by saveImpulses
+     * @param offset - first of the IMPULSE_STRIDE floats read
+     */
+    public abstract void restoreImpulses(float[] buffer, int offset);
+
+    /*
+     * @return the first body
+     */
+    public Rigidbody2D getBodyA() {
+        return bodyA;
+    }
+
+    /*
+     * @return the second body, or null when the joint is pinned to the world
+     */
+    public Rigidbody2D getBodyB() {
+        return bodyB;
+    }
+
+    /*
+     * @return anchor point in the local frame of the first body, not to be modified
+     */
+    public Vector2f getAnchor() {
+        return anchor;
+    }
+
+    /*
+     * @return anchor point in the local frame of the second body, or in the world without one, not to be modified
+     */
+    public Vector2f getConnectedAnchor() {
+        return connectedAnchor;
+    }
+
+    /*
+     * @return name of the game object holding the second body, or null
+     */
+    public String getConnectedObject() {
+        return connectedObject;
+    }
+
+    /*
+     * @return true if the two bodies of the joint collide with each other
+     */
+    public boolean isCollideConnected() {
+        return collideConnected;
+    }
+
+    /*
+     * @param collideConnected - true to let the two bodies of the joint collide with each other
+     */
+    public void setCollideConnected(boolean collideConnected) {
+        this.collideConnected = collideConnected;
+    }
+
+    /*
+     * Connects the joint to the body of another game object when it starts.
+     * @param connectedObject - name of the game object, or null for the world
+     */
+    public void setConnectedObject(String connectedObject) {
+        this.connectedObject = connectedObject;
+    }
+}
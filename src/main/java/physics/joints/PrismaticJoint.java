@@ -0,0 +1,254 @@
+package physics.joints;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+import util.DTUMath;
+
+/*
+ * PrismaticJoint lets the second body slide along an axis fixed in the first body, or in the
+ * world, without rotating relative to it, like a piston or an elevator on a rail. The travel
+ * along the axis can be limited to a range.
+ * Author(s): Gabriel, Ahmed
+ */
+public class PrismaticJoint extends Joint {
+    // sliding direction in the local frame of the first body, or in the world without a second body
+    private Vector2f axis = new Vector2f(1, 0);
+    // rotation of the second body relative to the first one that the joint keeps, in degrees
+    private float referenceAngle = 0.0f;
+    private boolean limitEnabled = false;
+    private float lowerTranslation = 0.0f;
+    private float upperTranslation = 0.0f;
+
+    // world axis and its normal, lever arms of both and the effective masses of this step
+    private transient float ax, ay, px, py;
+    private transient float s1, s2, a1, a2;
+    private transient float perpMass, angularMass, axialMass;
+    private transient float perpBias, angularBias, lowerBias, upperBias;
+    private transient float perpImpulse = 0.0f, angularImpulse = 0.0f;
+    // accumulated limit impulses, both at least 0
+    private transient float lowerImpulse = 0.0f, upperImpulse = 0.0f;
+
+    /*
+     * Constructs a joint without bodies. Used by the scene loader.
+     */
+    public PrismaticJoint() {
+    }
+
+    /*
+     * Constructs a slider keeping the bodies at their current relative rotation.
+     * @param bodyA - first body, carrying the axis
+     * @param anchor - anchor point in the local frame of bodyA
+     * @param bodyB - sliding body, or null to slide bodyA along a world axis
+     * @param connectedAnchor - anchor point in the local frame of bodyB, or in the world without bodyB
+     * @param axis - sliding direction in the local frame of bodyA, or in the world without bodyB, not zero
+     */
+    public PrismaticJoint(Rigidbody2D bodyA, Vector2f anchor, Rigidbody2D bodyB, Vector2f connectedAnchor, Vector2f axis) {
+        super(bodyA, anchor, bodyB, connectedAnchor);
+        setAxis(axis);
+        referenceAngle = (bodyB != null ? bodyB.getRotation() : 0.0f) - bodyA.getRotation();
+    }
+
+    @Override
+    protected void prepareConstraints(float dt) {
+        computeAxes();
+        perpBias = biasRate * (px * dx + py * dy);
+        angularBias = biasRate * (angleB - angleA - referenceAngle) * DEG_TO_RAD;
+        if (limitEnabled) {
+            // like a slack rope, a limit not yet reached lets the gap close within this step
+            float translation = ax * dx + ay * dy;
+            float lower = translation - lowerTranslation;
+            lowerBias = lower > 0.0f ? lower / dt : biasRate * lower;
+            float upper = upperTranslation - translation;
+            upperBias = upper > 0.0f ? upper / dt : biasRate * upper;
+        } else {
+            lowerImpulse = 0.0f;
+            upperImpulse = 0.0f;
+        }
+    }
+
+    @Override
+    protected void solvePositions() {
+        computeAxes();
+        float lambda = -angularMass * (angleB - angleA - referenceAngle) * DEG_TO_RAD * POSITION_CORRECTION;
+        applyPositionImpulse(0.0f, 0.0f, lambda, lambda);
+
+        computeAxes();
+        lambda = -perpMass * (px * dx + py * dy) * POSITION_CORRECTION;
+        applyPositionImpulse(lambda * px, lambda * py, lambda * s1, lambda * s2);
+
+        if (limitEnabled) {
+            computeAxes();
+            float translation = ax * dx + ay * dy;
+            float error = translation < lowerTranslation ? translation - lowerTranslation
+                    : translation > upperTranslation ? translation - upperTranslation : 0.0f;
+            lambda = -axialMass * error * POSITION_CORRECTION;
+            applyPositionImpulse(lambda * ax, lambda * ay, lambda * a1, lambda * a2);
+        }
+    }
+
+    // sets the world axis, the lever arms and the effective masses from the current anchors
+    private void computeAxes() {
+        // the axis turns with the first body, without a second body it is fixed in the world
+        boolean connected = getBodyB() != null;
+        float angle = connected ? angleA : 0.0f;
+        float cos = DTUMath.cosDeg(angle), sin = DTUMath.sinDeg(angle);
+        ax = cos * axis.x - sin * axis.y;
+        ay = sin * axis.x + cos * axis.y;
+        px = -ay;
+        py = ax;
+
+        // turning the first body swings the axis, so its lever arms reach to the second anchor
+        float lx = connected ? dx + rAx : rAx, ly = connected ? dy + rAy : rAy;
+        s1 = lx * py - ly * px;
+        s2 = rBx * py - rBy * px;
+        a1 = lx * ay - ly * ax;
+        a2 = rBx * ay - rBy * ax;
+        float invMass = invMassA + invMassB;
+        float k = invMass + invInertiaA * s1 * s1 + invInertiaB * s2 * s2;
+        perpMass = k > 0.0f ? 1.0f / k : 0.0f;
+        k = invInertiaA + invInertiaB;
+        angularMass = k > 0.0f ? 1.0f / k : 0.0f;
+        k = invMass + invInertiaA * a1 * a1 + invInertiaB * a2 * a2;
+        axialMass = k > 0.0f ? 1.0f / k : 0.0f;
+    }
+
+    // applies an impulse along a direction with the given lever arms on both bodies
+    private void applyLinear(float lambda, float nx, float ny, float armA, float armB) {
+        vAx -= invMassA * lambda * nx;
+        vAy -= invMassA * lambda * ny;
+        wA -= invInertiaA * lambda * armA;
+        vBx += invMassB * lambda * nx;
+        vBy += invMassB * lambda * ny;
+        wB += invInertiaB * lambda * armB;
+    }
+
+    private void applyAngular(float lambda) {
+        wA -= invInertiaA * lambda;
+        wB += invInertiaB * lambda;
+    }
+
+    @Override
+    protected void applyWarmStart() {
+        applyLinear(perpImpulse, px, py, s1, s2);
+        applyAngular(angularImpulse);
+        applyLinear(lowerImpulse - upperImpulse, ax, ay, a1, a2);
+    }
+
+    @Override
+    protected void solveVelocities() {
+        if (limitEnabled) {
+            float axial = ax * (vBx - vAx) + ay * (vBy - vAy) + a2 * wB - a1 * wA;
+            float lambda = -axialMass * (axial + lowerBias);
+            float previous = lowerImpulse;
+            lowerImpulse = Math.max(0.0f, lowerImpulse + lambda);
+            applyLinear(lowerImpulse - previous, ax, ay, a1, a2);
+
+            axial = ax * (vBx - vAx) + ay * (vBy - vAy) + a2 * wB - a1 * wA;
+            lambda = -axialMass * (-axial + upperBias);
+            previous = upperImpulse;
+            upperImpulse = Math.max(0.0f, upperImpulse + lambda);
+            applyLinear(-(upperImpulse - previous), ax, ay, a1, a2);
+        }
+
+        float angular = wB - wA;
+        float lambda = -angularMass * (angular + angularBias);
+        angularImpulse += lambda;
+        applyAngular(lambda);
+
+        float perp = px * (vBx - vAx) + py * (vBy - vAy) + s2 * wB - s1 * wA;
+        lambda = -perpMass * (perp + perpBias);
+        perpImpulse += lambda;
+        applyLinear(lambda, px, py, s1, s2);
+    }
+
+    @Override
+    protected void resetImpulses() {
+        perpImpulse = 0.0f;
+        angularImpulse = 0.0f;
+        lowerImpulse = 0.0f;
+        upperImpulse = 0.0f;
+    }
+
+    @Override
+    public void saveImpulses(float[] buffer, int offset) {
+        buffer[offset] = perpImpulse;
+        buffer[offset + 1] = angularImpulse;
+        buffer[offset + 2] = lowerImpulse;
+        buffer[offset + 3] = upperImpulse;
+    }
+
+    @Override
+    public void restoreImpulses(float[] buffer, int offset) {
+        perpImpulse = buffer[offset];
+        angularImpulse = buffer[offset + 1];
+        lowerImpulse = buffer[offset + 2];
+        upperImpulse = buffer[offset + 3];
+    }
+
+    /*
+     * @return sliding direction in the local frame of the first body, not to be modified
+     */
+    public Vector2f getAxis() {
+        return axis;
+    }
+
+    /*
+     * @param axis - sliding direction in the local frame of the first body, or in the world without a second body, not zero
+     */
+    public void setAxis(Vector2f axis) {
+        if (axis.lengthSquared() == 0.0f) {
+            throw new IllegalArgumentException("Prismatic joint axis cannot be zero");
+        }
+        this.axis = new Vector2f(axis).normalize();
+    }
+
+    /*
+     * Limits how far the anchors may move apart along the axis, measured from anchor A to anchor B.
+     * @param lowerTranslation - smallest translation
+     * @param upperTranslation - largest translation, at least lowerTranslation
+     */
+    public void setLimits(float lowerTranslation, float upperTranslation) {
+        if (lowerTranslation > upperTranslation) {
+            throw new IllegalArgumentException("Lower limit " + lowerTranslation
+                    + " is above the upper limit " + upperTranslation);
+        }
+        this.lowerTranslation = lowerTranslation;
+        this.upperTranslation = upperTranslation;
+        this.limitEnabled = true;
+    }
+
+    /*
+     * @param limitEnabled - true to keep the translation between the limits
+     */
+    public void setLimitEnabled(boolean limitEnabled) {
+        this.limitEnabled = limitEnabled;
+    }
+
+    /*
+     * @return true if the translation is kept between the limits
+     */
+    public boolean isLimitEnabled() {
+        return limitEnabled;
+    }
+
+    /*
+     * @return smallest translation along the axis
+     */
+    public float getLowerTranslation() {
+        return lowerTranslation;
+    }
+
+    /*
+     * @return largest translation along the axis
+     */
+    public float getUpperTranslation() {
+        return upperTranslation;
+    }
+
+    /*
+     * @return rotation of the second body relative to the first one that the joint keeps, in degrees
+     */
+    public float getReferenceAngle() {
+        return referenceAngle;
+    }
+}
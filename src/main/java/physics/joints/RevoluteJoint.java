@@ -0,0 +1,95 @@
+package physics.joints;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+
+/*
+ * RevoluteJoint pins its two anchors onto each other, so the bodies share a point and only
+ * rotate around it, like a hinge. Pinned to the world it makes a pendulum or a swinging platform.
+ * Author(s): Gabriel, Ahmed
+ */
+public class RevoluteJoint extends Joint {
+    // inverse of the 2x2 effective mass of the point constraint, and its bias
+    private transient float m11, m12, m22, biasX, biasY;
+    private transient float impulseX = 0.0f, impulseY = 0.0f;
+
+    /*
+     * Constructs a joint without bodies. Used by the scene loader.
+     */
+    public RevoluteJoint() {
+    }
+
+    /*
+     * Constructs a hinge between two anchors, which should be at the same place in the world.
+     * @param bodyA - first body
+     * @param anchor - hinge point in the local frame of bodyA
+     * @param bodyB - second body, or null to pin bodyA to a world point
+     * @param connectedAnchor - hinge point in the local frame of bodyB, or in the world without bodyB
+     */
+    public RevoluteJoint(Rigidbody2D bodyA, Vector2f anchor, Rigidbody2D bodyB, Vector2f connectedAnchor) {
+        super(bodyA, anchor, bodyB, connectedAnchor);
+    }
+
+    @Override
+    protected void prepareConstraints(float dt) {
+        computeMass();
+        biasX = biasRate * dx;
+        biasY = biasRate * dy;
+    }
+
+    @Override
+    protected void solvePositions() {
+        computeMass();
+        float cx = dx * POSITION_CORRECTION, cy = dy * POSITION_CORRECTION;
+        applyPositionImpulse(-(m11 * cx + m12 * cy), -(m12 * cx + m22 * cy));
+    }
+
+    // inverts the effective mass of the point constraint at the current anchors
+    private void computeMass() {
+        float invMass = invMassA + invMassB;
+        float k11 = invMass + invInertiaA * rAy * rAy + invInertiaB * rBy * rBy;
+        float k12 = -invInertiaA * rAx * rAy - invInertiaB * rBx * rBy;
+        float k22 = invMass + invInertiaA * rAx * rAx + invInertiaB * rBx * rBx;
+        float det = k11 * k22 - k12 * k12;
+        if (det != 0.0f) {
+            det = 1.0f / det;
+        }
+        m11 = det * k22;
+        m12 = -det * k12;
+        m22 = det * k11;
+    }
+
+    @Override
+    protected void applyWarmStart() {
+        applyImpulse(impulseX, impulseY);
+    }
+
+    @Override
+    protected void solveVelocities() {
+        float cx = vBx - wB * rBy - vAx + wA * rAy + biasX;
+        float cy = vBy + wB * rBx - vAy - wA * rAx + biasY;
+        float lambdaX = -(m11 * cx + m12 * cy);
+        float lambdaY = -(m12 * cx + m22 * cy);
+        impulseX += lambdaX;
+        impulseY += lambdaY;
+        applyImpulse(lambdaX, lambdaY);
+    }
+
+    @Override
+    protected void resetImpulses() {
+        impulseX = 0.0f;
+        impulseY = 0.0f;
+    }
+
+    @Override
+    public void saveImpulses(float[] buffer, int offset) {
+        buffer[offset] = impulseX;
+        buffer[offset + 1] = impulseY;
+    }
+
+    @Override
+    public void restoreImpulses(float[] buffer, int offset) {
+        impulseX = buffer[offset];
+        impulseY = buffer[offset + 1];
+    }
+}
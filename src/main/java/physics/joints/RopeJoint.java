@@ -0,0 +1,116 @@
+package physics.joints;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+
+/*
+ * RopeJoint keeps its two anchors at most a given distance apart. Inside that distance the
+ * rope is slack and the bodies move freely; it only ever pulls, never pushes.
+ * Author(s): Gabriel, Ahmed
+ */
+public class RopeJoint extends Joint {
+    private float maxLength = 1.0f;
+
+    private transient float ux, uy, mass, bias;
+    // accumulated impulse, at most 0 since a rope only pulls
+    private transient float impulse = 0.0f;
+
+    /*
+     * Constructs a rope without bodies. Used by the scene loader.
+     */
+    public RopeJoint() {
+    }
+
+    /*
+     * Constructs a rope between two anchors.
+     * @param bodyA - first body
+     * @param anchor - anchor point in the local frame of bodyA
+     * @param bodyB - second body, or null to tie bodyA to a world point
+     * @param connectedAnchor - anchor point in the local frame of bodyB, or in the world without bodyB
+     * @param maxLength - length of the rope, at least 0
+     */
+    public RopeJoint(Rigidbody2D bodyA, Vector2f anchor, Rigidbody2D bodyB, Vector2f connectedAnchor, float maxLength) {
+        super(bodyA, anchor, bodyB, connectedAnchor);
+        setMaxLength(maxLength);
+    }
+
+    @Override
+    protected void prepareConstraints(float dt) {
+        float stretch = computeAxis() - maxLength;
+        // a slack rope lets the anchors close the gap within this step before it pulls
+        bias = stretch < 0.0f ? stretch / dt : biasRate * stretch;
+    }
+
+    @Override
+    protected void solvePositions() {
+        float stretch = computeAxis() - maxLength;
+        if (stretch <= 0.0f) return;
+        float lambda = -mass * stretch * POSITION_CORRECTION;
+        applyPositionImpulse(lambda * ux, lambda * uy);
+    }
+
+    // sets the axis and effective mass from the current anchors, returns their distance
+    private float computeAxis() {
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        if (distance > 1e-6f) {
+            ux = dx / distance;
+            uy = dy / distance;
+        } else {
+            ux = 1.0f;
+            uy = 0.0f;
+        }
+        float crA = rAx * uy - rAy * ux;
+        float crB = rBx * uy - rBy * ux;
+        float k = invMassA + invMassB + invInertiaA * crA * crA + invInertiaB * crB * crB;
+        mass = k > 0.0f ? 1.0f / k : 0.0f;
+        return distance;
+    }
+
+    @Override
+    protected void applyWarmStart() {
+        applyImpulse(impulse * ux, impulse * uy);
+    }
+
+    @Override
+    protected void solveVelocities() {
+        float dvx = vBx - wB * rBy - vAx + wA * rAy;
+        float dvy = vBy + wB * rBx - vAy - wA * rAx;
+        float lambda = -mass * (dvx * ux + dvy * uy + bias);
+        float previous = impulse;
+        impulse = Math.min(0.0f, impulse + lambda);
+        lambda = impulse - previous;
+        applyImpulse(lambda * ux, lambda * uy);
+    }
+
+    @Override
+    protected void resetImpulses() {
+        impulse = 0.0f;
+    }
+
+    @Override
+    public void saveImpulses(float[] buffer, int offset) {
+        buffer[offset] = impulse;
+    }
+
+    @Override
+    public void restoreImpulses(float[] buffer, int offset) {
+        impulse = buffer[offset];
+    }
+
+    /*
+     * @return length of the rope
+     */
+    public float getMaxLength() {
+        return maxLength;
+    }
+
+    /*
+     * @param maxLength - length of the rope, at least 0
+     */
+    public void setMaxLength(float maxLength) {
+        if (maxLength < 0.0f) {
+            throw new IllegalArgumentException("Rope length cannot be negative: " + maxLength);
+        }
+        this.maxLength = maxLength;
+    }
+}
@@ -0,0 +1,88 @@
+package physics.lockstep;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+
+/*
+ * LockstepInput is one change a player makes to a body before a physics step, addressed by
+ * body id so it means the same on every machine and in a replay. Gameplay code that moves
+ * bodies in a lockstep game sends these instead of calling the rigidbody setters itself.
+ * Author(s): Gabriel, Ahmed
+ */
+public class LockstepInput {
+    public enum Type {
+        SET_VELOCITY,
+        ADD_FORCE,
+        SET_POSITION
+    }
+
+    private int step;
+    private int bodyId;
+    private Type type;
+    private float x, y;
+
+    /*
+     * @param step - step the input is applied before, counted from 0
+     * @param bodyId - id of the body it changes
+     * @param type - what it changes
+     * @param x - x of the velocity, force or position
+     * @param y - y of the velocity, force or position
+     */
+    public LockstepInput(int step, int bodyId, Type type, float x, float y) {
+        if (type == null) {
+            throw new IllegalArgumentException("Input needs a type");
+        }
+        this.step = step;
+        this.bodyId = bodyId;
+        this.type = type;
+        this.x = x;
+        this.y = y;
+    }
+
+    /*
+     * Applies the input to its body.
+     * @param body - the body with the input's id
+     */
+    public void apply(Rigidbody2D body) {
+        switch (type) {
+            case SET_VELOCITY -> body.setVelocity(new Vector2f(x, y));
+            case ADD_FORCE -> body.addForce(new Vector2f(x, y));
+            case SET_POSITION -> body.setPosition(new Vector2f(x, y));
+        }
+    }
+
+    /*
+     * @return step the input is applied before
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /*
+     * @return id of the body it changes
+     */
+    public int getBodyId() {
+        return bodyId;
+    }
+
+    /*
+     * @return what it changes
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /*
+     * @return x of the velocity, force or position
+     */
+    public float getX() {
+        return x;
+    }
+
+    /*
+     * @return y of the velocity, force or position
+     */
+    public float getY() {
+        return y;
+    }
+}
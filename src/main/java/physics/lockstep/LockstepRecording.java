@@ -0,0 +1,91 @@
+package physics.lockstep;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * LockstepRecording is the input stream of a lockstep simulation together with the state
+ * hash after every step. Replaying the inputs on a simulation built the same way must give
+ * the same hashes, otherwise the two have desynced. It converts to and from JSON so it can
+ * be saved as a replay or sent to another machine.
+ * Author(s): Gabriel, Ahmed
+ */
+public class LockstepRecording {
+    private float fixedDeltaTime;
+    // sorted by step, in the order the inputs are applied within a step
+    private List<LockstepInput> inputs = new ArrayList<>();
+    private List<Long> hashes = new ArrayList<>();
+
+    /*
+     * @param fixedDeltaTime - duration of one step of the recorded simulation in seconds
+     */
+    public LockstepRecording(float fixedDeltaTime) {
+        this.fixedDeltaTime = fixedDeltaTime;
+    }
+
+    /*
+     * Adds an input. Inputs are added step by step, as the simulation applies them.
+     * @param input - input applied before its step
+     */
+    public void addInput(LockstepInput input) {
+        if (!inputs.isEmpty() && input.getStep() < inputs.get(inputs.size() - 1).getStep()) {
+            throw new IllegalArgumentException("Input for step " + input.getStep() + " added after step "
+                    + inputs.get(inputs.size() - 1).getStep());
+        }
+        inputs.add(input);
+    }
+
+    /*
+     * Adds the state hash after the next step.
+     * @param hash - PhysicsSystem.getStateHash after the step
+     */
+    public void addHash(long hash) {
+        hashes.add(hash);
+    }
+
+    /*
+     * @return duration of one step in seconds
+     */
+    public float getFixedDeltaTime() {
+        return fixedDeltaTime;
+    }
+
+    /*
+     * @return every input, sorted by step
+     */
+    public List<LockstepInput> getInputs() {
+        return inputs;
+    }
+
+    /*
+     * @return number of recorded steps
+     */
+    public int getStepCount() {
+        return hashes.size();
+    }
+
+    /*
+     * @param step - step counted from 0
+     * @return state hash after the step
+     */
+    public long getHash(int step) {
+        return hashes.get(step);
+    }
+
+    /*
+     * @return the recording as JSON
+     */
+    public String toJson() {
+        return new Gson().toJson(this);
+    }
+
+    /*
+     * @param json - a recording written by toJson
+     * @return the recording
+     */
+    public static LockstepRecording fromJson(String json) {
+        return new Gson().fromJson(json, LockstepRecording.class);
+    }
+}
@@ -0,0 +1,116 @@
+package physics.lockstep;
+
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * LockstepSimulation drives a PhysicsSystem in deterministic mode one fixed step at a time.
+ * Inputs queued for the next step are applied in body id order before it runs, and every
+ * input and state hash goes into a recording. Replaying a recording on a system built the
+ * same way re-simulates it and finds the first step where the states differ.
+ * Author(s): Gabriel, Ahmed
+ */
+public class LockstepSimulation {
+    // inputs of one step are applied by body id, in queue order for the same body
+    private static final Comparator<LockstepInput> INPUT_ORDER = Comparator.comparingInt(LockstepInput::getBodyId);
+
+    private final PhysicsSystem system;
+    private final LockstepRecording recording;
+    private final List<LockstepInput> pending = new ArrayList<>();
+    private int step = 0;
+
+    /*
+     * Turns the system's deterministic mode on. Its bodies should be added under ids that
+     * are the same everywhere the simulation runs, see PhysicsSystem.addRigidbody(body, id).
+     * @param system - the physics system to drive, stepped only through this simulation
+     */
+    public LockstepSimulation(PhysicsSystem system) {
+        this.system = system;
+        this.recording = new LockstepRecording(system.getFixedDeltaTime());
+        system.setDeterministic(true);
+    }
+
+    /*
+     * Queues an input for the next step.
+     * @param bodyId - id of the body it changes
+     * @param type - what it changes
+     * @param x - x of the velocity, force or position
+     * @param y - y of the velocity, force or position
+     */
+    public void input(int bodyId, LockstepInput.Type type, float x, float y) {
+        pending.add(new LockstepInput(step, bodyId, type, x, y));
+    }
+
+    /*
+     * Applies the queued inputs, runs one fixed step and records its state hash.
+     * @return state hash after the step
+     */
+    public long step() {
+        pending.sort(INPUT_ORDER);
+        for (LockstepInput input : pending) {
+            apply(system, input);
+            recording.addInput(input);
+        }
+        pending.clear();
+        system.fixedUpdate();
+        long hash = system.getStateHash();
+        recording.addHash(hash);
+        step++;
+        return hash;
+    }
+
+    /*
+     * @return number of steps run
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /*
+     * @return inputs and hashes of every step run so far
+     */
+    public LockstepRecording getRecording() {
+        return recording;
+    }
+
+    /*
+     * Re-simulates a recording and compares the state hash after every step.
+     * @param system - a fresh system holding the same bodies under the same ids as the
+     *                 recorded one did before its first step
+     * @param recording - the recording to replay
+     * @return the first step whose hash differs, or -1 if every step matches
+     */
+    public static int replay(PhysicsSystem system, LockstepRecording recording) {
+        if (system.getFixedDeltaTime() != recording.getFixedDeltaTime()) {
+            throw new IllegalArgumentException("Recording steps " + recording.getFixedDeltaTime()
+                    + "s, the system " + system.getFixedDeltaTime() + "s");
+        }
+        system.setDeterministic(true);
+        List<LockstepInput> inputs = recording.getInputs();
+        int next = 0;
+        for (int step = 0; step < recording.getStepCount(); step++) {
+            // the recording already holds the inputs of a step in the order they were applied
+            while (next < inputs.size() && inputs.get(next).getStep() == step) {
+                apply(system, inputs.get(next++));
+            }
+            system.fixedUpdate();
+            if (system.getStateHash() != recording.getHash(step)) {
+                return step;
+            }
+        }
+        return -1;
+    }
+
+    private static void apply(PhysicsSystem system, LockstepInput input) {
+        Rigidbody2D body = system.getRigidbody(input.getBodyId());
+        if (body == null) {
+            throw new IllegalArgumentException("No body with id " + input.getBodyId() + " for input at step "
+                    + input.getStep());
+        }
+        input.apply(body);
+    }
+}
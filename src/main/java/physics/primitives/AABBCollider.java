@@ -48,14 +48,35 @@ public class AABBCollider extends Collider {
      * @return array of the four vertices in CCW order: bottom-left, bottom-right, top-right, top-left
      */
     public Vector2f[] getVertices() {
-        Vector2f min = getMin();
-        Vector2f max = getMax();
-        return new Vector2f[] {
-                new Vector2f(min.x, min.y),  // bottom-left
-                new Vector2f(max.x, min.y),  // bottom-right
-                new Vector2f(max.x, max.y),  // top-right
-                new Vector2f(min.x, max.y)   // top-left
-        };
+        Vector2f[] vertices = {new Vector2f(), new Vector2f(), new Vector2f(), new Vector2f()};
+        getVertices(vertices);
+        return vertices;
+    }
+
+    /*
+     * Writes the four vertices in CCW order into an existing array without allocating.
+     * @param out - array of at least four vectors receiving bottom-left, bottom-right, top-right, top-left
+     */
+    public void getVertices(Vector2f[] out) {
+        Vector2f center = rigidbody.getPosition();
+        float minX = center.x - halfSize.x, minY = center.y - halfSize.y;
+        float maxX = center.x + halfSize.x, maxY = center.y + halfSize.y;
+        out[0].set(minX, minY);  // bottom-left
+        out[1].set(maxX, minY);  // bottom-right
+        out[2].set(maxX, maxY);  // top-right
+        out[3].set(minX, maxY);  // top-left
+    }
+
+    /*
+     * Writes the world-space extents of the box into min and max without allocating.
+     * @param min - receives the minimum corner of the bounds
+     * @param max - receives the maximum corner of the bounds
+     */
+    @Override
+    public void getBounds(Vector2f min, Vector2f max) {
+        Vector2f center = rigidbody.getPosition();
+        min.set(center.x - halfSize.x, center.y - halfSize.y);
+        max.set(center.x + halfSize.x, center.y + halfSize.y);
     }
 
     /*
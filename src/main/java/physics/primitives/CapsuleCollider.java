@@ -0,0 +1,116 @@
+package physics.primitives;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+import util.DTUMath;
+
+/*
+ * CapsuleCollider represents a capsule attached to a Rigidbody2D: every point within the
+ * radius of a segment through the body position. Unrotated the segment is vertical, so
+ * the capsule stands upright like a character; it turns with the body's rotation.
+ * Author(s): Gabriel, Ahmed
+ */
+public class CapsuleCollider extends Collider {
+    private float radius;
+    // half the length of the segment between the centers of the two caps
+    private float halfLength;
+    private Rigidbody2D rigidbody = null;
+
+    /*
+     * Constructs a capsule with zero size. Used by the scene loader, so the
+     * field defaults of Collider are applied to saves that lack them.
+     */
+    public CapsuleCollider() {
+    }
+
+    /*
+     * Constructs a capsule from its radius and the length of its straight part.
+     * @param radius - radius of the caps
+     * @param halfLength - half the distance between the centers of the caps
+     */
+    public CapsuleCollider(float radius, float halfLength) {
+        if (radius < 0.0f || halfLength < 0.0f) {
+            throw new IllegalArgumentException("Capsule size cannot be negative: " + radius + ", " + halfLength);
+        }
+        this.radius = radius;
+        this.halfLength = halfLength;
+    }
+
+    /*
+     * @return the radius of the caps
+     */
+    public float getRadius() {
+        return radius;
+    }
+
+    /*
+     * @return half the distance between the centers of the caps
+     */
+    public float getHalfLength() {
+        return halfLength;
+    }
+
+    /*
+     * @return full height of the unrotated capsule, caps included
+     */
+    public float getHeight() {
+        return 2.0f * (halfLength + radius);
+    }
+
+    /*
+     * Writes the world-space centers of the two caps, bottom first when unrotated.
+     * @param a - receives the center of the first cap
+     * @param b - receives the center of the second cap
+     */
+    public void getSegment(Vector2f a, Vector2f b) {
+        Vector2f center = rigidbody.getPosition();
+        float rotation = rigidbody.getRotation();
+        // the local segment (0, -halfLength) to (0, halfLength) rotated by the body
+        float dx = -DTUMath.sinDeg(rotation) * halfLength, dy = DTUMath.cosDeg(rotation) * halfLength;
+        a.set(center.x - dx, center.y - dy);
+        b.set(center.x + dx, center.y + dy);
+    }
+
+    /*
+     * Writes the axis-aligned bounds enclosing the rotated capsule into min and max.
+     * @param min - receives the minimum corner of the bounds
+     * @param max - receives the maximum corner of the bounds
+     */
+    @Override
+    public void getBounds(Vector2f min, Vector2f max) {
+        Vector2f center = rigidbody.getPosition();
+        float rotation = rigidbody.getRotation();
+        float ex = Math.abs(DTUMath.sinDeg(rotation)) * halfLength + radius;
+        float ey = Math.abs(DTUMath.cosDeg(rotation)) * halfLength + radius;
+        min.set(center.x - ex, center.y - ey);
+        max.set(center.x + ex, center.y + ey);
+    }
+
+    /*
+     * Moment of inertia around the body position, treating the capsule as a box of its full
+     * height with the caps' half disks counted as part of the box.
+     * @param mass - mass of the body
+     * @return the moment of inertia
+     */
+    public float computeInertia(float mass) {
+        float width = 2.0f * radius, height = getHeight();
+        return mass * (width * width + height * height) / 12.0f;
+    }
+
+    /*
+     * Associates this collider with the given rigidbody.
+     * @param rigidbody - the Rigidbody2D to attach
+     */
+    @Override
+    public void setRigidbody(Rigidbody2D rigidbody) {
+        this.rigidbody = rigidbody;
+    }
+
+    /*
+     * @return the Rigidbody2D this collider is attached to
+     */
+    @Override
+    public Rigidbody2D getRigidbody() {
+        return rigidbody;
+    }
+}
@@ -11,6 +11,13 @@ public class Circle extends Collider {
     private float radius;
     private Rigidbody2D rigidbody = null;
 
+    /*
+     * Constructs a Circle with zero radius. Used by the scene loader, so the
+     * field defaults of Collider are applied to saves that lack them.
+     */
+    public Circle() {
+    }
+
     /*
      * Constructs a Circle with specified radius.
      * @param radius - radius of the circle
@@ -33,6 +40,18 @@ public class Circle extends Collider {
         return rigidbody.getPosition();
     }
 
+    /*
+     * Writes the bounding square of the circle into min and max.
+     * @param min - receives the minimum corner of the bounds
+     * @param max - receives the maximum corner of the bounds
+     */
+    @Override
+    public void getBounds(Vector2f min, Vector2f max) {
+        Vector2f center = rigidbody.getPosition();
+        min.set(center.x - radius, center.y - radius);
+        max.set(center.x + radius, center.y + radius);
+    }
+
     /*
      * Attaches this collider to a rigidbody.
      * @param rigidbody - the Rigidbody2D to attach
@@ -7,11 +7,17 @@ import physics.collisions.Rigidbody2D;
 /*
  * Collider is the base class for collision shapes attached to rigid bodies.
  * It maintains an offset and solidity, and links to a Rigidbody2D for physics.
+ * Its category and mask bits decide which other colliders it can touch: two colliders
+ * interact only if each one's category is in the other's mask. The broad phase drops
+ * pairs that cannot interact, so they never reach the narrow phase.
  * Author(s): Gabriel
  */
 public abstract class Collider extends Component {
     protected Vector2f offset = new Vector2f();
     private boolean isSolid = true;
+    // by default every collider is in layer 0 and interacts with all layers
+    private int category = 1;
+    private int mask = 0xFFFFFFFF;
 
     /*
      * Associates this collider with the given rigidbody.
@@ -24,6 +30,13 @@ public abstract class Collider extends Component {
      */
     public abstract Rigidbody2D getRigidbody();
 
+    /*
+     * Writes the world-space axis-aligned bounds of this collider into min and max.
+     * @param min - receives the minimum corner of the bounds
+     * @param max - receives the maximum corner of the bounds
+     */
+    public abstract void getBounds(Vector2f min, Vector2f max);
+
     /*
      * Enables or disables solidity of this collider.
      * @param solid - true to make collider solid, false for ghost
@@ -39,6 +52,55 @@ public abstract class Collider extends Component {
         return isSolid;
     }
 
+    /*
+     * @param layer - layer number between 0 and 31
+     * @return the category bit of the layer
+     */
+    public static int layerBit(int layer) {
+        if (layer < 0 || layer > 31) {
+            throw new IllegalArgumentException("Layer must be between 0 and 31, was " + layer);
+        }
+        return 1 << layer;
+    }
+
+    /*
+     * Sets the layers this collider belongs to.
+     * @param category - category bits, usually a single layerBit
+     */
+    public void setCategory(int category) {
+        this.category = category;
+    }
+
+    /*
+     * @return the category bits of this collider
+     */
+    public int getCategory() {
+        return category;
+    }
+
+    /*
+     * Sets the layers this collider interacts with.
+     * @param mask - bits of the categories to interact with, 0xFFFFFFFF for all
+     */
+    public void setMask(int mask) {
+        this.mask = mask;
+    }
+
+    /*
+     * @return the mask bits of this collider
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /*
+     * @param other - another collider
+     * @return true if the layers of both colliders allow them to interact
+     */
+    public boolean canCollideWith(Collider other) {
+        return (category & other.mask) != 0 && (other.category & mask) != 0;
+    }
+
     @Override
     public void update(float dt) {
         // no-op: collider state is updated via its rigidbody
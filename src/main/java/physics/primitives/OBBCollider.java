@@ -83,21 +83,48 @@ public class OBBCollider extends Collider {
      */
 
     public Vector2f[] getVertices() {
-        Vector2f min = getMin();
-        Vector2f max = getMax();
-        Vector2f[] vertices = {
-                new Vector2f(min.x, min.y), // bottom-left
-                new Vector2f(max.x, min.y), // bottom-right
-                new Vector2f(max.x, max.y), // top-right
-                new Vector2f(min.x, max.y)  // top-left
-        };
-        if (rigidbody != null && rigidbody.getRotation() != 0.0f) {
-            Vector2f center = rigidbody.getPosition();
-            for (Vector2f v : vertices) {
-                DTUMath.rotate(v, rigidbody.getRotation(), center);  // rotate around center
+        Vector2f[] vertices = {new Vector2f(), new Vector2f(), new Vector2f(), new Vector2f()};
+        getVertices(vertices);
+        return vertices;
+    }
+
+    /*
+     * Writes the four vertices of the box into an existing array without allocating.
+     * @param out - array of at least four vectors receiving bottom-left, bottom-right, top-right, top-left
+     */
+    public void getVertices(Vector2f[] out) {
+        Vector2f center = rigidbody.getPosition();
+        float minX = center.x - halfSize.x, minY = center.y - halfSize.y;
+        float maxX = center.x + halfSize.x, maxY = center.y + halfSize.y;
+        out[0].set(minX, minY); // bottom-left
+        out[1].set(maxX, minY); // bottom-right
+        out[2].set(maxX, maxY); // top-right
+        out[3].set(minX, maxY); // top-left
+        if (rigidbody.getRotation() != 0.0f) {
+            for (int i = 0; i < 4; i++) {
+                DTUMath.rotate(out[i], rigidbody.getRotation(), center);  // rotate around center
             }
         }
-        return vertices;
+    }
+
+    /*
+     * Writes the axis-aligned bounds enclosing the rotated box into min and max.
+     * @param min - receives the minimum corner of the bounds
+     * @param max - receives the maximum corner of the bounds
+     */
+    @Override
+    public void getBounds(Vector2f min, Vector2f max) {
+        Vector2f center = rigidbody.getPosition();
+        float ex = halfSize.x, ey = halfSize.y;
+        float rotation = rigidbody.getRotation();
+        if (rotation != 0.0f) {
+            float cos = Math.abs(DTUMath.cosDeg(rotation));
+            float sin = Math.abs(DTUMath.sinDeg(rotation));
+            ex = halfSize.x * cos + halfSize.y * sin;
+            ey = halfSize.x * sin + halfSize.y * cos;
+        }
+        min.set(center.x - ex, center.y - ey);
+        max.set(center.x + ex, center.y + ey);
     }
 
     /*
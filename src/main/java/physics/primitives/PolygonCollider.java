@@ -0,0 +1,174 @@
+package physics.primitives;
+
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+import util.DTUMath;
+
+/*
+ * PolygonCollider represents a convex polygon attached to a Rigidbody2D, e.g. a slope or a
+ * ramp that would otherwise be built from a stack of rotated boxes. Its vertices are given
+ * relative to the body position, are rotated with the body and are kept counter-clockwise.
+ * Author(s): Gabriel, Ahmed
+ */
+public class PolygonCollider extends Collider {
+    // more vertices than this are better split into several bodies
+    public static final int MAX_VERTICES = 8;
+
+    private Vector2f[] vertices = new Vector2f[0];
+    private Rigidbody2D rigidbody = null;
+
+    /*
+     * Constructs a polygon without vertices. Used by the scene loader, so the
+     * field defaults of Collider are applied to saves that lack them.
+     */
+    public PolygonCollider() {
+    }
+
+    /*
+     * Constructs a convex polygon. Clockwise vertices are reversed.
+     * @param vertices - 3 to MAX_VERTICES vertices relative to the body position
+     */
+    public PolygonCollider(Vector2f... vertices) {
+        setVertices(vertices);
+    }
+
+    /*
+     * Creates a right triangle rising from left to right, with the right angle at the bottom right.
+     * @param width - width of the slope
+     * @param height - height of the slope at its right end
+     * @return a slope centered on the body position
+     */
+    public static PolygonCollider slope(float width, float height) {
+        float halfWidth = width * 0.5f, halfHeight = height * 0.5f;
+        return new PolygonCollider(new Vector2f(-halfWidth, -halfHeight), new Vector2f(halfWidth, -halfHeight),
+                new Vector2f(halfWidth, halfHeight));
+    }
+
+    /*
+     * Replaces the vertices of the polygon. Clockwise vertices are reversed.
+     * @param vertices - 3 to MAX_VERTICES vertices of a convex polygon, relative to the body position
+     */
+    public void setVertices(Vector2f... vertices) {
+        if (vertices.length < 3 || vertices.length > MAX_VERTICES) {
+            throw new IllegalArgumentException("A polygon needs 3 to " + MAX_VERTICES + " vertices, got " + vertices.length);
+        }
+        int n = vertices.length;
+        float area = 0.0f;
+        for (int i = 0; i < n; i++) {
+            Vector2f a = vertices[i], b = vertices[(i + 1) % n];
+            area += a.x * b.y - a.y * b.x;
+        }
+        if (area == 0.0f) {
+            throw new IllegalArgumentException("Polygon vertices must not lie on one line");
+        }
+        Vector2f[] copy = new Vector2f[n];
+        for (int i = 0; i < n; i++) {
+            copy[i] = new Vector2f(vertices[area > 0 ? i : n - 1 - i]);
+        }
+        // every corner must turn left once the polygon is counter-clockwise
+        for (int i = 0; i < n; i++) {
+            Vector2f a = copy[i], b = copy[(i + 1) % n], c = copy[(i + 2) % n];
+            float cross = (b.x - a.x) * (c.y - b.y) - (b.y - a.y) * (c.x - b.x);
+            if (cross <= 0.0f) {
+                throw new IllegalArgumentException("Polygon must be convex, vertex " + (i + 1) % n + " is not");
+            }
+        }
+        this.vertices = copy;
+    }
+
+    /*
+     * @return number of vertices
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /*
+     * @return the counter-clockwise vertices relative to the unrotated body, not to be modified
+     */
+    public Vector2f[] getLocalVertices() {
+        return vertices;
+    }
+
+    /*
+     * @return the vertices in world space, rotated with the body
+     */
+    public Vector2f[] getVertices() {
+        Vector2f[] out = new Vector2f[vertices.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = new Vector2f();
+        }
+        getVertices(out);
+        return out;
+    }
+
+    /*
+     * Writes the world-space vertices into an existing array without allocating.
+     * @param out - array of at least getVertexCount() vectors
+     */
+    public void getVertices(Vector2f[] out) {
+        Vector2f center = rigidbody.getPosition();
+        float rotation = rigidbody.getRotation();
+        float cos = DTUMath.cosDeg(rotation), sin = DTUMath.sinDeg(rotation);
+        for (int i = 0; i < vertices.length; i++) {
+            Vector2f v = vertices[i];
+            out[i].set(v.x * cos - v.y * sin + center.x, v.x * sin + v.y * cos + center.y);
+        }
+    }
+
+    /*
+     * Writes the axis-aligned bounds enclosing the rotated polygon into min and max.
+     * @param min - receives the minimum corner of the bounds
+     * @param max - receives the maximum corner of the bounds
+     */
+    @Override
+    public void getBounds(Vector2f min, Vector2f max) {
+        Vector2f center = rigidbody.getPosition();
+        float rotation = rigidbody.getRotation();
+        float cos = DTUMath.cosDeg(rotation), sin = DTUMath.sinDeg(rotation);
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (Vector2f v : vertices) {
+            float x = v.x * cos - v.y * sin, y = v.x * sin + v.y * cos;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        min.set(center.x + minX, center.y + minY);
+        max.set(center.x + maxX, center.y + maxY);
+    }
+
+    /*
+     * Moment of inertia of the solid polygon around the body position.
+     * @param mass - mass of the body
+     * @return the moment of inertia
+     */
+    public float computeInertia(float mass) {
+        float numerator = 0.0f, denominator = 0.0f;
+        for (int i = 0; i < vertices.length; i++) {
+            Vector2f a = vertices[i], b = vertices[(i + 1) % vertices.length];
+            float cross = a.x * b.y - a.y * b.x;
+            numerator += cross * (a.dot(a) + a.dot(b) + b.dot(b));
+            denominator += cross;
+        }
+        return denominator == 0.0f ? 0.0f : mass * numerator / (6.0f * denominator);
+    }
+
+    /*
+     * Associates this collider with the given rigidbody.
+     * @param rigidbody - the Rigidbody2D to attach
+     */
+    @Override
+    public void setRigidbody(Rigidbody2D rigidbody) {
+        this.rigidbody = rigidbody;
+    }
+
+    /*
+     * @return the Rigidbody2D this collider is attached to
+     */
+    @Override
+    public Rigidbody2D getRigidbody() {
+        return rigidbody;
+    }
+}
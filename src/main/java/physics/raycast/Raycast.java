@@ -33,4 +33,17 @@ public class Raycast {
     public Vector2f getDirection() {
         return direction;
     }
+
+    /*
+     * Points the ray somewhere else without allocating. The start is written into the
+     * vector given to the constructor.
+     * @param startX - x of the new origin
+     * @param startY - y of the new origin
+     * @param dirX - x of the new direction, already normalized
+     * @param dirY - y of the new direction, already normalized
+     */
+    public void set(float startX, float startY, float dirX, float dirY) {
+        start.set(startX, startY);
+        direction.set(dirX, dirY);
+    }
 }
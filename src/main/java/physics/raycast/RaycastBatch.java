@@ -0,0 +1,179 @@
+package physics.raycast;
+
+import org.example.GameObject;
+import org.joml.Vector2f;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Collider;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/*
+ * RaycastBatch holds many rays and their results, so they can be cast together with
+ * RaycastManager.raycast in one walk of a DynamicAABBTree. The batch is meant to be kept
+ * and refilled every frame: clear keeps the arrays and result objects, so a game that
+ * refills it with the same number of rays does not allocate.
+ * Each ray can ignore one body, usually the one casting it, and all rays share a layer
+ * mask, an optional tag filter and an optional collider filter.
+ * Author(s): Gabriel, Ahmed
+ */
+public class RaycastBatch {
+    private int size = 0;
+    float[] originX = new float[16], originY = new float[16];
+    float[] dirX = new float[16], dirY = new float[16];
+    float[] maxDistance = new float[16];
+    // shortened to the closest hit while the batch is cast
+    float[] distance = new float[16];
+    Rigidbody2D[] ignored = new Rigidbody2D[16];
+    private RaycastResult[] results = new RaycastResult[16];
+    Collider[] hitColliders = new Collider[16];
+
+    private int mask = 0xFFFFFFFF;
+    private String[] tags = null;
+    private Predicate<Collider> filter = null;
+
+    // reused while casting
+    final Raycast ray = new Raycast(new Vector2f(), new Vector2f(1, 0));
+    final RaycastResult candidate = new RaycastResult();
+
+    /*
+     * Removes all rays, keeping the arrays and result objects for the next rays.
+     * The filters are kept as well.
+     */
+    public void clear() {
+        Arrays.fill(ignored, 0, size, null);
+        Arrays.fill(hitColliders, 0, size, null);
+        size = 0;
+    }
+
+    /*
+     * Adds a ray to the batch.
+     * @param origin - start of the ray
+     * @param direction - direction of the ray, normalized here
+     * @param maxDistance - length of the ray
+     * @param ignored - body whose collider the ray passes through, may be null
+     * @return index of the ray, used to read its result after casting
+     */
+    public int add(Vector2f origin, Vector2f direction, float maxDistance, Rigidbody2D ignored) {
+        float lengthSquared = direction.lengthSquared();
+        if (lengthSquared == 0.0f) {
+            throw new IllegalArgumentException("Ray direction must not be zero");
+        }
+        if (size == originX.length) {
+            grow();
+        }
+        int i = size++;
+        float invLength = 1.0f / (float) Math.sqrt(lengthSquared);
+        originX[i] = origin.x;
+        originY[i] = origin.y;
+        dirX[i] = direction.x * invLength;
+        dirY[i] = direction.y * invLength;
+        this.maxDistance[i] = maxDistance;
+        this.ignored[i] = ignored;
+        if (results[i] == null) {
+            results[i] = new RaycastResult();
+        }
+        RaycastResult.reset(results[i]);
+        hitColliders[i] = null;
+        return i;
+    }
+
+    /*
+     * Only colliders in one of these layers are hit. The layer test runs before the other filters.
+     * @param mask - category bits of the layers to hit, 0xFFFFFFFF for all
+     */
+    public void setMask(int mask) {
+        this.mask = mask;
+    }
+
+    /*
+     * Only colliders whose game object has one of these tags are hit.
+     * @param tags - accepted tags, none or null to accept every collider
+     */
+    public void setTags(String... tags) {
+        this.tags = tags == null || tags.length == 0 ? null : tags;
+    }
+
+    /*
+     * Only colliders for which the filter returns true are hit.
+     * @param filter - collider filter, null to accept every collider
+     */
+    public void setFilter(Predicate<Collider> filter) {
+        this.filter = filter;
+    }
+
+    /*
+     * @param collider - collider crossed by ray i
+     * @param i - index of the ray
+     * @return true if ray i may hit the collider
+     */
+    boolean accepts(Collider collider, int i) {
+        if ((collider.getCategory() & mask) == 0) return false;
+        Rigidbody2D body = collider.getRigidbody();
+        if (body != null && body == ignored[i]) return false;
+        if (filter != null && !filter.test(collider)) return false;
+        if (tags == null) return true;
+        GameObject gameObject = body == null ? null : body.getGameObject();
+        if (gameObject == null) return false;
+        for (String tag : tags) {
+            if (tag.equals(gameObject.getTag())) return true;
+        }
+        return false;
+    }
+
+    /*
+     * @return number of rays in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * @param i - index of the ray
+     * @return closest hit of the ray after casting; not a hit if the ray hit nothing
+     */
+    public RaycastResult getResult(int i) {
+        checkIndex(i);
+        return results[i];
+    }
+
+    /*
+     * @param i - index of the ray
+     * @return the collider closest along the ray, or null if the ray hit nothing
+     */
+    public Collider getCollider(int i) {
+        checkIndex(i);
+        return hitColliders[i];
+    }
+
+    /*
+     * @param i - index of the ray
+     * @return true if the ray hit a collider
+     */
+    public boolean isHit(int i) {
+        return getCollider(i) != null;
+    }
+
+    RaycastResult result(int i) {
+        return results[i];
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IllegalArgumentException("No ray " + i + " in a batch of " + size);
+        }
+    }
+
+    private void grow() {
+        int n = originX.length * 2;
+        originX = Arrays.copyOf(originX, n);
+        originY = Arrays.copyOf(originY, n);
+        dirX = Arrays.copyOf(dirX, n);
+        dirY = Arrays.copyOf(dirY, n);
+        maxDistance = Arrays.copyOf(maxDistance, n);
+        distance = Arrays.copyOf(distance, n);
+        ignored = Arrays.copyOf(ignored, n);
+        results = Arrays.copyOf(results, n);
+        hitColliders = Arrays.copyOf(hitColliders, n);
+    }
+}
@@ -1,12 +1,15 @@
 package physics.raycast;
 
 import org.joml.Vector2f;
+import physics.broadphase.DynamicAABBTree;
 import physics.primitives.*;
 import util.DTUMath;
 
+import java.util.function.Predicate;
+
 /*
  * RaycastManager provides utility methods for point, line, and ray intersection tests
- * against various primitive shapes (Circle, AABB, OBB).
+ * against various primitive shapes (Circle, AABB, OBB, polygon, capsule).
  * Author(s): Gabriel
  */
 public class RaycastManager {
@@ -67,12 +70,24 @@ public class RaycastManager {
      * @return true if the point lies inside the convex polygon using SAT
      */
     public static boolean pointInPolygon(Vector2f point, Vector2f[] polygon) {
+        return pointInPolygon(point, polygon, new Vector2f());
+    }
+
+    /*
+     * Allocation-free version of pointInPolygon for the narrow phase.
+     * @param point - the point to test
+     * @param polygon - array of polygon vertices
+     * @param axis - scratch vector overwritten during the test
+     * @return true if the point lies inside the convex polygon using SAT
+     */
+    public static boolean pointInPolygon(Vector2f point, Vector2f[] polygon, Vector2f axis) {
         int n = polygon.length;
         for (int i = 0; i < n; i++) {
             Vector2f curr = polygon[i];
             Vector2f next = polygon[(i + 1) % n];
-            Vector2f edge = new Vector2f(next).sub(curr);
-            Vector2f axis = new Vector2f(-edge.y, edge.x).normalize();
+            float edgeX = next.x - curr.x;
+            float edgeY = next.y - curr.y;
+            axis.set(-edgeY, edgeX).normalize();
             float projection = axis.dot(point);
             float min = axis.dot(polygon[0]), max = min;
             for (int j = 1; j < n; j++) {
@@ -162,10 +177,11 @@ public class RaycastManager {
     public static RaycastResult raycastCircle(Raycast ray, Circle circle, RaycastResult rayResult) {
         Vector2f start = ray.getStart();
         Vector2f dir = ray.getDirection();
-        Vector2f toCenter= new Vector2f(start).sub(circle.getCenter());
-        float a = dir.dot(dir);
-        float b = 2f * dir.dot(toCenter);
-        float c = toCenter.dot(toCenter) - circle.getRadius()*circle.getRadius();
+        Vector2f center = circle.getCenter();
+        float toCenterX = start.x - center.x, toCenterY = start.y - center.y;
+        float a = dir.x * dir.x + dir.y * dir.y;
+        float b = 2f * (dir.x * toCenterX + dir.y * toCenterY);
+        float c = (toCenterX * toCenterX + toCenterY * toCenterY) - circle.getRadius()*circle.getRadius();
         float disc = b*b - 4f*a*c;
         if (disc < 0f) {
             RaycastResult.reset(rayResult);
@@ -179,10 +195,15 @@ public class RaycastManager {
             return rayResult;
         }
         float t = t1 >= 0f ? t1 : t2;
-        Vector2f hitPoint = new Vector2f(dir).mul(t).add(start);
-        Vector2f normal = new Vector2f(hitPoint).sub(circle.getCenter());
-        if (normal.lengthSquared() > 0) normal.normalize();
-        rayResult.init(hitPoint, normal, t, true);
+        float hitX = dir.x * t + start.x, hitY = dir.y * t + start.y;
+        float normalX = hitX - center.x, normalY = hitY - center.y;
+        float lengthSquared = normalX * normalX + normalY * normalY;
+        if (lengthSquared > 0) {
+            float invLength = 1.0f / (float) Math.sqrt(lengthSquared);
+            normalX *= invLength;
+            normalY *= invLength;
+        }
+        rayResult.init(hitX, hitY, normalX, normalY, t, true);
         return rayResult;
     }
 
@@ -193,30 +214,209 @@ public class RaycastManager {
      * @return the RaycastResult containing hit data or reset if no hit
      */
     public static RaycastResult raycastAABB(Raycast ray, AABBCollider box, RaycastResult rayResult) {
+        Vector2f center = box.getRigidbody().getPosition();
+        Vector2f half = box.getHalfSize();
         Vector2f origin = ray.getStart();
         Vector2f dir = ray.getDirection();
-        Vector2f min = box.getMin();
-        Vector2f max = box.getMax();
+        return raycastBox(origin.x, origin.y, dir.x, dir.y, center.x - half.x, center.y - half.y,
+                center.x + half.x, center.y + half.y, rayResult);
+    }
+
+    /*
+     * @param ray - the Raycast to test
+     * @param box - the oriented box collider
+     * @param rayResult - preallocated result object
+     * @return the RaycastResult containing hit data or reset if no hit
+     */
+    public static RaycastResult raycastOBB(Raycast ray, OBBCollider box, RaycastResult rayResult) {
+        float rotation = box.getRigidbody().getRotation();
+        Vector2f center = box.getRigidbody().getPosition();
+        Vector2f half = box.getHalfSize();
+        // rotate the ray into the box's frame, the same way DTUMath.rotate does
+        float cos = DTUMath.cosDeg(-rotation);
+        float sin = DTUMath.sinDeg(-rotation);
+        Vector2f start = ray.getStart();
+        float x = start.x - center.x, y = start.y - center.y;
+        float localX = (x * cos - y * sin) + center.x;
+        float localY = (x * sin + y * cos) + center.y;
+        Vector2f dir = ray.getDirection();
+        float dirX = dir.x * cos - dir.y * sin;
+        float dirY = dir.x * sin + dir.y * cos;
+        float invLength = 1.0f / (float) Math.sqrt(dirX * dirX + dirY * dirY);
+        dirX *= invLength;
+        dirY *= invLength;
+
+        // the unrotated box, its half size rebuilt from the corners like an AABBCollider would
+        float halfX = ((center.x + half.x) - (center.x - half.x)) * 0.5f;
+        float halfY = ((center.y + half.y) - (center.y - half.y)) * 0.5f;
+        if (!raycastBox(localX, localY, dirX, dirY, center.x - halfX, center.y - halfY,
+                center.x + halfX, center.y + halfY, rayResult).isHit()) {
+            return rayResult;
+        }
+
+        // rotate the hit back into world space
+        cos = DTUMath.cosDeg(rotation);
+        sin = DTUMath.sinDeg(rotation);
+        Vector2f point = rayResult.getPoint();
+        Vector2f normal = rayResult.getNormal();
+        x = point.x - center.x;
+        y = point.y - center.y;
+        rayResult.init((x * cos - y * sin) + center.x, (x * sin + y * cos) + center.y,
+                normal.x * cos - normal.y * sin, normal.x * sin + normal.y * cos, rayResult.getDistance(), true);
+        return rayResult;
+    }
+
+    /*
+     * Clips the ray against every edge of the convex polygon in the polygon's own frame.
+     * @param ray - the Raycast to test
+     * @param polygon - the polygon collider
+     * @param rayResult - preallocated result object
+     * @return the RaycastResult containing hit data or reset if no hit
+     */
+    public static RaycastResult raycastPolygon(Raycast ray, PolygonCollider polygon, RaycastResult rayResult) {
+        Vector2f[] vertices = polygon.getLocalVertices();
+        Vector2f center = polygon.getRigidbody().getPosition();
+        float rotation = polygon.getRigidbody().getRotation();
+        float cos = DTUMath.cosDeg(rotation);
+        float sin = DTUMath.sinDeg(rotation);
+        // rotate the ray back by the polygon's rotation, around the polygon's position
+        Vector2f start = ray.getStart();
+        Vector2f dir = ray.getDirection();
+        float x = start.x - center.x, y = start.y - center.y;
+        float localX = x * cos + y * sin, localY = -x * sin + y * cos;
+        float dirX = dir.x * cos + dir.y * sin, dirY = -dir.x * sin + dir.y * cos;
+
+        float tEnter = -Float.MAX_VALUE, tExit = Float.MAX_VALUE;
+        int enterFace = -1, exitFace = -1;
+        for (int i = 0; i < vertices.length; i++) {
+            Vector2f a = vertices[i], b = vertices[(i + 1) % vertices.length];
+            float normalX = b.y - a.y, normalY = a.x - b.x;
+            float distance = normalX * (a.x - localX) + normalY * (a.y - localY);
+            float approach = normalX * dirX + normalY * dirY;
+            if (approach == 0f) {
+                // parallel to the edge, a miss if outside of it
+                if (distance < 0f) {
+                    RaycastResult.reset(rayResult);
+                    return rayResult;
+                }
+                continue;
+            }
+            float t = distance / approach;
+            if (approach < 0f && t > tEnter) {
+                tEnter = t;
+                enterFace = i;
+            } else if (approach > 0f && t < tExit) {
+                tExit = t;
+                exitFace = i;
+            }
+            if (tEnter > tExit) {
+                RaycastResult.reset(rayResult);
+                return rayResult;
+            }
+        }
+        if (vertices.length < 3 || tExit < 0f) {
+            RaycastResult.reset(rayResult);
+            return rayResult;
+        }
+        // a ray starting inside reports where it leaves, like the box test
+        boolean entering = tEnter >= 0f;
+        float tHit = entering ? tEnter : tExit;
+        int face = entering ? enterFace : exitFace;
+        Vector2f a = vertices[face], b = vertices[(face + 1) % vertices.length];
+        float normalX = b.y - a.y, normalY = a.x - b.x;
+        float invLength = 1.0f / (float) Math.sqrt(normalX * normalX + normalY * normalY);
+        normalX *= invLength;
+        normalY *= invLength;
+        rayResult.init(dir.x * tHit + start.x, dir.y * tHit + start.y,
+                normalX * cos - normalY * sin, normalX * sin + normalY * cos, tHit, true);
+        return rayResult;
+    }
+
+    /*
+     * Intersects the ray with the two straight sides and the two caps of the capsule and keeps
+     * the closest hit that lies on the outline, so a ray starting inside reports where it leaves.
+     * @param ray - the Raycast to test
+     * @param capsule - the capsule collider
+     * @param rayResult - preallocated result object
+     * @return the RaycastResult containing hit data or reset if no hit
+     */
+    public static RaycastResult raycastCapsule(Raycast ray, CapsuleCollider capsule, RaycastResult rayResult) {
+        Vector2f center = capsule.getRigidbody().getPosition();
+        float rotation = capsule.getRigidbody().getRotation();
+        float radius = capsule.getRadius(), halfLength = capsule.getHalfLength();
+        // the capsule's frame: along its segment and across it
+        float alongX = -DTUMath.sinDeg(rotation), alongY = DTUMath.cosDeg(rotation);
+        Vector2f start = ray.getStart();
+        Vector2f dir = ray.getDirection();
+        float x = start.x - center.x, y = start.y - center.y;
+        float originAlong = x * alongX + y * alongY, originAcross = x * alongY - y * alongX;
+        float dirAlong = dir.x * alongX + dir.y * alongY, dirAcross = dir.x * alongY - dir.y * alongX;
+
+        float tHit = Float.MAX_VALUE, normalAlong = 0f, normalAcross = 0f;
+        if (dirAcross != 0f) {
+            for (int side = -1; side <= 1; side += 2) {
+                float t = (side * radius - originAcross) / dirAcross;
+                float along = originAlong + dirAlong * t;
+                if (t >= 0f && t < tHit && along >= -halfLength && along <= halfLength) {
+                    tHit = t;
+                    normalAlong = 0f;
+                    normalAcross = side;
+                }
+            }
+        }
+        for (int cap = -1; cap <= 1; cap += 2) {
+            float capAlong = originAlong - cap * halfLength;
+            float b = capAlong * dirAlong + originAcross * dirAcross;
+            float c = capAlong * capAlong + originAcross * originAcross - radius * radius;
+            float disc = b * b - c;
+            if (disc < 0f || radius == 0f) continue;
+            float sqrtDisc = (float) Math.sqrt(disc);
+            for (int root = -1; root <= 1; root += 2) {
+                float t = -b + root * sqrtDisc;
+                float along = capAlong + dirAlong * t;
+                // only the half of the cap circle beyond the end of the segment is outline
+                if (t >= 0f && t < tHit && along * cap >= 0f) {
+                    tHit = t;
+                    normalAlong = along / radius;
+                    normalAcross = (originAcross + dirAcross * t) / radius;
+                }
+            }
+        }
+        if (tHit == Float.MAX_VALUE) {
+            RaycastResult.reset(rayResult);
+            return rayResult;
+        }
+        rayResult.init(dir.x * tHit + start.x, dir.y * tHit + start.y,
+                normalAlong * alongX + normalAcross * alongY, normalAlong * alongY - normalAcross * alongX, tHit, true);
+        return rayResult;
+    }
+
+    /*
+     * Slab test of a ray against an axis-aligned box given by its corners.
+     * @return the RaycastResult containing hit data or reset if no hit
+     */
+    private static RaycastResult raycastBox(float originX, float originY, float dirX, float dirY,
+                                            float minX, float minY, float maxX, float maxY, RaycastResult rayResult) {
         float t1, t2, t3, t4;
-        if (dir.x == 0f) {
-            if (origin.x < min.x || origin.x > max.x) {
+        if (dirX == 0f) {
+            if (originX < minX || originX > maxX) {
                 RaycastResult.reset(rayResult);
                 return rayResult;
             }
             t1 = Float.NEGATIVE_INFINITY; t2 = Float.POSITIVE_INFINITY;
         } else {
-            t1 = (min.x - origin.x)/dir.x;
-            t2 = (max.x - origin.x)/dir.x;
+            t1 = (minX - originX)/dirX;
+            t2 = (maxX - originX)/dirX;
         }
-        if (dir.y == 0f) {
-            if (origin.y < min.y || origin.y > max.y) {
+        if (dirY == 0f) {
+            if (originY < minY || originY > maxY) {
                 RaycastResult.reset(rayResult);
                 return rayResult;
             }
             t3 = Float.NEGATIVE_INFINITY; t4 = Float.POSITIVE_INFINITY;
         } else {
-            t3 = (min.y - origin.y)/dir.y;
-            t4 = (max.y - origin.y)/dir.y;
+            t3 = (minY - originY)/dirY;
+            t4 = (maxY - originY)/dirY;
         }
         float tNearX = Math.min(t1, t2), tFarX = Math.max(t1, t2);
         float tNearY = Math.min(t3, t4), tFarY = Math.max(t3, t4);
@@ -231,45 +431,90 @@ public class RaycastManager {
             RaycastResult.reset(rayResult);
             return rayResult;
         }
-        Vector2f hitPoint = new Vector2f(dir).mul(tHit).add(origin);
-        Vector2f normal = new Vector2f();
-        if (tNearX > tNearY) normal.x = dir.x > 0 ? -1 : 1;
-        else normal.y = dir.y > 0 ? -1 : 1;
-        rayResult.init(hitPoint, normal, tHit, true);
+        float normalX = 0, normalY = 0;
+        if (tNearX > tNearY) normalX = dirX > 0 ? -1 : 1;
+        else normalY = dirY > 0 ? -1 : 1;
+        rayResult.init(dirX * tHit + originX, dirY * tHit + originY, normalX, normalY, tHit, true);
         return rayResult;
     }
 
     /*
+     * Casts a ray against any supported collider type.
      * @param ray - the Raycast to test
-     * @param box - the oriented box collider
+     * @param collider - the collider to test against
      * @param rayResult - preallocated result object
-     * @return the RaycastResult containing hit data or reset if no hit
+     * @return the RaycastResult containing hit data or reset if no hit or unsupported collider
      */
-    public static RaycastResult raycastOBB(Raycast ray, OBBCollider box, RaycastResult rayResult) {
-        float theta = -box.getRigidbody().getRotation();
-        Vector2f center = box.getRigidbody().getPosition();
-        Vector2f localStart = new Vector2f(ray.getStart());
-        DTUMath.rotate(localStart, theta, center);
-
-        Vector2f localDir = new Vector2f(ray.getDirection());
-        DTUMath.rotate(localDir, theta, new Vector2f());
-
-        Raycast localRay = new Raycast(localStart, localDir);
-        AABBCollider localBox = new AABBCollider(box.getMin(), box.getMax());
-        localBox.setRigidbody(box.getRigidbody());
-        RaycastResult localRes = new RaycastResult();
-        if (!raycastAABB(localRay, localBox, localRes).isHit()) {
-            RaycastResult.reset(rayResult);
-            return rayResult;
+    public static RaycastResult raycast(Raycast ray, Collider collider, RaycastResult rayResult) {
+        if (collider instanceof OBBCollider obb) {
+            return raycastOBB(ray, obb, rayResult);
+        } else if (collider instanceof Circle circle) {
+            return raycastCircle(ray, circle, rayResult);
+        } else if (collider instanceof AABBCollider box) {
+            return raycastAABB(ray, box, rayResult);
+        } else if (collider instanceof PolygonCollider polygon) {
+            return raycastPolygon(ray, polygon, rayResult);
+        } else if (collider instanceof CapsuleCollider capsule) {
+            return raycastCapsule(ray, capsule, rayResult);
         }
+        RaycastResult.reset(rayResult);
+        return rayResult;
+    }
 
-        Vector2f worldHit = new Vector2f(localRes.getPoint());
-        DTUMath.rotate(worldHit, box.getRigidbody().getRotation(), center);
-
-        Vector2f worldNorm = new Vector2f(localRes.getNormal());
-        DTUMath.rotate(worldNorm, box.getRigidbody().getRotation(), new Vector2f());
+    /*
+     * Finds the closest collider hit by a ray, using a DynamicAABBTree so only colliders
+     * whose bounds the ray crosses are tested. Hits at distance 0 or beyond maxDistance are ignored.
+     * @param ray - the Raycast to test
+     * @param tree - tree containing the colliders to test
+     * @param maxDistance - length of the ray
+     * @param filter - colliders for which this returns false are skipped, may be null
+     * @param rayResult - preallocated result object, receives the closest hit
+     * @return the collider that was hit, or null if nothing was hit
+     */
+    public static Collider raycast(Raycast ray, DynamicAABBTree tree, float maxDistance,
+                                   Predicate<Collider> filter, RaycastResult rayResult) {
+        RaycastResult.reset(rayResult);
+        RaycastResult candidate = new RaycastResult();
+        Collider[] closest = new Collider[1];
+        tree.raycast(ray.getStart(), ray.getDirection(), maxDistance, (proxy, currentMax) -> {
+            Collider collider = tree.getCollider(proxy);
+            if (filter != null && !filter.test(collider)) return currentMax;
+            raycast(ray, collider, candidate);
+            if (candidate.isHit() && candidate.getDistance() > 0 && candidate.getDistance() < currentMax) {
+                rayResult.init(candidate.getPoint(), candidate.getNormal(), candidate.getDistance(), true);
+                closest[0] = collider;
+                return candidate.getDistance();  // only closer hits matter from now on
+            }
+            return currentMax;
+        });
+        return closest[0];
+    }
 
-        rayResult.init(worldHit, worldNorm, localRes.getDistance(), true);
-        return rayResult;
+    /*
+     * Casts every ray of a batch in one walk of a DynamicAABBTree and stores the closest
+     * hit of each ray in the batch. Like the single ray version, hits at distance 0 or beyond
+     * the ray's length are ignored, as are colliders the batch's filters reject.
+     * @param batch - rays to cast, receives the results
+     * @param tree - tree containing the colliders to test
+     */
+    public static void raycast(RaycastBatch batch, DynamicAABBTree tree) {
+        int count = batch.size();
+        for (int i = 0; i < count; i++) {
+            batch.distance[i] = batch.maxDistance[i];
+            batch.hitColliders[i] = null;
+            RaycastResult.reset(batch.result(i));
+        }
+        tree.raycast(batch.originX, batch.originY, batch.dirX, batch.dirY, batch.distance, count, (proxy, i, currentMax) -> {
+            Collider collider = tree.getCollider(proxy);
+            if (!batch.accepts(collider, i)) return currentMax;
+            batch.ray.set(batch.originX[i], batch.originY[i], batch.dirX[i], batch.dirY[i]);
+            RaycastResult candidate = raycast(batch.ray, collider, batch.candidate);
+            if (candidate.isHit() && candidate.getDistance() > 0 && candidate.getDistance() < currentMax) {
+                batch.result(i).set(candidate);
+                batch.hitColliders[i] = collider;
+                return candidate.getDistance();  // only closer hits matter from now on
+            }
+            return currentMax;
+        });
     }
 }
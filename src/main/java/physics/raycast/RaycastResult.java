@@ -37,6 +37,30 @@ public class RaycastResult {
         this.hit = hit;
     }
 
+    /*
+     * Initializes this result with intersection data without needing vectors.
+     * @param pointX - x of the intersection point
+     * @param pointY - y of the intersection point
+     * @param normalX - x of the surface normal
+     * @param normalY - y of the surface normal
+     * @param distance - distance from the ray origin to the intersection
+     * @param hit - whether the ray hit a collider
+     */
+    public void init(float pointX, float pointY, float normalX, float normalY, float distance, boolean hit) {
+        this.point.set(pointX, pointY);
+        this.normal.set(normalX, normalY);
+        this.distance = distance;
+        this.hit = hit;
+    }
+
+    /*
+     * Copies another result into this one.
+     * @param other - the result to copy
+     */
+    public void set(RaycastResult other) {
+        init(other.point.x, other.point.y, other.normal.x, other.normal.y, other.distance, other.hit);
+    }
+
     /*
      * Resets the given RaycastResult to its default no-hit state.
      * @param result - the RaycastResult to reset
@@ -0,0 +1,340 @@
+package physics.tilemap;
+
+import components.Component;
+import imgui.ImGui;
+import org.example.GameEngineManager;
+import org.joml.Vector2f;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.collisions.Rigidbody2D.BodyType;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * TilemapCollider gives a grid of solid and empty tiles its collision. Instead of a body per
+ * solid tile it greedily merges the solid tiles into rectangles, growing each one as far right
+ * and then as far up as the tiles allow, and only those rectangles become static box bodies in
+ * the PhysicsSystem. Changing a tile rebuilds the rectangles touching that tile and leaves the
+ * rest of the map, and its bodies in the broad phase, as they are.
+ * Tile (0, 0) is the bottom left tile; its lower left corner sits at the origin.
+ * Author(s): Gabriel, Ahmed
+ */
+public class TilemapCollider extends Component {
+    private int columns = 0;
+    private int rows = 0;
+    private float tileSize = 1.0f;
+    private Vector2f origin = new Vector2f();
+    // solid flags, row by row from the bottom
+    private boolean[] tiles = new boolean[0];
+
+    // rectangle covering each tile, -1 for empty tiles
+    private transient int[] owner = new int[0];
+    // rectangles by id, null where an id is free
+    private transient List<Rectangle> rectangles = new ArrayList<>();
+    private transient List<Integer> freeIds = new ArrayList<>();
+    private transient int rectangleCount = 0;
+    private transient PhysicsSystem system = null;
+
+    // a merged block of solid tiles and the static body standing in for it
+    private static class Rectangle {
+        final int column, row, width, height;
+        final Rigidbody2D body;
+
+        Rectangle(int column, int row, int width, int height, Rigidbody2D body) {
+            this.column = column;
+            this.row = row;
+            this.width = width;
+            this.height = height;
+            this.body = body;
+        }
+    }
+
+    /*
+     * Constructs an empty tilemap. Used by the scene loader, so the
+     * field defaults of the component are applied to saves that lack them.
+     */
+    public TilemapCollider() {
+    }
+
+    /*
+     * Constructs a tilemap of empty tiles.
+     * @param columns - number of tiles along x
+     * @param rows - number of tiles along y
+     * @param tileSize - width and height of one tile in world units
+     */
+    public TilemapCollider(int columns, int rows, float tileSize) {
+        if (columns < 0 || rows < 0) {
+            throw new IllegalArgumentException("Tilemap size cannot be negative: " + columns + " x " + rows);
+        }
+        if (tileSize <= 0.0f) {
+            throw new IllegalArgumentException("Tile size must be positive, was " + tileSize);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.tileSize = tileSize;
+        this.tiles = new boolean[columns * rows];
+        rebuild();
+    }
+
+    /*
+     * Constructs a tilemap from rows of tiles.
+     * @param solid - solid flags indexed [row][column], row 0 at the bottom, all rows of one length
+     * @param tileSize - width and height of one tile in world units
+     */
+    public TilemapCollider(boolean[][] solid, float tileSize) {
+        this(solid.length == 0 ? 0 : solid[0].length, solid.length, tileSize);
+        for (int row = 0; row < rows; row++) {
+            if (solid[row].length != columns) {
+                throw new IllegalArgumentException("Row " + row + " has " + solid[row].length + " tiles, expected " + columns);
+            }
+            System.arraycopy(solid[row], 0, tiles, row * columns, columns);
+        }
+        rebuild();
+    }
+
+    /*
+     * Places the map at its game object and registers its rectangles with the running simulation.
+     */
+    @Override
+    public void start() {
+        if (gameObject != null) {
+            origin.set(gameObject.getTransform().position);
+        }
+        // also builds the transient state of a map loaded from a save
+        rebuild();
+        PhysicsSystem physicsSystem = GameEngineManager.getPhysicsSystem();
+        if (physicsSystem != null) {
+            attach(physicsSystem);
+        }
+    }
+
+    @Override
+    public void update(float dt) {
+        // no-op: the rectangles are static bodies simulated by the PhysicsSystem
+    }
+
+    /*
+     * Shows the size of the map instead of editable fields, changing them would not rebuild the rectangles.
+     */
+    @Override
+    public void imGui() {
+        ImGui.text(columns + " x " + rows + " tiles, " + rectangleCount + " rectangles");
+    }
+
+    /*
+     * Adds the bodies of all rectangles to a simulation, removing them from the previous one.
+     * @param system - the PhysicsSystem that should collide with the map
+     */
+    public void attach(PhysicsSystem system) {
+        detach();
+        this.system = system;
+        for (Rectangle rectangle : rectangles) {
+            if (rectangle != null) system.addRigidbody(rectangle.body);
+        }
+    }
+
+    /*
+     * Removes the bodies of all rectangles from the simulation they were added to, if any.
+     */
+    public void detach() {
+        if (system == null) return;
+        for (Rectangle rectangle : rectangles) {
+            if (rectangle != null) system.removeRigidbody(rectangle.body);
+        }
+        system = null;
+    }
+
+    /*
+     * Moves the map. Rebuilds all rectangles, so it is meant for placing a map, not animating it.
+     * @param origin - world position of the lower left corner of tile (0, 0)
+     */
+    public void setOrigin(Vector2f origin) {
+        this.origin.set(origin);
+        rebuild();
+    }
+
+    /*
+     * @return world position of the lower left corner of tile (0, 0), not to be modified
+     */
+    public Vector2f getOrigin() {
+        return origin;
+    }
+
+    /*
+     * Makes a tile solid or empty and rebuilds the rectangles around it: the one covering the
+     * tile and those covering its four neighbours, so a new tile can join them. Only their
+     * bodies are replaced in the simulation.
+     * @param column - column of the tile
+     * @param row - row of the tile
+     * @param solid - true for a solid tile
+     */
+    public void setSolid(int column, int row, boolean solid) {
+        int tile = index(column, row);
+        if (tiles[tile] == solid) return;
+        tiles[tile] = solid;
+
+        int minColumn = column, minRow = row, maxColumn = column, maxRow = row;
+        int[] around = {tile, column > 0 ? tile - 1 : -1, column < columns - 1 ? tile + 1 : -1,
+                row > 0 ? tile - columns : -1, row < rows - 1 ? tile + columns : -1};
+        for (int neighbour : around) {
+            if (neighbour < 0 || owner[neighbour] < 0) continue;
+            Rectangle rectangle = rectangles.get(owner[neighbour]);
+            minColumn = Math.min(minColumn, rectangle.column);
+            minRow = Math.min(minRow, rectangle.row);
+            maxColumn = Math.max(maxColumn, rectangle.column + rectangle.width - 1);
+            maxRow = Math.max(maxRow, rectangle.row + rectangle.height - 1);
+            removeRectangle(owner[neighbour]);
+        }
+        merge(minColumn, minRow, maxColumn, maxRow);
+    }
+
+    /*
+     * @param column - column of the tile
+     * @param row - row of the tile
+     * @return true if the tile is solid
+     */
+    public boolean isSolid(int column, int row) {
+        return tiles[index(column, row)];
+    }
+
+    /*
+     * Throws away all rectangles and merges the whole map again.
+     */
+    public void rebuild() {
+        for (int id = 0; id < rectangles.size(); id++) {
+            if (rectangles.get(id) != null) removeRectangle(id);
+        }
+        rectangles.clear();
+        freeIds.clear();
+        owner = new int[tiles.length];
+        Arrays.fill(owner, -1);
+        if (columns > 0 && rows > 0) {
+            merge(0, 0, columns - 1, rows - 1);
+        }
+    }
+
+    // greedily covers the solid tiles of a region that no rectangle covers yet
+    private void merge(int minColumn, int minRow, int maxColumn, int maxRow) {
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                if (!isFree(column, row)) continue;
+                int width = 1;
+                while (column + width <= maxColumn && isFree(column + width, row)) {
+                    width++;
+                }
+                int height = 1;
+                while (row + height <= maxRow && isFreeRun(column, row + height, width)) {
+                    height++;
+                }
+                addRectangle(column, row, width, height);
+            }
+        }
+    }
+
+    private boolean isFree(int column, int row) {
+        int tile = row * columns + column;
+        return tiles[tile] && owner[tile] < 0;
+    }
+
+    private boolean isFreeRun(int column, int row, int width) {
+        for (int i = 0; i < width; i++) {
+            if (!isFree(column + i, row)) return false;
+        }
+        return true;
+    }
+
+    private void addRectangle(int column, int row, int width, int height) {
+        Rigidbody2D body = new Rigidbody2D();
+        body.setBodyType(BodyType.STATIC);
+        body.setPosition(new Vector2f(origin.x + (column + width * 0.5f) * tileSize,
+                origin.y + (row + height * 0.5f) * tileSize));
+        // tags and contact queries see the map's game object
+        body.gameObject = gameObject;
+        OBBCollider box = new OBBCollider(new Vector2f(width * tileSize, height * tileSize));
+        box.gameObject = gameObject;
+        box.setRigidbody(body);
+        body.setCollider(box);
+
+        Rectangle rectangle = new Rectangle(column, row, width, height, body);
+        int id;
+        if (freeIds.isEmpty()) {
+            id = rectangles.size();
+            rectangles.add(rectangle);
+        } else {
+            id = freeIds.remove(freeIds.size() - 1);
+            rectangles.set(id, rectangle);
+        }
+        for (int r = row; r < row + height; r++) {
+            Arrays.fill(owner, r * columns + column, r * columns + column + width, id);
+        }
+        rectangleCount++;
+        if (system != null) {
+            system.addRigidbody(body);
+        }
+    }
+
+    private void removeRectangle(int id) {
+        Rectangle rectangle = rectangles.get(id);
+        for (int r = rectangle.row; r < rectangle.row + rectangle.height; r++) {
+            int start = r * columns + rectangle.column;
+            Arrays.fill(owner, start, start + rectangle.width, -1);
+        }
+        if (system != null) {
+            system.removeRigidbody(rectangle.body);
+        }
+        rectangles.set(id, null);
+        freeIds.add(id);
+        rectangleCount--;
+    }
+
+    private int index(int column, int row) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            throw new IllegalArgumentException("Tile (" + column + ", " + row + ") is outside the "
+                    + columns + " x " + rows + " map");
+        }
+        return row * columns + column;
+    }
+
+    /*
+     * @return number of rectangles, and so of bodies, the solid tiles were merged into
+     */
+    public int getRectangleCount() {
+        return rectangleCount;
+    }
+
+    /*
+     * @return the static bodies of the rectangles, in no particular order
+     */
+    public List<Rigidbody2D> getBodies() {
+        List<Rigidbody2D> bodies = new ArrayList<>(rectangleCount);
+        for (Rectangle rectangle : rectangles) {
+            if (rectangle != null) bodies.add(rectangle.body);
+        }
+        return Collections.unmodifiableList(bodies);
+    }
+
+    /*
+     * @return number of tiles along x
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /*
+     * @return number of tiles along y
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /*
+     * @return width and height of one tile in world units
+     */
+    public float getTileSize() {
+        return tileSize;
+    }
+}
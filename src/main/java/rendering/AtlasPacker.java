@@ -0,0 +1,129 @@
+package rendering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * AtlasPacker places rectangles into a fixed size page with the MaxRects algorithm: it keeps
+ * every maximal free rectangle of the page, puts each new rectangle into the free one that
+ * leaves the shortest leftover side, and splits the free rectangles it overlaps. Inserting
+ * the largest rectangles first packs best.
+ * Author(s): Mathias, Ahmed
+ */
+public class AtlasPacker {
+    private final int width;
+    private final int height;
+    // free rectangles as {x, y, width, height}, they may overlap each other
+    private final List<int[]> free = new ArrayList<>();
+    private long usedArea = 0;
+
+    /*
+     * Constructs an empty page.
+     * @param width - width of the page, at least 1
+     * @param height - height of the page, at least 1
+     */
+    public AtlasPacker(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Atlas page cannot be " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        free.add(new int[]{0, 0, width, height});
+    }
+
+    /*
+     * Places a rectangle on the page.
+     * @param w - width of the rectangle, at least 1
+     * @param h - height of the rectangle, at least 1
+     * @return {x, y} of its lower left corner, or null if it does not fit anymore
+     */
+    public int[] insert(int w, int h) {
+        if (w < 1 || h < 1) {
+            throw new IllegalArgumentException("Cannot pack a " + w + "x" + h + " rectangle");
+        }
+        int[] best = null;
+        int bestShort = Integer.MAX_VALUE, bestLong = Integer.MAX_VALUE;
+        for (int[] rect : free) {
+            if (rect[2] < w || rect[3] < h) continue;
+            int leftoverX = rect[2] - w, leftoverY = rect[3] - h;
+            int shortSide = Math.min(leftoverX, leftoverY), longSide = Math.max(leftoverX, leftoverY);
+            if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+                best = rect;
+                bestShort = shortSide;
+                bestLong = longSide;
+            }
+        }
+        if (best == null) return null;
+
+        int x = best[0], y = best[1];
+        split(x, y, w, h);
+        prune();
+        usedArea += (long) w * h;
+        return new int[]{x, y};
+    }
+
+    // replaces every free rectangle overlapping the placed one by the parts of it left around it
+    private void split(int x, int y, int w, int h) {
+        List<int[]> next = new ArrayList<>(free.size() + 4);
+        for (int[] rect : free) {
+            if (x >= rect[0] + rect[2] || x + w <= rect[0] || y >= rect[1] + rect[3] || y + h <= rect[1]) {
+                next.add(rect);
+                continue;
+            }
+            if (x > rect[0]) {
+                next.add(new int[]{rect[0], rect[1], x - rect[0], rect[3]});
+            }
+            if (x + w < rect[0] + rect[2]) {
+                next.add(new int[]{x + w, rect[1], rect[0] + rect[2] - x - w, rect[3]});
+            }
+            if (y > rect[1]) {
+                next.add(new int[]{rect[0], rect[1], rect[2], y - rect[1]});
+            }
+            if (y + h < rect[1] + rect[3]) {
+                next.add(new int[]{rect[0], y + h, rect[2], rect[1] + rect[3] - y - h});
+            }
+        }
+        free.clear();
+        free.addAll(next);
+    }
+
+    // drops free rectangles that lie inside another one
+    private void prune() {
+        for (int i = 0; i < free.size(); i++) {
+            int[] a = free.get(i);
+            for (int j = i + 1; j < free.size(); j++) {
+                int[] b = free.get(j);
+                if (contains(b, a)) {
+                    free.remove(i);
+                    i--;
+                    break;
+                }
+                if (contains(a, b)) {
+                    free.remove(j);
+                    j--;
+                }
+            }
+        }
+    }
+
+    private static boolean contains(int[] outer, int[] inner) {
+        return inner[0] >= outer[0] && inner[1] >= outer[1]
+                && inner[0] + inner[2] <= outer[0] + outer[2]
+                && inner[1] + inner[3] <= outer[1] + outer[3];
+    }
+
+    /*
+     * @return fraction of the page covered by placed rectangles
+     */
+    public float getOccupancy() {
+        return usedArea / (float) ((long) width * height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,119 @@
+package rendering;
+
+/*
+ * DirtyRanges keeps the sorted, non-overlapping spans of sprite slots in a RenderBatch that
+ * changed since the last upload. Spans that touch, or are separated by a gap of at most
+ * mergeGap slots, are coalesced so a few scattered sprites do not turn into many small
+ * uploads. Once maxRanges spans exist everything collapses into a single span.
+ * Author(s): Mathias, Ahmed
+ */
+public class DirtyRanges {
+    private final int mergeGap;
+    private final int[] starts;
+    private final int[] ends;
+    private int count = 0;
+
+    /*
+     * Constructs an empty set of spans.
+     * @param mergeGap - largest number of clean slots between two spans that are still merged, at least 0
+     * @param maxRanges - most spans kept before they collapse into one, at least 1
+     */
+    public DirtyRanges(int mergeGap, int maxRanges) {
+        if (mergeGap < 0) {
+            throw new IllegalArgumentException("Merge gap cannot be negative: " + mergeGap);
+        }
+        if (maxRanges < 1) {
+            throw new IllegalArgumentException("At least one range is needed: " + maxRanges);
+        }
+        this.mergeGap = mergeGap;
+        this.starts = new int[maxRanges];
+        this.ends = new int[maxRanges];
+    }
+
+    /*
+     * Marks a single slot dirty.
+     * @param index - slot to mark
+     */
+    public void add(int index) {
+        add(index, index + 1);
+    }
+
+    /*
+     * Marks the slots from start up to, not including, end dirty.
+     * @param start - first slot
+     * @param end - slot after the last one, empty spans are ignored
+     */
+    public void add(int start, int end) {
+        if (start < 0) {
+            throw new IllegalArgumentException("Range cannot start below 0: " + start);
+        }
+        if (end <= start) return;
+
+        // first span that ends close enough to reach start, everything before it stays as it is
+        int first = 0;
+        while (first < count && ends[first] + mergeGap < start) {
+            first++;
+        }
+        // spans from first up to last are swallowed by the new one
+        int last = first;
+        while (last < count && starts[last] <= end + mergeGap) {
+            start = Math.min(start, starts[last]);
+            end = Math.max(end, ends[last]);
+            last++;
+        }
+
+        int removed = last - first;
+        if (removed == 0 && count == starts.length) {
+            // out of spans, one span covering everything keeps the upload count bounded
+            starts[0] = Math.min(start, starts[0]);
+            ends[0] = Math.max(end, ends[count - 1]);
+            count = 1;
+            return;
+        }
+        int shift = 1 - removed;
+        if (shift != 0) {
+            System.arraycopy(starts, last, starts, last + shift, count - last);
+            System.arraycopy(ends, last, ends, last + shift, count - last);
+            count += shift;
+        }
+        starts[first] = start;
+        ends[first] = end;
+    }
+
+    /*
+     * Forgets all spans, usually after they were uploaded.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /*
+     * @return true if no slot is dirty
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /*
+     * @return number of spans
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /*
+     * @param i - span index, below getCount()
+     * @return first slot of the span
+     */
+    public int getStart(int i) {
+        return starts[i];
+    }
+
+    /*
+     * @param i - span index, below getCount()
+     * @return slot after the last one of the span
+     */
+    public int getEnd(int i) {
+        return ends[i];
+    }
+}
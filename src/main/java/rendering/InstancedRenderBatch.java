@@ -0,0 +1,405 @@
+package rendering;
+
+import components.Sprite;
+import components.SpriteRenderer;
+import org.example.GameEngineManager;
+import org.example.Transform;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.lwjgl.BufferUtils;
+import util.AssetPool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+/*
+ * InstancedRenderBatch draws its sprites as instances of one static unit quad. Each sprite
+ * is a single 44 byte instance holding its transform, color, texture rect and texture slot,
+ * and the vertex shader turns the quad corners into the rotated sprite. Compared with the
+ * four 36 byte vertices of a RenderBatch sprite this sends about a third of the data and
+ * does no rotation on the CPU.
+ * In texture array mode the batch binds up to eight TextureArrays instead of eight textures.
+ * Every texture of one size shares an array, so the number of distinct textures no longer
+ * splits batches; the texture id of an instance then also carries the layer.
+ * Author(s): Mathias, Ahmed
+ */
+public class InstancedRenderBatch implements SpriteBatch {
+    ////////////////////////////////
+    //     Instance structure    //
+    //////////////////////////////
+    //Pos           scale          rotation   uv rect (0,0) & (1,1)     tex id    color
+    //float,float   float,float    float      float,float,float,float   float     4 unsigned bytes
+    private final int POS_OFFSET = 0;
+    private final int SCALE_OFFSET = POS_OFFSET + 2 * Float.BYTES;
+    private final int ROTATION_OFFSET = SCALE_OFFSET + 2 * Float.BYTES;
+    private final int UV_RECT_OFFSET = ROTATION_OFFSET + Float.BYTES;
+    private final int TEX_ID_OFFSET = UV_RECT_OFFSET + 4 * Float.BYTES;
+    private final int COLOR_OFFSET = TEX_ID_OFFSET + Float.BYTES;
+    private final int INSTANCE_SIZE_BYTES = COLOR_OFFSET + 4;
+    private final int MERGE_GAP = 4;
+    private final int MAX_DIRTY_RANGES = 16;
+    private final int TEXTURE_SLOTS = 8;
+    // the texture id holds 1 + slot + LAYER_STRIDE * layer in texture array mode
+    private final int LAYER_STRIDE = 16;
+
+    // corners of the unit quad, in the order RenderBatch emits its vertices
+    private static final float[] QUAD = {1, 1, 1, 0, 0, 0, 0, 1};
+    private static final int[] QUAD_INDICES = {3, 2, 0, 0, 2, 1};
+
+    private List<Texture> texture;
+    // bound texture arrays in texture array mode, null otherwise
+    private List<TextureArray> arrays;
+    private int[] arraySlots = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private Shader shader;
+    private int vaoID, quadID, instanceID, eboID;
+    // instances of all sprites, uploaded straight from here span by span
+    private ByteBuffer instances;
+    private DirtyRanges dirtyRanges;
+    private int uploadedBytes = 0;
+    private int uploadCalls = 0;
+
+    private SpriteRenderer[] sprites;
+    private int numberSprites;
+    private boolean hasRoom;
+    private int[] texSlots = {0, 1, 2, 3, 4, 5, 6, 7};
+
+    private int maxBatchSize;
+
+    private int zIndex;
+
+    /*
+     * Constructs an InstancedRenderBatch with capacity for a given number of sprites at a specified z-index.
+     * @param batchSize - maximum number of sprites this batch can hold
+     * @param zIndex - depth ordering index for rendering
+     */
+    public InstancedRenderBatch(int batchSize, int zIndex) {
+        this(batchSize, zIndex, false);
+    }
+
+    /*
+     * Constructs an InstancedRenderBatch, optionally sampling its textures from texture arrays.
+     * @param batchSize - maximum number of sprites this batch can hold
+     * @param zIndex - depth ordering index for rendering
+     * @param textureArrays - true to bind TextureArrays, limiting the batch by sprite count only
+     */
+    public InstancedRenderBatch(int batchSize, int zIndex, boolean textureArrays) {
+        if (textureArrays) {
+            shader = AssetPool.getShader("assets/shaders/instancedArrayVertex.glsl", "assets/shaders/arrayFragment.glsl");
+            arrays = new ArrayList<>();
+        } else {
+            shader = AssetPool.getShader("assets/shaders/instancedVertex.glsl", "assets/shaders/fragment.glsl");
+        }
+        this.sprites = new SpriteRenderer[batchSize];
+        this.maxBatchSize = batchSize;
+        this.instances = BufferUtils.createByteBuffer(batchSize * INSTANCE_SIZE_BYTES);
+        this.dirtyRanges = new DirtyRanges(MERGE_GAP, MAX_DIRTY_RANGES);
+
+        this.numberSprites = 0;
+        this.hasRoom = true;
+        this.texture = new ArrayList<>();
+        this.zIndex = zIndex;
+    }
+
+    /*
+     * Initializes the quad, instance and element buffers and configures the attributes,
+     * advancing the instance attributes once per sprite.
+     */
+    @Override
+    public void start() {
+        vaoID = glGenVertexArrays();
+        glBindVertexArray(vaoID);
+
+        quadID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, quadID);
+        glBufferData(GL_ARRAY_BUFFER, QUAD, GL_STATIC_DRAW);
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0);
+        glEnableVertexAttribArray(0);
+
+        eboID = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, QUAD_INDICES, GL_STATIC_DRAW);
+
+        instanceID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, instanceID);
+        glBufferData(GL_ARRAY_BUFFER, (long) maxBatchSize * INSTANCE_SIZE_BYTES, GL_DYNAMIC_DRAW);
+        instanceAttribute(1, 2, GL_FLOAT, false, POS_OFFSET);
+        instanceAttribute(2, 2, GL_FLOAT, false, SCALE_OFFSET);
+        instanceAttribute(3, 1, GL_FLOAT, false, ROTATION_OFFSET);
+        instanceAttribute(4, 4, GL_FLOAT, false, UV_RECT_OFFSET);
+        instanceAttribute(5, 1, GL_FLOAT, false, TEX_ID_OFFSET);
+        instanceAttribute(6, 4, GL_UNSIGNED_BYTE, true, COLOR_OFFSET);
+        glBindVertexArray(0);
+    }
+
+    private void instanceAttribute(int location, int size, int type, boolean normalized, int offset) {
+        glVertexAttribPointer(location, size, type, normalized, INSTANCE_SIZE_BYTES, offset);
+        glVertexAttribDivisor(location, 1);
+        glEnableVertexAttribArray(location);
+    }
+
+    /*
+     * Renders all sprites in this batch, uploading the instances of changed sprites and binding textures.
+     */
+    @Override
+    public void render() {
+        for (int i = 0; i < numberSprites; i++) {
+            SpriteRenderer spr = sprites[i];
+            if (spr.getIsDirty()) {
+                if (!registerTexture(spr)) {
+                    System.err.println("No room for new texture in batch!");
+                    continue;
+                }
+                loadInstance(i);
+                spr.setClean();
+            }
+        }
+        uploadDirtyRanges();
+
+        shader.useProgram();
+        if (arrays != null) {
+            for (int i = 0; i < arrays.size(); i++) {
+                glActiveTexture(GL_TEXTURE0 + i + 1);
+                arrays.get(i).bind();
+            }
+            shader.uploadIntArray("uTextureArrays", arraySlots);
+        } else {
+            for (int i = 0; i < texture.size(); i++) {
+                glActiveTexture(GL_TEXTURE0 + i + 1);
+                texture.get(i).bind();
+            }
+            shader.uploadIntArray("uTexture", texSlots);
+        }
+        shader.uploadMat4f("uProjection", GameEngineManager.getCurrentScene().getCamera().getProjectionMatrix());
+        shader.uploadMat4f("uView", GameEngineManager.getCurrentScene().getCamera().getViewMatrix());
+
+        glBindVertexArray(vaoID);
+        glDrawElementsInstanced(GL_TRIANGLES, QUAD_INDICES.length, GL_UNSIGNED_INT, 0, numberSprites);
+        glBindVertexArray(0);
+        if (arrays != null) {
+            for (int i = 0; i < arrays.size(); i++) {
+                glActiveTexture(GL_TEXTURE0 + i + 1);
+                arrays.get(i).unbind();
+            }
+        } else {
+            for (int i = 0; i < texture.size(); i++) {
+                texture.get(i).unbind();
+            }
+        }
+        shader.detach();
+    }
+
+    /*
+     * Makes sure the texture, or the texture array, of a sprite is bound by this batch.
+     * @param spr - SpriteRenderer about to be loaded
+     * @return false if the batch has no slot left for it
+     */
+    private boolean registerTexture(SpriteRenderer spr) {
+        if (spr.getRenderTexture() == null) return true;
+        if (arrays != null) {
+            AssetPool.assignTextureLayer(spr.getSprite());
+            TextureArray array = spr.getSprite().getTextureArray();
+            if (arrays.contains(array)) return true;
+            if (arrays.size() >= TEXTURE_SLOTS) return false;
+            arrays.add(array);
+            return true;
+        }
+        if (texture.contains(spr.getRenderTexture())) return true;
+        if (!hasTextureRoom()) return false;
+        texture.add(spr.getRenderTexture());
+        return true;
+    }
+
+    /*
+     * Uploads the spans of the instance buffer that changed since the last frame.
+     */
+    private void uploadDirtyRanges() {
+        uploadedBytes = 0;
+        uploadCalls = 0;
+        if (dirtyRanges.isEmpty()) return;
+
+        glBindBuffer(GL_ARRAY_BUFFER, instanceID);
+        for (int r = 0; r < dirtyRanges.getCount(); r++) {
+            int start = dirtyRanges.getStart(r) * INSTANCE_SIZE_BYTES;
+            int end = Math.min(dirtyRanges.getEnd(r), maxBatchSize) * INSTANCE_SIZE_BYTES;
+            instances.limit(end).position(start);
+            glBufferSubData(GL_ARRAY_BUFFER, start, instances);
+            uploadedBytes += end - start;
+            uploadCalls++;
+        }
+        instances.clear();
+        dirtyRanges.clear();
+    }
+
+    /*
+     * Adds a sprite to this batch and loads its instance.
+     * @param sprite - SpriteRenderer to add, its texture must be bound here already or fit
+     */
+    @Override
+    public void addSprite(SpriteRenderer sprite) {
+        if (!registerTexture(sprite)) {
+            throw new IllegalStateException("No room for the texture of " + sprite.gameObject.getName() + " in batch");
+        }
+        int index = this.numberSprites;
+        sprites[index] = sprite;
+        numberSprites++;
+        loadInstance(index);
+        if (numberSprites >= this.maxBatchSize) {
+            this.hasRoom = false;
+        }
+    }
+
+    /*
+     * Removes a sprite from this batch, the sprites after it move down a slot.
+     * @param sprite - SpriteRenderer to remove
+     */
+    @Override
+    public void removeSprite(SpriteRenderer sprite) {
+        for (int i = 0; i < numberSprites; i++) {
+            if (sprites[i] == sprite) {
+                System.arraycopy(sprites, i + 1, sprites, i, numberSprites - 1 - i);
+                sprites[numberSprites - 1] = null;
+                numberSprites--;
+                // an instance is cheap to rebuild, so the moved sprites are loaded again
+                for (int j = i; j < numberSprites; j++) {
+                    loadInstance(j);
+                }
+                hasRoom = true;
+                break;
+            }
+        }
+    }
+
+    /*
+     * Writes the instance of the sprite at the given index and marks its slot for upload.
+     * @param index - index of the sprite in the batch
+     */
+    private void loadInstance(int index) {
+        SpriteRenderer sprite = sprites[index];
+        Transform transform = sprite.gameObject.transform;
+        Vector4f color = sprite.getColor();
+        Vector2f[] texCoords = sprite.getRenderTexCoords();
+        int texId = 0;
+        Sprite source = sprite.getSprite();
+        if (arrays != null) {
+            int slot = arrays.indexOf(source.getTextureArray());
+            if (slot >= 0 && source.getLayer() >= 0) {
+                texId = 1 + slot + LAYER_STRIDE * source.getLayer();
+            }
+        } else if (sprite.getRenderTexture() != null) {
+            for (int i = 0; i < texture.size(); i++) {
+                if (texture.get(i) == sprite.getRenderTexture()) {
+                    texId = i + 1;
+                    break;
+                }
+            }
+        }
+
+        int offset = index * INSTANCE_SIZE_BYTES;
+        instances.putFloat(offset + POS_OFFSET, transform.position.x)
+                .putFloat(offset + POS_OFFSET + 4, transform.position.y)
+                .putFloat(offset + SCALE_OFFSET, transform.scale.x)
+                .putFloat(offset + SCALE_OFFSET + 4, transform.scale.y)
+                .putFloat(offset + ROTATION_OFFSET, transform.getRotation())
+                // texture coordinates of the (0,0) corner, then of the (1,1) corner
+                .putFloat(offset + UV_RECT_OFFSET, texCoords[2].x)
+                .putFloat(offset + UV_RECT_OFFSET + 4, texCoords[2].y)
+                .putFloat(offset + UV_RECT_OFFSET + 8, texCoords[0].x)
+                .putFloat(offset + UV_RECT_OFFSET + 12, texCoords[0].y)
+                .putFloat(offset + TEX_ID_OFFSET, texId)
+                .put(offset + COLOR_OFFSET, toByte(color.x))
+                .put(offset + COLOR_OFFSET + 1, toByte(color.y))
+                .put(offset + COLOR_OFFSET + 2, toByte(color.z))
+                .put(offset + COLOR_OFFSET + 3, toByte(color.w));
+        dirtyRanges.add(index);
+    }
+
+    private static byte toByte(float channel) {
+        return (byte) Math.round(Math.max(0.0f, Math.min(1.0f, channel)) * 255.0f);
+    }
+
+    /*
+     * @return true if there is room for more sprites in this batch
+     */
+    @Override
+    public boolean hasRoom() {
+        return this.hasRoom;
+    }
+
+    /*
+     * @return true if there is room for additional textures, or texture arrays (max 8)
+     */
+    @Override
+    public boolean hasTextureRoom() {
+        if (arrays != null) {
+            return arrays.size() < TEXTURE_SLOTS;
+        }
+        return this.texture.size() < TEXTURE_SLOTS;
+    }
+
+    /*
+     * @param sprite - SpriteRenderer to check
+     * @return true if the specified sprite is in this batch
+     */
+    @Override
+    public boolean hasSprite(SpriteRenderer sprite) {
+        for (int i = 0; i < numberSprites; i++) {
+            if (sprites[i] == sprite) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * @param texture - Texture to check
+     * @return true if the specified texture, or the texture array holding it, is bound in this batch
+     */
+    @Override
+    public boolean hasTexture(Texture texture) {
+        if (arrays != null) {
+            TextureArray array = AssetPool.getTextureArray(texture);
+            return array != null && arrays.contains(array);
+        }
+        return this.texture.contains(texture);
+    }
+
+    /*
+     * @return true if this batch samples its textures from texture arrays
+     */
+    public boolean usesTextureArrays() {
+        return arrays != null;
+    }
+
+    /*
+     * @return z-index ordering value for this batch
+     */
+    @Override
+    public int getzIndex() {
+        return zIndex;
+    }
+
+    /*
+     * @return bytes of instance data uploaded by the last render call
+     */
+    @Override
+    public int getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /*
+     * @return glBufferSubData calls made by the last render call
+     */
+    @Override
+    public int getUploadCalls() {
+        return uploadCalls;
+    }
+}
@@ -9,7 +9,9 @@ import util.AssetPool;
 import util.DTUMath;
 import util.Time;
 import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
 
+import java.nio.FloatBuffer;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -19,13 +21,16 @@ import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
 
 /*
  * RenderBatch manages a batch of SpriteRenderers for efficient rendering.
  * It groups sprites sharing the same shader and textures into a single draw call.
+ * A streaming batch writes every sprite straight into a mapped VertexStream each frame
+ * instead of keeping a copy of the vertices and uploading the ones that changed.
  * Author(s): Mathias, Ahmed
  */
-public class RenderBatch implements Comparable<RenderBatch> {
+public class RenderBatch implements SpriteBatch {
     ////////////////////////////////
     //      Vertex structure     //
     //////////////////////////////
@@ -43,6 +48,10 @@ public class RenderBatch implements Comparable<RenderBatch> {
     private final int TEX_ID_OFFSET = TEX_COORDS_OFFSET + TEX_COORDS_SIZE * Float.BYTES;
     private final int VERTEX_SIZE = 9;
     private final int VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
+    private final int SPRITE_SIZE = 4 * VERTEX_SIZE;
+    // clean sprites between two dirty spans that are still uploaded to save a call
+    private final int MERGE_GAP = 4;
+    private final int MAX_DIRTY_RANGES = 16;
 
 
     private List<Texture> texture;
@@ -50,11 +59,20 @@ public class RenderBatch implements Comparable<RenderBatch> {
     private Shader shader;
     private int vaoID, vboID, eboID;
     private float[] vertices;
+    // staging buffer the dirty spans are copied into before they go to the GPU
+    private FloatBuffer uploadBuffer;
+    private DirtyRanges dirtyRanges;
+    // set for streaming batches, which have no vertex array or dirty ranges
+    private VertexStream stream;
+    // mapped memory written while streaming, and where this frame's vertices start in it
+    private FloatBuffer streamTarget;
+    private int streamOffset;
+    private int uploadedBytes = 0;
+    private int uploadCalls = 0;
 
     private SpriteRenderer[] sprites;
     private int numberSprites;
     private boolean hasRoom;
-    private boolean needsRebuffer = false;
     private int []texSlots={0,1,2,3,4,5,6,7};
 
     private int maxBatchSize;
@@ -67,12 +85,27 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * @param zIndex - depth ordering index for rendering
      */
     public RenderBatch(int batchSize, int zIndex) {
+        this(batchSize, zIndex, false);
+    }
+
+    /*
+     * Constructs a RenderBatch, optionally streaming its vertices through a mapped buffer.
+     * @param batchSize - maximum number of sprites this batch can hold
+     * @param zIndex - depth ordering index for rendering
+     * @param streaming - true to write all vertices into a VertexStream every frame
+     */
+    public RenderBatch(int batchSize, int zIndex, boolean streaming) {
         shader = AssetPool.getShader("assets/shaders/vertex.glsl", "assets/shaders/fragment.glsl");
         this.sprites = new SpriteRenderer[batchSize];
         this.maxBatchSize = batchSize;
 
         //There are batchSize tiles of four vertices that each have size 9
-        vertices = new float[batchSize * 4 * VERTEX_SIZE];
+        if (streaming) {
+            stream = new VertexStream(batchSize * SPRITE_SIZE, VERTEX_SIZE);
+        } else {
+            vertices = new float[batchSize * SPRITE_SIZE];
+            dirtyRanges = new DirtyRanges(MERGE_GAP, MAX_DIRTY_RANGES);
+        }
 
         this.numberSprites = 0;
         this.hasRoom = true;
@@ -83,14 +116,20 @@ public class RenderBatch implements Comparable<RenderBatch> {
     /*
      * Initializes OpenGL buffers and configures vertex attributes for this batch.
      */
+    @Override
     public void start() {
         // Our VAO, VBO and EBO buffer Objects.
         vaoID = glGenVertexArrays();
         glBindVertexArray(vaoID);
 
-        vboID = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        glBufferData(GL_ARRAY_BUFFER, vertices.length * Float.BYTES, GL_DYNAMIC_DRAW);
+        if (stream != null) {
+            vboID = stream.start();
+        } else {
+            vboID = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, vboID);
+            glBufferData(GL_ARRAY_BUFFER, vertices.length * Float.BYTES, GL_DYNAMIC_DRAW);
+            uploadBuffer = BufferUtils.createFloatBuffer(vertices.length);
+        }
 
         eboID = glGenBuffers();
         glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
@@ -111,30 +150,31 @@ public class RenderBatch implements Comparable<RenderBatch> {
     }
 
     /*
-     * Renders all sprites in this batch, rebuffering if necessary and binding textures.
+     * Renders all sprites in this batch, uploading the vertices of changed sprites and binding textures.
      */
+    @Override
     public void render() {
-        boolean rebufferData = false;
         for (int i = 0; i < numberSprites; i++) {
             SpriteRenderer spr = sprites[i];
-            if (spr.getIsDirty() || needsRebuffer) {
-                if (spr.getTexture() != null && !texture.contains(spr.getTexture())) {
+            if (spr.getIsDirty()) {
+                if (spr.getRenderTexture() != null && !texture.contains(spr.getRenderTexture())) {
                     if (hasTextureRoom()) {
-                        texture.add(spr.getTexture());
+                        texture.add(spr.getRenderTexture());
                     } else {
                         System.err.println("No room for new texture in batch!");
                         continue;
                     }
                 }
-                rebufferData = true;
-                loadVertexProperties(i);
-                this.needsRebuffer = false;
+                if (stream == null) {
+                    loadVertexProperties(i);
+                }
                 spr.setClean();
             }
         }
-        if (rebufferData) {
-            glBindBuffer(GL_ARRAY_BUFFER, vboID);
-            glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
+        if (stream != null) {
+            streamVertices();
+        } else {
+            uploadDirtyRanges();
         }
 
         shader.useProgram();
@@ -151,7 +191,12 @@ public class RenderBatch implements Comparable<RenderBatch> {
         glEnableVertexAttribArray(1);
         glEnableVertexAttribArray(2);
         glEnableVertexAttribArray(3);
-        glDrawElements(GL_TRIANGLES, this.numberSprites * 6, GL_UNSIGNED_INT, 0);
+        if (stream != null) {
+            glDrawElementsBaseVertex(GL_TRIANGLES, this.numberSprites * 6, GL_UNSIGNED_INT, 0, stream.getBaseVertex());
+            stream.fence();
+        } else {
+            glDrawElements(GL_TRIANGLES, this.numberSprites * 6, GL_UNSIGNED_INT, 0);
+        }
         glDisableVertexAttribArray(0);
         glDisableVertexAttribArray(1);
         glDisableVertexAttribArray(2);
@@ -163,6 +208,44 @@ public class RenderBatch implements Comparable<RenderBatch> {
         shader.detach();
     }
 
+    /*
+     * Uploads only the spans of the vertex array that changed since the last frame, one
+     * glBufferSubData call per span, and records how much was sent.
+     */
+    private void uploadDirtyRanges() {
+        uploadedBytes = 0;
+        uploadCalls = 0;
+        if (dirtyRanges.isEmpty()) return;
+
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        for (int r = 0; r < dirtyRanges.getCount(); r++) {
+            int offset = dirtyRanges.getStart(r) * SPRITE_SIZE;
+            int length = Math.min(dirtyRanges.getEnd(r) * SPRITE_SIZE, vertices.length) - offset;
+            uploadBuffer.clear();
+            uploadBuffer.put(vertices, offset, length).flip();
+            glBufferSubData(GL_ARRAY_BUFFER, (long) offset * Float.BYTES, uploadBuffer);
+            uploadedBytes += length * Float.BYTES;
+            uploadCalls++;
+        }
+        dirtyRanges.clear();
+    }
+
+    /*
+     * Writes the vertices of every sprite into this frame's segment of the stream. The
+     * counters report the bytes written, there are no upload calls.
+     */
+    private void streamVertices() {
+        streamTarget = stream.begin();
+        streamOffset = stream.getOffset();
+        for (int i = 0; i < numberSprites; i++) {
+            loadVertexProperties(i);
+        }
+        stream.end();
+        streamTarget = null;
+        uploadedBytes = numberSprites * SPRITE_SIZE * Float.BYTES;
+        uploadCalls = 0;
+    }
+
     /*
      * Generates index array for element buffer, creating two triangles per sprite.
      * @return int[] - index array for all sprites in the batch
@@ -186,14 +269,18 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * Adds a sprite to this batch and loads its vertex data.
      * @param sprite - SpriteRenderer to add
      */
+    @Override
     public void addSprite(SpriteRenderer sprite) {
         int index = this.numberSprites;
         sprites[index] = sprite;
         numberSprites++;
-        if (sprite.getTexture() != null && !texture.contains(sprite.getTexture())) {
-            texture.add(sprite.getTexture());
+        if (sprite.getRenderTexture() != null && !texture.contains(sprite.getRenderTexture())) {
+            texture.add(sprite.getRenderTexture());
+        }
+        // a streaming batch writes the sprite with all others in its next frame
+        if (stream == null) {
+            loadVertexProperties(index);
         }
-        loadVertexProperties(index);
         if (numberSprites >= this.maxBatchSize) {
             this.hasRoom = false;
         }
@@ -203,43 +290,53 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * Removes a sprite from this batch and compacts the vertex buffer.
      * @param sprite - SpriteRenderer to remove
      */
+    @Override
     public void removeSprite(SpriteRenderer sprite) {
         for (int i = 0; i < numberSprites; i++) {
             if (sprites[i] == sprite) {
                 for (int j = i; j < numberSprites - 1; j++) {
                     sprites[j] = sprites[j + 1];
-                    System.arraycopy(vertices,
-                            (j + 1) * 4 * VERTEX_SIZE,
-                            vertices,
-                            j * 4 * VERTEX_SIZE,
-                            4 * VERTEX_SIZE);
                 }
                 sprites[numberSprites - 1] = null;
-                int offset = (numberSprites - 1) * 4 * VERTEX_SIZE;
-                for (int k = 0; k < 4 * VERTEX_SIZE; k++) {
-                    vertices[offset + k] = 0.0f;
+                if (stream == null) {
+                    System.arraycopy(vertices,
+                            (i + 1) * SPRITE_SIZE,
+                            vertices,
+                            i * SPRITE_SIZE,
+                            (numberSprites - 1 - i) * SPRITE_SIZE);
+                    int offset = (numberSprites - 1) * SPRITE_SIZE;
+                    for (int k = 0; k < SPRITE_SIZE; k++) {
+                        vertices[offset + k] = 0.0f;
+                    }
+                    // every sprite from the removed one on moved down a slot
+                    dirtyRanges.add(i, numberSprites);
                 }
                 numberSprites--;
                 hasRoom = true;
-                this.needsRebuffer = true;
                 break;
             }
         }
     }
 
     /*
-     * Loads the vertex properties for a sprite at the given index into the vertex array.
+     * Loads the vertex properties for a sprite at the given index into the vertex array
+     * and marks its slot for upload, or writes them into the stream while streaming.
      * @param index - index of the sprite in the batch
      */
     private void loadVertexProperties(int index) {
         SpriteRenderer sprite = sprites[index];
-        int offset = index * 4 * VERTEX_SIZE;
+        int offset = index * SPRITE_SIZE;
+        if (stream != null) {
+            offset += streamOffset;
+        } else {
+            dirtyRanges.add(index);
+        }
         Vector4f color = sprite.getColor();
-        Vector2f[] texCoords = sprite.getTexCoords();
+        Vector2f[] texCoords = sprite.getRenderTexCoords();
         int texId = 0;
-        if (sprite.getTexture() != null) {
+        if (sprite.getRenderTexture() != null) {
             for (int i = 0; i < texture.size(); i++) {
-                if (texture.get(i) == sprite.getTexture()) {
+                if (texture.get(i) == sprite.getRenderTexture()) {
                     texId = i + 1;
                     break;
                 }
@@ -258,22 +355,43 @@ public class RenderBatch implements Comparable<RenderBatch> {
                             (sprite.gameObject.transform.scale.y / 2)
             );
             DTUMath.rotate(leftCorner, sprite.gameObject.transform.getRotation(), sprite.gameObject.transform.getPosition());
-            vertices[offset] = leftCorner.x;
-            vertices[offset + 1] = leftCorner.y;
-            vertices[offset + 2] = color.x;
-            vertices[offset + 3] = color.y;
-            vertices[offset + 4] = color.z;
-            vertices[offset + 5] = color.w;
-            vertices[offset + 6] = texCoords[i].x;
-            vertices[offset + 7] = texCoords[i].y;
-            vertices[offset + 8] = texId;
+            putVertex(offset, leftCorner.x, leftCorner.y, color, texCoords[i], texId);
             offset += VERTEX_SIZE;
         }
     }
 
+    /*
+     * Writes one vertex into the vertex array, or into the mapped stream while streaming.
+     * @param offset - first float of the vertex
+     */
+    private void putVertex(int offset, float x, float y, Vector4f color, Vector2f texCoords, float texId) {
+        if (streamTarget != null) {
+            streamTarget.put(offset, x)
+                    .put(offset + 1, y)
+                    .put(offset + 2, color.x)
+                    .put(offset + 3, color.y)
+                    .put(offset + 4, color.z)
+                    .put(offset + 5, color.w)
+                    .put(offset + 6, texCoords.x)
+                    .put(offset + 7, texCoords.y)
+                    .put(offset + 8, texId);
+            return;
+        }
+        vertices[offset] = x;
+        vertices[offset + 1] = y;
+        vertices[offset + 2] = color.x;
+        vertices[offset + 3] = color.y;
+        vertices[offset + 4] = color.z;
+        vertices[offset + 5] = color.w;
+        vertices[offset + 6] = texCoords.x;
+        vertices[offset + 7] = texCoords.y;
+        vertices[offset + 8] = texId;
+    }
+
     /*
      * @return true if there is room for more sprites in this batch
      */
+    @Override
     public boolean hasRoom() {
         return this.hasRoom;
     }
@@ -281,6 +399,7 @@ public class RenderBatch implements Comparable<RenderBatch> {
     /*
      * @return true if there is room for additional textures (max 8)
      */
+    @Override
     public boolean hasTextureRoom() {
         return this.texture.size() < 8;
     }
@@ -289,6 +408,7 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * @param sprite - SpriteRenderer to check
      * @return true if the specified sprite is in this batch
      */
+    @Override
     public boolean hasSprite(SpriteRenderer sprite) {
         for (int i = 0; i < numberSprites; i++) {
             if (sprites[i] == sprite) {
@@ -302,24 +422,39 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * @param texture - Texture to check
      * @return true if the specified texture is bound in this batch
      */
+    @Override
     public boolean hasTexture(Texture texture) {
         return this.texture.contains(texture);
     }
 
     /*
-     * @return z-index ordering value for this batch
+     * @return true if this batch streams its vertices through a mapped buffer
      */
-    public int getzIndex() {
-        return zIndex;
+    public boolean isStreaming() {
+        return stream != null;
+    }
+
+    /*
+     * @return bytes of vertex data uploaded, or written into the stream, by the last render call
+     */
+    @Override
+    public int getUploadedBytes() {
+        return uploadedBytes;
     }
 
     /*
-     * Compares batches by their z-index for sorting.
-     * @param o - another RenderBatch to compare against
-     * @return negative, zero, or positive if this batch's z-index is less than, equal to, or greater than the other's
+     * @return glBufferSubData calls made by the last render call
      */
     @Override
-    public int compareTo(RenderBatch o) {
-        return Integer.compare(this.getzIndex(), o.getzIndex());
+    public int getUploadCalls() {
+        return uploadCalls;
+    }
+
+    /*
+     * @return z-index ordering value for this batch
+     */
+    @Override
+    public int getzIndex() {
+        return zIndex;
     }
 }
@@ -2,6 +2,7 @@ package rendering;
 
 import components.SpriteRenderer;
 import org.example.GameObject;
+import util.AssetPool;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -14,7 +15,12 @@ import java.util.List;
  */
 public class Renderer {
     private final int MAX_BATCH_SIZE = 1000;
-    private List<RenderBatch> batches;
+    private List<SpriteBatch> batches;
+    private boolean streaming = false;
+    private boolean instanced = false;
+    private boolean textureArrays = false;
+    private int uploadedBytes = 0;
+    private int uploadCalls = 0;
 
     /*
      * Constructs a Renderer with no initial batches.
@@ -42,10 +48,15 @@ public class Renderer {
      */
     private void addSprite(SpriteRenderer sprite) {
         boolean added = false;
+        AssetPool.remapToAtlas(sprite.getSprite());
+        if (textureArrays) {
+            // the layer decides which batches already bind the sprite's texture
+            AssetPool.assignTextureLayer(sprite.getSprite());
+        }
 
-        for (RenderBatch batch : batches) {
+        for (SpriteBatch batch : batches) {
             if (batch.hasRoom() && batch.getzIndex() == sprite.gameObject.getzIndex()) {
-                Texture tex = sprite.getTexture();
+                Texture tex = sprite.getRenderTexture();
                 if (tex == null || (batch.hasTexture(tex) || batch.hasTextureRoom())) {
                     batch.addSprite(sprite);
                     added = true;
@@ -54,7 +65,9 @@ public class Renderer {
             }
         }
         if (!added && sprite.gameObject.isInScene()) {
-            RenderBatch newBatch = new RenderBatch(MAX_BATCH_SIZE, sprite.gameObject.getzIndex());
+            SpriteBatch newBatch = instanced || textureArrays
+                    ? new InstancedRenderBatch(MAX_BATCH_SIZE, sprite.gameObject.getzIndex(), textureArrays)
+                    : new RenderBatch(MAX_BATCH_SIZE, sprite.gameObject.getzIndex(), streaming);
             newBatch.start();
             batches.add(newBatch);
             newBatch.addSprite(sprite);
@@ -62,12 +75,62 @@ public class Renderer {
         }
     }
 
+    /*
+     * Chooses how batches created from now on send their vertices. Streaming suits scenes
+     * where most sprites move every frame, otherwise only the changed sprites are uploaded.
+     * @param streaming - true to write vertices into persistently mapped buffers
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /*
+     * @return true if new batches stream their vertices
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /*
+     * Chooses whether batches created from now on draw their sprites as instances of one quad,
+     * which sends a single small instance per sprite. Instanced batches take precedence over
+     * streaming; without either the CPU built RenderBatch is used.
+     * @param instanced - true to create InstancedRenderBatches
+     */
+    public void setInstanced(boolean instanced) {
+        this.instanced = instanced;
+    }
+
+    /*
+     * @return true if new batches draw their sprites instanced
+     */
+    public boolean isInstanced() {
+        return instanced;
+    }
+
+    /*
+     * Chooses whether batches created from now on sample their textures from texture arrays,
+     * which groups same-size textures into the layers of one array so batches are limited
+     * by sprite count instead of by eight textures. Texture array batches are instanced.
+     * @param textureArrays - true to create texture array batches
+     */
+    public void setTextureArrays(boolean textureArrays) {
+        this.textureArrays = textureArrays;
+    }
+
+    /*
+     * @return true if new batches sample their textures from texture arrays
+     */
+    public boolean isTextureArrays() {
+        return textureArrays;
+    }
+
     /*
      * Removes a SpriteRenderer from its RenderBatch.
      * @param sprite - SpriteRenderer to remove from batches
      */
     public void removeSprite(SpriteRenderer sprite) {
-        for (RenderBatch batch : batches) {
+        for (SpriteBatch batch : batches) {
             if (batch.hasSprite(sprite)) {
                 System.out.println("The sprite was found in the batch renderer");
                 batch.removeSprite(sprite);
@@ -79,8 +142,26 @@ public class Renderer {
      * Calls render on all RenderBatches managed by this Renderer.
      */
     public void render() {
-        for (RenderBatch batch : batches) {
+        uploadedBytes = 0;
+        uploadCalls = 0;
+        for (SpriteBatch batch : batches) {
             batch.render();
+            uploadedBytes += batch.getUploadedBytes();
+            uploadCalls += batch.getUploadCalls();
         }
     }
+
+    /*
+     * @return bytes of vertex data all batches uploaded in the last frame
+     */
+    public int getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /*
+     * @return glBufferSubData calls all batches made in the last frame
+     */
+    public int getUploadCalls() {
+        return uploadCalls;
+    }
 }
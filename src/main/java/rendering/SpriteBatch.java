@@ -0,0 +1,79 @@
+package rendering;
+
+import components.SpriteRenderer;
+
+/*
+ * SpriteBatch draws a group of SpriteRenderers on the same z-index that share up to eight
+ * textures with a single draw call. RenderBatch builds four vertices per sprite on the CPU,
+ * InstancedRenderBatch sends one instance per sprite and builds the quad in the vertex shader.
+ * Author(s): Mathias, Ahmed
+ */
+public interface SpriteBatch extends Comparable<SpriteBatch> {
+
+    /*
+     * Creates the OpenGL buffers of this batch.
+     */
+    void start();
+
+    /*
+     * Sends the changed sprites to the GPU and draws the batch.
+     */
+    void render();
+
+    /*
+     * @param sprite - SpriteRenderer to add, the batch must have room for it and its texture
+     */
+    void addSprite(SpriteRenderer sprite);
+
+    /*
+     * @param sprite - SpriteRenderer to remove, ignored if it is not in this batch
+     */
+    void removeSprite(SpriteRenderer sprite);
+
+    /*
+     * @return true if there is room for more sprites in this batch
+     */
+    boolean hasRoom();
+
+    /*
+     * @return true if there is room for additional textures
+     */
+    boolean hasTextureRoom();
+
+    /*
+     * @param sprite - SpriteRenderer to check
+     * @return true if the specified sprite is in this batch
+     */
+    boolean hasSprite(SpriteRenderer sprite);
+
+    /*
+     * @param texture - Texture to check
+     * @return true if the specified texture is bound in this batch
+     */
+    boolean hasTexture(Texture texture);
+
+    /*
+     * @return z-index ordering value for this batch
+     */
+    int getzIndex();
+
+    /*
+     * @return bytes of sprite data sent to the GPU by the last render call
+     */
+    int getUploadedBytes();
+
+    /*
+     * @return buffer upload calls made by the last render call
+     */
+    int getUploadCalls();
+
+    /*
+     * Compares batches by their z-index for sorting.
+     * @param o - another batch to compare against
+     * @return negative, zero, or positive if this batch's z-index is less than, equal to, or greater than the other's
+     */
+    @Override
+    default int compareTo(SpriteBatch o) {
+        return Integer.compare(this.getzIndex(), o.getzIndex());
+    }
+}
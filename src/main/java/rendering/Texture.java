@@ -76,6 +76,28 @@ public class Texture {
         stbi_image_free(image);
     }
 
+    /*
+     * Initializes an empty RGBA texture of the given size, to be filled with glTexSubImage2D.
+     * @param width - width in pixels
+     * @param height - height in pixels
+     */
+    public void init(int width, int height) {
+        if (texID != 0) {
+            glDeleteTextures(texID);
+        }
+        texID = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, texID);
+
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+
+        this.width = width;
+        this.height = height;
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+    }
+
     /*
      * Sets the file path associated with this texture without loading it.
      * @param filepath - the file path to assign to this texture
@@ -0,0 +1,136 @@
+package rendering;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.glTexImage3D;
+import static org.lwjgl.opengl.GL12.glTexSubImage3D;
+import static org.lwjgl.opengl.GL30.GL_MAX_ARRAY_TEXTURE_LAYERS;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+
+/*
+ * TextureArray holds textures of one size as the layers of a GL_TEXTURE_2D_ARRAY, so a batch
+ * binds the whole group to a single texture unit and each sprite picks its layer. The layer
+ * count is fixed when the array is created, keeping it under MAX_BYTES of memory. Sources
+ * are recognised by their OpenGL texture id.
+ * Author(s): Mathias, Ahmed
+ */
+public class TextureArray {
+    public static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    private final int width;
+    private final int height;
+    private final int capacity;
+    private int texID;
+    private int layers = 0;
+    // layer of each source texture, by source texture id
+    private final Map<Integer, Integer> layerOf = new HashMap<>();
+
+    /*
+     * Creates an empty array for textures of the given size.
+     * @param width - width of every layer in pixels
+     * @param height - height of every layer in pixels
+     */
+    public TextureArray(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Texture array cannot be " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        long layerBytes = (long) width * height * 4;
+        this.capacity = (int) Math.max(1, Math.min(glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS), MAX_BYTES / layerBytes));
+
+        texID = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D_ARRAY, texID);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA, width, height, capacity, 0, GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /*
+     * Copies a texture into the next free layer, reading its pixels back from the GPU.
+     * @param source - texture of the same size as the array, already loaded
+     * @return layer of the texture, or -1 if the array is full
+     */
+    public int add(Texture source) {
+        int layer = getLayer(source);
+        if (layer >= 0) return layer;
+        if (source.getWidth() != width || source.getHeight() != height) {
+            throw new IllegalArgumentException("A " + source.getWidth() + "x" + source.getHeight()
+                    + " texture does not fit a " + width + "x" + height + " texture array");
+        }
+        if (layers == capacity) return -1;
+
+        ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * 4);
+        glPixelStorei(GL_PACK_ALIGNMENT, 1);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        source.bind();
+        glGetTexImage(GL_TEXTURE_2D, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        source.unbind();
+
+        layer = layers++;
+        glBindTexture(GL_TEXTURE_2D_ARRAY, texID);
+        glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, width, height, 1, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+        layerOf.put(source.getTexID(), layer);
+        return layer;
+    }
+
+    /*
+     * @param source - texture to look for, may be null
+     * @return layer the texture was copied into, or -1
+     */
+    public int getLayer(Texture source) {
+        if (source == null) return -1;
+        Integer layer = layerOf.get(source.getTexID());
+        return layer != null ? layer : -1;
+    }
+
+    /*
+     * Binds this array in the current OpenGL context.
+     */
+    public void bind() {
+        glBindTexture(GL_TEXTURE_2D_ARRAY, texID);
+    }
+
+    /*
+     * Unbinds any texture array from the current OpenGL context.
+     */
+    public void unbind() {
+        glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /*
+     * @return most layers the array can hold
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /*
+     * @return layers in use
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    public int getTexID() {
+        return texID;
+    }
+}
@@ -0,0 +1,108 @@
+package rendering;
+
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+
+/*
+ * TextureAtlas is a texture page that other textures are copied into, so sprites using any
+ * of them can share one texture slot of a batch. Each source texture gets a border of
+ * PADDING pixels repeating its edge, which keeps linear filtering from picking up its
+ * neighbours. Sources are recognised by their OpenGL texture id.
+ * Author(s): Mathias, Ahmed
+ */
+public class TextureAtlas extends Texture {
+    public static final int PADDING = 1;
+
+    private transient AtlasPacker packer;
+    // area of each source texture in the atlas as {u0, v0, u1, v1}, by source texture id
+    private transient Map<Integer, float[]> regions = new HashMap<>();
+
+    /*
+     * Constructs an empty atlas page.
+     * @param width - width in pixels
+     * @param height - height in pixels
+     */
+    public TextureAtlas(int width, int height) {
+        init(width, height);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        this.packer = new AtlasPacker(width, height);
+    }
+
+    /*
+     * Copies a texture into the atlas, reading its pixels back from the GPU.
+     * @param source - texture to copy, already loaded
+     * @return true if the texture is in the atlas, false if there is no room left for it
+     */
+    public boolean add(Texture source) {
+        if (contains(source)) return true;
+        int w = source.getWidth(), h = source.getHeight();
+        if (w < 1 || h < 1) return false;
+        int[] at = packer.insert(w + 2 * PADDING, h + 2 * PADDING);
+        if (at == null) return false;
+
+        ByteBuffer pixels = BufferUtils.createByteBuffer(w * h * 4);
+        glPixelStorei(GL_PACK_ALIGNMENT, 1);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        source.bind();
+        glGetTexImage(GL_TEXTURE_2D, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+
+        // the image shifted by one pixel each way fills the border with its edges, then the
+        // image itself goes on top
+        bind();
+        int x = at[0] + PADDING, y = at[1] + PADDING;
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x - 1, y, w, h, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x + 1, y, w, h, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y - 1, w, h, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y + 1, w, h, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        unbind();
+
+        regions.put(source.getTexID(), new float[]{
+                x / (float) getWidth(), y / (float) getHeight(),
+                (x + w) / (float) getWidth(), (y + h) / (float) getHeight()});
+        return true;
+    }
+
+    /*
+     * @param source - texture to look for
+     * @return true if the texture was copied into this atlas
+     */
+    public boolean contains(Texture source) {
+        return source != null && regions.containsKey(source.getTexID());
+    }
+
+    /*
+     * Converts texture coordinates of a source texture into coordinates in this atlas.
+     * @param source - texture copied into this atlas
+     * @param texCoords - coordinates in the source texture, between 0 and 1
+     * @return new coordinates in the atlas
+     */
+    public Vector2f[] remap(Texture source, Vector2f[] texCoords) {
+        float[] region = regions.get(source.getTexID());
+        if (region == null) {
+            throw new IllegalArgumentException("Texture " + source.getTexID() + " is not in this atlas");
+        }
+        Vector2f[] remapped = new Vector2f[texCoords.length];
+        for (int i = 0; i < texCoords.length; i++) {
+            remapped[i] = new Vector2f(
+                    region[0] + texCoords[i].x * (region[2] - region[0]),
+                    region[1] + texCoords[i].y * (region[3] - region[1]));
+        }
+        return remapped;
+    }
+
+    /*
+     * @return fraction of the atlas covered by textures and their borders
+     */
+    public float getOccupancy() {
+        return packer.getOccupancy();
+    }
+}
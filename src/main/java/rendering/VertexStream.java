@@ -0,0 +1,179 @@
+package rendering;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.ARBBufferStorage.GL_MAP_COHERENT_BIT;
+import static org.lwjgl.opengl.ARBBufferStorage.GL_MAP_PERSISTENT_BIT;
+import static org.lwjgl.opengl.ARBBufferStorage.glBufferStorage;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+
+/*
+ * VertexStream is a vertex buffer the CPU writes into directly, for batches whose sprites
+ * change every frame. With ARB_buffer_storage the buffer holds a ring of FRAMES segments that
+ * stay mapped for the whole lifetime of the stream; each frame writes the next segment and a
+ * fence makes sure the GPU is done drawing from it before it comes around again. Without the
+ * extension a single segment is mapped each frame with its old storage invalidated, so the
+ * driver hands out fresh memory instead of waiting for the previous draw.
+ * Author(s): Mathias, Ahmed
+ */
+public class VertexStream {
+    public static final int FRAMES = 3;
+    // how long a single wait on a fence lasts before it is repeated, in nanoseconds
+    private static final long FENCE_TIMEOUT = 1_000_000L;
+
+    private final int segmentFloats;
+    private final int segmentVertices;
+    private int vboID;
+    private boolean persistent;
+    // the whole ring while persistently mapped, otherwise the segment mapped for this frame
+    private FloatBuffer mapped;
+    private final long[] fences = new long[FRAMES];
+    private int segment = 0;
+    private boolean writing = false;
+
+    /*
+     * Constructs a stream, nothing is allocated on the GPU before start.
+     * @param segmentFloats - floats written per frame, at least 1
+     * @param vertexSize - floats per vertex, dividing segmentFloats
+     */
+    public VertexStream(int segmentFloats, int vertexSize) {
+        if (segmentFloats < 1 || vertexSize < 1 || segmentFloats % vertexSize != 0) {
+            throw new IllegalArgumentException("A segment of " + segmentFloats
+                    + " floats cannot hold vertices of " + vertexSize + " floats");
+        }
+        this.segmentFloats = segmentFloats;
+        this.segmentVertices = segmentFloats / vertexSize;
+    }
+
+    /*
+     * @return true if the current context can map a buffer persistently
+     */
+    public static boolean isPersistentSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL44 || caps.GL_ARB_buffer_storage;
+    }
+
+    /*
+     * Creates and binds the vertex buffer; the vertex attributes are set up on it afterwards.
+     * @return id of the vertex buffer
+     */
+    public int start() {
+        persistent = isPersistentSupported();
+        vboID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        if (persistent) {
+            long size = (long) segmentFloats * FRAMES * Float.BYTES;
+            int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+            glBufferStorage(GL_ARRAY_BUFFER, size, flags);
+            ByteBuffer bytes = glMapBufferRange(GL_ARRAY_BUFFER, 0, size, flags);
+            if (bytes == null) {
+                throw new IllegalStateException("Could not map the vertex stream");
+            }
+            mapped = bytes.asFloatBuffer();
+        } else {
+            glBufferData(GL_ARRAY_BUFFER, (long) segmentFloats * Float.BYTES, GL_STREAM_DRAW);
+        }
+        return vboID;
+    }
+
+    /*
+     * Gets the memory of this frame's segment ready for writing, waiting for the GPU if it
+     * still draws from it. Writes must use absolute puts from getOffset() on.
+     * @return buffer to write this frame's vertices into
+     */
+    public FloatBuffer begin() {
+        if (writing) {
+            throw new IllegalStateException("Vertex stream is already being written");
+        }
+        writing = true;
+        if (persistent) {
+            long fence = fences[segment];
+            if (fence != 0L) {
+                while (glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT) == GL_TIMEOUT_EXPIRED) {
+                    // the GPU is more than FRAMES frames behind, keep waiting
+                }
+                glDeleteSync(fence);
+                fences[segment] = 0L;
+            }
+            return mapped;
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        ByteBuffer bytes = glMapBufferRange(GL_ARRAY_BUFFER, 0, (long) segmentFloats * Float.BYTES,
+                GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT);
+        if (bytes == null) {
+            throw new IllegalStateException("Could not map the vertex stream");
+        }
+        mapped = bytes.asFloatBuffer();
+        return mapped;
+    }
+
+    /*
+     * Finishes writing this frame's segment.
+     */
+    public void end() {
+        if (!writing) {
+            throw new IllegalStateException("Vertex stream is not being written");
+        }
+        writing = false;
+        if (!persistent) {
+            glBindBuffer(GL_ARRAY_BUFFER, vboID);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            mapped = null;
+        }
+    }
+
+    /*
+     * Marks the draw calls issued since end as the last users of this frame's segment and
+     * moves on to the next one.
+     */
+    public void fence() {
+        if (!persistent) return;
+        fences[segment] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        segment = (segment + 1) % FRAMES;
+    }
+
+    /*
+     * @return first float of this frame's segment in the buffer returned by begin
+     */
+    public int getOffset() {
+        return persistent ? segment * segmentFloats : 0;
+    }
+
+    /*
+     * @return index of the first vertex of this frame's segment, to be used as base vertex
+     */
+    public int getBaseVertex() {
+        return persistent ? segment * segmentVertices : 0;
+    }
+
+    /*
+     * @return true if the ring is persistently mapped, false if each frame maps and orphans the buffer
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /*
+     * Unmaps and deletes the buffer and any pending fences.
+     */
+    public void delete() {
+        for (int i = 0; i < FRAMES; i++) {
+            if (fences[i] != 0L) {
+                glDeleteSync(fences[i]);
+                fences[i] = 0L;
+            }
+        }
+        if (persistent) {
+            glBindBuffer(GL_ARRAY_BUFFER, vboID);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+        }
+        glDeleteBuffers(vboID);
+        mapped = null;
+    }
+}
@@ -7,6 +7,7 @@ import org.example.*;
 import org.joml.Vector2f;
 import physics.primitives.Collider;
 import physics.collisions.Rigidbody2D;
+import physics.tilemap.TilemapCollider;
 import util.AssetPool;
 
 import java.util.ArrayList;
@@ -71,6 +72,10 @@ public class EditorScene extends Scene {
                     }
                     drawCollider(collider);
                 }
+                TilemapCollider tilemap = go.getComponent(TilemapCollider.class);
+                if (tilemap != null) {
+                    drawTilemap(tilemap);
+                }
             }
         }
 
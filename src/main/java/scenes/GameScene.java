@@ -10,6 +10,7 @@ import physics.PhysicsSystem;
 import physics.primitives.Collider;
 import physics.primitives.OBBCollider;
 import physics.collisions.Rigidbody2D;
+import physics.tilemap.TilemapCollider;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -23,6 +24,7 @@ public class GameScene extends Scene {
     private static List<GameObject> gameObjectsToLoad = null;
     private ImGuiLayer imGuiLayer;
     private PhysicsSystem physicsSystem;
+    private final Vector2f renderPosition = new Vector2f();
 
     /*
      * Constructs the LevelScene and outputs initialization log.
@@ -56,12 +58,14 @@ public class GameScene extends Scene {
     }
 
     /*
-     * Updates GameObjects, handles physics updates, ImGui processing, and rendering.
+     * Updates GameObjects, places bodies at their interpolated physics pose, and renders.
      * @param dt - time elapsed since last frame (in seconds)
      */
     @Override
     public void update(float dt) {
         List<GameObject> snapshot = new ArrayList<>(this.gameObjects);
+        // physics was stepped by GameEngineManager, draw bodies between the last two steps
+        float alpha = physicsSystem != null ? physicsSystem.getInterpolationAlpha() : 1.0f;
         for (GameObject go : snapshot) {
             go.update(dt);
             Transform transform = go.getTransform();
@@ -69,10 +73,10 @@ public class GameScene extends Scene {
             Collider collider = go.getComponent(Collider.class);
             if (collider != null) {
                 if (rb != null) {
-                    transform.setPosition(rb.getPosition());
+                    transform.setPosition(rb.getInterpolatedPosition(alpha, renderPosition));
                     collider.setRigidbody(rb);
                     rb.setCollider(collider);
-                    transform.setRotation(rb.getRotation());
+                    transform.setRotation(rb.getInterpolatedRotation(alpha));
                     if (collider instanceof OBBCollider obb) {
                         obb.getRigidbody().setRotation(rb.getRotation());
                     }
@@ -81,11 +85,12 @@ public class GameScene extends Scene {
                 }
                 drawCollider(collider);
             }
+            TilemapCollider tilemap = go.getComponent(TilemapCollider.class);
+            if (tilemap != null) {
+                drawTilemap(tilemap);
+            }
         }
 
-        if (physicsSystem != null) {
-            physicsSystem.update(dt);
-        }
         this.renderer.render();
     }
 
@@ -14,10 +14,14 @@ import org.joml.Vector2f;
 import org.joml.Vector3f;
 import physics.PhysicsSystem;
 import physics.collisions.Rigidbody2D;
+import physics.joints.Joint;
 import physics.primitives.AABBCollider;
+import physics.primitives.CapsuleCollider;
 import physics.primitives.Circle;
 import physics.primitives.Collider;
 import physics.primitives.OBBCollider;
+import physics.primitives.PolygonCollider;
+import physics.tilemap.TilemapCollider;
 import rendering.Renderer;
 import serializers.ComponentSerializer;
 import serializers.GameObjectSerializer;
@@ -168,6 +172,8 @@ public abstract class Scene {
                     AssetPool.addSpritesheet(resolvedPath, entry.getValue());
                 }
             }
+            // pack the sheets before the sprites reach the renderer, so they share batches
+            AssetPool.buildAtlases();
             for(GameObject go : saveFile.gameObjects) {
                 addGameObjectToScene(go);
             }
@@ -219,7 +225,7 @@ public abstract class Scene {
     }
 
     /*
-     * Removes a GameObject from the scene, deregistering its Rigidbody if present.
+     * Removes a GameObject from the scene, deregistering its Rigidbody and joints if present.
      * @param go - GameObject to remove
      */
     public void removeGameObject(GameObject go) {
@@ -233,6 +239,15 @@ public abstract class Scene {
             if (rb != null) {
                 GameEngineManager.getPhysicsSystem().removeRigidbody(rb);
             }
+            TilemapCollider tilemap = go.getComponent(TilemapCollider.class);
+            if (tilemap != null) {
+                tilemap.detach();
+            }
+            for (Component c : go.getComponents()) {
+                if (c instanceof Joint joint) {
+                    GameEngineManager.getPhysicsSystem().removeJoint(joint);
+                }
+            }
 
             gameObjects.remove(go);
             go.setInScene(false);
@@ -246,6 +261,16 @@ public abstract class Scene {
     public Renderer getRenderer() {
         return renderer;
     }
+    /*
+     * Draws the merged rectangles of a tilemap the way single box colliders are drawn.
+     * @param tilemap - the tilemap to outline
+     */
+    public void drawTilemap(TilemapCollider tilemap) {
+        for (Rigidbody2D body : tilemap.getBodies()) {
+            drawCollider(body.getCollider());
+        }
+    }
+
     public void drawCollider(Collider collider) {
         switch (collider) {
             case Circle circle -> {
@@ -268,6 +293,15 @@ public abstract class Scene {
                 float rotation = obb.getRigidbody().getRotation();
                 DebugDraw.addBox(center, dimensions, rotation, new Vector3f(1, 0, 0), 1);
             }
+            case PolygonCollider polygon -> {
+                DebugDraw.addPolygon(polygon.getVertices(), new Vector3f(1, 0, 0), 1);
+            }
+            case CapsuleCollider capsule -> {
+                Vector2f from = new Vector2f();
+                Vector2f to = new Vector2f();
+                capsule.getSegment(from, to);
+                DebugDraw.addCapsule(from, to, capsule.getRadius(), new Vector3f(1, 0, 0), 1);
+            }
             case AABBCollider aabb -> {
                 Vector2f center = aabb.getRigidbody().getPosition();
                 Vector2f dimensions = aabb.getHalfSize().mul(2, new Vector2f());
@@ -25,6 +25,7 @@ public class PlayerController extends Component {
         }
         rb.setBodyType(Rigidbody2D.BodyType.DYNAMIC);
         rb.setFixedRotation(true);
+        rb.setContinuous(true);
     }
 
     @Override
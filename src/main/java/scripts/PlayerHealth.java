@@ -5,17 +5,21 @@ import components.SpriteRenderer;
 import org.example.GameEngineManager;
 import org.example.GameObject;
 import org.joml.Vector4f;
-import physics.Physics2D;
+import physics.collisions.CollisionManifold;
+import physics.collisions.ContactListener;
 import physics.collisions.Rigidbody2D;
 import scenes.Scene;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class PlayerHealth extends Component {
+public class PlayerHealth extends Component implements ContactListener {
     public int maxHealth = 3;
     private int currentHealth = maxHealth;
     private Rigidbody2D rb;
     private Scene scene;
+    // snowballs that hit the player since the last frame
+    private transient final List<GameObject> hits = new ArrayList<>();
     private float damageTimer = 0f;
     private boolean hurt = false;
     @Override
@@ -29,16 +33,27 @@ public class PlayerHealth extends Component {
             System.err.println("Scene is null in PlayerHealth");
         }
         rb.setBodyType(Rigidbody2D.BodyType.DYNAMIC);
+        rb.addContactListener(this);
+    }
+
+    @Override
+    public void onContactEnter(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold) {
+        GameObject go = other.getGameObject();
+        // only ghost contacts count, solid bodies are pushed apart instead
+        boolean solid = self.getCollider().isSolid() && other.getCollider().isSolid();
+        if (!solid && go != null && go.getTag().equals("Snowball") && !hits.contains(go)) {
+            hits.add(go);
+        }
     }
 
     @Override
     public void update(float dt) {
         if (rb != null) {
-            List<GameObject> collidingObjects = Physics2D.getCollidingObjects(rb, false, "Snowball");
-            for (GameObject go : collidingObjects) {
+            for (GameObject go : hits) {
                 takeDamage(1);
                 scene.removeGameObject(go);
             }
+            hits.clear();
             if(damageTimer > 0 && hurt) {
                 damageTimer-=0.1f;
             } else if(hurt) {
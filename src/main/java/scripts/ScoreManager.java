@@ -3,17 +3,21 @@ package scripts;
 import components.Component;
 import org.example.GameEngineManager;
 import org.example.GameObject;
-import physics.Physics2D;
+import physics.collisions.CollisionManifold;
+import physics.collisions.ContactListener;
 import physics.collisions.Rigidbody2D;
 import scenes.Scene;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class ScoreManager extends Component {
+public class ScoreManager extends Component implements ContactListener {
 
     private int score = 0;
     private Rigidbody2D rb;
     private Scene scene;
+    // points picked up since the last frame
+    private transient final List<GameObject> pickups = new ArrayList<>();
 
     @Override
     public void start() {
@@ -26,16 +30,27 @@ public class ScoreManager extends Component {
             System.err.println("Scene is null in PlayerHealth");
         }
         rb.setBodyType(Rigidbody2D.BodyType.DYNAMIC);
+        rb.addContactListener(this);
+    }
+
+    @Override
+    public void onContactEnter(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold) {
+        GameObject go = other.getGameObject();
+        // only ghost contacts count, solid bodies are pushed apart instead
+        boolean solid = self.getCollider().isSolid() && other.getCollider().isSolid();
+        if (!solid && go != null && go.getTag().equals("Point") && !pickups.contains(go)) {
+            pickups.add(go);
+        }
     }
 
     @Override
     public void update(float dt) {
         if (rb != null) {
-            List<GameObject> collidingObjects = Physics2D.getCollidingObjects(rb, false, "Point");
-            for (GameObject go : collidingObjects) {
+            for (GameObject go : pickups) {
                 addScore(1);
                 scene.removeGameObject(go);
             }
+            pickups.clear();
         }
     }
 
@@ -93,6 +93,8 @@ public class SnowballSpawner extends Component {
         Rigidbody2D rb = new Rigidbody2D();
         rb.setBodyType(Rigidbody2D.BodyType.DYNAMIC);
         rb.setPosition(new Vector2f(spawnPos));
+        // falls fast, must not pass through the floor between two steps
+        rb.setContinuous(true);
         snowball.addComponent(rb);
 
         Circle collider = new Circle(size.x / 2);
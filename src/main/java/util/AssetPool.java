@@ -1,12 +1,20 @@
 package util;
 
+import components.Sprite;
 import components.SpriteSheet;
 import rendering.Shader;
 import rendering.Texture;
+import rendering.TextureArray;
+import rendering.TextureAtlas;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 /*
  * AssetPool manages shared resources (shaders, textures, sprite sheets) to avoid reloading assets.
@@ -17,6 +25,10 @@ public class AssetPool {
     private static Map<String, Shader> shaders = new HashMap<>();
     private static Map<String, Texture> textures = new HashMap<>();
     private static Map<String, SpriteSheet> spriteSheets = new LinkedHashMap<>();
+    private static List<TextureAtlas> atlases = new ArrayList<>();
+    public static final int ATLAS_SIZE = 2048;
+    // texture arrays by layer size, width in the high and height in the low half of the key
+    private static Map<Long, List<TextureArray>> textureArrays = new HashMap<>();
     /*
      * Retrieves a compiled Shader from the pool, or loads and compiles it if not yet loaded.
      * @param vertexResourceName - file path to vertex shader
@@ -90,4 +102,130 @@ public class AssetPool {
 
         return spriteSheets;
     }
+
+    /*
+     * Packs every loaded texture and sprite sheet texture into atlas pages of ATLAS_SIZE pixels
+     * and makes the sprites of all sprite sheets draw from them, so sprites with different
+     * textures can share a batch. Textures already in an atlas are skipped, so this can run
+     * again after more assets were loaded; textures too big for a page stay on their own.
+     * @return all atlas pages
+     */
+    public static List<TextureAtlas> buildAtlases() {
+        Map<Texture, Boolean> seen = new IdentityHashMap<>();
+        List<Texture> pending = new ArrayList<>();
+        List<Texture> candidates = new ArrayList<>(textures.values());
+        for (SpriteSheet sheet : spriteSheets.values()) {
+            candidates.add(sheet.getTexture());
+        }
+        for (Texture texture : candidates) {
+            if (texture == null || texture instanceof TextureAtlas || seen.put(texture, Boolean.TRUE) != null) continue;
+            if (getAtlas(texture) != null) continue;
+            int padding = 2 * TextureAtlas.PADDING;
+            if (texture.getWidth() + padding > ATLAS_SIZE || texture.getHeight() + padding > ATLAS_SIZE) continue;
+            pending.add(texture);
+        }
+        // tallest first packs the pages tightest
+        pending.sort(Comparator.comparingInt(Texture::getHeight).thenComparingInt(Texture::getWidth).reversed());
+
+        for (Texture texture : pending) {
+            boolean added = false;
+            for (TextureAtlas atlas : atlases) {
+                if (atlas.add(texture)) {
+                    added = true;
+                    break;
+                }
+            }
+            if (!added) {
+                TextureAtlas atlas = new TextureAtlas(ATLAS_SIZE, ATLAS_SIZE);
+                atlas.add(texture);
+                atlases.add(atlas);
+            }
+        }
+
+        for (SpriteSheet sheet : spriteSheets.values()) {
+            for (int i = 0; i < sheet.getNumSprites(); i++) {
+                remapToAtlas(sheet.getSprite(i));
+            }
+        }
+        return Collections.unmodifiableList(atlases);
+    }
+
+    /*
+     * Makes a sprite draw from the atlas holding its texture, if there is one. Sprites loaded
+     * from a scene file carry their own copy of the texture, which is matched by its id.
+     * @param sprite - sprite to remap, may be null
+     */
+    public static void remapToAtlas(Sprite sprite) {
+        if (sprite == null) return;
+        TextureAtlas atlas = getAtlas(sprite.getTexture());
+        if (atlas != null) {
+            sprite.setAtlas(atlas);
+        }
+    }
+
+    /*
+     * @param texture - texture to look for
+     * @return the atlas the texture was packed into, or null
+     */
+    public static TextureAtlas getAtlas(Texture texture) {
+        for (TextureAtlas atlas : atlases) {
+            if (atlas.contains(texture)) {
+                return atlas;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * @return all atlas pages built so far
+     */
+    public static List<TextureAtlas> getAtlases() {
+        return Collections.unmodifiableList(atlases);
+    }
+
+    /*
+     * Gives a sprite the texture array layer holding the texture it is drawn from, copying
+     * that texture into an array of its size first if no array holds it yet.
+     * @param sprite - sprite to assign, may be null or have no texture
+     */
+    public static void assignTextureLayer(Sprite sprite) {
+        if (sprite == null || sprite.getRenderTexture() == null || sprite.getTextureArray() != null) return;
+        Texture texture = sprite.getRenderTexture();
+        TextureArray array = getTextureArray(texture);
+        if (array == null) {
+            List<TextureArray> group = textureArrays.computeIfAbsent(sizeKey(texture), k -> new ArrayList<>());
+            for (TextureArray candidate : group) {
+                if (candidate.getLayers() < candidate.getCapacity()) {
+                    array = candidate;
+                    break;
+                }
+            }
+            if (array == null) {
+                array = new TextureArray(texture.getWidth(), texture.getHeight());
+                group.add(array);
+            }
+            array.add(texture);
+        }
+        sprite.setTextureLayer(array, array.getLayer(texture));
+    }
+
+    /*
+     * @param texture - texture to look for, may be null
+     * @return the texture array holding the texture, or null
+     */
+    public static TextureArray getTextureArray(Texture texture) {
+        if (texture == null) return null;
+        List<TextureArray> group = textureArrays.get(sizeKey(texture));
+        if (group == null) return null;
+        for (TextureArray array : group) {
+            if (array.getLayer(texture) >= 0) {
+                return array;
+            }
+        }
+        return null;
+    }
+
+    private static long sizeKey(Texture texture) {
+        return ((long) texture.getWidth() << 32) | (texture.getHeight() & 0xffffffffL);
+    }
 }
\ No newline at end of file
@@ -17,9 +17,8 @@ public class DTUMath {
      * @param origin - the pivot point for rotation
      */
     public static void rotate(Vector2f vec, float angleDeg, Vector2f origin) { // Modifies the vector given as argument
-        float angleRad = (float) Math.toRadians(angleDeg);
-        float cos = (float) Math.cos(angleRad);
-        float sin = (float) Math.sin(angleRad);
+        float cos = cosDeg(angleDeg);
+        float sin = sinDeg(angleDeg);
         float x = vec.x - origin.x;
         float y = vec.y - origin.y;
         float xNew = (x * cos) - y * sin;
@@ -30,6 +29,58 @@ public class DTUMath {
         vec.y = yNew;
     }
 
+    private static final double INV_QUADRANT = 1.0 / 90.0;
+    // Taylor coefficients of sin and cos, exact to float precision on [-pi/4, pi/4]
+    private static final double S3 = -1.0 / 6.0, S5 = 1.0 / 120.0, S7 = -1.0 / 5040.0,
+            S9 = 1.0 / 362880.0, S11 = -1.0 / 39916800.0, S13 = 1.0 / 6227020800.0;
+    private static final double C2 = -1.0 / 2.0, C4 = 1.0 / 24.0, C6 = -1.0 / 720.0,
+            C8 = 1.0 / 40320.0, C10 = -1.0 / 3628800.0, C12 = 1.0 / 479001600.0, C14 = -1.0 / 87178291200.0;
+
+    /*
+     * Sine of an angle in degrees that gives the same bits on every JVM and CPU, which
+     * Math.sin does not promise; lockstep physics relies on it. The angle is reduced to
+     * [-45, 45] degrees and evaluated as a polynomial using only + and *, which Java
+     * rounds the same way everywhere. The error stays below the float precision.
+     * @param angleDeg - angle in degrees
+     * @return the sine of the angle
+     */
+    public static float sinDeg(float angleDeg) {
+        long quadrant = Math.round(angleDeg * INV_QUADRANT);
+        double rad = Math.toRadians(angleDeg - quadrant * 90.0);
+        return switch ((int) (quadrant & 3)) {
+            case 0 -> (float) sinKernel(rad);
+            case 1 -> (float) cosKernel(rad);
+            case 2 -> (float) -sinKernel(rad);
+            default -> (float) -cosKernel(rad);
+        };
+    }
+
+    /*
+     * Cosine of an angle in degrees, reproducible like sinDeg.
+     * @param angleDeg - angle in degrees
+     * @return the cosine of the angle
+     */
+    public static float cosDeg(float angleDeg) {
+        long quadrant = Math.round(angleDeg * INV_QUADRANT);
+        double rad = Math.toRadians(angleDeg - quadrant * 90.0);
+        return switch ((int) (quadrant & 3)) {
+            case 0 -> (float) cosKernel(rad);
+            case 1 -> (float) -sinKernel(rad);
+            case 2 -> (float) -cosKernel(rad);
+            default -> (float) sinKernel(rad);
+        };
+    }
+
+    private static double sinKernel(double x) {
+        double x2 = x * x;
+        return x + x * x2 * (S3 + x2 * (S5 + x2 * (S7 + x2 * (S9 + x2 * (S11 + x2 * S13)))));
+    }
+
+    private static double cosKernel(double x) {
+        double x2 = x * x;
+        return 1.0 + x2 * (C2 + x2 * (C4 + x2 * (C6 + x2 * (C8 + x2 * (C10 + x2 * (C12 + x2 * C14))))));
+    }
+
     /*
      * Computes the scalar cross product of two 2D vectors.
      * @param a - the first vector
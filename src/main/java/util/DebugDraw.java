@@ -250,6 +250,53 @@ public class DebugDraw {
         addLine2D(points[points.length - 1], points[0], color, lifetime);
     }
 
+    /*
+     * Adds the outline of a polygon with the specified color and lifetime.
+     * @param vertices - the corners of the polygon in order
+     * @param color - the RGB color of the polygon lines
+     * @param lifetime - how many frames the polygon should persist
+     */
+    public static void addPolygon(Vector2f[] vertices, Vector3f color, int lifetime) {
+        for (int i = 0; i < vertices.length; i++) {
+            addLine2D(vertices[i], vertices[(i + 1) % vertices.length], color, lifetime);
+        }
+    }
+
+    /*
+     * Adds the outline of a capsule: its two straight sides and a half circle around each end.
+     * @param from - the center of the first cap
+     * @param to - the center of the second cap
+     * @param radius - radius of the caps
+     * @param color - the RGB color of the capsule lines
+     * @param lifetime - how many frames the capsule should persist
+     */
+    public static void addCapsule(Vector2f from, Vector2f to, float radius, Vector3f color, int lifetime) {
+        Vector2f axis = new Vector2f(to).sub(from);
+        if (axis.lengthSquared() == 0) {
+            addCircle(from, radius, color, lifetime);
+            return;
+        }
+        axis.normalize();
+        Vector2f side = new Vector2f(axis.y, -axis.x).mul(radius);
+        addLine2D(new Vector2f(from).add(side), new Vector2f(to).add(side), color, lifetime);
+        addLine2D(new Vector2f(from).sub(side), new Vector2f(to).sub(side), color, lifetime);
+
+        // half circles from one side to the other, around the end they face
+        int segments = 10;
+        float increment = 180.0f / segments;
+        Vector2f[] caps = {to, from};
+        for (int cap = 0; cap < 2; cap++) {
+            Vector2f previous = new Vector2f(cap == 0 ? side : new Vector2f(side).negate()).add(caps[cap]);
+            for (int i = 1; i <= segments; i++) {
+                Vector2f point = new Vector2f(cap == 0 ? side : new Vector2f(side).negate());
+                DTUMath.rotate(point, increment * i, new Vector2f());
+                point.add(caps[cap]);
+                addLine2D(previous, point, color, lifetime);
+                previous = point;
+            }
+        }
+    }
+
     /** Returns whether debug drawing is enabled. */
     public static boolean isEnabled() {
         return enabled;
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+import rendering.AtlasPacker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * AtlasPackerTests checks that packed rectangles stay on the page, never overlap, and that
+ * the page fills up reasonably before the packer gives up.
+ * Author(s): Gabriel & Ahmed
+ */
+public class AtlasPackerTests {
+
+    private static void assertNoOverlap(List<int[]> placed) {
+        for (int i = 0; i < placed.size(); i++) {
+            int[] a = placed.get(i);
+            for (int j = i + 1; j < placed.size(); j++) {
+                int[] b = placed.get(j);
+                boolean apart = a[0] + a[2] <= b[0] || b[0] + b[2] <= a[0]
+                        || a[1] + a[3] <= b[1] || b[1] + b[3] <= a[1];
+                assertTrue(apart, "rectangles " + i + " and " + j + " overlap");
+            }
+        }
+    }
+
+    @Test
+    public void equalTilesFillThePageExactly() {
+        AtlasPacker packer = new AtlasPacker(128, 128);
+        List<int[]> placed = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int[] at = packer.insert(32, 32);
+            assertNotNull(at, "tile " + i + " should fit");
+            placed.add(new int[]{at[0], at[1], 32, 32});
+        }
+        assertNull(packer.insert(1, 1), "the page is full");
+        assertNoOverlap(placed);
+        assertEquals(1.0f, packer.getOccupancy(), 1e-6f);
+    }
+
+    @Test
+    public void randomRectanglesStayOnThePageWithoutOverlapping() {
+        Random random = new Random(7);
+        AtlasPacker packer = new AtlasPacker(1024, 1024);
+        List<int[]> placed = new ArrayList<>();
+        List<int[]> sizes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            sizes.add(new int[]{8 + random.nextInt(120), 8 + random.nextInt(120)});
+        }
+        // the atlas builder inserts the tallest textures first as well
+        sizes.sort((a, b) -> b[1] != a[1] ? b[1] - a[1] : b[0] - a[0]);
+        for (int[] size : sizes) {
+            int[] at = packer.insert(size[0], size[1]);
+            if (at == null) continue;
+            assertTrue(at[0] >= 0 && at[1] >= 0);
+            assertTrue(at[0] + size[0] <= 1024 && at[1] + size[1] <= 1024);
+            placed.add(new int[]{at[0], at[1], size[0], size[1]});
+        }
+        assertNoOverlap(placed);
+        assertTrue(packer.getOccupancy() > 0.8f, "occupancy was " + packer.getOccupancy());
+    }
+
+    @Test
+    public void tooLargeRectanglesAreRejected() {
+        AtlasPacker packer = new AtlasPacker(64, 32);
+        assertNull(packer.insert(65, 1));
+        assertNull(packer.insert(1, 33));
+        assertNotNull(packer.insert(64, 32));
+        assertThrows(IllegalArgumentException.class, () -> packer.insert(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new AtlasPacker(0, 4));
+    }
+}
@@ -0,0 +1,96 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import physics.collisions.BatchSAT;
+import physics.collisions.BoxPairBatch;
+import physics.collisions.CollisionManager;
+import physics.collisions.CollisionManifold;
+import physics.collisions.Rigidbody2D;
+import physics.collisions.ScalarBatchSAT;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * BatchSATTests checks that the batched box tests, scalar and vectorized, give exactly the
+ * same overlap, depth and normal as CollisionManager does for one pair of rotated boxes.
+ * Author(s): Gabriel & Ahmed
+ */
+public class BatchSATTests {
+
+    private static OBBCollider createBox(Random random) {
+        Vector2f position = new Vector2f(random.nextFloat() * 60f, random.nextFloat() * 60f);
+        // never 0, unrotated pairs take the axis-aligned path in CollisionManager
+        float rotation = 1f + random.nextFloat() * 358f;
+        OBBCollider box = new OBBCollider(new Vector2f(5f + random.nextFloat() * 30f, 5f + random.nextFloat() * 30f));
+        TestBodies.createBody(position, box, Rigidbody2D.BodyType.DYNAMIC).setRotation(rotation);
+        return box;
+    }
+
+    // an odd count, so the vectorized test also has pairs left over after its last vector
+    private static List<OBBCollider[]> createPairs(long seed) {
+        Random random = new Random(seed);
+        List<OBBCollider[]> pairs = new ArrayList<>();
+        for (int i = 0; i < 1_003; i++) {
+            pairs.add(new OBBCollider[]{createBox(random), createBox(random)});
+        }
+        return pairs;
+    }
+
+    private static BoxPairBatch createBatch(List<OBBCollider[]> pairs) {
+        BoxPairBatch batch = new BoxPairBatch();
+        for (OBBCollider[] pair : pairs) {
+            batch.add(pair[0], pair[1]);
+        }
+        return batch;
+    }
+
+    private static void assertMatchesCollisionManager(BatchSAT sat) {
+        List<OBBCollider[]> pairs = createPairs(11);
+        BoxPairBatch batch = createBatch(pairs);
+        sat.test(batch);
+        int colliding = 0;
+        Vector2f normal = new Vector2f();
+        for (int i = 0; i < pairs.size(); i++) {
+            CollisionManifold m = CollisionManager.findCollisionFeatures(pairs.get(i)[0], pairs.get(i)[1]);
+            assertEquals(m.isColliding(), batch.isColliding(i), "pair " + i);
+            if (m.isColliding()) {
+                colliding++;
+                assertEquals(m.getPenetrationDepth(), batch.getOverlap(i), 0.0f, "pair " + i);
+                assertEquals(m.getNormal(), batch.getNormal(i, normal), "pair " + i);
+            }
+        }
+        assertTrue(colliding > 100, "too few overlapping pairs to compare: " + colliding);
+    }
+
+    @Test
+    public void scalarBatchMatchesCollisionManager() {
+        assertMatchesCollisionManager(new ScalarBatchSAT());
+    }
+
+    @Test
+    public void vectorBatchMatchesCollisionManager() {
+        BatchSAT sat = BatchSAT.create();
+        Assumptions.assumeFalse(sat instanceof ScalarBatchSAT, "the Vector API is not available");
+        assertMatchesCollisionManager(sat);
+    }
+
+    @Test
+    public void batchesCanBeReused() {
+        List<OBBCollider[]> pairs = createPairs(3);
+        BoxPairBatch batch = createBatch(pairs);
+        BatchSAT sat = BatchSAT.create();
+        sat.test(batch);
+        boolean first = batch.isColliding(5);
+        batch.clear();
+        assertEquals(0, batch.size());
+        batch.add(pairs.get(5)[0], pairs.get(5)[1]);
+        sat.test(batch);
+        assertEquals(first, batch.isColliding(0));
+        assertThrows(IllegalArgumentException.class, () -> batch.getOverlap(1));
+    }
+}
@@ -0,0 +1,149 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.collisions.BodyStore;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * BodyStoreTests checks that integrating bodies in the packed store gives exactly the
+ * same results as integrating each Rigidbody2D on its own, and that the rigidbody
+ * getters and setters keep working while a body is stored.
+ * Author(s): Gabriel & Ahmed
+ */
+public class BodyStoreTests {
+    private static final float DT = 1.0f / 60.0f;
+
+    private static List<Rigidbody2D> createBodies(long seed, int count) {
+        Random random = new Random(seed);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Rigidbody2D.BodyType[] types = Rigidbody2D.BodyType.values();
+            Rigidbody2D.BodyType type = types[random.nextInt(types.length)];
+            float mass = random.nextInt(8) == 0 ? 0.0f : 0.5f + random.nextFloat() * 4f;
+            boolean fixedRotation = random.nextBoolean();
+            Vector2f position = new Vector2f(random.nextFloat() * 800f, random.nextFloat() * 800f);
+            Vector2f velocity = new Vector2f(random.nextFloat() * 200f - 100f, random.nextFloat() * 200f - 100f);
+            float rotation = random.nextFloat() * 90f;
+            float angularVelocity = random.nextFloat() * 10f - 5f;
+            Collider collider = random.nextBoolean()
+                    ? new Circle(5f + random.nextFloat() * 20f)
+                    : new OBBCollider(new Vector2f(10f + random.nextFloat() * 40f, 10f + random.nextFloat() * 40f));
+            Rigidbody2D rb = TestBodies.createBody(position, collider, type);
+            rb.setMass(mass);
+            rb.setFixedRotation(fixedRotation);
+            rb.setVelocity(velocity);
+            rb.setRotation(rotation);
+            rb.setAngularVelocity(angularVelocity);
+            bodies.add(rb);
+        }
+        return bodies;
+    }
+
+    private static void applyForces(List<Rigidbody2D> bodies, Random random) {
+        for (Rigidbody2D rb : bodies) {
+            rb.addForce(new Vector2f(random.nextFloat() * 50f - 25f, random.nextFloat() * 50f - 25f));
+            rb.addTorque(random.nextFloat() * 4f - 2f);
+        }
+    }
+
+    @Test
+    public void storeIntegrationMatchesPerBodyIntegration() {
+        List<Rigidbody2D> expected = createBodies(7, 300);
+        List<Rigidbody2D> actual = createBodies(7, 300);
+        BodyStore store = new BodyStore();
+        for (Rigidbody2D rb : actual) {
+            store.add(rb);
+        }
+
+        Random forcesA = new Random(11);
+        Random forcesB = new Random(11);
+        for (int step = 0; step < 200; step++) {
+            applyForces(expected, forcesA);
+            applyForces(actual, forcesB);
+            for (Rigidbody2D rb : expected) {
+                if (rb.getBodyType() == Rigidbody2D.BodyType.DYNAMIC) {
+                    rb.physicsUpdate(DT);
+                }
+            }
+            store.integrate(DT);
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            Rigidbody2D e = expected.get(i);
+            Rigidbody2D a = actual.get(i);
+            assertEquals(e.getPosition(), a.getPosition(), "position of body " + i);
+            assertEquals(e.getLinearVelocity(), a.getLinearVelocity(), "velocity of body " + i);
+            assertEquals(e.getRotation(), a.getRotation(), "rotation of body " + i);
+            assertEquals(e.getAngularVelocity(), a.getAngularVelocity(), "angular velocity of body " + i);
+            assertEquals(e.getForceAccumulator(), a.getForceAccumulator(), "force of body " + i);
+            assertEquals(e.getTorque(), a.getTorque(), "torque of body " + i);
+        }
+    }
+
+    @Test
+    public void settersWriteThroughToStore() {
+        Rigidbody2D rb = TestBodies.createBody(new Vector2f(), Rigidbody2D.BodyType.DYNAMIC);
+        BodyStore store = new BodyStore();
+        store.add(rb);
+
+        rb.setPosition(new Vector2f(10, 20));
+        rb.setVelocity(new Vector2f(60, 0));
+        store.integrate(1.0f);
+        assertEquals(60 * 0.95f, rb.getLinearVelocity().x, 1e-5);
+        assertEquals(10 + 60 * 0.95f, rb.getPosition().x, 1e-4);
+        assertEquals(20, rb.getPosition().y);
+
+        // a static body is not integrated and keeps its force until it is cleared
+        rb.setBodyType(Rigidbody2D.BodyType.STATIC);
+        rb.addForce(new Vector2f(5, 5));
+        store.integrate(1.0f);
+        assertEquals(10 + 60 * 0.95f, rb.getPosition().x, 1e-4);
+        assertEquals(new Vector2f(5, 5), rb.getForceAccumulator());
+        rb.clearAccumulators();
+        assertEquals(new Vector2f(), rb.getForceAccumulator());
+    }
+
+    @Test
+    public void removeKeepsStateAndMovesLastBody() {
+        List<Rigidbody2D> bodies = createBodies(3, 10);
+        BodyStore store = new BodyStore();
+        for (Rigidbody2D rb : bodies) {
+            store.add(rb);
+        }
+        store.integrate(DT);
+
+        Rigidbody2D removed = bodies.get(2);
+        Vector2f position = new Vector2f(removed.getPosition());
+        store.remove(removed);
+        assertEquals(9, store.size());
+        assertEquals(position, removed.getPosition());
+        assertSame(bodies.get(9), store.getBody(2));
+
+        // the detached body integrates on its own fields again
+        removed.setBodyType(Rigidbody2D.BodyType.DYNAMIC);
+        removed.setMass(1.0f);
+        removed.setVelocity(new Vector2f(1, 0));
+        removed.physicsUpdate(1.0f);
+        assertEquals(position.x + 0.95f, removed.getPosition().x, 1e-4);
+
+        // the moved body still integrates from its own slot
+        Rigidbody2D moved = bodies.get(9);
+        moved.setBodyType(Rigidbody2D.BodyType.DYNAMIC);
+        moved.setMass(1.0f);
+        moved.setPosition(new Vector2f(0, 0));
+        moved.setVelocity(new Vector2f(0, 1));
+        store.integrate(1.0f);
+        assertEquals(0.95f, moved.getPosition().y, 1e-5);
+
+        store.clear();
+        assertEquals(0, store.size());
+    }
+}
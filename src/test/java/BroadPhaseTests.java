@@ -0,0 +1,163 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.broadphase.BroadPhase;
+import physics.broadphase.BruteForceBroadPhase;
+import physics.broadphase.DynamicTreeBroadPhase;
+import physics.broadphase.PairList;
+import physics.broadphase.SweepAndPruneBroadPhase;
+import physics.broadphase.UniformGridBroadPhase;
+import physics.collisions.CollisionManager;
+import physics.collisions.CollisionManifold;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * BroadPhaseTests checks that the spatial broad phases produce exactly the same
+ * contacts as the brute-force N^2 search.
+ * Author(s): Gabriel & Ahmed
+ */
+public class BroadPhaseTests {
+
+    // builds a random scene of circles and (rotated) boxes with a few static platforms
+    private static List<Rigidbody2D> createScene(long seed, int count) {
+        Random random = new Random(seed);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Rigidbody2D.BodyType type = i % 10 == 0 ? Rigidbody2D.BodyType.STATIC : Rigidbody2D.BodyType.DYNAMIC;
+            Vector2f position = new Vector2f(random.nextFloat() * 600f, random.nextFloat() * 600f);
+            Collider collider;
+            float rotation = 0.0f;
+            if (random.nextBoolean()) {
+                collider = new Circle(5f + random.nextFloat() * 15f);
+            } else {
+                collider = new OBBCollider(new Vector2f(10f + random.nextFloat() * 30f, 10f + random.nextFloat() * 30f));
+                if (random.nextBoolean()) {
+                    rotation = random.nextFloat() * 90f;
+                }
+            }
+            Rigidbody2D rb = TestBodies.createBody(position, collider, type);
+            rb.setRotation(rotation);
+            bodies.add(rb);
+        }
+        return bodies;
+    }
+
+    private static PairList findPairs(BroadPhase broadPhase, List<Rigidbody2D> bodies) {
+        PairList pairs = new PairList();
+        broadPhase.findPairs(bodies, pairs);
+        pairs.sort();
+        return pairs;
+    }
+
+    @Test
+    public void sweepAndPruneFindsAllOverlappingPairs() {
+        List<Rigidbody2D> bodies = createScene(1, 400);
+        PairList expected = findPairs(new BruteForceBroadPhase(), bodies);
+        PairList actual = findPairs(new SweepAndPruneBroadPhase(), bodies);
+        assertSameContacts(bodies, expected, actual);
+    }
+
+    @Test
+    public void uniformGridFindsAllOverlappingPairs() {
+        List<Rigidbody2D> bodies = createScene(2, 400);
+        PairList expected = findPairs(new BruteForceBroadPhase(), bodies);
+        PairList actual = findPairs(new UniformGridBroadPhase(16f), bodies);
+        assertSameContacts(bodies, expected, actual);
+    }
+
+    @Test
+    public void dynamicTreeFindsAllOverlappingPairs() {
+        List<Rigidbody2D> bodies = createScene(5, 400);
+        PairList expected = findPairs(new BruteForceBroadPhase(), bodies);
+        PairList actual = findPairs(new DynamicTreeBroadPhase(), bodies);
+        assertSameContacts(bodies, expected, actual);
+    }
+
+    @Test
+    public void dynamicTreeReportsPairsOnce() {
+        List<Rigidbody2D> bodies = createScene(6, 300);
+        PairList pairs = findPairs(new DynamicTreeBroadPhase(), bodies);
+        for (int k = 1; k < pairs.size(); k++) {
+            boolean same = pairs.getA(k) == pairs.getA(k - 1) && pairs.getB(k) == pairs.getB(k - 1);
+            assertFalse(same, "duplicate pair " + pairs.getA(k) + "," + pairs.getB(k));
+        }
+    }
+
+    @Test
+    public void uniformGridReportsPairsOnce() {
+        List<Rigidbody2D> bodies = createScene(3, 300);
+        PairList pairs = findPairs(new UniformGridBroadPhase(8f), bodies);
+        for (int k = 1; k < pairs.size(); k++) {
+            boolean same = pairs.getA(k) == pairs.getA(k - 1) && pairs.getB(k) == pairs.getB(k - 1);
+            assertFalse(same, "duplicate pair " + pairs.getA(k) + "," + pairs.getB(k));
+        }
+    }
+
+    @Test
+    public void simulationMatchesBruteForce() {
+        BroadPhase[] broadPhases = {
+                new SweepAndPruneBroadPhase(),
+                new UniformGridBroadPhase(),
+                new DynamicTreeBroadPhase()
+        };
+        for (BroadPhase broadPhase : broadPhases) {
+            PhysicsSystem reference = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -9.82f));
+            reference.setBroadPhase(new BruteForceBroadPhase());
+            PhysicsSystem tested = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -9.82f));
+            tested.setBroadPhase(broadPhase);
+            List<Rigidbody2D> referenceBodies = createScene(4, 200);
+            List<Rigidbody2D> testedBodies = createScene(4, 200);
+            referenceBodies.forEach(reference::addRigidbody);
+            testedBodies.forEach(tested::addRigidbody);
+
+            for (int step = 0; step < 60; step++) {
+                reference.fixedUpdate();
+                tested.fixedUpdate();
+                assertEquals(contactKeys(reference.getCollisions(), referenceBodies),
+                        contactKeys(tested.getCollisions(), testedBodies),
+                        broadPhase.getClass().getSimpleName() + " diverged at step " + step);
+            }
+            for (int i = 0; i < referenceBodies.size(); i++) {
+                assertEquals(referenceBodies.get(i).getPosition(), testedBodies.get(i).getPosition());
+            }
+        }
+    }
+
+    // both pair lists must lead to the same narrow-phase contacts, in the same order
+    private static void assertSameContacts(List<Rigidbody2D> bodies, PairList expected, PairList actual) {
+        List<String> expectedContacts = new ArrayList<>();
+        List<String> actualContacts = new ArrayList<>();
+        collectContacts(bodies, expected, expectedContacts);
+        collectContacts(bodies, actual, actualContacts);
+        assertFalse(expectedContacts.isEmpty());
+        assertEquals(expectedContacts, actualContacts);
+    }
+
+    private static void collectContacts(List<Rigidbody2D> bodies, PairList pairs, List<String> out) {
+        for (int k = 0; k < pairs.size(); k++) {
+            Rigidbody2D a = bodies.get(pairs.getA(k));
+            Rigidbody2D b = bodies.get(pairs.getB(k));
+            CollisionManifold m = CollisionManager.findCollisionFeatures(a.getCollider(), b.getCollider());
+            if (m != null && m.isColliding()) {
+                out.add(pairs.getA(k) + ":" + pairs.getB(k));
+            }
+        }
+    }
+
+    private static List<String> contactKeys(List<CollisionManifold> collisions, List<Rigidbody2D> bodies) {
+        List<String> keys = new ArrayList<>();
+        for (CollisionManifold m : collisions) {
+            keys.add(bodies.indexOf(m.getA()) + ":" + bodies.indexOf(m.getB()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,131 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import components.Component;
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.broadphase.BroadPhase;
+import physics.broadphase.BruteForceBroadPhase;
+import physics.broadphase.DynamicTreeBroadPhase;
+import physics.broadphase.PairList;
+import physics.broadphase.SweepAndPruneBroadPhase;
+import physics.broadphase.UniformGridBroadPhase;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+import serializers.ComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * CollisionLayerTests checks that collider category and mask bits remove pairs
+ * in every broad phase, and that the bits survive saving and loading.
+ * Author(s): Gabriel & Ahmed
+ */
+public class CollisionLayerTests {
+    private static final int PLAYER = Collider.layerBit(0);
+    private static final int ENEMY = Collider.layerBit(1);
+    private static final int PICKUP = Collider.layerBit(2);
+
+    // a 10 by 10 box in the given layers
+    private static Rigidbody2D createBox(float x, float y, int category, int mask) {
+        Rigidbody2D rb = TestBodies.createBox(x, y, 10, Rigidbody2D.BodyType.DYNAMIC);
+        rb.getCollider().setCategory(category);
+        rb.getCollider().setMask(mask);
+        return rb;
+    }
+
+    @Test
+    public void layerBitsDecideWhichCollidersInteract() {
+        Collider player = createBox(0, 0, PLAYER, ENEMY | PICKUP).getCollider();
+        Collider enemy = createBox(0, 0, ENEMY, PLAYER).getCollider();
+        Collider pickup = createBox(0, 0, PICKUP, PLAYER).getCollider();
+        Collider plain = new Circle(1);
+
+        assertTrue(player.canCollideWith(enemy));
+        assertTrue(player.canCollideWith(pickup));
+        assertFalse(enemy.canCollideWith(pickup));
+        assertFalse(pickup.canCollideWith(pickup));
+        // the default collider is in layer 0 and accepts every layer, so only the other mask decides
+        assertTrue(plain.canCollideWith(enemy));
+        assertFalse(plain.canCollideWith(player));
+        assertThrows(IllegalArgumentException.class, () -> Collider.layerBit(32));
+    }
+
+    @Test
+    public void everyBroadPhaseDropsPairsOfExcludedLayers() {
+        // a row of overlapping boxes, alternating between enemies and pickups, with one player
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bodies.add(i % 2 == 0
+                    ? createBox(i * 7, 0, ENEMY, PLAYER)
+                    : createBox(i * 7, 0, PICKUP, PLAYER));
+        }
+        bodies.add(createBox(0, 0, PLAYER, ENEMY | PICKUP));
+
+        // brute force pairs the player with every box, it does not look at the bounds
+        PairList pairs = new PairList();
+        new BruteForceBroadPhase().findPairs(bodies, pairs);
+        assertEquals(20, pairs.size());
+        for (int k = 0; k < pairs.size(); k++) {
+            assertEquals(20, pairs.getB(k));
+        }
+
+        // the spatial ones only with the boxes near it, and never two overlapping boxes with each other
+        BroadPhase[] broadPhases = {new SweepAndPruneBroadPhase(), new UniformGridBroadPhase(16f),
+                new DynamicTreeBroadPhase()};
+        for (BroadPhase broadPhase : broadPhases) {
+            pairs.clear();
+            broadPhase.findPairs(bodies, pairs);
+            String name = broadPhase.getClass().getSimpleName();
+            assertTrue(pairs.size() >= 2 && pairs.size() < 5, name);
+            for (int k = 0; k < pairs.size(); k++) {
+                assertEquals(20, pairs.getB(k), name);
+            }
+        }
+    }
+
+    @Test
+    public void excludedLayersPassThroughEachOther() {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, 0));
+        Rigidbody2D enemy = createBox(0, 0, ENEMY, PLAYER);
+        Rigidbody2D pickup = createBox(5, 0, PICKUP, PLAYER);
+        enemy.setVelocity(new Vector2f(60, 0));
+        system.addRigidbody(enemy);
+        system.addRigidbody(pickup);
+        for (int i = 0; i < 30; i++) {
+            system.fixedUpdate();
+        }
+        assertTrue(system.getCollisions().isEmpty());
+        // only damping slowed the enemy down
+        assertTrue(enemy.getPosition().x > 29, "enemy was stopped at " + enemy.getPosition().x);
+        assertEquals(5, pickup.getPosition().x, 1e-3f);
+    }
+
+    @Test
+    public void layersAreSavedAndDefaultWhenMissing() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Component.class, new ComponentSerializer())
+                .create();
+        Collider saved = new Circle(3);
+        saved.setCategory(ENEMY);
+        saved.setMask(PLAYER | PICKUP);
+        String json = gson.toJson(saved, Component.class);
+        Collider loaded = (Collider) gson.fromJson(json, Component.class);
+        assertEquals(ENEMY, loaded.getCategory());
+        assertEquals(PLAYER | PICKUP, loaded.getMask());
+        assertEquals(3, ((Circle) loaded).getRadius());
+
+        // saves written before layers existed load with the default layers
+        for (String type : new String[] {"physics.primitives.Circle", "physics.primitives.OBBCollider"}) {
+            String old = "{\"type\":\"" + type + "\",\"properties\":{\"isSolid\":true}}";
+            Collider collider = (Collider) gson.fromJson(old, Component.class);
+            assertEquals(1, collider.getCategory(), type);
+            assertEquals(0xFFFFFFFF, collider.getMask(), type);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.CollisionManifold;
+import physics.collisions.ContactIndex;
+import physics.collisions.ContactListener;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * ContactEventTests checks that the contact index lists the same contacts as the
+ * manifold lists, and that enter, stay and exit events are sent once per change.
+ * Author(s): Gabriel & Ahmed
+ */
+public class ContactEventTests {
+    private static final float DT = 1.0f / 60.0f;
+
+    // records events as "enter", "stay" and "exit" with the other body
+    private static class Recorder implements ContactListener {
+        final List<String> events = new ArrayList<>();
+        final List<Rigidbody2D> others = new ArrayList<>();
+        int stays = 0;
+        boolean nullManifoldSeen = false;
+
+        @Override
+        public void onContactEnter(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold) {
+            assertNotNull(manifold);
+            events.add("enter");
+            others.add(other);
+        }
+
+        @Override
+        public void onContactStay(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold) {
+            stays++;
+            nullManifoldSeen |= manifold == null;
+        }
+
+        @Override
+        public void onContactExit(Rigidbody2D self, Rigidbody2D other) {
+            events.add("exit");
+            others.add(other);
+        }
+    }
+
+    @Test
+    public void indexListsTheContactsOfEveryManifold() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        Random random = new Random(5);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        bodies.add(TestBodies.addBody(system, new Vector2f(300, -50), new OBBCollider(new Vector2f(800, 100)),
+                Rigidbody2D.BodyType.STATIC, 0.0f));
+        for (int i = 0; i < 150; i++) {
+            Collider collider = random.nextBoolean() ? new Circle(8) : new OBBCollider(new Vector2f(16, 16));
+            collider.setSolid(i % 7 != 0);
+            bodies.add(TestBodies.addBody(system, new Vector2f(random.nextFloat() * 600, random.nextFloat() * 300),
+                    collider, Rigidbody2D.BodyType.DYNAMIC, 0.0f));
+        }
+
+        for (int step = 0; step < 60; step++) {
+            system.fixedUpdate();
+            ContactIndex index = system.getContactIndex();
+            List<CollisionManifold> all = new ArrayList<>(system.getCollisions());
+            all.addAll(system.getGhostCollisions());
+            for (Rigidbody2D body : bodies) {
+                // expected: the bodies of every manifold of this body
+                Set<Rigidbody2D> expected = new HashSet<>();
+                for (CollisionManifold m : all) {
+                    if (m.getA() == body) expected.add(m.getB());
+                    if (m.getB() == body) expected.add(m.getA());
+                }
+                Set<Rigidbody2D> actual = new HashSet<>();
+                for (int i = 0; i < index.getContactCount(body); i++) {
+                    Rigidbody2D other = index.getOther(body, i);
+                    CollisionManifold m = index.getManifold(body, i);
+                    if (m == null) continue;  // a resting pair, not tested this step
+                    assertTrue(m.getA() == body || m.getB() == body);
+                    assertEquals(body.getCollider().isSolid() && other.getCollider().isSolid(), index.isSolid(body, i));
+                    actual.add(other);
+                }
+                assertEquals(expected, actual, "step " + step);
+            }
+        }
+    }
+
+    @Test
+    public void eventsAreSentOncePerChange() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        system.setSleepingEnabled(false);
+        Rigidbody2D floor = TestBodies.addBody(system, new Vector2f(0, -50), new OBBCollider(new Vector2f(400, 100)),
+                Rigidbody2D.BodyType.STATIC, 0.0f);
+        Rigidbody2D box = TestBodies.addBody(system, new Vector2f(0, 30), new OBBCollider(new Vector2f(20, 20)),
+                Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+        Recorder recorder = new Recorder();
+        box.addContactListener(recorder);
+
+        for (int i = 0; i < 120; i++) {
+            system.fixedUpdate();
+        }
+        assertEquals(List.of("enter"), recorder.events);
+        assertSame(floor, recorder.others.get(0));
+        assertTrue(recorder.stays > 60, "only " + recorder.stays + " stay events");
+        assertEquals(1, system.getContactIndex().getContactCount(box));
+
+        // lifted off the floor the contact ends
+        box.setPosition(new Vector2f(0, 200));
+        box.setVelocity(new Vector2f(0, 0));
+        system.fixedUpdate();
+        assertEquals(List.of("enter", "exit"), recorder.events);
+        assertEquals(0, system.getContactIndex().getContactCount(box));
+
+        // no more events once the listener is removed
+        box.removeContactListener(recorder);
+        box.setPosition(new Vector2f(0, 10));
+        system.fixedUpdate();
+        assertEquals(2, recorder.events.size());
+    }
+
+    @Test
+    public void restingPairsKeepTheirContactWhileAsleep() {
+        PhysicsSystem system = new PhysicsSystem(0.048f, new Vector2f(0, -9.82f));
+        TestBodies.addBody(system, new Vector2f(0, -50), new OBBCollider(new Vector2f(400, 100)),
+                Rigidbody2D.BodyType.STATIC, 0.0f);
+        Rigidbody2D box = TestBodies.addBody(system, new Vector2f(0, 10), new OBBCollider(new Vector2f(20, 20)),
+                Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+        Recorder recorder = new Recorder();
+        box.addContactListener(recorder);
+
+        for (int i = 0; i < 300; i++) {
+            system.fixedUpdate();
+        }
+        assertFalse(box.isAwake());
+        assertEquals(List.of("enter"), recorder.events);
+        assertTrue(recorder.nullManifoldSeen);
+        assertEquals(1, system.getContactIndex().getContactCount(box));
+        assertNull(system.getContactIndex().getManifold(box, 0));
+        assertTrue(system.getContactIndex().isSolid(box, 0));
+
+        // a removed body ends its contacts
+        system.removeRigidbody(box);
+        system.fixedUpdate();
+        assertEquals(List.of("enter", "exit"), recorder.events);
+    }
+}
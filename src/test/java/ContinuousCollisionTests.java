@@ -0,0 +1,92 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * ContinuousCollisionTests checks that continuous bodies do not tunnel through thin
+ * static platforms at a large fixed step, and that slow bodies are left alone.
+ * Author(s): Gabriel & Ahmed
+ */
+public class ContinuousCollisionTests {
+    private static final float DT = 1.0f / 20.0f;
+
+    // drops a body at 2000 units per second onto a platform 2 units thick, top at y = 0
+    private static Rigidbody2D dropOntoPlatform(PhysicsSystem system, Collider collider, boolean continuous) {
+        TestBodies.addBody(system, new Vector2f(0, -1), new OBBCollider(new Vector2f(400, 2)),
+                Rigidbody2D.BodyType.STATIC, 0.0f);
+        Rigidbody2D body = TestBodies.addBody(system, new Vector2f(3, 300), collider,
+                Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+        body.setContinuous(continuous);
+        body.setVelocity(new Vector2f(0, -2000));
+        return body;
+    }
+
+    @Test
+    public void fastBodiesTunnelWithoutContinuousCollision() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        Rigidbody2D ball = dropOntoPlatform(system, new Circle(5), false);
+        for (int i = 0; i < 10; i++) {
+            system.fixedUpdate();
+        }
+        assertTrue(ball.getPosition().y < -100, "the ball did not tunnel, the test scene is too easy");
+    }
+
+    @Test
+    public void continuousBodiesStopOnThinPlatforms() {
+        Collider[] colliders = {new Circle(5), new OBBCollider(new Vector2f(10, 10))};
+        for (Collider collider : colliders) {
+            PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+            Rigidbody2D body = dropOntoPlatform(system, collider, true);
+            int impacts = 0;
+            for (int i = 0; i < 60; i++) {
+                system.fixedUpdate();
+                impacts += system.getContinuousCollision().getImpactCount();
+                // resting on the platform the body center is 5 above its top
+                assertTrue(body.getPosition().y > 4.0f, "step " + i + ": " + body.getPosition().y);
+            }
+            assertTrue(impacts >= 1);
+            assertEquals(5.0f, body.getPosition().y, 1.0f);
+            assertEquals(3.0f, body.getPosition().x, 0.5f);
+        }
+    }
+
+    @Test
+    public void continuousGhostBodiesReportTheirContact() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        Circle snowball = new Circle(5);
+        snowball.setSolid(false);
+        Rigidbody2D body = dropOntoPlatform(system, snowball, true);
+        boolean touched = false;
+        for (int i = 0; i < 5 && !touched; i++) {
+            system.fixedUpdate();
+            touched = system.getContactIndex().getContactCount(body) > 0;
+        }
+        assertTrue(touched);
+        assertFalse(system.getContactIndex().isSolid(body, 0));
+    }
+
+    @Test
+    public void slowBodiesAreNotSwept() {
+        Vector2f[] ends = new Vector2f[2];
+        for (int run = 0; run < 2; run++) {
+            PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+            TestBodies.addBody(system, new Vector2f(0, -50), new OBBCollider(new Vector2f(400, 100)),
+                    Rigidbody2D.BodyType.STATIC, 0.0f);
+            Rigidbody2D box = TestBodies.addBody(system, new Vector2f(0, 30), new OBBCollider(new Vector2f(20, 20)),
+                    Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+            box.setContinuous(run == 1);
+            for (int i = 0; i < 40; i++) {
+                system.fixedUpdate();
+                assertEquals(0, system.getContinuousCollision().getImpactCount());
+            }
+            ends[run] = new Vector2f(box.getPosition());
+        }
+        assertEquals(ends[0], ends[1]);
+    }
+}
@@ -0,0 +1,267 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.CollisionManager;
+import physics.collisions.CollisionManifold;
+import physics.collisions.ConvexProxy;
+import physics.collisions.GJK;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.CapsuleCollider;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+import physics.primitives.PolygonCollider;
+import physics.raycast.Raycast;
+import physics.raycast.RaycastManager;
+import physics.raycast.RaycastResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * ConvexCollisionTests checks the GJK and EPA narrow phase of polygons and capsules against
+ * known distances and the box SAT, their raycasts, and that bodies rest on a slope polygon.
+ * Author(s): Gabriel & Ahmed
+ */
+public class ConvexCollisionTests {
+    private static final float EPSILON = 1e-3f;
+
+    private static <T extends Collider> T attach(T collider, float x, float y, float rotation) {
+        TestBodies.createBody(new Vector2f(x, y), collider, Rigidbody2D.BodyType.DYNAMIC).setRotation(rotation);
+        return collider;
+    }
+
+    private static PolygonCollider box(float width, float height) {
+        return new PolygonCollider(new Vector2f(-width / 2, -height / 2), new Vector2f(width / 2, -height / 2),
+                new Vector2f(width / 2, height / 2), new Vector2f(-width / 2, height / 2));
+    }
+
+    @Test
+    public void polygonsAreKeptCounterClockwiseAndConvex() {
+        PolygonCollider clockwise = new PolygonCollider(new Vector2f(0, 0), new Vector2f(0, 1), new Vector2f(1, 0));
+        Vector2f[] vertices = clockwise.getLocalVertices();
+        assertEquals(new Vector2f(1, 0), vertices[0]);
+        assertEquals(new Vector2f(0, 0), vertices[2]);
+        assertThrows(IllegalArgumentException.class, () -> new PolygonCollider(new Vector2f(0, 0), new Vector2f(1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> new PolygonCollider(new Vector2f(0, 0),
+                new Vector2f(2, 0), new Vector2f(1, 0.2f), new Vector2f(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> new CapsuleCollider(-1, 2));
+    }
+
+    @Test
+    public void gjkFindsTheDistanceBetweenSeparatedShapes() {
+        GJK gjk = new GJK();
+        ConvexProxy a = new ConvexProxy(), b = new ConvexProxy();
+        // boxes 5 apart side by side
+        a.set(attach(box(10, 10), 0, 0, 0));
+        b.set(attach(box(10, 10), 15, 3, 0));
+        assertEquals(5, gjk.distance(a, b), EPSILON);
+        assertFalse(gjk.isOverlapping());
+        // a corner of a diamond towards a box face
+        a.set(attach(box(10, 10), 0, 0, 0));
+        b.set(attach(box(10, 10), 0, 5 + 2 + (float) Math.sqrt(50), 45));
+        assertEquals(2, gjk.distance(a, b), EPSILON);
+        assertEquals(5, gjk.getPointAY(), EPSILON);
+        // the cores of a capsule and a circle, their radii are left out
+        a.set(attach(new CapsuleCollider(2, 10), 0, 0, 90));
+        b.set(attach(new Circle(3), 4, 8, 0));
+        assertEquals(8, gjk.distance(a, b), EPSILON);
+        // overlapping cores
+        a.set(attach(box(10, 10), 0, 0, 0));
+        b.set(attach(box(10, 10), 6, 7, 30));
+        assertEquals(0, gjk.distance(a, b));
+        assertTrue(gjk.isOverlapping());
+    }
+
+    @Test
+    public void polygonBoxesCollideLikeBoxes() {
+        Random random = new Random(5);
+        GJK gjk = new GJK();
+        ConvexProxy a = new ConvexProxy(), b = new ConvexProxy();
+        int colliding = 0;
+        for (int i = 0; i < 500; i++) {
+            float w1 = 10 + random.nextFloat() * 30, h1 = 10 + random.nextFloat() * 30;
+            float w2 = 10 + random.nextFloat() * 30, h2 = 10 + random.nextFloat() * 30;
+            float x = random.nextFloat() * 40 - 20, y = random.nextFloat() * 40 - 20;
+            float r1 = random.nextFloat() * 90, r2 = random.nextFloat() * 90;
+            CollisionManifold expected = CollisionManager.findCollisionFeatures(
+                    attach(new OBBCollider(new Vector2f(w1, h1)), 0, 0, r1), attach(new OBBCollider(new Vector2f(w2, h2)), x, y, r2));
+            PolygonCollider first = attach(box(w1, h1), 0, 0, r1), second = attach(box(w2, h2), x, y, r2);
+            CollisionManifold actual = CollisionManager.findCollisionFeatures(first, second);
+            assertEquals(expected.isColliding(), actual.isColliding(), "pair " + i);
+            if (!actual.isColliding()) continue;
+            colliding++;
+            // the EPA depth is the smallest overlap along the face normals of both boxes
+            a.set(first);
+            b.set(second);
+            assertEquals(0, gjk.distance(a, b));
+            assertTrue(gjk.penetration(a, b));
+            assertEquals(smallestOverlap(a, b), gjk.getDepth(), 0.01f, "pair " + i);
+            // and moving the second box that far along the normal separates them
+            float push = gjk.getDepth() + 0.01f;
+            second.getRigidbody().setPosition(new Vector2f(x + gjk.getNormalX() * push, y + gjk.getNormalY() * push));
+            assertFalse(CollisionManager.findCollisionFeatures(first, second).isColliding(), "pair " + i);
+        }
+        assertTrue(colliding > 100, "too few colliding pairs to be meaningful: " + colliding);
+    }
+
+    // separating axis test over the face normals of both proxies
+    private static float smallestOverlap(ConvexProxy a, ConvexProxy b) {
+        float smallest = Float.MAX_VALUE;
+        for (ConvexProxy p : new ConvexProxy[]{a, b}) {
+            for (int i = 0; i < p.getCount(); i++) {
+                int j = (i + 1) % p.getCount();
+                float nx = p.getY(j) - p.getY(i), ny = p.getX(i) - p.getX(j);
+                float length = (float) Math.sqrt(nx * nx + ny * ny);
+                nx /= length;
+                ny /= length;
+                float minA = Float.MAX_VALUE, maxA = -Float.MAX_VALUE, minB = Float.MAX_VALUE, maxB = -Float.MAX_VALUE;
+                for (int k = 0; k < a.getCount(); k++) {
+                    float d = a.getX(k) * nx + a.getY(k) * ny;
+                    minA = Math.min(minA, d);
+                    maxA = Math.max(maxA, d);
+                }
+                for (int k = 0; k < b.getCount(); k++) {
+                    float d = b.getX(k) * nx + b.getY(k) * ny;
+                    minB = Math.min(minB, d);
+                    maxB = Math.max(maxB, d);
+                }
+                smallest = Math.min(smallest, Math.min(maxA - minB, maxB - minA));
+            }
+        }
+        return smallest;
+    }
+
+    @Test
+    public void roundedShapesAddTheirRadii() {
+        // a circle 1 deep in a slope of 45 degrees
+        PolygonCollider slope = attach(PolygonCollider.slope(20, 20), 0, 0, 0);
+        float offset = 5 - 1;
+        Circle circle = attach(new Circle(5), -offset / (float) Math.sqrt(2), offset / (float) Math.sqrt(2), 0);
+        CollisionManifold m = CollisionManager.findCollisionFeatures(slope, circle);
+        assertTrue(m.isColliding());
+        assertEquals(1, m.getPenetrationDepth(), EPSILON);
+        assertEquals(-Math.sqrt(0.5), m.getNormal().x, EPSILON);
+        assertEquals(Math.sqrt(0.5), m.getNormal().y, EPSILON);
+        assertEquals(1, m.getContactCount());
+
+        // an upright capsule standing 0.5 deep on a box gets one contact under its bottom cap
+        OBBCollider ground = attach(new OBBCollider(new Vector2f(100, 10)), 0, 0, 0);
+        CapsuleCollider capsule = attach(new CapsuleCollider(3, 6), 10, 5 + 9 - 0.5f, 0);
+        m = CollisionManager.findCollisionFeatures(ground, capsule);
+        assertTrue(m.isColliding());
+        assertEquals(0.5f, m.getPenetrationDepth(), EPSILON);
+        assertEquals(0, m.getNormal().x, EPSILON);
+        assertEquals(1, m.getNormal().y, EPSILON);
+        assertEquals(1, m.getContactCount());
+        assertEquals(10, m.getContactPoints().get(0).x, EPSILON);
+
+        // lying down it gets two, one under each cap
+        capsule = attach(new CapsuleCollider(3, 6), 10, 5 + 3 - 0.5f, 90);
+        m = CollisionManager.findCollisionFeatures(capsule, ground);
+        assertTrue(m.isColliding());
+        assertEquals(0.5f, m.getPenetrationDepth(), EPSILON);
+        assertEquals(0, m.getNormal().x, EPSILON);
+        assertEquals(-1, m.getNormal().y, EPSILON);
+        assertEquals(2, m.getContactCount());
+        float x0 = m.getContactPoints().get(0).x, x1 = m.getContactPoints().get(1).x;
+        assertEquals(12, Math.abs(x0 - x1), EPSILON);
+
+        capsule = attach(new CapsuleCollider(3, 6), 10, 5 + 3 + 0.5f, 90);
+        assertFalse(CollisionManager.findCollisionFeatures(capsule, ground).isColliding());
+    }
+
+    @Test
+    public void boxOnASlopeGetsTwoContactsAlongTheSlope() {
+        PolygonCollider slope = attach(PolygonCollider.slope(40, 20), 0, 0, 0);
+        float angle = (float) Math.toDegrees(Math.atan2(20, 40));
+        // a box turned like the slope, sunk 0.25 into it around the middle of the slope
+        Vector2f normal = new Vector2f(-20, 40).normalize();
+        Vector2f center = new Vector2f(normal).mul(5 - 0.25f);
+        OBBCollider box = attach(new OBBCollider(new Vector2f(10, 10)), center.x, center.y, angle);
+        CollisionManifold m = CollisionManager.findCollisionFeatures(slope, box);
+        assertTrue(m.isColliding());
+        assertEquals(2, m.getContactCount());
+        assertEquals(0.25f, m.getPenetrationDepth(), EPSILON);
+        assertEquals(1, m.getNormal().dot(normal), 1e-4f);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(-0.25f, m.getSeparation(i), EPSILON);
+        }
+    }
+
+    @Test
+    public void raysHitPolygonsAndCapsules() {
+        RaycastResult result = new RaycastResult();
+        PolygonCollider slope = attach(PolygonCollider.slope(20, 20), 0, 0, 0);
+        RaycastManager.raycast(new Raycast(new Vector2f(-5, 30), new Vector2f(0, -1)), slope, result);
+        assertTrue(result.isHit());
+        assertEquals(-5, result.getPoint().x, EPSILON);
+        assertEquals(-5, result.getPoint().y, EPSILON);
+        assertEquals(35, result.getDistance(), EPSILON);
+        assertEquals(-Math.sqrt(0.5), result.getNormal().x, EPSILON);
+        assertEquals(Math.sqrt(0.5), result.getNormal().y, EPSILON);
+        RaycastManager.raycast(new Raycast(new Vector2f(-15, 30), new Vector2f(0, -1)), slope, result);
+        assertFalse(result.isHit());
+
+        // the same slope turned upside down
+        slope.getRigidbody().setRotation(180);
+        RaycastManager.raycast(new Raycast(new Vector2f(5, 30), new Vector2f(0, -1)), slope, result);
+        assertTrue(result.isHit());
+        assertEquals(10, result.getPoint().y, EPSILON);
+        assertEquals(0, result.getNormal().x, EPSILON);
+        assertEquals(1, result.getNormal().y, EPSILON);
+
+        CapsuleCollider capsule = attach(new CapsuleCollider(2, 5), 0, 0, 0);
+        RaycastManager.raycast(new Raycast(new Vector2f(-10, 3), new Vector2f(1, 0)), capsule, result);
+        assertTrue(result.isHit());
+        assertEquals(-2, result.getPoint().x, EPSILON);
+        assertEquals(-1, result.getNormal().x, EPSILON);
+        RaycastManager.raycast(new Raycast(new Vector2f(0, 20), new Vector2f(0, -1)), capsule, result);
+        assertTrue(result.isHit());
+        assertEquals(7, result.getPoint().y, EPSILON);
+        assertEquals(1, result.getNormal().y, EPSILON);
+        // past the straight side, the cap is round
+        RaycastManager.raycast(new Raycast(new Vector2f(-10, 6.9f), new Vector2f(1, 0)), capsule, result);
+        assertTrue(result.isHit());
+        assertTrue(result.getPoint().x > -2 && result.getNormal().y > 0);
+        RaycastManager.raycast(new Raycast(new Vector2f(-10, 7.5f), new Vector2f(1, 0)), capsule, result);
+        assertFalse(result.isHit());
+    }
+
+    @Test
+    public void bodiesRestOnASlope() {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -200));
+        system.setWarmStarting(true);
+        // a slope of 200 x 60 replaces a staircase of rotated boxes
+        TestBodies.addBody(system, new Vector2f(0, 0), PolygonCollider.slope(200, 60),
+                Rigidbody2D.BodyType.STATIC, 0.0f);
+        TestBodies.addBody(system, new Vector2f(0, -40), new OBBCollider(new Vector2f(2000, 20)),
+                Rigidbody2D.BodyType.STATIC, 0.0f);
+
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Collider collider = switch (i % 3) {
+                case 0 -> new OBBCollider(new Vector2f(8, 8));
+                case 1 -> new Circle(4);
+                default -> new CapsuleCollider(3, 3);
+            };
+            bodies.add(TestBodies.addBody(system, new Vector2f(-80 + i * 14, 60), collider,
+                    Rigidbody2D.BodyType.DYNAMIC, 0.0f));
+        }
+        for (int i = 0; i < 600; i++) {
+            system.fixedUpdate();
+        }
+        // nothing fell through the slope or the floor below it
+        for (Rigidbody2D rb : bodies) {
+            Vector2f p = rb.getPosition();
+            assertTrue(p.y > -30, "fell through the floor at " + p);
+            if (p.x > -100 && p.x < 100) {
+                float surface = (p.x + 100) / 200 * 60 - 30;
+                assertTrue(p.y > surface, "inside the slope at " + p + ", surface at " + surface);
+            }
+        }
+    }
+}
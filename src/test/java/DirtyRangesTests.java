@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+import rendering.DirtyRanges;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * DirtyRangesTests checks that the dirty spans of a RenderBatch are merged the way the
+ * uploads expect: sorted, non-overlapping, close spans coalesced and the span count bounded.
+ * Author(s): Gabriel & Ahmed
+ */
+public class DirtyRangesTests {
+
+    private static void assertSpans(DirtyRanges ranges, int... bounds) {
+        assertEquals(bounds.length / 2, ranges.getCount(), "span count");
+        for (int i = 0; i < ranges.getCount(); i++) {
+            assertEquals(bounds[2 * i], ranges.getStart(i), "start of span " + i);
+            assertEquals(bounds[2 * i + 1], ranges.getEnd(i), "end of span " + i);
+        }
+    }
+
+    @Test
+    public void singleSpriteGivesASingleSlot() {
+        DirtyRanges ranges = new DirtyRanges(0, 8);
+        assertTrue(ranges.isEmpty());
+        ranges.add(42);
+        assertSpans(ranges, 42, 43);
+    }
+
+    @Test
+    public void touchingAndOverlappingSpansAreMerged() {
+        DirtyRanges ranges = new DirtyRanges(0, 8);
+        ranges.add(3);
+        ranges.add(4);
+        ranges.add(10, 20);
+        ranges.add(15, 25);
+        ranges.add(2);
+        assertSpans(ranges, 2, 5, 10, 25);
+
+        // a span bridging both swallows them
+        ranges.add(5, 10);
+        assertSpans(ranges, 2, 25);
+    }
+
+    @Test
+    public void spansAreKeptSortedWhateverTheOrder() {
+        DirtyRanges ranges = new DirtyRanges(0, 8);
+        ranges.add(50);
+        ranges.add(10);
+        ranges.add(30);
+        ranges.add(0);
+        assertSpans(ranges, 0, 1, 10, 11, 30, 31, 50, 51);
+    }
+
+    @Test
+    public void smallGapsAreMergedLargeOnesAreNot() {
+        DirtyRanges ranges = new DirtyRanges(2, 8);
+        ranges.add(0);
+        ranges.add(3);
+        ranges.add(10);
+        assertSpans(ranges, 0, 4, 10, 11);
+    }
+
+    @Test
+    public void tooManySpansCollapseIntoOne() {
+        DirtyRanges ranges = new DirtyRanges(0, 4);
+        for (int i = 0; i < 4; i++) {
+            ranges.add(i * 10);
+        }
+        assertEquals(4, ranges.getCount());
+        ranges.add(100);
+        assertSpans(ranges, 0, 101);
+    }
+
+    @Test
+    public void clearForgetsEverythingAndEmptySpansAreIgnored() {
+        DirtyRanges ranges = new DirtyRanges(0, 4);
+        ranges.add(5, 5);
+        assertTrue(ranges.isEmpty());
+        ranges.add(1, 3);
+        ranges.clear();
+        assertTrue(ranges.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ranges.add(-1));
+        assertThrows(IllegalArgumentException.class, () -> new DirtyRanges(-1, 4));
+        assertThrows(IllegalArgumentException.class, () -> new DirtyRanges(0, 0));
+    }
+}
@@ -0,0 +1,176 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.broadphase.DynamicAABBTree;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+import physics.raycast.Raycast;
+import physics.raycast.RaycastManager;
+import physics.raycast.RaycastResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * DynamicAABBTreeTests checks the collider tree against brute-force queries
+ * and that proxies are only reinserted when they leave their fat bounds.
+ * Author(s): Gabriel & Ahmed
+ */
+public class DynamicAABBTreeTests {
+
+    private static List<Rigidbody2D> createBodies(long seed, int count) {
+        Random random = new Random(seed);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * 800f, random.nextFloat() * 800f);
+            Collider collider = random.nextBoolean()
+                    ? new Circle(5f + random.nextFloat() * 20f)
+                    : new OBBCollider(new Vector2f(10f + random.nextFloat() * 40f, 10f + random.nextFloat() * 40f));
+            Rigidbody2D rb = TestBodies.createBody(position, collider, Rigidbody2D.BodyType.DYNAMIC);
+            rb.setRotation(random.nextFloat() * 90f);
+            bodies.add(rb);
+        }
+        return bodies;
+    }
+
+    @Test
+    public void queryFindsEveryOverlappingCollider() {
+        List<Rigidbody2D> bodies = createBodies(1, 500);
+        DynamicAABBTree tree = new DynamicAABBTree(4f);
+        tree.update(bodies);
+        Random random = new Random(2);
+        Vector2f min = new Vector2f(), max = new Vector2f();
+        for (int q = 0; q < 50; q++) {
+            float x = random.nextFloat() * 800f, y = random.nextFloat() * 800f;
+            float w = random.nextFloat() * 100f, h = random.nextFloat() * 100f;
+            Set<Collider> found = new HashSet<>();
+            tree.query(x, y, x + w, y + h, proxy -> found.add(tree.getCollider(proxy)));
+            for (Rigidbody2D rb : bodies) {
+                rb.getCollider().getBounds(min, max);
+                boolean overlaps = min.x <= x + w && max.x >= x && min.y <= y + h && max.y >= y;
+                if (overlaps) {
+                    assertTrue(found.contains(rb.getCollider()), "query missed a collider");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void raycastMatchesBruteForce() {
+        List<Rigidbody2D> bodies = createBodies(3, 300);
+        DynamicAABBTree tree = new DynamicAABBTree(4f);
+        tree.update(bodies);
+        Random random = new Random(4);
+        for (int r = 0; r < 100; r++) {
+            Vector2f origin = new Vector2f(random.nextFloat() * 800f, random.nextFloat() * 800f);
+            float angle = random.nextFloat() * (float) Math.PI * 2f;
+            Raycast ray = new Raycast(origin, new Vector2f((float) Math.cos(angle), (float) Math.sin(angle)));
+
+            // closest hit by testing every collider
+            float expected = Float.MAX_VALUE;
+            RaycastResult res = new RaycastResult();
+            for (Rigidbody2D rb : bodies) {
+                RaycastManager.raycast(ray, rb.getCollider(), res);
+                if (res.isHit() && res.getDistance() > 0 && res.getDistance() < 200f) {
+                    expected = Math.min(expected, res.getDistance());
+                }
+            }
+
+            Collider hit = RaycastManager.raycast(ray, tree, 200f, null, res);
+            if (expected == Float.MAX_VALUE) {
+                assertNull(hit);
+            } else {
+                assertNotNull(hit);
+                assertEquals(expected, res.getDistance(), 1e-4f);
+            }
+        }
+    }
+
+    @Test
+    public void proxyIsOnlyReinsertedWhenLeavingFatBounds() {
+        Circle circle = new Circle(10f);
+        Rigidbody2D rb = TestBodies.createBody(new Vector2f(), circle, Rigidbody2D.BodyType.DYNAMIC);
+        DynamicAABBTree tree = new DynamicAABBTree(5f);
+        Vector2f min = new Vector2f(), max = new Vector2f();
+        circle.getBounds(min, max);
+        int proxy = tree.createProxy(circle, min, max);
+
+        rb.setPosition(new Vector2f(3f, -3f));
+        circle.getBounds(min, max);
+        assertFalse(tree.moveProxy(proxy, min, max));
+
+        rb.setPosition(new Vector2f(8f, 0f));
+        circle.getBounds(min, max);
+        assertTrue(tree.moveProxy(proxy, min, max));
+        assertEquals(proxy, tree.getProxy(circle));
+    }
+
+    @Test
+    public void treeStaysBalanced() {
+        List<Rigidbody2D> bodies = createBodies(5, 1024);
+        DynamicAABBTree tree = new DynamicAABBTree(4f);
+        tree.update(bodies);
+        assertEquals(1024, tree.getProxyCount());
+        // an AVL-balanced tree of 1024 leaves is far below this height
+        assertTrue(tree.getHeight() <= 20, "height " + tree.getHeight());
+    }
+
+    @Test
+    public void updateFollowsChangesToTheBodyList() {
+        List<Rigidbody2D> bodies = createBodies(7, 50);
+        bodies.get(3).setBodyType(Rigidbody2D.BodyType.STATIC);
+        DynamicAABBTree tree = new DynamicAABBTree(4f);
+        tree.update(bodies);
+        // a body taken out of the list without the PhysicsSystem and one added in front
+        Rigidbody2D removed = bodies.remove(10);
+        bodies.add(0, createBodies(8, 1).get(0));
+        tree.update(bodies);
+        assertEquals(50, tree.getProxyCount());
+        assertEquals(DynamicAABBTree.NULL_NODE, tree.getProxy(removed.getCollider()));
+        for (int i = 0; i < bodies.size(); i++) {
+            assertEquals(i, tree.getUserIndex(tree.getBodyProxy(i)));
+        }
+
+        // a sleeping body moved without waking it is only picked up by a resync
+        Rigidbody2D sleeper = bodies.get(5);
+        sleeper.setAwake(false);
+        sleeper.getPosition().add(500f, 0f);
+        tree.update(bodies);
+        assertSame(sleeper.getCollider(), tree.getCollider(tree.getBodyProxy(5)));
+        Vector2f min = new Vector2f(), max = new Vector2f();
+        tree.getFatBounds(tree.getBodyProxy(5), min, max);
+        assertTrue(max.x < sleeper.getPosition().x);
+        tree.resync(bodies);
+        tree.getFatBounds(tree.getBodyProxy(5), min, max);
+        assertTrue(min.x < sleeper.getPosition().x && sleeper.getPosition().x < max.x);
+    }
+
+    @Test
+    public void removedBodiesLeaveTheTree() {
+        PhysicsSystem physics = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -9.82f));
+        List<Rigidbody2D> bodies = createBodies(6, 20);
+        bodies.forEach(physics::addRigidbody);
+        assertEquals(20, physics.getColliderTree().getProxyCount());
+
+        physics.removeRigidbody(bodies.get(0));
+        assertEquals(19, physics.getColliderTree().getProxyCount());
+
+        // a collider that was replaced is dropped on the next step
+        Rigidbody2D changed = bodies.get(1);
+        Circle replacement = new Circle(3f);
+        replacement.setRigidbody(changed);
+        Collider old = changed.getCollider();
+        changed.setCollider(replacement);
+        physics.fixedUpdate();
+        assertEquals(DynamicAABBTree.NULL_NODE, physics.getColliderTree().getProxy(old));
+        assertNotEquals(DynamicAABBTree.NULL_NODE, physics.getColliderTree().getProxy(replacement));
+        assertEquals(19, physics.getColliderTree().getProxyCount());
+    }
+}
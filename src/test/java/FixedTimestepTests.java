@@ -0,0 +1,90 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * FixedTimestepTests checks that PhysicsSystem.update runs fixed steps from an accumulator,
+ * caps the steps per frame and exposes an alpha for interpolating body state.
+ * Author(s): Gabriel & Ahmed
+ */
+public class FixedTimestepTests {
+    private static final float STEP = 0.25f;
+
+    private static Rigidbody2D createMovingBody(PhysicsSystem system) {
+        Rigidbody2D rb = TestBodies.createBody(new Vector2f(), Rigidbody2D.BodyType.DYNAMIC);
+        rb.setVelocity(new Vector2f(4, 0));
+        system.addRigidbody(rb);
+        return rb;
+    }
+
+    @Test
+    public void updateRunsStepsThatFitIntoFrameTime() {
+        PhysicsSystem accumulated = new PhysicsSystem(STEP, new Vector2f());
+        PhysicsSystem stepped = new PhysicsSystem(STEP, new Vector2f());
+        Rigidbody2D a = createMovingBody(accumulated);
+        Rigidbody2D b = createMovingBody(stepped);
+
+        // 0.1 + 0.1 + 0.35 + 0.2 = 0.75 seconds, three steps
+        for (float dt : new float[]{0.1f, 0.1f, 0.35f, 0.2f}) {
+            accumulated.update(dt);
+        }
+        for (int i = 0; i < 3; i++) {
+            stepped.fixedUpdate();
+        }
+        assertEquals(b.getPosition(), a.getPosition());
+    }
+
+    @Test
+    public void slowFrameIsCappedAtMaxSubsteps() {
+        PhysicsSystem capped = new PhysicsSystem(STEP, new Vector2f());
+        PhysicsSystem stepped = new PhysicsSystem(STEP, new Vector2f());
+        capped.setMaxSubsteps(3);
+        Rigidbody2D a = createMovingBody(capped);
+        Rigidbody2D b = createMovingBody(stepped);
+
+        capped.update(2.0f);
+        for (int i = 0; i < 3; i++) {
+            stepped.fixedUpdate();
+        }
+        assertEquals(b.getPosition(), a.getPosition());
+
+        // the time that did not fit is dropped, the next small frame runs no step
+        capped.update(0.1f);
+        assertEquals(b.getPosition(), a.getPosition());
+        assertEquals(0.4f, capped.getInterpolationAlpha(), 1e-5);
+        assertThrows(IllegalArgumentException.class, () -> capped.setMaxSubsteps(0));
+    }
+
+    @Test
+    public void interpolationBlendsPreviousAndCurrentState() {
+        PhysicsSystem system = new PhysicsSystem(STEP, new Vector2f());
+        Rigidbody2D rb = createMovingBody(system);
+        Vector2f start = new Vector2f(rb.getPosition());
+
+        system.update(0.375f);
+        assertEquals(0.5f, system.getInterpolationAlpha(), 1e-6);
+
+        Vector2f current = rb.getPosition();
+        Vector2f blended = rb.getInterpolatedPosition(system.getInterpolationAlpha(), new Vector2f());
+        assertEquals((start.x + current.x) * 0.5f, blended.x, 1e-6);
+        assertEquals(start, rb.getInterpolatedPosition(0.0f, new Vector2f()));
+        assertEquals(current, rb.getInterpolatedPosition(1.0f, new Vector2f()));
+    }
+
+    @Test
+    public void timeScaleSpeedsUpSimulatedTime() {
+        PhysicsSystem scaled = new PhysicsSystem(STEP, new Vector2f());
+        PhysicsSystem stepped = new PhysicsSystem(STEP, new Vector2f());
+        scaled.setTimeScale(2.0f);
+        Rigidbody2D a = createMovingBody(scaled);
+        Rigidbody2D b = createMovingBody(stepped);
+
+        scaled.update(0.25f);
+        stepped.fixedUpdate();
+        stepped.fixedUpdate();
+        assertEquals(b.getPosition(), a.getPosition());
+    }
+}
@@ -0,0 +1,220 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.OBBCollider;
+import physics.forces.Drag;
+import physics.forces.ForceRegistry;
+import physics.forces.Gravity;
+import physics.forces.RadialExplosion;
+import physics.forces.WindField;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * ForceRegistryTests checks that bodies can be added to and removed from force generators
+ * in any order, that each generator applies the right force to its bodies only, and that
+ * applying the forces allocates nothing.
+ * Author(s): Gabriel & Ahmed
+ */
+public class ForceRegistryTests {
+    private static final float EPSILON = 1e-4f;
+
+    private static Rigidbody2D createBody(float x, float y, float mass) {
+        Rigidbody2D rb = TestBodies.createBody(new Vector2f(x, y), Rigidbody2D.BodyType.DYNAMIC);
+        rb.setMass(mass);
+        return rb;
+    }
+
+    @Test
+    public void bodiesCanBeAddedAndRemovedInAnyOrder() {
+        ForceRegistry registry = new ForceRegistry();
+        Gravity gravity = new Gravity(new Vector2f(0, -10));
+        Drag drag = new Drag(1, 0);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Rigidbody2D rb = createBody(i, 0, 1 + i);
+            bodies.add(rb);
+            registry.add(rb, gravity);
+            registry.add(rb, gravity);
+            if (i % 2 == 0) registry.add(rb, drag);
+        }
+        // registering a pair twice does not apply the force twice
+        assertEquals(20, registry.getBodyCount(gravity));
+        assertEquals(10, registry.getBodyCount(drag));
+
+        // remove from the middle, the front and the back
+        registry.remove(bodies.get(7), gravity);
+        registry.remove(bodies.get(0), gravity);
+        registry.remove(bodies.get(19), gravity);
+        registry.remove(bodies.get(7), gravity);
+        registry.remove(bodies.get(4));
+        assertEquals(16, registry.getBodyCount(gravity));
+        assertEquals(9, registry.getBodyCount(drag));
+        assertFalse(registry.contains(bodies.get(4), drag));
+
+        registry.updateForces(1.0f / 60.0f);
+        for (int i = 0; i < 20; i++) {
+            boolean pulled = i != 0 && i != 4 && i != 7 && i != 19;
+            assertEquals(pulled, registry.contains(bodies.get(i), gravity));
+            float expected = pulled ? -10 * (1 + i) : 0;
+            assertEquals(expected, bodies.get(i).getForceAccumulator().y, EPSILON, "body " + i);
+        }
+
+        registry.removeGenerator(drag);
+        assertEquals(0, registry.getBodyCount(drag));
+    }
+
+    @Test
+    public void sleepingBodiesGatherNoForce() {
+        ForceRegistry registry = new ForceRegistry();
+        Rigidbody2D rb = createBody(0, 0, 1);
+        registry.add(rb, new Gravity(new Vector2f(0, -10)));
+        // still air does not wake a body resting in it
+        registry.add(rb, new WindField(new Vector2f(), 1));
+        rb.setAwake(false);
+        registry.updateForces(1.0f / 60.0f);
+        assertFalse(rb.isAwake());
+        assertEquals(new Vector2f(), rb.getForceAccumulator());
+    }
+
+    @Test
+    public void windWakesRestingBodies() {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -50));
+        TestBodies.addBody(system, new Vector2f(0, -50), new OBBCollider(new Vector2f(400, 100)),
+                Rigidbody2D.BodyType.STATIC, 0.0f);
+        Rigidbody2D box = TestBodies.addBody(system, new Vector2f(0, 10), new OBBCollider(new Vector2f(20, 20)),
+                Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+        WindField wind = new WindField(new Vector2f(-100, -100), new Vector2f(100, 100), new Vector2f(), 50);
+        system.getForceRegistry().add(box, wind);
+        for (int i = 0; i < 600 && box.isAwake(); i++) {
+            system.fixedUpdate();
+        }
+        assertFalse(box.isAwake(), "the box never came to rest");
+
+        // a gust picks the box up from where it fell asleep
+        float restingX = box.getPosition().x;
+        wind.setWind(new Vector2f(0, 40));
+        system.fixedUpdate();
+        assertTrue(box.isAwake());
+        for (int i = 0; i < 30; i++) {
+            system.fixedUpdate();
+        }
+        assertTrue(box.getPosition().y > 20, "box at " + box.getPosition().y);
+        assertEquals(restingX, box.getPosition().x, 1.0f);
+    }
+
+    @Test
+    public void dragOpposesTheVelocity() {
+        ForceRegistry registry = new ForceRegistry();
+        Drag drag = new Drag(0.5f, 0.1f);
+        Rigidbody2D rb = createBody(0, 0, 1);
+        rb.setVelocity(new Vector2f(3, 4));
+        registry.add(rb, drag);
+        registry.updateForces(1.0f / 60.0f);
+        // speed 5, so the force is -v * (0.5 + 0.1 * 5)
+        assertEquals(-3, rb.getForceAccumulator().x, EPSILON);
+        assertEquals(-4, rb.getForceAccumulator().y, EPSILON);
+        assertThrows(IllegalArgumentException.class, () -> new Drag(-1, 0));
+    }
+
+    @Test
+    public void windOnlyBlowsInsideItsRegion() {
+        ForceRegistry registry = new ForceRegistry();
+        WindField wind = new WindField(new Vector2f(0, 0), new Vector2f(10, 10), new Vector2f(4, 0), 2);
+        Rigidbody2D inside = createBody(5, 5, 1), outside = createBody(15, 5, 1), drifting = createBody(5, 5, 1);
+        drifting.setVelocity(new Vector2f(4, 1));
+        registry.add(inside, wind);
+        registry.add(outside, wind);
+        registry.add(drifting, wind);
+        registry.updateForces(1.0f / 60.0f);
+        assertEquals(new Vector2f(8, 0), inside.getForceAccumulator());
+        assertEquals(new Vector2f(), outside.getForceAccumulator());
+        // moving with the wind along x, only the cross motion is damped
+        assertEquals(new Vector2f(0, -2), drifting.getForceAccumulator());
+    }
+
+    @Test
+    public void explosionPushesAwayAndEnds() {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f());
+        Rigidbody2D near = TestBodies.addCircle(system, 2, 0, 1);
+        Rigidbody2D far = TestBodies.addCircle(system, 0, -6, 1);
+        Rigidbody2D outside = TestBodies.addCircle(system, 20, 0, 1);
+        RadialExplosion explosion = new RadialExplosion(new Vector2f(), 10, 1000, 0.05f);
+        for (Rigidbody2D rb : system.getRigidbodies()) {
+            system.getForceRegistry().add(rb, explosion);
+        }
+        for (int i = 0; i < 30 && !explosion.isFinished(); i++) {
+            system.fixedUpdate();
+        }
+        assertTrue(explosion.isFinished());
+        // pushed away from the center, the nearer body harder
+        assertTrue(near.getLinearVelocity().x > 0);
+        assertEquals(0, near.getLinearVelocity().y, EPSILON);
+        assertTrue(far.getLinearVelocity().y < 0);
+        assertTrue(near.getLinearVelocity().length() > far.getLinearVelocity().length());
+        assertEquals(0, outside.getLinearVelocity().length(), EPSILON);
+
+        // a finished explosion adds nothing, only damping is left
+        float before = near.getLinearVelocity().x;
+        system.fixedUpdate();
+        assertTrue(near.getLinearVelocity().x <= before);
+    }
+
+    @Test
+    public void removedBodiesLeaveTheirGenerators() {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -10));
+        Rigidbody2D rb = TestBodies.addCircle(system, 0, 0, 1);
+        Drag drag = new Drag(1, 0);
+        system.getForceRegistry().add(rb, drag);
+        system.removeRigidbody(rb);
+        assertEquals(0, system.getForceRegistry().getBodyCount(drag));
+        // adding it again registers gravity once, not twice
+        system.addRigidbody(rb);
+        system.fixedUpdate();
+        assertEquals(-10.0f / 60.0f, rb.getLinearVelocity().y, 1e-3f);
+    }
+
+    @Test
+    public void applyingForcesAllocatesNothing() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(mx instanceof com.sun.management.ThreadMXBean, "allocation counter not available");
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) mx;
+        Assumptions.assumeTrue(bean.isThreadAllocatedMemorySupported(), "allocation counter not supported");
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        ForceRegistry registry = new ForceRegistry();
+        Gravity gravity = new Gravity(new Vector2f(0, -10));
+        Drag drag = new Drag(0.1f, 0.01f);
+        WindField wind = new WindField(new Vector2f(3, 0), 0.5f);
+        for (int i = 0; i < 500; i++) {
+            Rigidbody2D rb = createBody(i, i, 1);
+            rb.setVelocity(new Vector2f(i % 7, -i % 5));
+            registry.add(rb, gravity);
+            registry.add(rb, drag);
+            registry.add(rb, wind);
+        }
+        for (int i = 0; i < 2_000; i++) {
+            registry.updateForces(1.0f / 60.0f);
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long overheadStart = bean.getThreadAllocatedBytes(threadId);
+        long overhead = bean.getThreadAllocatedBytes(threadId) - overheadStart;
+        // the first window can still see one-off allocations from the JIT, keep the smallest window
+        long allocated = Long.MAX_VALUE;
+        for (int window = 0; window < 5; window++) {
+            long start = bean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 200; i++) {
+                registry.updateForces(1.0f / 60.0f);
+            }
+            allocated = Math.min(allocated, bean.getThreadAllocatedBytes(threadId) - start - overhead);
+        }
+        assertEquals(0, allocated, allocated + " bytes allocated applying forces");
+    }
+}
@@ -0,0 +1,100 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.ContactIslands;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * IslandSolverTests checks that contacts are grouped into islands without static bodies
+ * joining them, and that solving islands on several threads gives bit-identical results.
+ * Author(s): Gabriel & Ahmed
+ */
+public class IslandSolverTests {
+
+    // columns of boxes standing on one static floor, boxes in a column slightly overlap
+    private static List<Rigidbody2D> createStacks(PhysicsSystem system, int columns, int height) {
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        Rigidbody2D floor = TestBodies.createBox(columns * 50f, -500f, 1010f, Rigidbody2D.BodyType.STATIC);
+        bodies.add(floor);
+        system.addRigidbody(floor);
+        for (int c = 0; c < columns; c++) {
+            for (int h = 0; h < height; h++) {
+                Rigidbody2D box = TestBodies.createBox(c * 100f, 9f + h * 19f, 20f, Rigidbody2D.BodyType.DYNAMIC);
+                box.setRotation((c * 7 + h * 3) % 5);
+                bodies.add(box);
+                system.addRigidbody(box);
+            }
+        }
+        return bodies;
+    }
+
+    private static long simulate(int threads, int steps) {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -9.82f));
+        system.setSolverThreads(threads);
+        List<Rigidbody2D> bodies = createStacks(system, 20, 6);
+        long hash = 0;
+        for (int step = 0; step < steps; step++) {
+            system.fixedUpdate();
+            for (Rigidbody2D body : bodies) {
+                hash = hash * 31 + Float.floatToIntBits(body.getPosition().x);
+                hash = hash * 31 + Float.floatToIntBits(body.getPosition().y);
+                hash = hash * 31 + Float.floatToIntBits(body.getRotation());
+                hash = hash * 31 + Float.floatToIntBits(body.getAngularVelocity());
+            }
+            hash = hash * 31 + system.getCollisions().size();
+        }
+        return hash;
+    }
+
+    @Test
+    public void staticBodiesDoNotJoinIslands() {
+        ContactIslands islands = new ContactIslands();
+        boolean[] isStatic = {true, false, false, false, false};
+        // 1-2 and 3-4 are connected, both stand on static body 0
+        islands.addContact(0, 1);
+        islands.addContact(0, 3);
+        islands.addContact(1, 2);
+        islands.addContact(3, 4);
+        islands.addContact(0, 2);
+        islands.build(isStatic.length, isStatic);
+
+        assertEquals(2, islands.getIslandCount());
+        assertEquals(0, islands.getIslandStart(0));
+        assertEquals(3, islands.getIslandEnd(0));
+        assertEquals(5, islands.getIslandEnd(1));
+        // contacts keep their order inside each island
+        int[] expected = {0, 2, 4, 1, 3};
+        for (int k = 0; k < expected.length; k++) {
+            assertEquals(expected[k], islands.getContact(k));
+        }
+    }
+
+    @Test
+    public void separateStacksFormSeparateIslands() {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -9.82f));
+        system.setSolverThreads(1);
+        createStacks(system, 8, 4);
+        system.fixedUpdate();
+        assertEquals(8 * 4, system.getCollisions().size());
+        assertEquals(8, system.getContactIslands().getIslandCount());
+    }
+
+    @Test
+    public void resultDoesNotDependOnThreadCount() {
+        long expected = simulate(1, 120);
+        for (int threads : new int[]{2, 3, 8}) {
+            assertEquals(expected, simulate(threads, 120), "hash with " + threads + " threads");
+        }
+    }
+
+    @Test
+    public void solverNeedsAtLeastOneThread() {
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -9.82f));
+        assertThrows(IllegalArgumentException.class, () -> system.setSolverThreads(0));
+    }
+}
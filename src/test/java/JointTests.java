@@ -0,0 +1,263 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import components.Component;
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSnapshot;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.joints.DistanceJoint;
+import physics.joints.Joint;
+import physics.joints.PrismaticJoint;
+import physics.joints.RevoluteJoint;
+import physics.joints.RopeJoint;
+import physics.primitives.OBBCollider;
+import serializers.ComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * JointTests checks that distance, revolute, rope and prismatic joints hold their bodies
+ * together while the PhysicsSystem steps, with and without warm starting, that joints are
+ * part of snapshots and that they survive a save and load.
+ * Author(s): Gabriel & Ahmed
+ */
+public class JointTests {
+    private static final float DT = 1.0f / 60.0f;
+
+    private static Rigidbody2D createLink(PhysicsSystem system, float x, float y) {
+        return TestBodies.addBody(system, new Vector2f(x, y), new OBBCollider(new Vector2f(4, 1)),
+                Rigidbody2D.BodyType.DYNAMIC);
+    }
+
+    private static Vector2f worldAnchor(Rigidbody2D body, Vector2f local) {
+        float angle = (float) Math.toRadians(body.getRotation());
+        float cos = (float) Math.cos(angle), sin = (float) Math.sin(angle);
+        return new Vector2f(body.getPosition().x + cos * local.x - sin * local.y,
+                body.getPosition().y + sin * local.x + cos * local.y);
+    }
+
+    @Test
+    public void pendulumKeepsItsLength() {
+        for (boolean warm : new boolean[]{false, true}) {
+            PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -100));
+            system.setWarmStarting(warm);
+            Rigidbody2D bob = TestBodies.addCircle(system, 10, 0, 1);
+            system.addJoint(new DistanceJoint(bob, new Vector2f(), null, new Vector2f(0, 0)));
+            float lowest = 0;
+            for (int i = 0; i < 300; i++) {
+                system.fixedUpdate();
+                assertEquals(10, bob.getPosition().length(), 0.3f, "warm " + warm + ", step " + i);
+                lowest = Math.min(lowest, bob.getPosition().y);
+            }
+            // it swung through the bottom of the circle
+            assertTrue(lowest < -9.5f, "warm " + warm + ", lowest " + lowest);
+        }
+    }
+
+    @Test
+    public void revoluteChainStaysConnected() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -50));
+        system.setWarmStarting(true);
+        system.setImpulseIterations(10);
+        List<Rigidbody2D> links = new ArrayList<>();
+        List<Joint> joints = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Rigidbody2D link = createLink(system, i * 4, 0);
+            if (i == 0) {
+                joints.add(new RevoluteJoint(link, new Vector2f(-2, 0), null, new Vector2f(-2, 0)));
+            } else {
+                joints.add(new RevoluteJoint(links.get(i - 1), new Vector2f(2, 0), link, new Vector2f(-2, 0)));
+            }
+            links.add(link);
+        }
+        joints.forEach(system::addJoint);
+        // the chain swings as one island
+        system.fixedUpdate();
+        assertEquals(1, system.getContactIslands().getIslandCount());
+
+        for (int i = 0; i < 600; i++) {
+            system.fixedUpdate();
+            for (Joint joint : joints) {
+                Vector2f a = worldAnchor(joint.getBodyA(), joint.getAnchor());
+                Vector2f b = joint.getBodyB() != null ? worldAnchor(joint.getBodyB(), joint.getConnectedAnchor())
+                        : joint.getConnectedAnchor();
+                assertEquals(0, a.distance(b), 0.3f, "step " + i);
+            }
+        }
+        // neighbouring links overlap at their hinge without colliding
+        system.getCollisions().forEach(m -> assertTrue(
+                Math.abs(links.indexOf(m.getA()) - links.indexOf(m.getB())) > 1));
+        // the free end is hanging below the pin
+        assertTrue(links.get(5).getPosition().y < -10);
+    }
+
+    @Test
+    public void ropeOnlyPullsWhenTaut() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -100));
+        system.setWarmStarting(true);
+        Rigidbody2D free = TestBodies.addCircle(system, 20, -5, 1);
+        Rigidbody2D tied = TestBodies.addCircle(system, 0, -5, 1);
+        RopeJoint rope = new RopeJoint(tied, new Vector2f(), null, new Vector2f(0, 0), 10);
+        system.addJoint(rope);
+        assertThrows(IllegalArgumentException.class, () -> rope.setMaxLength(-1));
+
+        // while slack the tied body falls exactly like the free one
+        for (int i = 0; i < 10; i++) {
+            system.fixedUpdate();
+            assertEquals(free.getPosition().y, tied.getPosition().y, 1e-4f);
+            assertEquals(free.getLinearVelocity().y, tied.getLinearVelocity().y, 1e-4f);
+        }
+        // then the rope catches it and holds it at its length
+        for (int i = 0; i < 300; i++) {
+            system.fixedUpdate();
+            assertTrue(tied.getPosition().length() < 10.3f, "step " + i);
+        }
+        assertEquals(-10, tied.getPosition().y, 0.3f);
+
+        // thrown towards the anchor the rope does not push back
+        tied.setVelocity(new Vector2f(0, 30));
+        system.fixedUpdate();
+        assertTrue(tied.getPosition().length() < 9.8f);
+    }
+
+    @Test
+    public void prismaticJointKeepsTheBodyOnItsAxis() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -100));
+        system.setWarmStarting(true);
+        system.setImpulseIterations(10);
+        Rigidbody2D slider = TestBodies.addCircle(system, 0, 0, 1);
+        slider.setAngularVelocity(90);
+        PrismaticJoint joint = new PrismaticJoint(slider, new Vector2f(), null, new Vector2f(), new Vector2f(1, 1));
+        joint.setLimits(-5, 5);
+        system.addJoint(joint);
+        assertThrows(IllegalArgumentException.class, () -> joint.setLimits(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> joint.setAxis(new Vector2f()));
+
+        for (int i = 0; i < 300; i++) {
+            system.fixedUpdate();
+            Vector2f p = slider.getPosition();
+            assertEquals(p.x, p.y, 0.2f, "step " + i);
+            assertEquals(0, slider.getRotation(), 2.0f, "step " + i);
+        }
+        // slid down the axis to its limit, anchor B is 5 up the axis from the body
+        Vector2f p = slider.getPosition();
+        assertEquals(-5, (p.x + p.y) / (float) Math.sqrt(2), 0.2f);
+    }
+
+    @Test
+    public void warmStartingHoldsAHeavyLoadBetter() {
+        float[] stretch = new float[2];
+        for (int run = 0; run < 2; run++) {
+            PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -100));
+            system.setWarmStarting(run == 1);
+            system.setImpulseIterations(3);
+            Rigidbody2D previous = null;
+            for (int i = 0; i < 8; i++) {
+                Rigidbody2D link = TestBodies.addCircle(system, 0, -3 * (i + 1), 1);
+                link.setFixedRotation(true);
+                if (i == 7) link.setMass(50);
+                system.addJoint(previous == null
+                        ? new DistanceJoint(link, new Vector2f(), null, new Vector2f(0, 0), 3)
+                        : new DistanceJoint(previous, new Vector2f(), link, new Vector2f(), 3));
+                previous = link;
+            }
+            for (int i = 0; i < 240; i++) {
+                system.fixedUpdate();
+            }
+            stretch[run] = -previous.getPosition().y - 24;
+        }
+        // a few iterations cannot stop the load on their own, the impulses kept from the last step can
+        assertTrue(stretch[1] < stretch[0] / 4, "cold " + stretch[0] + ", warm " + stretch[1]);
+    }
+
+    @Test
+    public void jointsWakeAndSleepWithTheirBodies() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -100));
+        system.setWarmStarting(true);
+        Rigidbody2D a = TestBodies.addCircle(system, 0, -5, 1);
+        Rigidbody2D b = TestBodies.addCircle(system, 0, -10, 1);
+        a.setRestitution(0.0f);
+        system.addJoint(new RevoluteJoint(a, new Vector2f(0, 5), null, new Vector2f(0, 0)));
+        system.addJoint(new DistanceJoint(a, new Vector2f(), b, new Vector2f()));
+        for (int i = 0; i < 600 && (a.isAwake() || b.isAwake()); i++) {
+            system.fixedUpdate();
+        }
+        // the hanging pair rests and falls asleep as one island
+        assertFalse(a.isAwake());
+        assertFalse(b.isAwake());
+
+        // pushing the lower body wakes the upper one through the joint
+        b.setVelocity(new Vector2f(20, 0));
+        system.fixedUpdate();
+        assertTrue(a.isAwake());
+        assertEquals(5, a.getPosition().distance(b.getPosition()), 0.2f);
+    }
+
+    @Test
+    public void snapshotsRewindTheJoints() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -100));
+        system.setWarmStarting(true);
+        Rigidbody2D a = TestBodies.addCircle(system, 5, 0, 1);
+        Rigidbody2D b = TestBodies.addCircle(system, 10, 0, 1);
+        system.addJoint(new RevoluteJoint(a, new Vector2f(-5, 0), null, new Vector2f(0, 0)));
+        system.addJoint(new DistanceJoint(a, new Vector2f(), b, new Vector2f()));
+        for (int i = 0; i < 30; i++) {
+            system.fixedUpdate();
+        }
+        PhysicsSnapshot snapshot = new PhysicsSnapshot();
+        system.saveSnapshot(snapshot);
+        for (int i = 0; i < 60; i++) {
+            system.fixedUpdate();
+        }
+        long expected = system.getStateHash();
+
+        system.restoreSnapshot(snapshot);
+        for (int i = 0; i < 60; i++) {
+            system.fixedUpdate();
+        }
+        assertEquals(expected, system.getStateHash());
+
+        system.addJoint(new RopeJoint(b, new Vector2f(), null, new Vector2f(), 20));
+        assertThrows(IllegalStateException.class, () -> system.restoreSnapshot(snapshot));
+    }
+
+    @Test
+    public void jointsSurviveSerialization() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Component.class, new ComponentSerializer())
+                .create();
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f());
+        Rigidbody2D a = TestBodies.addCircle(system, 0, 0, 1);
+        Rigidbody2D b = TestBodies.addCircle(system, 3, 4, 1);
+
+        PrismaticJoint prismatic = new PrismaticJoint(a, new Vector2f(1, 0), b, new Vector2f(0, -1), new Vector2f(0, 2));
+        prismatic.setLimits(-2, 3);
+        prismatic.setConnectedObject("Platform");
+        Component loaded = gson.fromJson(gson.toJson(prismatic, Component.class), Component.class);
+        PrismaticJoint copy = assertInstanceOf(PrismaticJoint.class, loaded);
+        assertEquals("Platform", copy.getConnectedObject());
+        assertEquals(new Vector2f(1, 0), copy.getAnchor());
+        assertEquals(new Vector2f(0, -1), copy.getConnectedAnchor());
+        assertEquals(new Vector2f(0, 1), copy.getAxis());
+        assertTrue(copy.isLimitEnabled());
+        assertEquals(-2, copy.getLowerTranslation());
+        assertEquals(3, copy.getUpperTranslation());
+        // the bodies are found again by name when the loaded joint starts
+        assertNull(copy.getBodyA());
+
+        DistanceJoint distance = new DistanceJoint(a, new Vector2f(), b, new Vector2f());
+        DistanceJoint distanceCopy = assertInstanceOf(DistanceJoint.class,
+                gson.fromJson(gson.toJson(distance, Component.class), Component.class));
+        assertEquals(5, distanceCopy.getLength(), 1e-5f);
+        RopeJoint ropeCopy = assertInstanceOf(RopeJoint.class, gson.fromJson(
+                gson.toJson(new RopeJoint(a, new Vector2f(), null, new Vector2f(7, 7), 12), Component.class),
+                Component.class));
+        assertEquals(12, ropeCopy.getMaxLength());
+        assertNull(ropeCopy.getConnectedObject());
+        assertEquals(new Vector2f(7, 7), ropeCopy.getConnectedAnchor());
+    }
+}
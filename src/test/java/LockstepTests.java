@@ -0,0 +1,195 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.joints.DistanceJoint;
+import physics.joints.PrismaticJoint;
+import physics.joints.RevoluteJoint;
+import physics.lockstep.LockstepInput;
+import physics.lockstep.LockstepRecording;
+import physics.lockstep.LockstepSimulation;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * LockstepTests checks that deterministic mode gives bit-identical states whatever order
+ * the bodies are added in, and that recordings replay to the same state hashes.
+ * Author(s): Gabriel & Ahmed
+ */
+public class LockstepTests {
+    private static final float DT = 1.0f / 60.0f;
+    private static final int BODIES = 40;
+    private static final int STEPS = 200;
+
+    // a ground and a pile of rotated boxes and circles, id i is always the same body
+    private static List<Rigidbody2D> createBodies() {
+        Random random = new Random(21);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        bodies.add(TestBodies.createBody(new Vector2f(0, -10), new OBBCollider(new Vector2f(600, 20)),
+                Rigidbody2D.BodyType.STATIC, 0.2f));
+        for (int i = 1; i < BODIES; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * 200 - 100, 20 + random.nextFloat() * 300);
+            Collider collider = i % 3 == 0 ? new Circle(4 + random.nextFloat() * 6)
+                    : new OBBCollider(new Vector2f(8 + random.nextFloat() * 12, 8 + random.nextFloat() * 12));
+            Rigidbody2D body = TestBodies.createBody(position, collider, Rigidbody2D.BodyType.DYNAMIC, 0.2f);
+            body.setRotation(random.nextFloat() * 90);
+            bodies.add(body);
+        }
+        return bodies;
+    }
+
+    // adds the bodies in a shuffled order, each under its index as id
+    private static PhysicsSystem createSystem(long shuffleSeed, boolean warmStarting) {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        system.setWarmStarting(warmStarting);
+        system.setDeterministic(true);
+        List<Rigidbody2D> bodies = createBodies();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < bodies.size(); i++) order.add(i);
+        Collections.shuffle(order, new Random(shuffleSeed));
+        for (int id : order) {
+            system.addRigidbody(bodies.get(id), id);
+        }
+        return system;
+    }
+
+    // a chain of boxes hinged to the world, with a weight on a distance joint and a slider,
+    // its bodies added in a shuffled order and its joints in a fixed one
+    private static PhysicsSystem createJointedSystem(long shuffleSeed) {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        system.setWarmStarting(true);
+        system.setDeterministic(true);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Rigidbody2D link = TestBodies.createBody(new Vector2f(i * 8, 0), new OBBCollider(new Vector2f(8, 2)),
+                    Rigidbody2D.BodyType.DYNAMIC, 0.2f);
+            link.setRotation(i * 7);
+            bodies.add(link);
+        }
+        bodies.add(TestBodies.createBody(new Vector2f(64, -10), new Circle(3), Rigidbody2D.BodyType.DYNAMIC, 0.2f));
+        bodies.add(TestBodies.createBody(new Vector2f(-30, 20), new OBBCollider(new Vector2f(6, 6)),
+                Rigidbody2D.BodyType.DYNAMIC, 0.2f));
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < bodies.size(); i++) order.add(i);
+        Collections.shuffle(order, new Random(shuffleSeed));
+        for (int id : order) {
+            system.addRigidbody(bodies.get(id), id);
+        }
+        system.addJoint(new RevoluteJoint(bodies.get(0), new Vector2f(-4, 0), null, new Vector2f(-4, 0)));
+        for (int i = 1; i < 8; i++) {
+            system.addJoint(new RevoluteJoint(bodies.get(i - 1), new Vector2f(4, 0), bodies.get(i), new Vector2f(-4, 0)));
+        }
+        system.addJoint(new DistanceJoint(bodies.get(7), new Vector2f(4, 0), bodies.get(8), new Vector2f()));
+        system.addJoint(new PrismaticJoint(bodies.get(9), new Vector2f(), null, new Vector2f(-30, 20),
+                new Vector2f(1, 1)));
+        return system;
+    }
+
+    // pushes a few bodies around, the same way every run
+    private static void sendInputs(LockstepSimulation simulation, int step) {
+        if (step % 20 == 0) {
+            simulation.input(1 + step % (BODIES - 1), LockstepInput.Type.SET_VELOCITY, 40, 120);
+        }
+        if (step % 7 == 0) {
+            simulation.input(5, LockstepInput.Type.ADD_FORCE, -3000, 0);
+            simulation.input(2, LockstepInput.Type.ADD_FORCE, 1500, 500);
+        }
+    }
+
+    @Test
+    public void insertionOrderDoesNotChangeTheSimulation() {
+        for (boolean warmStarting : new boolean[]{false, true}) {
+            PhysicsSystem first = createSystem(1, warmStarting);
+            PhysicsSystem second = createSystem(2, warmStarting);
+            assertEquals(first.getStateHash(), second.getStateHash());
+            for (int step = 0; step < STEPS; step++) {
+                first.fixedUpdate();
+                second.fixedUpdate();
+                assertEquals(first.getStateHash(), second.getStateHash(), "step " + step);
+            }
+            assertFalse(first.getCollisions().isEmpty(), "the bodies never touched, the test scene is too easy");
+        }
+    }
+
+    @Test
+    public void jointedChainIsReproducible() {
+        PhysicsSystem first = createJointedSystem(7);
+        PhysicsSystem second = createJointedSystem(8);
+        Rigidbody2D end = first.getRigidbody(7);
+        float startRotation = end.getRotation();
+        for (int step = 0; step < STEPS; step++) {
+            first.fixedUpdate();
+            second.fixedUpdate();
+            assertEquals(first.getStateHash(), second.getStateHash(), "step " + step);
+        }
+        // the chain swung down and turned its links, so the joints rotated their anchors
+        assertTrue(end.getPosition().y < -20, "end at " + end.getPosition().y);
+        assertNotEquals(startRotation, end.getRotation());
+    }
+
+    @Test
+    public void bodiesAreKeptInIdOrder() {
+        PhysicsSystem system = createSystem(3, false);
+        Rigidbody2D extra = TestBodies.createBody(new Vector2f(0, 400), new Circle(5),
+                Rigidbody2D.BodyType.DYNAMIC, 0.2f);
+        system.addRigidbody(extra, 1000);
+        system.addRigidbody(TestBodies.createBody(new Vector2f(0, 500), new Circle(5),
+                Rigidbody2D.BodyType.DYNAMIC, 0.2f));
+        List<Rigidbody2D> bodies = system.getRigidbodies();
+        for (int i = 1; i < bodies.size(); i++) {
+            assertTrue(bodies.get(i - 1).getBodyId() < bodies.get(i).getBodyId());
+        }
+        assertSame(extra, system.getRigidbody(1000));
+        assertEquals(1001, bodies.get(bodies.size() - 1).getBodyId());
+        assertNull(system.getRigidbody(999));
+        assertThrows(IllegalArgumentException.class,
+                () -> system.addRigidbody(TestBodies.createBody(new Vector2f(), new Circle(1),
+                        Rigidbody2D.BodyType.DYNAMIC, 0.2f), 1000));
+    }
+
+    @Test
+    public void recordingsReplayToTheSameHashes() {
+        LockstepSimulation simulation = new LockstepSimulation(createSystem(4, true));
+        for (int step = 0; step < STEPS; step++) {
+            sendInputs(simulation, step);
+            simulation.step();
+        }
+        LockstepRecording recording = LockstepRecording.fromJson(simulation.getRecording().toJson());
+        assertEquals(STEPS, recording.getStepCount());
+        assertEquals(simulation.getRecording().getInputs().size(), recording.getInputs().size());
+        assertEquals(-1, LockstepSimulation.replay(createSystem(5, true), recording));
+    }
+
+    @Test
+    public void replayFindsTheFirstDesyncedStep() {
+        LockstepSimulation simulation = new LockstepSimulation(createSystem(6, false));
+        for (int step = 0; step < 100; step++) {
+            sendInputs(simulation, step);
+            simulation.step();
+        }
+        LockstepRecording recording = simulation.getRecording();
+        // a replay where body 3 gets one extra push before step 50
+        PhysicsSystem replayed = createSystem(6, false);
+        LockstepRecording altered = new LockstepRecording(DT);
+        LockstepInput push = new LockstepInput(50, 3, LockstepInput.Type.SET_VELOCITY, 0, 300);
+        for (LockstepInput input : recording.getInputs()) {
+            if (input.getStep() > 50 && push != null) {
+                altered.addInput(push);
+                push = null;
+            }
+            altered.addInput(input);
+        }
+        for (int step = 0; step < recording.getStepCount(); step++) {
+            altered.addHash(recording.getHash(step));
+        }
+        assertEquals(50, LockstepSimulation.replay(replayed, altered));
+    }
+}
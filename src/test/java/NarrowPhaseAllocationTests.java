@@ -0,0 +1,175 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import physics.collisions.CollisionManager;
+import physics.collisions.CollisionManifold;
+import physics.collisions.CollisionScratch;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.CapsuleCollider;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+import physics.primitives.PolygonCollider;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * NarrowPhaseAllocationTests checks that the pooled narrow phase still gives the results
+ * of the original allocating one and allocates nothing per pair once it is warmed up.
+ * Allocation is measured with the per-thread allocation counter of the JVM.
+ * Author(s): Gabriel & Ahmed
+ */
+public class NarrowPhaseAllocationTests {
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 1_000;
+
+    // pairs of colliders covering every supported combination, rotated and unrotated
+    private static List<Collider[]> createPairs(long seed, int count) {
+        Random random = new Random(seed);
+        List<Collider[]> pairs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Collider a = createCollider(random, random.nextFloat() * 60f, random.nextFloat() * 60f);
+            Collider b = createCollider(random, random.nextFloat() * 60f, random.nextFloat() * 60f);
+            pairs.add(new Collider[]{a, b});
+        }
+        return pairs;
+    }
+
+    private static Collider createCollider(Random random, float x, float y) {
+        Collider collider;
+        int shape = random.nextInt(4);
+        if (shape == 0) {
+            collider = new Circle(5f + random.nextFloat() * 15f);
+        } else if (shape == 1) {
+            collider = new OBBCollider(new Vector2f(10f + random.nextFloat() * 30f, 10f + random.nextFloat() * 30f));
+        } else if (shape == 2) {
+            collider = PolygonCollider.slope(10f + random.nextFloat() * 30f, 10f + random.nextFloat() * 30f);
+        } else {
+            collider = new CapsuleCollider(3f + random.nextFloat() * 8f, random.nextFloat() * 15f);
+        }
+        Rigidbody2D rb = TestBodies.createBody(new Vector2f(x, y), collider, Rigidbody2D.BodyType.DYNAMIC);
+        if (shape != 0 && random.nextBoolean()) {
+            rb.setRotation(random.nextFloat() * 90f);
+        }
+        return collider;
+    }
+
+    private static Collider circle(float radius, float x, float y) {
+        Circle circle = new Circle(radius);
+        TestBodies.createBody(new Vector2f(x, y), circle, Rigidbody2D.BodyType.DYNAMIC);
+        return circle;
+    }
+
+    private static Collider box(float width, float height, float x, float y, float rotation) {
+        OBBCollider box = new OBBCollider(new Vector2f(width, height));
+        TestBodies.createBody(new Vector2f(x, y), box, Rigidbody2D.BodyType.DYNAMIC).setRotation(rotation);
+        return box;
+    }
+
+    private static void assertManifold(float[] expected, boolean hit, CollisionManifold m, String name) {
+        if (expected == null) {
+            assertFalse(hit, name + " should not collide");
+            assertFalse(m.isColliding(), name + " should not collide");
+            return;
+        }
+        assertTrue(hit, name + " should collide");
+        assertEquals(expected[0], m.getNormal().x, 1e-5f, name + " normal x");
+        assertEquals(expected[1], m.getNormal().y, 1e-5f, name + " normal y");
+        assertEquals(expected[2], m.getPenetrationDepth(), 1e-5f, name + " depth");
+        List<Vector2f> contacts = m.getContactPoints();
+        assertEquals((expected.length - 3) / 2, contacts.size(), name + " contact count");
+        for (int i = 0; i < contacts.size(); i++) {
+            assertEquals(expected[3 + 2 * i], contacts.get(i).x, 1e-5f, name + " contact " + i + " x");
+            assertEquals(expected[4 + 2 * i], contacts.get(i).y, 1e-5f, name + " contact " + i + " y");
+        }
+    }
+
+    @Test
+    public void pooledNarrowPhaseKeepsTheOriginalResults() {
+        // {normal x, normal y, depth, contact x, contact y, ...} as the allocating narrow phase
+        // computed them before it was pooled, null when the pair does not collide
+        Object[][] cases = {
+                {"touching circles", circle(1, 0, 0), circle(1, 1.5f, 0), new float[]{1, 0, 0.5f, 0.75f, 0}},
+                {"separate circles", circle(1, 0, 0), circle(1, 3, 0), null},
+                {"stacked circles", circle(2, 1, 1), circle(1, 1, 3), new float[]{0, 1, 1, 1, 2.5f}},
+                {"circle on box", circle(1, 0, 2.5f), box(4, 4, 0, 0, 0), new float[]{0, 1, 0.5f, 0, 2}},
+                {"box beside circle", box(4, 4, 0, 0, 0), circle(1, 2.5f, 0), new float[]{1, 0, 0.5f, 2, 0}},
+                {"circle on turned box", circle(1, 0, 2.5f), box(4, 4, 0, 0, 45),
+                        new float[]{0.70710677f, 0.70710677f, 1, 0, -0.3284271f}},
+                {"overlapping boxes", box(2, 2, 0, 0, 0), box(2, 2, 1.5f, 0.5f, 0),
+                        new float[]{1, 0, 0.5f, 1, 1, 0.5f, -0.5f}},
+                {"separate boxes", box(2, 2, 0, 0, 0), box(2, 2, 3, 0, 0), null},
+                {"turned box on box", box(4, 2, 0, 0, 0), box(2, 2, 0, 1.8f, 30),
+                        new float[]{0, 1, 0.5660255f, -0.3660254f, 0.4339745f}},
+                {"box beside turned box", box(2, 2, 0, 0, 45), box(2, 2, 1.6f, 0, 0),
+                        new float[]{1, 0, 0.8142135f, 1.4142135f, 0}},
+        };
+        // one manifold and scratch for every pair, the way the physics system reuses them
+        CollisionManifold pooled = new CollisionManifold();
+        CollisionScratch scratch = new CollisionScratch();
+        for (Object[] c : cases) {
+            String name = (String) c[0];
+            Collider a = (Collider) c[1], b = (Collider) c[2];
+            float[] expected = (float[]) c[3];
+            assertManifold(expected, CollisionManager.findCollisionFeatures(a, b, pooled, scratch), pooled, name);
+            CollisionManifold allocated = CollisionManager.findCollisionFeatures(a, b);
+            assertManifold(expected, allocated.isColliding(), allocated, name + " (allocating)");
+        }
+    }
+
+    @Test
+    public void pooledNarrowPhaseAllocatesNothingPerPair() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(mx instanceof com.sun.management.ThreadMXBean, "allocation counter not available");
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) mx;
+        Assumptions.assumeTrue(bean.isThreadAllocatedMemorySupported(), "allocation counter not supported");
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        List<Collider[]> pairs = createPairs(2, 200);
+        CollisionManifold manifold = new CollisionManifold();
+        CollisionScratch scratch = new CollisionScratch();
+
+        // steady state: the manifold's contact pool and list have reached their maximum size
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runPairs(pairs, manifold, scratch);
+        }
+
+        // reading the counter may itself allocate a little, measure that overhead first
+        long threadId = Thread.currentThread().threadId();
+        long overheadStart = bean.getThreadAllocatedBytes(threadId);
+        long overhead = bean.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        // the first window can still see one-off allocations from the JIT, keep the smallest window
+        long allocated = Long.MAX_VALUE;
+        int hits = 0;
+        for (int window = 0; window < 5; window++) {
+            long start = bean.getThreadAllocatedBytes(threadId);
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                hits += runPairs(pairs, manifold, scratch);
+            }
+            long bytes = bean.getThreadAllocatedBytes(threadId) - start - overhead;
+            allocated = Math.min(allocated, bytes);
+        }
+
+        assertTrue(hits > 0);
+        long tested = (long) MEASURED_ROUNDS * pairs.size();
+        assertEquals(0, allocated, allocated + " bytes allocated over " + tested + " pairs ("
+                + (double) allocated / tested + " bytes per pair)");
+    }
+
+    private static int runPairs(List<Collider[]> pairs, CollisionManifold manifold, CollisionScratch scratch) {
+        int hits = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            Collider[] pair = pairs.get(i);
+            if (CollisionManager.findCollisionFeatures(pair[0], pair[1], manifold, scratch)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,131 @@
+import org.example.GameObject;
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.broadphase.DynamicAABBTree;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+import physics.raycast.Raycast;
+import physics.raycast.RaycastBatch;
+import physics.raycast.RaycastManager;
+import physics.raycast.RaycastResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * RaycastBatchTests checks that casting a batch of rays through the collider tree
+ * finds the same hits as casting the rays one by one, and the batch filters.
+ * Author(s): Gabriel & Ahmed
+ */
+public class RaycastBatchTests {
+
+    private static List<Rigidbody2D> createBodies(long seed, int count) {
+        Random random = new Random(seed);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Collider collider = random.nextBoolean()
+                    ? new Circle(5f + random.nextFloat() * 20f)
+                    : new OBBCollider(new Vector2f(10f + random.nextFloat() * 40f, 10f + random.nextFloat() * 40f));
+            Rigidbody2D rb = TestBodies.createBody(new Vector2f(random.nextFloat() * 800f, random.nextFloat() * 800f),
+                    collider, Rigidbody2D.BodyType.DYNAMIC);
+            rb.setRotation(random.nextFloat() * 90f);
+            bodies.add(rb);
+        }
+        return bodies;
+    }
+
+    @Test
+    public void batchFindsSameHitsAsSingleRays() {
+        List<Rigidbody2D> bodies = createBodies(3, 300);
+        DynamicAABBTree tree = new DynamicAABBTree(4f);
+        tree.update(bodies);
+        Random random = new Random(4);
+        RaycastBatch batch = new RaycastBatch();
+        for (int i = 0; i < 200; i++) {
+            Vector2f origin = new Vector2f(random.nextFloat() * 800f, random.nextFloat() * 800f);
+            float angle = random.nextFloat() * 6.2831855f;
+            Vector2f direction = new Vector2f((float) Math.cos(angle), (float) Math.sin(angle));
+            batch.add(origin, direction, 50f + random.nextFloat() * 400f, bodies.get(i % bodies.size()));
+        }
+        RaycastManager.raycast(batch, tree);
+
+        RaycastResult expected = new RaycastResult();
+        int hits = 0;
+        random = new Random(4);
+        for (int i = 0; i < batch.size(); i++) {
+            Vector2f origin = new Vector2f(random.nextFloat() * 800f, random.nextFloat() * 800f);
+            float angle = random.nextFloat() * 6.2831855f;
+            Vector2f direction = new Vector2f((float) Math.cos(angle), (float) Math.sin(angle));
+            float maxDistance = 50f + random.nextFloat() * 400f;
+            Rigidbody2D ignored = bodies.get(i % bodies.size());
+            Collider hit = RaycastManager.raycast(new Raycast(origin, direction), tree, maxDistance,
+                    other -> other.getRigidbody() != ignored, expected);
+
+            assertSame(hit, batch.getCollider(i), "ray " + i);
+            assertEquals(hit != null, batch.isHit(i));
+            if (hit != null) {
+                hits++;
+                assertEquals(expected.getDistance(), batch.getResult(i).getDistance(), 1e-4f);
+                assertEquals(expected.getPoint().x, batch.getResult(i).getPoint().x, 1e-3f);
+                assertEquals(expected.getPoint().y, batch.getResult(i).getPoint().y, 1e-3f);
+            } else {
+                assertFalse(batch.getResult(i).isHit());
+            }
+        }
+        assertTrue(hits > 20, "too few rays hit anything to compare");
+    }
+
+    @Test
+    public void batchSkipsIgnoredBodyAndFiltersByTag() {
+        // the caster stands left of a crate, and a wall stands behind the crate
+        Rigidbody2D caster = TestBodies.createBody(new Vector2f(0, 0), new OBBCollider(new Vector2f(10, 10)),
+                Rigidbody2D.BodyType.DYNAMIC);
+        Rigidbody2D crate = TestBodies.createBody(new Vector2f(30, 0), new OBBCollider(new Vector2f(10, 10)),
+                Rigidbody2D.BodyType.DYNAMIC);
+        Rigidbody2D wall = TestBodies.createBody(new Vector2f(60, 0), new OBBCollider(new Vector2f(10, 100)),
+                Rigidbody2D.BodyType.DYNAMIC);
+        GameObject wallObject = new GameObject("Wall");
+        wallObject.setTag("Wall");
+        wallObject.addComponent(wall);
+        List<Rigidbody2D> bodies = List.of(caster, crate, wall);
+        DynamicAABBTree tree = new DynamicAABBTree(4f);
+        tree.update(bodies);
+
+        RaycastBatch batch = new RaycastBatch();
+        int right = batch.add(new Vector2f(0, 0), new Vector2f(2, 0), 100f, caster);
+        int left = batch.add(new Vector2f(0, 0), new Vector2f(-1, 0), 100f, caster);
+        RaycastManager.raycast(batch, tree);
+        assertSame(crate.getCollider(), batch.getCollider(right));
+        assertEquals(25f, batch.getResult(right).getDistance(), 1e-4f);
+        assertFalse(batch.isHit(left));
+
+        RaycastResult rightResult = batch.getResult(right);
+        batch.setTags("Wall");
+        batch.clear();
+        right = batch.add(new Vector2f(0, 0), new Vector2f(1, 0), 100f, caster);
+        RaycastManager.raycast(batch, tree);
+        assertSame(wall.getCollider(), batch.getCollider(right));
+        assertEquals(55f, batch.getResult(right).getDistance(), 1e-4f);
+        // results are reused after clear
+        assertSame(rightResult, batch.getResult(right));
+
+        // a ray too short to reach the wall hits nothing
+        batch.clear();
+        right = batch.add(new Vector2f(0, 0), new Vector2f(1, 0), 40f, caster);
+        RaycastManager.raycast(batch, tree);
+        assertFalse(batch.isHit(right));
+        assertThrows(IllegalArgumentException.class, () -> batch.getResult(1));
+    }
+
+    @Test
+    public void zeroDirectionIsRejected() {
+        RaycastBatch batch = new RaycastBatch();
+        assertThrows(IllegalArgumentException.class, () -> batch.add(new Vector2f(), new Vector2f(), 10f, null));
+        assertEquals(0, batch.size());
+    }
+}
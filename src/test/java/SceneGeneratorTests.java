@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+import physics.collisions.Rigidbody2D;
+import physics.headless.HeadlessSimulation;
+import physics.headless.SceneGenerator;
+import physics.primitives.Circle;
+import physics.primitives.OBBCollider;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * SceneGeneratorTests checks that the generated scene has the requested bodies, that a
+ * seed always gives the same scene and that the headless harness reports sane numbers.
+ * Author(s): Gabriel & Ahmed
+ */
+public class SceneGeneratorTests {
+
+    private static SceneGenerator createGenerator() {
+        SceneGenerator generator = new SceneGenerator();
+        generator.setSnowballs(200);
+        generator.setPlatforms(20);
+        generator.setSnowballMix(0.1f, 0.2f);
+        generator.setPlatformMix(0.5f, 0.5f);
+        return generator;
+    }
+
+    @Test
+    public void sceneHasTheRequestedBodies() {
+        HeadlessSimulation simulation = new HeadlessSimulation(createGenerator());
+        List<Rigidbody2D> bodies = simulation.getBodies();
+        // the ground comes first, then the platforms, then the snowballs
+        assertEquals(1 + 20 + 200, bodies.size());
+        assertEquals(bodies.size(), simulation.getSystem().getRigidbodies().size());
+        assertEquals(Rigidbody2D.BodyType.STATIC, bodies.get(0).getBodyType());
+        int[] types = new int[Rigidbody2D.BodyType.values().length];
+        for (int i = 1; i < bodies.size(); i++) {
+            boolean platform = i <= 20;
+            if (platform) {
+                assertInstanceOf(OBBCollider.class, bodies.get(i).getCollider());
+            } else {
+                assertInstanceOf(Circle.class, bodies.get(i).getCollider());
+                types[bodies.get(i).getBodyType().ordinal()]++;
+            }
+        }
+        // the mix is random, so only check that every type shows up near its share
+        assertTrue(types[Rigidbody2D.BodyType.STATIC.ordinal()] > 5);
+        assertTrue(types[Rigidbody2D.BodyType.KINEMATIC.ordinal()] > 20);
+        assertTrue(types[Rigidbody2D.BodyType.DYNAMIC.ordinal()] > 100);
+    }
+
+    @Test
+    public void sameSeedGivesTheSameSimulation() {
+        HeadlessSimulation a = new HeadlessSimulation(createGenerator());
+        HeadlessSimulation b = new HeadlessSimulation(createGenerator());
+        SceneGenerator other = createGenerator();
+        other.setSeed(2);
+        HeadlessSimulation c = new HeadlessSimulation(other);
+        for (int i = 0; i < 60; i++) {
+            a.step();
+            b.step();
+            c.step();
+        }
+        assertEquals(a.getSystem().getStateHash(), b.getSystem().getStateHash());
+        assertNotEquals(a.getSystem().getStateHash(), c.getSystem().getStateHash());
+    }
+
+    @Test
+    public void kinematicBodiesStayInTheWorld() {
+        SceneGenerator generator = createGenerator();
+        // static bodies push kinematic ones out of them, so only the generator moves these
+        generator.setSnowballMix(0.0f, 0.0f);
+        generator.setPlatformMix(0.0f, 1.0f);
+        generator.setWorldSize(300, 200);
+        HeadlessSimulation simulation = new HeadlessSimulation(generator);
+        for (int i = 0; i < 600; i++) {
+            simulation.step();
+        }
+        for (Rigidbody2D body : simulation.getBodies()) {
+            if (body.getBodyType() == Rigidbody2D.BodyType.KINEMATIC) {
+                assertTrue(body.getPosition().x >= 0 && body.getPosition().x <= 300, "x " + body.getPosition().x);
+                assertTrue(body.getPosition().y >= 0 && body.getPosition().y <= 200, "y " + body.getPosition().y);
+            }
+        }
+    }
+
+    @Test
+    public void runReportsStepStatistics() {
+        HeadlessSimulation simulation = new HeadlessSimulation(createGenerator());
+        HeadlessSimulation.Stats stats = simulation.run(10, 50);
+        assertEquals(221, stats.bodies);
+        assertEquals(50, stats.steps);
+        assertTrue(stats.medianNanos > 0 && stats.medianNanos <= stats.p99Nanos);
+        assertTrue(stats.contactsPerStep > 0, "snowballs resting on the ground touch it");
+        assertTrue(stats.awakeBodies > 0 && stats.awakeBodies <= stats.bodies);
+        assertThrows(IllegalArgumentException.class, () -> simulation.run(0, 0));
+    }
+
+    @Test
+    public void invalidSettingsAreRejected() {
+        SceneGenerator generator = new SceneGenerator();
+        assertThrows(IllegalArgumentException.class, () -> generator.setSnowballs(-1));
+        assertThrows(IllegalArgumentException.class, () -> generator.setSnowballMix(0.6f, 0.5f));
+        assertThrows(IllegalArgumentException.class, () -> generator.setWorldSize(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> generator.setSnowballRadius(5, 2));
+    }
+}
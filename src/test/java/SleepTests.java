@@ -0,0 +1,113 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * SleepTests checks that resting bodies fall asleep, are skipped by the simulation
+ * and wake up again on contacts, forces and new positions or velocities.
+ * Author(s): Gabriel & Ahmed
+ */
+public class SleepTests {
+    private static final float DT = 0.048f;
+
+    // a static floor with separate bodies resting on it
+    private static List<Rigidbody2D> createRestingScene(PhysicsSystem system, int count) {
+        TestBodies.addBody(system, new Vector2f(500, -50), new OBBCollider(new Vector2f(2000, 100)),
+                Rigidbody2D.BodyType.STATIC);
+        List<Rigidbody2D> bodies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Collider collider = i % 2 == 0 ? new Circle(10) : new OBBCollider(new Vector2f(20, 20));
+            bodies.add(TestBodies.addBody(system, new Vector2f(i * 50, 10), collider, Rigidbody2D.BodyType.DYNAMIC));
+        }
+        return bodies;
+    }
+
+    private static void step(PhysicsSystem system, int steps) {
+        for (int i = 0; i < steps; i++) {
+            system.fixedUpdate();
+        }
+    }
+
+    @Test
+    public void restingBodiesFallAsleepAndStayPut() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -9.82f));
+        List<Rigidbody2D> bodies = createRestingScene(system, 10);
+        step(system, 200);
+
+        assertEquals(10, system.getSleepingBodyCount());
+        assertEquals(0, system.getAwakeBodyCount());
+        List<Vector2f> positions = new ArrayList<>();
+        for (Rigidbody2D rb : bodies) {
+            assertFalse(rb.isAwake());
+            positions.add(new Vector2f(rb.getPosition()));
+        }
+
+        step(system, 50);
+        // the floor contacts are no longer tested and nothing moves or gathers gravity
+        assertEquals(10, system.getSleepingPairCount());
+        assertEquals(0, system.getCollisions().size());
+        for (int i = 0; i < bodies.size(); i++) {
+            assertEquals(positions.get(i), bodies.get(i).getPosition());
+            assertEquals(new Vector2f(), bodies.get(i).getForceAccumulator());
+        }
+    }
+
+    @Test
+    public void forcesAndSettersWakeBodies() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -9.82f));
+        List<Rigidbody2D> bodies = createRestingScene(system, 4);
+        step(system, 200);
+        for (Rigidbody2D rb : bodies) {
+            assertFalse(rb.isAwake());
+        }
+
+        bodies.get(0).addForce(new Vector2f(0, 100));
+        bodies.get(1).setVelocity(new Vector2f(5, 0));
+        bodies.get(2).setPosition(new Vector2f(100, 200));
+        assertTrue(bodies.get(0).isAwake());
+        assertTrue(bodies.get(1).isAwake());
+        assertTrue(bodies.get(2).isAwake());
+        assertFalse(bodies.get(3).isAwake());
+
+        // the moved body is integrated again and falls
+        step(system, 1);
+        assertTrue(bodies.get(2).getPosition().y < 200);
+        assertEquals(3, system.getAwakeBodyCount());
+    }
+
+    @Test
+    public void contactWithMovingBodyWakesSleepingBody() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -9.82f));
+        List<Rigidbody2D> bodies = createRestingScene(system, 1);
+        step(system, 200);
+        Rigidbody2D sleeping = bodies.get(0);
+        assertFalse(sleeping.isAwake());
+
+        Rigidbody2D falling = TestBodies.addBody(system, new Vector2f(0, 40), new Circle(10),
+                Rigidbody2D.BodyType.DYNAMIC);
+        falling.setVelocity(new Vector2f(0, -100));
+        for (int i = 0; i < 20 && !sleeping.isAwake(); i++) {
+            system.fixedUpdate();
+        }
+        assertTrue(sleeping.isAwake());
+    }
+
+    @Test
+    public void disabledSleepingKeepsBodiesAwake() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -9.82f));
+        system.setSleepingEnabled(false);
+        createRestingScene(system, 4);
+        step(system, 200);
+        assertEquals(0, system.getSleepingBodyCount());
+        assertEquals(4, system.getAwakeBodyCount());
+    }
+}
@@ -0,0 +1,166 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsHistory;
+import physics.PhysicsSnapshot;
+import physics.PhysicsSystem;
+import physics.collisions.CollisionManifold;
+import physics.collisions.ContactListener;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * SnapshotTests checks that restoring a snapshot and stepping again reproduces the
+ * original steps bit for bit, that the history rewinds the right step, and that saving
+ * and restoring allocate nothing once the snapshots are warmed up.
+ * Author(s): Gabriel & Ahmed
+ */
+public class SnapshotTests {
+    private static final float DT = 1.0f / 60.0f;
+
+    // a ground and a pile of boxes and circles falling onto it
+    private static PhysicsSystem createSystem(boolean warmStarting) {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        system.setWarmStarting(warmStarting);
+        TestBodies.addBody(system, new Vector2f(0, -10), new OBBCollider(new Vector2f(600, 20)),
+                Rigidbody2D.BodyType.STATIC, 0.2f);
+        Random random = new Random(8);
+        for (int i = 0; i < 60; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * 160 - 80, 10 + random.nextFloat() * 200);
+            Collider collider = i % 3 == 0 ? new Circle(5) : new OBBCollider(new Vector2f(10, 10));
+            Rigidbody2D body = TestBodies.createBody(position, collider, Rigidbody2D.BodyType.DYNAMIC, 0.2f);
+            body.setRotation(random.nextFloat() * 45);
+            system.addRigidbody(body);
+        }
+        return system;
+    }
+
+    @Test
+    public void restoredSystemsRepeatTheSameSteps() {
+        for (boolean warmStarting : new boolean[]{false, true}) {
+            PhysicsSystem system = createSystem(warmStarting);
+            // let the pile land, so the snapshot holds contacts and cached impulses
+            for (int i = 0; i < 90; i++) {
+                system.fixedUpdate();
+            }
+            PhysicsSnapshot snapshot = new PhysicsSnapshot();
+            system.saveSnapshot(snapshot);
+            long[] hashes = new long[60];
+            for (int i = 0; i < hashes.length; i++) {
+                system.fixedUpdate();
+                hashes[i] = system.getStateHash();
+            }
+            system.restoreSnapshot(snapshot);
+            for (int i = 0; i < hashes.length; i++) {
+                system.fixedUpdate();
+                assertEquals(hashes[i], system.getStateHash(), "step " + i + ", warm starting " + warmStarting);
+            }
+        }
+    }
+
+    @Test
+    public void historyRewindsToTheRecordedStep() {
+        PhysicsSystem system = createSystem(true);
+        PhysicsHistory history = new PhysicsHistory(10);
+        long[] hashes = new long[25];
+        for (int i = 0; i < hashes.length; i++) {
+            history.record(system);
+            hashes[i] = system.getStateHash();
+            system.fixedUpdate();
+        }
+        assertEquals(10, history.getSize());
+        assertThrows(IllegalArgumentException.class, () -> history.rewind(system, 10));
+
+        history.rewind(system, 4);
+        assertEquals(hashes[20], system.getStateHash());
+        assertEquals(6, history.getSize());
+        // re-simulating from there records over the forgotten steps
+        for (int i = 21; i < hashes.length; i++) {
+            system.fixedUpdate();
+            history.record(system);
+            assertEquals(hashes[i], system.getStateHash());
+        }
+        history.rewind(system, 9);
+        assertEquals(hashes[15], system.getStateHash());
+    }
+
+    @Test
+    public void contactEventsContinueAfterARewind() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        TestBodies.addBody(system, new Vector2f(0, -10), new OBBCollider(new Vector2f(600, 20)),
+                Rigidbody2D.BodyType.STATIC, 0.2f);
+        Rigidbody2D box = TestBodies.addBody(system, new Vector2f(0, 20), new OBBCollider(new Vector2f(10, 10)),
+                Rigidbody2D.BodyType.DYNAMIC, 0.2f);
+        int[] enters = new int[1];
+        box.addContactListener(new ContactListener() {
+            @Override
+            public void onContactEnter(Rigidbody2D self, Rigidbody2D other, CollisionManifold manifold) {
+                enters[0]++;
+            }
+        });
+        for (int i = 0; i < 60; i++) {
+            system.fixedUpdate();
+        }
+        assertEquals(1, enters[0]);
+        assertEquals(1, system.getContactIndex().getContactCount(box));
+
+        PhysicsSnapshot snapshot = new PhysicsSnapshot();
+        system.saveSnapshot(snapshot);
+        system.fixedUpdate();
+        system.restoreSnapshot(snapshot);
+        // the restored contact is still there, so the box stays on the ground without a new enter
+        assertEquals(1, system.getContactIndex().getContactCount(box));
+        system.fixedUpdate();
+        assertEquals(1, enters[0]);
+    }
+
+    @Test
+    public void restoringAfterAddingABodyFails() {
+        PhysicsSystem system = createSystem(false);
+        PhysicsSnapshot snapshot = new PhysicsSnapshot();
+        assertThrows(IllegalArgumentException.class, () -> system.restoreSnapshot(snapshot));
+        system.saveSnapshot(snapshot);
+        TestBodies.addBody(system, new Vector2f(0, 300), new Circle(5), Rigidbody2D.BodyType.DYNAMIC, 0.2f);
+        assertThrows(IllegalStateException.class, () -> system.restoreSnapshot(snapshot));
+    }
+
+    @Test
+    public void snapshotsAllocateNothing() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(mx instanceof com.sun.management.ThreadMXBean, "allocation counter not available");
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) mx;
+        Assumptions.assumeTrue(bean.isThreadAllocatedMemorySupported(), "allocation counter not supported");
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        PhysicsSystem system = createSystem(true);
+        for (int i = 0; i < 90; i++) {
+            system.fixedUpdate();
+        }
+        PhysicsSnapshot snapshot = new PhysicsSnapshot();
+        for (int i = 0; i < 2_000; i++) {
+            system.saveSnapshot(snapshot);
+            system.restoreSnapshot(snapshot);
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long overheadStart = bean.getThreadAllocatedBytes(threadId);
+        long overhead = bean.getThreadAllocatedBytes(threadId) - overheadStart;
+        long allocated = Long.MAX_VALUE;
+        for (int window = 0; window < 5; window++) {
+            long start = bean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 1_000; i++) {
+                system.saveSnapshot(snapshot);
+                system.restoreSnapshot(snapshot);
+            }
+            allocated = Math.min(allocated, bean.getThreadAllocatedBytes(threadId) - start - overhead);
+        }
+        assertEquals(0, allocated, allocated + " bytes allocated over 1000 saves and restores");
+    }
+}
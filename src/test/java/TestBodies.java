@@ -0,0 +1,82 @@
+import org.joml.Vector2f;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.Collider;
+import physics.primitives.OBBCollider;
+
+/*
+ * TestBodies creates the rigidbodies the physics tests build their scenes from, with the
+ * collider attached. Bodies keep the default restitution of 1 unless one is given.
+ * Author(s): Gabriel & Ahmed
+ */
+public class TestBodies {
+
+    /*
+     * @param position - position of the body
+     * @param type - body type
+     * @return a body without a collider, for tests of forces and integration
+     */
+    static Rigidbody2D createBody(Vector2f position, Rigidbody2D.BodyType type) {
+        Rigidbody2D rb = new Rigidbody2D();
+        rb.setBodyType(type);
+        rb.setPosition(position);
+        return rb;
+    }
+
+    /*
+     * @param position - position of the body
+     * @param collider - collider to attach, not attached to any body yet
+     * @param type - body type
+     * @return the body, not added to any system
+     */
+    static Rigidbody2D createBody(Vector2f position, Collider collider, Rigidbody2D.BodyType type) {
+        Rigidbody2D rb = createBody(position, type);
+        collider.setRigidbody(rb);
+        rb.setCollider(collider);
+        return rb;
+    }
+
+    static Rigidbody2D createBody(Vector2f position, Collider collider, Rigidbody2D.BodyType type,
+                                  float restitution) {
+        Rigidbody2D rb = createBody(position, collider, type);
+        rb.setRestitution(restitution);
+        return rb;
+    }
+
+    /*
+     * Creates a body like createBody and adds it to the system.
+     */
+    static Rigidbody2D addBody(PhysicsSystem system, Vector2f position, Collider collider,
+                               Rigidbody2D.BodyType type) {
+        Rigidbody2D rb = createBody(position, collider, type);
+        system.addRigidbody(rb);
+        return rb;
+    }
+
+    static Rigidbody2D addBody(PhysicsSystem system, Vector2f position, Collider collider,
+                               Rigidbody2D.BodyType type, float restitution) {
+        Rigidbody2D rb = createBody(position, collider, type, restitution);
+        system.addRigidbody(rb);
+        return rb;
+    }
+
+    /*
+     * @param size - width and height of the box
+     * @return a square box, not added to any system
+     */
+    static Rigidbody2D createBox(float x, float y, float size, Rigidbody2D.BodyType type) {
+        return createBody(new Vector2f(x, y), new OBBCollider(new Vector2f(size, size)), type);
+    }
+
+    static Rigidbody2D createBox(float x, float y, float size, Rigidbody2D.BodyType type, float restitution) {
+        return createBody(new Vector2f(x, y), new OBBCollider(new Vector2f(size, size)), type, restitution);
+    }
+
+    /*
+     * Adds a dynamic circle to the system.
+     */
+    static Rigidbody2D addCircle(PhysicsSystem system, float x, float y, float radius) {
+        return addBody(system, new Vector2f(x, y), new Circle(radius), Rigidbody2D.BodyType.DYNAMIC);
+    }
+}
@@ -0,0 +1,155 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.Rigidbody2D;
+import physics.primitives.Circle;
+import physics.primitives.OBBCollider;
+import physics.tilemap.TilemapCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * TilemapColliderTests checks that solid tiles are merged into few rectangles that cover
+ * exactly the solid tiles, that editing a tile only replaces the rectangles around it and
+ * that bodies rest on the merged map.
+ * Author(s): Gabriel & Ahmed
+ */
+public class TilemapColliderTests {
+    private static final float TILE = 16.0f;
+
+    // rows given top first, as they read in the source, '#' for solid tiles
+    private static boolean[][] parse(String... lines) {
+        boolean[][] solid = new boolean[lines.length][];
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[lines.length - 1 - i];
+            solid[i] = new boolean[line.length()];
+            for (int j = 0; j < line.length(); j++) {
+                solid[i][j] = line.charAt(j) == '#';
+            }
+        }
+        return solid;
+    }
+
+    // every solid tile lies in exactly one rectangle and every empty tile in none
+    private static void assertCoversSolidTiles(TilemapCollider map) {
+        for (int row = 0; row < map.getRows(); row++) {
+            for (int column = 0; column < map.getColumns(); column++) {
+                float x = map.getOrigin().x + (column + 0.5f) * TILE, y = map.getOrigin().y + (row + 0.5f) * TILE;
+                int covering = 0;
+                for (Rigidbody2D body : map.getBodies()) {
+                    Vector2f half = ((OBBCollider) body.getCollider()).getHalfSize();
+                    Vector2f p = body.getPosition();
+                    if (Math.abs(x - p.x) < half.x && Math.abs(y - p.y) < half.y) covering++;
+                }
+                assertEquals(map.isSolid(column, row) ? 1 : 0, covering, "tile " + column + ", " + row);
+            }
+        }
+    }
+
+    @Test
+    public void solidTilesMergeIntoRectangles() {
+        TilemapCollider block = new TilemapCollider(parse(
+                "######",
+                "######",
+                "######"), TILE);
+        assertEquals(1, block.getRectangleCount());
+        Rigidbody2D body = block.getBodies().get(0);
+        assertEquals(Rigidbody2D.BodyType.STATIC, body.getBodyType());
+        assertEquals(new Vector2f(48, 24), body.getPosition());
+        assertEquals(new Vector2f(48, 24), ((OBBCollider) body.getCollider()).getHalfSize());
+
+        TilemapCollider level = new TilemapCollider(parse(
+                "#........#",
+                "#...##...#",
+                "#.....####",
+                "##########"), TILE);
+        // the floor, the two walls, the step and the floating platform
+        assertEquals(5, level.getRectangleCount());
+        assertCoversSolidTiles(level);
+    }
+
+    @Test
+    public void randomMapsAreCoveredExactly() {
+        Random random = new Random(3);
+        for (int n = 0; n < 20; n++) {
+            TilemapCollider map = new TilemapCollider(12, 9, TILE);
+            map.setOrigin(new Vector2f(-100, 40));
+            for (int i = 0; i < 60; i++) {
+                map.setSolid(random.nextInt(12), random.nextInt(9), random.nextFloat() < 0.7f);
+            }
+            assertCoversSolidTiles(map);
+            int solid = 0;
+            for (int row = 0; row < 9; row++) {
+                for (int column = 0; column < 12; column++) {
+                    if (map.isSolid(column, row)) solid++;
+                }
+            }
+            assertTrue(map.getRectangleCount() <= solid);
+        }
+    }
+
+    @Test
+    public void editingATileOnlyReplacesTheRectanglesAroundIt() {
+        TilemapCollider map = new TilemapCollider(parse(
+                "##....##",
+                "##....##",
+                "........",
+                "########"), TILE);
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -10));
+        map.attach(system);
+        assertEquals(3, system.getRigidbodies().size());
+        List<Rigidbody2D> before = new ArrayList<>(map.getBodies());
+
+        // a tile on top of the left block only rebuilds that block
+        map.setSolid(0, 3, false);
+        map.setSolid(0, 3, true);
+        map.setSolid(2, 2, true);
+        List<Rigidbody2D> after = map.getBodies();
+        int kept = 0;
+        for (Rigidbody2D body : before) {
+            if (after.contains(body)) kept++;
+        }
+        assertEquals(2, kept);
+        assertCoversSolidTiles(map);
+        // the simulation holds exactly the current rectangles
+        assertEquals(map.getRectangleCount(), system.getRigidbodies().size());
+        assertTrue(system.getRigidbodies().containsAll(after));
+
+        map.detach();
+        assertTrue(system.getRigidbodies().isEmpty());
+    }
+
+    @Test
+    public void tilesOutsideTheMapAreRejected() {
+        TilemapCollider map = new TilemapCollider(4, 4, TILE);
+        assertThrows(IllegalArgumentException.class, () -> map.setSolid(4, 0, true));
+        assertThrows(IllegalArgumentException.class, () -> map.isSolid(0, -1));
+        assertThrows(IllegalArgumentException.class, () -> new TilemapCollider(4, 4, 0));
+    }
+
+    @Test
+    public void bodiesRestOnTheMergedFloor() {
+        TilemapCollider map = new TilemapCollider(parse(
+                "#..........#",
+                "############"), TILE);
+        PhysicsSystem system = new PhysicsSystem(1.0f / 60.0f, new Vector2f(0, -200));
+        map.attach(system);
+        List<Rigidbody2D> balls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            balls.add(TestBodies.addBody(system, new Vector2f(40 + i * 24, 80), new Circle(6),
+                    Rigidbody2D.BodyType.DYNAMIC, 0.0f));
+        }
+        for (int i = 0; i < 300; i++) {
+            system.fixedUpdate();
+        }
+        for (Rigidbody2D rb : balls) {
+            // on top of the floor row, between the walls
+            assertEquals(TILE + 6, rb.getPosition().y, 0.5f);
+            assertTrue(rb.getPosition().x > TILE && rb.getPosition().x < 11 * TILE);
+        }
+    }
+}
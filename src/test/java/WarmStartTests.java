@@ -0,0 +1,156 @@
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import physics.PhysicsSystem;
+import physics.collisions.CollisionManager;
+import physics.collisions.CollisionManifold;
+import physics.collisions.CollisionScratch;
+import physics.collisions.ContactCache;
+import physics.collisions.Rigidbody2D;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * WarmStartTests checks the contact cache, the clipped box contacts it is keyed by,
+ * and that the warm-started contact solver brings a stack of boxes to rest.
+ * Author(s): Gabriel & Ahmed
+ */
+public class WarmStartTests {
+    private static final float DT = 1.0f / 60.0f;
+
+    // a static floor with a column of boxes dropped onto it
+    private static List<Rigidbody2D> createColumn(PhysicsSystem system, int height) {
+        system.addRigidbody(TestBodies.createBox(0, -50, 100, Rigidbody2D.BodyType.STATIC, 0.0f));
+        List<Rigidbody2D> boxes = new ArrayList<>();
+        for (int h = 0; h < height; h++) {
+            Rigidbody2D box = TestBodies.createBox(0, h * 20.5f + 10.5f, 20, Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+            system.addRigidbody(box);
+            boxes.add(box);
+        }
+        return boxes;
+    }
+
+    @Test
+    public void cacheReturnsImpulsesOfPreviousStep() {
+        ContactCache cache = new ContactCache();
+        cache.beginStep();
+        // enough pairs to grow the tables
+        for (int i = 0; i < 100; i++) {
+            cache.beginEntry(ContactCache.key(i, i + 1));
+            cache.addPoint(3, i, -i);
+            cache.addPoint(7, 2 * i, 0.5f);
+        }
+        assertEquals(100, cache.size());
+
+        cache.beginStep();
+        assertEquals(0, cache.size());
+        int entry = cache.findPrevious(ContactCache.key(42, 43));
+        assertTrue(entry >= 0);
+        int point = cache.findPreviousPoint(entry, 7);
+        assertEquals(84.0f, cache.getPreviousNormalImpulse(point));
+        assertEquals(0.5f, cache.getPreviousTangentImpulse(point));
+        point = cache.findPreviousPoint(entry, 3);
+        assertEquals(-42.0f, cache.getPreviousTangentImpulse(point));
+        assertEquals(-1, cache.findPreviousPoint(entry, 5));
+        // the key depends on the order of the bodies
+        assertEquals(-1, cache.findPrevious(ContactCache.key(43, 42)));
+
+        cache.setEnabled(false);
+        assertEquals(-1, cache.findPrevious(ContactCache.key(42, 43)));
+        cache.setEnabled(true);
+
+        // pairs not stored during a step are gone after the next one
+        cache.beginStep();
+        assertEquals(-1, cache.findPrevious(ContactCache.key(42, 43)));
+    }
+
+    @Test
+    public void clippedBoxContactsKeepTheirFeatures() {
+        Rigidbody2D bottom = TestBodies.createBox(0, 0, 20, Rigidbody2D.BodyType.STATIC, 0.0f);
+        Rigidbody2D top = TestBodies.createBox(3, 19.9f, 20, Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+        CollisionScratch scratch = new CollisionScratch();
+        scratch.setClippedBoxContacts(true);
+        CollisionManifold m = new CollisionManifold();
+
+        assertTrue(CollisionManager.findCollisionFeatures(bottom.getCollider(), top.getCollider(), m, scratch));
+        assertEquals(new Vector2f(0, 1), m.getNormal());
+        assertEquals(2, m.getContactCount());
+        assertEquals(-0.1f, m.getSeparation(0), 1e-4);
+        int feature0 = m.getFeature(0), feature1 = m.getFeature(1);
+        assertNotEquals(feature0, feature1);
+
+        // slightly rotated and moved, the same edges touch and the ids stay the same
+        top.setRotation(0.5f);
+        top.setPosition(new Vector2f(2.5f, 19.95f));
+        assertTrue(CollisionManager.findCollisionFeatures(bottom.getCollider(), top.getCollider(), m, scratch));
+        assertEquals(2, m.getContactCount());
+        assertEquals(feature0, m.getFeature(0));
+        assertEquals(feature1, m.getFeature(1));
+        assertTrue(m.getSeparation(0) != m.getSeparation(1));
+    }
+
+    @Test
+    public void warmStartedStackComesToRest() {
+        PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+        system.setSleepingEnabled(false);
+        system.setWarmStarting(true);
+        system.setImpulseIterations(11);
+        List<Rigidbody2D> boxes = createColumn(system, 5);
+        for (int i = 0; i < 300; i++) {
+            system.fixedUpdate();
+        }
+
+        assertEquals(5, system.getContactSolver().getCache().size());
+        for (int h = 0; h < boxes.size(); h++) {
+            Rigidbody2D box = boxes.get(h);
+            assertTrue(box.getLinearVelocity().length() < 0.1f, "box " + h + " still moving");
+            assertEquals(0.0f, box.getPosition().x, 0.5f);
+            assertEquals(h * 20 + 10, box.getPosition().y, 0.5f);
+        }
+        // the floor carries the weight of the whole column
+        float floorImpulse = 0.0f;
+        for (int j = 0; j < system.getCollisions().size(); j++) {
+            CollisionManifold m = system.getCollisions().get(j);
+            if (m.getA().getBodyType() != Rigidbody2D.BodyType.STATIC
+                    && m.getB().getBodyType() != Rigidbody2D.BodyType.STATIC) continue;
+            for (int c = 0; c < m.getContactCount(); c++) {
+                floorImpulse += system.getContactSolver().getNormalImpulse(j, c);
+            }
+        }
+        assertEquals(5 * 200 * DT, floorImpulse, 0.05f);
+    }
+
+    @Test
+    public void warmStartingGivesSameResultOnSeveralThreads() {
+        long[] hashes = new long[2];
+        for (int run = 0; run < 2; run++) {
+            PhysicsSystem system = new PhysicsSystem(DT, new Vector2f(0, -200));
+            system.setWarmStarting(true);
+            system.setSolverThreads(run == 0 ? 1 : 4);
+            List<Rigidbody2D> boxes = new ArrayList<>();
+            system.addRigidbody(TestBodies.createBox(500, -500, 1000, Rigidbody2D.BodyType.STATIC, 0.0f));
+            for (int c = 0; c < 40; c++) {
+                for (int h = 0; h < 4; h++) {
+                    Rigidbody2D box = TestBodies.createBox(c * 25, h * 20.5f + 10.5f, 20,
+                            Rigidbody2D.BodyType.DYNAMIC, 0.0f);
+                    box.setRotation((c * 7 + h * 3) % 5);
+                    system.addRigidbody(box);
+                    boxes.add(box);
+                }
+            }
+            long hash = 0;
+            for (int step = 0; step < 60; step++) {
+                system.fixedUpdate();
+                for (Rigidbody2D box : boxes) {
+                    hash = hash * 31 + Float.floatToIntBits(box.getPosition().x);
+                    hash = hash * 31 + Float.floatToIntBits(box.getPosition().y);
+                    hash = hash * 31 + Float.floatToIntBits(box.getRotation());
+                }
+            }
+            hashes[run] = hash;
+        }
+        assertEquals(hashes[0], hashes[1]);
+    }
+}